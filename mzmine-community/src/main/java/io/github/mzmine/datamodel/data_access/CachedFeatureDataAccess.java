@@ -30,26 +30,35 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.modules.dataprocessing.group_metacorrelate.corrgrouping.CorrelateGroupingTask;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * This class caches feature data and either preloads all features of all provided feature list rows
  * object loads data lazily and stores already loaded intensity/mz values in memory for later data
  * accession. The intended use is for cases where the feature data is accessed multiple times, e.g.,
  * in the {@link CorrelateGroupingTask} where all feature shapes are correlated against each other.
- * In this case, all intensity data are preloaded to avoid synchronization in a ConcurrentHashMap.
+ * In this case, all intensity data are preloaded into a {@link FeatureShapeStore} that packs them
+ * into memory mapped segments to avoid synchronization and to keep the heap bounded for large
+ * cohorts.
  *
  * @author Robin Schmid (https://github.com/robinschmid)
  */
 public class CachedFeatureDataAccess {
 
   private final boolean preloadMz;
-  private final boolean preloadIntensity;
   protected final Map<Feature, double[]> intensityMap;
   protected final Map<Feature, double[]> mzMap;
+  /**
+   * preloaded intensities
+   */
+  private final @Nullable FeatureShapeStore intensityStore;
 
   /**
    * Initialize data access as a cache with {@link ConcurrentHashMap} for thread safety. This is
@@ -58,9 +67,9 @@ public class CachedFeatureDataAccess {
    */
   public CachedFeatureDataAccess() {
     preloadMz = false;
-    preloadIntensity = false;
     intensityMap = new ConcurrentHashMap<>();
     mzMap = new ConcurrentHashMap<>();
+    intensityStore = null;
   }
 
   /**
@@ -88,35 +97,65 @@ public class CachedFeatureDataAccess {
    */
   public CachedFeatureDataAccess(FeatureListRow[] rows, boolean preloadMz,
       boolean preloadIntensity) {
+    this(rows, preloadMz, preloadIntensity, MemoryMapStorage.forFeatureList());
+  }
+
+  /**
+   * Preloads specific data for all feature in an array of rows. Intensities are packed into a
+   * {@link FeatureShapeStore} in the storage.
+   *
+   * @param rows             a list of rows (provides the option to prefilter)
+   * @param preloadMz        preload all m/z arrays for all features
+   * @param preloadIntensity preload all intensity arrays for all features
+   * @param storage          storage for the preloaded intensities or null to keep them on the
+   *                         heap
+   */
+  public CachedFeatureDataAccess(FeatureListRow[] rows, boolean preloadMz,
+      boolean preloadIntensity, @Nullable MemoryMapStorage storage) {
     this.preloadMz = preloadMz;
-    this.preloadIntensity = preloadIntensity;
     // needs to be threadsafe if not preloaded
-    intensityMap = preloadIntensity ? new HashMap<>() : new ConcurrentHashMap<>();
+    intensityMap = new ConcurrentHashMap<>();
     mzMap = preloadMz ? new HashMap<>() : new ConcurrentHashMap<>();
     if (preloadMz) {
       loadMzValues(rows);
     }
-    if (preloadIntensity) {
-      loadIntensityValues(rows);
-    }
+    intensityStore = preloadIntensity ? new FeatureShapeStore(rows, storage) : null;
   }
 
   /**
-   * This method returns the intensity array and keeps it in memory for later accessions
+   * This method returns the intensity array and keeps it in memory for later accessions. Preloaded
+   * intensities are copied from the store once per feature, prefer
+   * {@link #getIntensitySegment(Feature)} to avoid the copy.
    *
    * @param f feature
    * @return the intensity array of this feature
    */
   public double[] getIntensityValues(@NotNull Feature f) {
-    if (preloadIntensity) {
+    if (intensityStore != null) {
       // just return whats loaded - as there are no more that need computation
-      return intensityMap.get(f);
+      return intensityMap.computeIfAbsent(f, feature -> {
+        final MemorySegment intensities = intensityStore.getIntensities(feature);
+        return intensities == null ? null : intensities.toArray(ValueLayout.JAVA_DOUBLE);
+      });
     }
 
     return intensityMap.computeIfAbsent(f, feature -> feature.getFeatureData()
         .getIntensityValues(new double[feature.getNumberOfDataPoints()]));
   }
 
+  /**
+   * Zero-copy access to preloaded intensities. Otherwise wraps the cached intensity array.
+   *
+   * @param f feature
+   * @return the intensity values of this feature
+   */
+  public MemorySegment getIntensitySegment(@NotNull Feature f) {
+    if (intensityStore != null) {
+      return intensityStore.getIntensities(f);
+    }
+    return MemorySegment.ofArray(getIntensityValues(f));
+  }
+
   /**
    * This method returns the m/z array and keeps it in memory for later accessions
    *
@@ -132,23 +171,6 @@ public class CachedFeatureDataAccess {
         .getMzValues(new double[feature.getNumberOfDataPoints()]));
   }
 
-  /**
-   * Load all intensity values
-   *
-   * @param rows load data for these rows
-   */
-  private void loadIntensityValues(FeatureListRow[] rows) {
-    for (FeatureListRow row : rows) {
-      for (Feature feature : row.getFeatures()) {
-        if (feature != null && !feature.getFeatureStatus().equals(FeatureStatus.UNKNOWN)
-            && feature.getFeatureData() != null) {
-          intensityMap.put(feature, feature.getFeatureData()
-              .getIntensityValues(new double[feature.getNumberOfDataPoints()]));
-        }
-      }
-    }
-  }
-
   /**
    * Load all mz values
    *
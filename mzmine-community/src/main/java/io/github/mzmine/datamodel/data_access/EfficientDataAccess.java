@@ -31,6 +31,7 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
@@ -124,6 +125,27 @@ public class EfficientDataAccess {
     };
   }
 
+  /**
+   * Access the chromatographic data of features in a subset of rows of a feature list sorted by
+   * scan ID (usually sorted by retention time). Each data access is stateful, so parallel workers
+   * each need their own access (and mobilogram binning) over their row range.
+   *
+   * @param flist    target feature list
+   * @param type     defines the data accession type
+   * @param rows     the rows to access
+   * @param dataFile define the data file in an aligned feature list
+   */
+  public static FeatureDataAccess of(FeatureList flist, FeatureDataType type,
+      @NotNull List<FeatureListRow> rows, RawDataFile dataFile,
+      @Nullable BinningMobilogramDataAccess binningMobilogramDataAccess) {
+    return switch (type) {
+      case ONLY_DETECTED ->
+          new FeatureDetectedDataAccess(flist, rows, dataFile, binningMobilogramDataAccess);
+      case INCLUDE_ZEROS ->
+          new FeatureFullDataAccess(flist, rows, dataFile, binningMobilogramDataAccess);
+    };
+  }
+
   public static MobilogramDataAccess of(final IonMobilogramTimeSeries ionTrace,
       final MobilogramAccessType accessType) {
     return new MobilogramDataAccess(ionTrace, accessType);
@@ -111,13 +111,29 @@ public abstract class FeatureDataAccess implements IonTimeSeries<Scan> {
    */
   protected FeatureDataAccess(FeatureList flist, @Nullable RawDataFile dataFile,
       @Nullable BinningMobilogramDataAccess mobilogramBinning) {
+    this(flist, null, dataFile, mobilogramBinning);
+  }
+
+  /**
+   * Access the chromatographic data of features in a subset of rows of a feature list sorted by
+   * scan ID (usually sorted by retention time). Used to split a feature list into chunks that are
+   * processed in parallel, each with its own data access.
+   *
+   * @param flist             target feature list. Loops through all features in dataFile
+   * @param rows              the rows to access or null for all rows of the feature list
+   * @param dataFile          define the data file in an aligned feature list
+   * @param mobilogramBinning access mobilogram data, only present for mobility data, null
+   *                          otherwise
+   */
+  protected FeatureDataAccess(FeatureList flist, @Nullable List<FeatureListRow> rows,
+      @Nullable RawDataFile dataFile, @Nullable BinningMobilogramDataAccess mobilogramBinning) {
     this.flist = flist;
     this.dataFile = dataFile;
     this.mobilogramBinning = mobilogramBinning;
 
     // set rows and number of features
     int totalFeatures = 0;
-    List<FeatureListRow> allRows = flist.getRows();
+    List<FeatureListRow> allRows = rows != null ? rows : flist.getRows();
     // handle aligned flist
     if (flist.getNumberOfRawDataFiles() > 1) {
       if (dataFile != null) {
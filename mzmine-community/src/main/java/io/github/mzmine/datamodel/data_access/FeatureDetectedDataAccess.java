@@ -30,6 +30,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import java.util.List;
 import org.jetbrains.annotations.Nullable;
 
@@ -82,7 +83,24 @@ public class FeatureDetectedDataAccess extends FeatureDataAccess {
    */
   protected FeatureDetectedDataAccess(FeatureList flist, @Nullable RawDataFile dataFile,
       @Nullable BinningMobilogramDataAccess binningMobilogramDataAccess) {
-    super(flist, dataFile, binningMobilogramDataAccess);
+    this(flist, null, dataFile, binningMobilogramDataAccess);
+  }
+
+  /**
+   * Access the chromatographic data of features in a subset of rows of a feature list sorted by
+   * scan ID (usually sorted by retention time). Uses only data points currently assigned to
+   * features.
+   *
+   * @param flist                       target feature list
+   * @param rows                        the rows to access or null for all rows of the feature list
+   * @param dataFile                    define the data file in an aligned feature list
+   * @param binningMobilogramDataAccess access mobilogram data, only present for mobility data, null
+   *                                    otherwise. Checks are done internally
+   */
+  protected FeatureDetectedDataAccess(FeatureList flist, @Nullable List<FeatureListRow> rows,
+      @Nullable RawDataFile dataFile,
+      @Nullable BinningMobilogramDataAccess binningMobilogramDataAccess) {
+    super(flist, rows, dataFile, binningMobilogramDataAccess);
 
     // detected data points currently on feature/chromatogram
     int detected = getMaxNumOfDetectedDataPoints();
@@ -36,6 +36,7 @@ import io.github.mzmine.datamodel.featuredata.impl.SimpleIonMobilogramTimeSeries
 import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.collections.CollectionUtils;
 import io.github.mzmine.util.collections.IndexRange;
@@ -106,7 +107,24 @@ public class FeatureFullDataAccess extends FeatureDataAccess {
    */
   protected FeatureFullDataAccess(FeatureList flist, @Nullable RawDataFile dataFile,
       @Nullable BinningMobilogramDataAccess binningMobilogramDataAccess) {
-    super(flist, dataFile, binningMobilogramDataAccess);
+    this(flist, null, dataFile, binningMobilogramDataAccess);
+  }
+
+  /**
+   * Access the chromatographic data of features in a subset of rows of a feature list sorted by
+   * scan ID (usually sorted by retention time). Full data access uses all scans of the whole
+   * chromatogram and adds zeros for missing data points.
+   *
+   * @param flist                       target feature list
+   * @param rows                        the rows to access or null for all rows of the feature list
+   * @param dataFile                    define the data file in an aligned feature list
+   * @param binningMobilogramDataAccess access mobilogram data, only present for mobility data, null
+   *                                    otherwise. Checks are done internally
+   */
+  protected FeatureFullDataAccess(FeatureList flist, @Nullable List<FeatureListRow> rows,
+      @Nullable RawDataFile dataFile,
+      @Nullable BinningMobilogramDataAccess binningMobilogramDataAccess) {
+    super(flist, rows, dataFile, binningMobilogramDataAccess);
 
     // return all scans that were used to create the chromatograms in the first place
     int max = 0;
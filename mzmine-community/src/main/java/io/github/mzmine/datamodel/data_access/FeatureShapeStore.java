@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.data_access;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.util.MemoryMapStorage;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Packs the intensity values of all features of a list of rows into memory mapped segments, row by
+ * row. Features are accessed as zero-copy slices, so large cohorts do not need the intensity arrays
+ * of all features on the heap. The store is read-only after creation and safe for concurrent
+ * reads.
+ */
+public final class FeatureShapeStore {
+
+  /**
+   * Maximum number of values in one segment, features never span two segments
+   */
+  private static final int MAX_SEGMENT_VALUES = 1 << 26;
+
+  private final Object2IntMap<Feature> featureIndex;
+  private final int[] segmentIndex;
+  private final long[] offsets;
+  private final int[] lengths;
+  private final MemorySegment[] segments;
+
+  /**
+   * @param rows    all features with data and status other than UNKNOWN are stored
+   * @param storage the values are stored in memory mapped files or on the heap if null
+   */
+  public FeatureShapeStore(@NotNull FeatureListRow[] rows, @Nullable MemoryMapStorage storage) {
+    final List<Feature> features = new ArrayList<>();
+    for (FeatureListRow row : rows) {
+      for (Feature feature : row.getFeatures()) {
+        if (feature != null && !feature.getFeatureStatus().equals(FeatureStatus.UNKNOWN)
+            && feature.getFeatureData() != null) {
+          features.add(feature);
+        }
+      }
+    }
+
+    final int numFeatures = features.size();
+    featureIndex = new Object2IntOpenHashMap<>(numFeatures);
+    featureIndex.defaultReturnValue(-1);
+    segmentIndex = new int[numFeatures];
+    offsets = new long[numFeatures];
+    lengths = new int[numFeatures];
+
+    // assign features to segments
+    final List<Integer> segmentSizes = new ArrayList<>();
+    int currentSize = 0;
+    for (int i = 0; i < numFeatures; i++) {
+      final int length = features.get(i).getNumberOfDataPoints();
+      if (currentSize > 0 && (long) currentSize + length > MAX_SEGMENT_VALUES) {
+        segmentSizes.add(currentSize);
+        currentSize = 0;
+      }
+      featureIndex.put(features.get(i), i);
+      segmentIndex[i] = segmentSizes.size();
+      offsets[i] = currentSize;
+      lengths[i] = length;
+      currentSize += length;
+    }
+    segmentSizes.add(currentSize);
+
+    segments = new MemorySegment[segmentSizes.size()];
+    for (int s = 0; s < segments.length; s++) {
+      segments[s] = StorageUtils.allocateSegment(storage, ValueLayout.JAVA_DOUBLE,
+          Math.max(1, segmentSizes.get(s)));
+    }
+
+    // copy the data with one reused buffer
+    double[] buffer = new double[0];
+    for (int i = 0; i < numFeatures; i++) {
+      final Feature feature = features.get(i);
+      if (buffer.length < lengths[i]) {
+        buffer = new double[lengths[i]];
+      }
+      buffer = feature.getFeatureData().getIntensityValues(buffer);
+      MemorySegment.copy(buffer, 0, segments[segmentIndex[i]], ValueLayout.JAVA_DOUBLE,
+          offsets[i] * Double.BYTES, lengths[i]);
+    }
+  }
+
+  /**
+   * @return the intensity values of the feature as a slice of the store or null if the feature is
+   * not stored
+   */
+  public @Nullable MemorySegment getIntensities(@NotNull Feature feature) {
+    final int i = featureIndex.getInt(feature);
+    if (i == -1) {
+      return null;
+    }
+    return segments[segmentIndex[i]].asSlice(offsets[i] * Double.BYTES,
+        (long) lengths[i] * Double.BYTES);
+  }
+
+  public boolean contains(@NotNull Feature feature) {
+    return featureIndex.containsKey(feature);
+  }
+
+  public int getNumberOfFeatures() {
+    return lengths.length;
+  }
+}
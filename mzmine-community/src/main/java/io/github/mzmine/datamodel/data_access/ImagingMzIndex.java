@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.data_access;
+
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.AtomicDouble;
+import io.github.mzmine.datamodel.ImagingRawDataFile;
+import io.github.mzmine.datamodel.ImagingScan;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * m/z index of all raw data points of the {@link ImagingScan}s in an {@link ImagingRawDataFile}.
+ * The data points are transposed into m/z sorted columns of m/z, intensity, and the index of their
+ * pixel scan, stored in the {@link MemoryMapStorage} of the data file. Extracting the image of an
+ * m/z range is then a binary search and a pass over a contiguous range of data points instead of a
+ * pass over all scans.
+ * <p>
+ * The index is optional and built once per data file on the first call of
+ * {@link #of(ImagingRawDataFile, AtomicDouble)}. It is weakly cached and rebuilt if the number of
+ * scans changed. The index needs {@link #BYTES_PER_DATA_POINT} per data point. Data files that
+ * exceed {@link #getMaxIndexBytes(ImagingRawDataFile)} are not indexed.
+ */
+public final class ImagingMzIndex {
+
+  private static final Logger logger = Logger.getLogger(ImagingMzIndex.class.getName());
+
+  /**
+   * The data points are first distributed into m/z bins of about this size, which are sorted
+   * afterwards
+   */
+  private static final int POINTS_PER_BIN = 64;
+  private static final int MAX_BINS = 1 << 22;
+  private static final int BINS_PER_TASK = 4096;
+
+  /**
+   * m/z and intensity as double and the scan index as int
+   */
+  public static final int BYTES_PER_DATA_POINT = 2 * Double.BYTES + Integer.BYTES;
+  /**
+   * Upper limit for indexes in memory mapped storage
+   */
+  private static final long MAX_MAPPED_INDEX_BYTES = 16L << 30;
+
+  private static final Map<ImagingRawDataFile, ImagingMzIndex> indexes = Collections.synchronizedMap(
+      new WeakHashMap<>());
+
+  private final int numRawScans;
+  private final int numScans;
+  private final int numDataPoints;
+  private final @NotNull MemorySegment mzs;
+  private final @NotNull MemorySegment intensities;
+  private final @NotNull MemorySegment scanIndexColumn;
+
+  /**
+   * The index must not reference the data file or its scans, it is the value of a weak map with
+   * the data file as key.
+   */
+  private ImagingMzIndex(int numRawScans, int numScans, int numDataPoints,
+      @NotNull MemorySegment mzs, @NotNull MemorySegment intensities,
+      @NotNull MemorySegment scanIndexColumn) {
+    this.numRawScans = numRawScans;
+    this.numScans = numScans;
+    this.numDataPoints = numDataPoints;
+    this.mzs = mzs;
+    this.intensities = intensities;
+    this.scanIndexColumn = scanIndexColumn;
+  }
+
+  /**
+   * @return the indexed scans, the scan indexes of the data points refer to this list
+   */
+  public static @NotNull List<Scan> getIndexedScans(@NotNull ImagingRawDataFile raw) {
+    return raw.getScans().stream().filter(ImagingScan.class::isInstance).toList();
+  }
+
+  /**
+   * Builds the index on the first call and returns the cached index afterwards.
+   *
+   * @param progress set from 0 to 1 while the index is built
+   * @return the index or null if the data file has too many data points to be indexed
+   */
+  public static @Nullable ImagingMzIndex of(@NotNull ImagingRawDataFile raw,
+      @Nullable AtomicDouble progress) {
+    synchronized (indexes) {
+      final ImagingMzIndex index = indexes.get(raw);
+      if (index != null && index.numRawScans == raw.getNumberOfScans()) {
+        return index;
+      }
+    }
+
+    // build outside of the lock, a concurrent build of the same file only wastes time
+    final ImagingMzIndex index = build(raw, progress);
+    if (index != null) {
+      indexes.put(raw, index);
+    }
+    return index;
+  }
+
+  /**
+   * @return the index if it was already built for the current scans of the data file
+   */
+  public static @Nullable ImagingMzIndex getIfBuilt(@NotNull ImagingRawDataFile raw) {
+    synchronized (indexes) {
+      final ImagingMzIndex index = indexes.get(raw);
+      return index != null && index.numRawScans == raw.getNumberOfScans() ? index : null;
+    }
+  }
+
+  /**
+   * Heap data files are limited to a quarter of the maximum heap, memory mapped data files to
+   * {@link #MAX_MAPPED_INDEX_BYTES}.
+   *
+   * @return the maximum size of the index for this data file in bytes
+   */
+  public static long getMaxIndexBytes(@NotNull ImagingRawDataFile raw) {
+    return raw.getMemoryMapStorage() == null ? Runtime.getRuntime().maxMemory() / 4
+        : MAX_MAPPED_INDEX_BYTES;
+  }
+
+  private static @Nullable ImagingMzIndex build(@NotNull ImagingRawDataFile raw,
+      @Nullable AtomicDouble progress) {
+    final int numRawScans = raw.getNumberOfScans();
+    final List<Scan> scans = getIndexedScans(raw);
+
+    long total = 0;
+    double minMz = Double.POSITIVE_INFINITY;
+    double maxMz = Double.NEGATIVE_INFINITY;
+    for (Scan scan : scans) {
+      final Range<Double> mzRange = scan.getDataPointMZRange();
+      if (mzRange == null || scan.getNumberOfDataPoints() == 0) {
+        continue;
+      }
+      total += scan.getNumberOfDataPoints();
+      minMz = Math.min(minMz, mzRange.lowerEndpoint());
+      maxMz = Math.max(maxMz, mzRange.upperEndpoint());
+    }
+    final long totalDataPoints = total;
+    final long bytes = totalDataPoints * BYTES_PER_DATA_POINT;
+    final long maxBytes = getMaxIndexBytes(raw);
+    if (totalDataPoints > Integer.MAX_VALUE - 8 || bytes > maxBytes) {
+      logger.info(() -> ("Imaging file %s has too many data points (%d, %d MB) for an m/z index, "
+          + "max %d MB").formatted(raw.getName(), totalDataPoints, bytes >> 20, maxBytes >> 20));
+      return null;
+    }
+    final int numDataPoints = (int) totalDataPoints;
+    if (numDataPoints == 0) {
+      setProgress(progress, 1d);
+      return new ImagingMzIndex(numRawScans, scans.size(), 0, StorageUtils.EMPTY_DOUBLE_SEGMENT,
+          StorageUtils.EMPTY_DOUBLE_SEGMENT, MemorySegment.ofArray(new int[0]));
+    }
+
+    logger.info(() -> "Building m/z index of %d data points (%d MB) for imaging file %s".formatted(
+        numDataPoints, bytes >> 20, raw.getName()));
+    // two passes over the scans and the sorting each take a third of the progress
+    final double progressPerScan = 1d / 3 / Math.max(1, scans.size());
+
+    // distribute into m/z bins by a counting sort
+    final int numBins = (int) Math.max(1, Math.min(MAX_BINS, totalDataPoints / POINTS_PER_BIN));
+    final double binWidth = Math.max((maxMz - minMz) / numBins, Double.MIN_NORMAL);
+    final int[] binStarts = new int[numBins + 1];
+    ScanDataAccess access = EfficientDataAccess.of(raw, ScanDataType.RAW, scans);
+    while (access.hasNextScan()) {
+      access.nextScan();
+      for (int i = 0; i < access.getNumberOfDataPoints(); i++) {
+        binStarts[toBin(access.getMzValue(i), minMz, binWidth, numBins) + 1]++;
+      }
+      addProgress(progress, progressPerScan);
+    }
+    for (int b = 0; b < numBins; b++) {
+      binStarts[b + 1] += binStarts[b];
+    }
+
+    final MemoryMapStorage storage = raw.getMemoryMapStorage();
+    final MemorySegment mzs = StorageUtils.allocateSegment(storage, ValueLayout.JAVA_DOUBLE,
+        numDataPoints);
+    final MemorySegment intensities = StorageUtils.allocateSegment(storage,
+        ValueLayout.JAVA_DOUBLE, numDataPoints);
+    final MemorySegment scanIndexes = StorageUtils.allocateSegment(storage, ValueLayout.JAVA_INT,
+        numDataPoints);
+
+    final int[] cursors = new int[numBins];
+    System.arraycopy(binStarts, 0, cursors, 0, numBins);
+    access = EfficientDataAccess.of(raw, ScanDataType.RAW, scans);
+    int scanIndex = 0;
+    while (access.hasNextScan()) {
+      access.nextScan();
+      for (int i = 0; i < access.getNumberOfDataPoints(); i++) {
+        final double mz = access.getMzValue(i);
+        final int target = cursors[toBin(mz, minMz, binWidth, numBins)]++;
+        mzs.setAtIndex(ValueLayout.JAVA_DOUBLE, target, mz);
+        intensities.setAtIndex(ValueLayout.JAVA_DOUBLE, target, access.getIntensityValue(i));
+        scanIndexes.setAtIndex(ValueLayout.JAVA_INT, target, scanIndex);
+      }
+      scanIndex++;
+      addProgress(progress, progressPerScan);
+    }
+
+    // sort within the bins in parallel
+    final int tasks = (numBins + BINS_PER_TASK - 1) / BINS_PER_TASK;
+    final double progressPerTask = 1d / 3 / tasks;
+    IntStream.range(0, tasks).parallel().forEach(task -> {
+      final int firstBin = task * BINS_PER_TASK;
+      final int lastBin = Math.min(numBins, firstBin + BINS_PER_TASK);
+      int maxBinSize = 0;
+      for (int b = firstBin; b < lastBin; b++) {
+        maxBinSize = Math.max(maxBinSize, binStarts[b + 1] - binStarts[b]);
+      }
+      final double[] binMzs = new double[maxBinSize];
+      final double[] binIntensities = new double[maxBinSize];
+      final int[] binScans = new int[maxBinSize];
+      final int[] order = new int[maxBinSize];
+      for (int b = firstBin; b < lastBin; b++) {
+        sortBin(binStarts[b], binStarts[b + 1], mzs, intensities, scanIndexes, binMzs,
+            binIntensities, binScans, order);
+      }
+      addProgress(progress, progressPerTask);
+    });
+    setProgress(progress, 1d);
+
+    logger.fine(() -> "Built m/z index of %d data points in %d scans for imaging file %s".formatted(
+        numDataPoints, scans.size(), raw.getName()));
+    return new ImagingMzIndex(numRawScans, scans.size(), numDataPoints, mzs, intensities,
+        scanIndexes);
+  }
+
+  private static void addProgress(@Nullable AtomicDouble progress, double delta) {
+    if (progress != null) {
+      progress.addAndGet(delta);
+    }
+  }
+
+  private static void setProgress(@Nullable AtomicDouble progress, double value) {
+    if (progress != null) {
+      progress.set(value);
+    }
+  }
+
+  private static int toBin(double mz, double minMz, double binWidth, int numBins) {
+    return Math.min(numBins - 1, Math.max(0, (int) ((mz - minMz) / binWidth)));
+  }
+
+  private static void sortBin(int start, int end, MemorySegment mzs, MemorySegment intensities,
+      MemorySegment scanIndexes, double[] binMzs, double[] binIntensities, int[] binScans,
+      int[] order) {
+    final int n = end - start;
+    if (n < 2) {
+      return;
+    }
+    boolean sorted = true;
+    for (int i = 0; i < n; i++) {
+      binMzs[i] = mzs.getAtIndex(ValueLayout.JAVA_DOUBLE, start + i);
+      binIntensities[i] = intensities.getAtIndex(ValueLayout.JAVA_DOUBLE, start + i);
+      binScans[i] = scanIndexes.getAtIndex(ValueLayout.JAVA_INT, start + i);
+      order[i] = i;
+      sorted &= i == 0 || binMzs[i - 1] <= binMzs[i];
+    }
+    if (sorted) {
+      return;
+    }
+    // stable to keep the scan order for equal m/z
+    IntArrays.mergeSort(order, 0, n, (a, b) -> Double.compare(binMzs[a], binMzs[b]));
+    for (int i = 0; i < n; i++) {
+      final int source = order[i];
+      mzs.setAtIndex(ValueLayout.JAVA_DOUBLE, start + i, binMzs[source]);
+      intensities.setAtIndex(ValueLayout.JAVA_DOUBLE, start + i, binIntensities[source]);
+      scanIndexes.setAtIndex(ValueLayout.JAVA_INT, start + i, binScans[source]);
+    }
+  }
+
+  /**
+   * @return the indexes of all data points with m/z within the range, both bounds included
+   */
+  public @NotNull IndexRange indexRange(@NotNull Range<Double> mzRange) {
+    return BinarySearch.indexRange(mzRange, numDataPoints, this::getMz);
+  }
+
+  /**
+   * Extracts the image of an m/z range. For each selected scan, the intensities within the range
+   * are summed and the m/z of the most intense data point is used.
+   *
+   * @param raw           the indexed data file
+   * @param selectedScans the pixel scans of the image, scans that are not in the index are
+   *                      ignored
+   * @return the ion series with one value per selected indexed scan in the order of the selection
+   */
+  public @NotNull SimpleIonTimeSeries extractImage(@NotNull ImagingRawDataFile raw,
+      @NotNull Range<Double> mzRange, @NotNull List<? extends Scan> selectedScans) {
+    final List<Scan> scans = getIndexedScans(raw);
+    if (scans.size() != numScans) {
+      throw new IllegalStateException("Scans of %s changed after building the m/z index".formatted(
+          raw.getName()));
+    }
+    final Object2IntMap<Scan> scanIndexes = new Object2IntOpenHashMap<>(scans.size());
+    scanIndexes.defaultReturnValue(-1);
+    for (int i = 0; i < scans.size(); i++) {
+      scanIndexes.put(scans.get(i), i);
+    }
+
+    final double[] sums = new double[numScans];
+    final double[] maxIntensities = new double[numScans];
+    final double[] bestMzs = new double[numScans];
+
+    final IndexRange dataPoints = indexRange(mzRange);
+    for (int i = dataPoints.min(); i < dataPoints.maxExclusive(); i++) {
+      final double mz = getMz(i);
+      final int scan = getScanIndex(i);
+      final double intensity = getIntensity(i);
+      sums[scan] += intensity;
+      if (intensity > maxIntensities[scan]) {
+        maxIntensities[scan] = intensity;
+        bestMzs[scan] = mz;
+      }
+    }
+
+    final int[] selected = selectedScans.stream().mapToInt(scanIndexes::getInt)
+        .filter(index -> index >= 0).toArray();
+    final double[] seriesMzs = new double[selected.length];
+    final double[] seriesIntensities = new double[selected.length];
+    for (int i = 0; i < selected.length; i++) {
+      seriesMzs[i] = bestMzs[selected[i]];
+      seriesIntensities[i] = sums[selected[i]];
+    }
+    final List<Scan> seriesScans = IntStream.of(selected).mapToObj(scans::get).toList();
+    return new SimpleIonTimeSeries(null, seriesMzs, seriesIntensities, seriesScans);
+  }
+
+  public int getNumberOfDataPoints() {
+    return numDataPoints;
+  }
+
+  public double getMz(int index) {
+    return mzs.getAtIndex(ValueLayout.JAVA_DOUBLE, index);
+  }
+
+  public double getIntensity(int index) {
+    return intensities.getAtIndex(ValueLayout.JAVA_DOUBLE, index);
+  }
+
+  /**
+   * @return the index of the scan in {@link #getIndexedScans(ImagingRawDataFile)}
+   */
+  public int getScanIndex(int index) {
+    return scanIndexColumn.getAtIndex(ValueLayout.JAVA_INT, index);
+  }
+}
@@ -77,12 +77,16 @@ import io.github.mzmine.datamodel.features.types.numbers.TailingFactorType;
 import io.github.mzmine.datamodel.features.types.numbers.scores.SimilarityType;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -99,48 +103,88 @@ public class DataTypes {
 
   /**
    * map class.name to instance. Cannot use class as key as this leads to memory leaks trhough class
-   * loader
+   * loader. Types are instantiated lazily on first access by class.
    */
-  private static final HashMap<String, DataType> TYPES = new HashMap<>();
+  private static final Map<String, DataType> TYPES = new ConcurrentHashMap<>();
 
   /**
-   * map unique ID to instance
+   * map unique ID to instance. Only complete after {@link #ensureAllTypesLoaded()}
    */
-  private static final HashMap<String, DataType<?>> map = new HashMap<>();
+  private static final Map<String, DataType<?>> map = new ConcurrentHashMap<>();
 
-  static {
+  /**
+   * Classes that are currently instantiated, guards against constructors that resolve their own
+   * type
+   */
+  private static final Set<String> typesInCreation = new HashSet<>();
+
+  /**
+   * true once the class path was scanned for all data types. Scanning loads and initializes
+   * hundreds of classes, so it is only done when a type is requested by unique ID or when all
+   * instances are requested, e.g., on project load. Batches that only create types by class skip
+   * the scan.
+   */
+  private static volatile boolean allTypesLoaded = false;
+
+  /**
+   * Scans the class path for all {@link DataType} implementations and registers them by unique ID.
+   * Already created instances are reused so that each type stays a singleton.
+   */
+  private static synchronized void ensureAllTypesLoaded() {
+    if (allTypesLoaded) {
+      return;
+    }
     try {
       ClassPath classPath = ClassPath.from(DataType.class.getClassLoader());
       classPath.getTopLevelClassesRecursive("io.github.mzmine.datamodel.features.types")
-          .forEach(classInfo -> {
-            try {
-              Object o = classInfo.load().getDeclaredConstructor().newInstance();
-              if (o instanceof DataType dt) {
-                var value = map.put(dt.getUniqueID(), dt);
-                if (value != null) {
-                  throw new IllegalStateException(
-                      "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
-                          + value.getClass().getName() + "\n" + dt.getClass().getName());
-                }
-                TYPES.put(dt.getClass().getName(), dt);
-              }
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException |
-                     NoSuchMethodException e) {
-              //               can go silent
-              //              logger.log(Level.INFO, e.getMessage(), e);
-            }
-          });
+          .forEach(classInfo -> get(classInfo.getName()));
     } catch (IOException e) {
       logger.severe("Cannot instantiate classPath for DataType.class. Cannot load projects.");
     }
     addTypeCompatibilityMethods();
+    allTypesLoaded = true;
+  }
+
+  /**
+   * Creates and registers the singleton instance of a data type class
+   *
+   * @return the instance or null if the class is not an instantiable {@link DataType}
+   */
+  @Nullable
+  private static synchronized DataType createInstance(@NotNull String className) {
+    DataType type = TYPES.get(className);
+    if (type != null || !typesInCreation.add(className)) {
+      return type;
+    }
+    try {
+      final Class<?> clazz = Class.forName(className, true, DataType.class.getClassLoader());
+      if (!DataType.class.isAssignableFrom(clazz) || Modifier.isAbstract(clazz.getModifiers())) {
+        return null;
+      }
+      type = (DataType) clazz.getDeclaredConstructor().newInstance();
+      var value = map.put(type.getUniqueID(), type);
+      if (value != null && value.getClass() != type.getClass()) {
+        throw new IllegalStateException(
+            "FATAL: Multiple data types with unique ID " + type.getUniqueID() + "\n"
+                + value.getClass().getName() + "\n" + type.getClass().getName());
+      }
+      TYPES.put(className, type);
+      return type;
+    } catch (ClassNotFoundException | LinkageError | InstantiationException |
+             IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+      // can go silent
+      // logger.log(Level.INFO, e.getMessage(), e);
+      return null;
+    } finally {
+      typesInCreation.remove(className);
+    }
   }
 
   /**
    * If a type has been renamed but load/save remained the same, we can
    */
   private static void addTypeCompatibilityMethods() {
-    addCompatibilityTypeMapping("cosine_score", new SimilarityType());
+    addCompatibilityTypeMapping("cosine_score", get(SimilarityType.class));
   }
 
   /**
@@ -149,7 +193,7 @@ public class DataTypes {
    */
   private static void addCompatibilityTypeMapping(String oldUniqueId, DataType<?> newType) {
     final DataType<?> old = map.put(oldUniqueId, newType);
-    if (old != null) {
+    if (old != null && old != newType) {
       throw new IllegalStateException(
           "FATAL: Multiple data types with unique ID %s\n%s\n%s".formatted(oldUniqueId,
               newType.getClass().getName(), old.getClass().getName()));
@@ -161,6 +205,11 @@ public class DataTypes {
 
   @Nullable
   public static DataType<?> getTypeForId(String uniqueId) {
+    final DataType<?> type = map.get(uniqueId);
+    if (type != null || allTypesLoaded) {
+      return type;
+    }
+    ensureAllTypesLoaded();
     return map.get(uniqueId);
   }
 
@@ -169,11 +218,16 @@ public class DataTypes {
   }
 
   public static <T extends DataType<?>> T get(Class<T> clazz) {
-    return (T) TYPES.get(clazz.getName());
+    return (T) get(clazz.getName());
   }
 
+  /**
+   * @param className the full class name of the data type
+   * @return the singleton instance, created on first access. null if the class is no DataType
+   */
   public static DataType get(String className) {
-    return TYPES.get(className);
+    final DataType type = TYPES.get(className);
+    return type != null ? type : createInstance(className);
   }
 
   /**
@@ -181,17 +235,19 @@ public class DataTypes {
    */
   @SafeVarargs
   public static List<DataType> getAll(final Class<? extends DataType<?>>... classes) {
-    return Arrays.stream(classes).map(c -> TYPES.get(c.getName())).toList();
+    return Arrays.stream(classes).map(c -> get(c.getName())).toList();
   }
 
   /**
    * @return A collection of all data type instances.
    */
   public static Collection<DataType> getInstances() {
+    ensureAllTypesLoaded();
     return TYPES.values();
   }
 
   public static Collection<String> getClasses() {
+    ensureAllTypesLoaded();
     return TYPES.keySet();
   }
 
@@ -45,6 +45,13 @@ import org.jetbrains.annotations.Nullable;
 public abstract class NumberFormatType<T> extends DataType<T> {
 
   protected final NumberFormat DEFAULT_FORMAT;
+  /**
+   * Exports format values on multiple threads but NumberFormats are not thread safe. Holds the
+   * export format and a copy of it for each thread. The copy is renewed if the export format
+   * changes.
+   */
+  private final ThreadLocal<NumberFormat[]> threadExportFormat = ThreadLocal.withInitial(
+      () -> new NumberFormat[2]);
 
   protected NumberFormatType(NumberFormat defaultFormat) {
     DEFAULT_FORMAT = defaultFormat;
@@ -54,8 +61,21 @@ public abstract class NumberFormatType<T> extends DataType<T> {
 
   public abstract NumberFormat getExportFormat();
 
+  /**
+   * @return the format or a copy of the export format that is only used by the current thread
+   */
   public NumberFormat getFormat(boolean export) {
-    return export ? getExportFormat() : getFormat();
+    return export ? getThreadExportFormat() : getFormat();
+  }
+
+  private NumberFormat getThreadExportFormat() {
+    final NumberFormat format = getExportFormat();
+    final NumberFormat[] formatAndCopy = threadExportFormat.get();
+    if (formatAndCopy[0] != format) {
+      formatAndCopy[0] = format;
+      formatAndCopy[1] = (NumberFormat) format.clone();
+    }
+    return formatAndCopy[1];
   }
 
   @Override
@@ -28,14 +28,25 @@ package io.github.mzmine.datamodel.statistics;
 /**
  * rows are represented by arrays that are mutable. This requires the
  * {@link #getFeatureData(int, boolean)} function to return a mutable array that reflects the
- * state.
+ * state. Changes by the set methods are counted in {@link #getModificationCount()}.
  */
 public abstract class AbstractRowArrayDataTable implements DataTable {
 
+  private long modificationCount;
+
+  /**
+   * @return the number of changes by the set methods, used to detect changed values. Direct writes
+   * to the arrays of {@link #getFeatureData(int, boolean)} are not counted.
+   */
+  public long getModificationCount() {
+    return modificationCount;
+  }
+
   @Override
   public void setFeatureData(int index, double[] data) {
     double[] oldData = getFeatureData(index, false);
     System.arraycopy(data, 0, oldData, 0, data.length);
+    modificationCount++;
   }
 
   @Override
@@ -50,5 +61,6 @@ public abstract class AbstractRowArrayDataTable implements DataTable {
   public void setValue(int featureIndex, int sampleIndex, double value) {
     double[] data = getFeatureData(featureIndex, false);
     data[sampleIndex] = value;
+    modificationCount++;
   }
 }
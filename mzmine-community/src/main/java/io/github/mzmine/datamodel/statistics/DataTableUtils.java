@@ -138,6 +138,30 @@ public class DataTableUtils {
     return data;
   }
 
+  /**
+   * A dense row-major copy of the data with one row per sample and one column per feature, the
+   * layout of {@link #createRealMatrix(FeaturesDataTable)} without the matrix overhead.
+   */
+  public static double[] createRowMajorSampleArray(FeaturesDataTable dataTable) {
+
+    if (dataTable.getNumberOfFeatures() < dataTable.getNumberOfSamples()) {
+      throw new IllegalStateException(
+          "Cannot perform PCA on a dataset with less rows/features than samples.");
+    }
+
+    final int numSamples = dataTable.getNumberOfSamples();
+    final int numFeatures = dataTable.getNumberOfFeatures();
+    final double[] data = new double[Math.multiplyExact(numSamples, numFeatures)];
+    for (int featureIndex = 0; featureIndex < numFeatures; featureIndex++) {
+      // no copy, only read
+      final double[] featureData = dataTable.getFeatureData(featureIndex, false);
+      for (int sampleIndex = 0; sampleIndex < numSamples; sampleIndex++) {
+        data[sampleIndex * numFeatures + featureIndex] = featureData[sampleIndex];
+      }
+    }
+    return data;
+  }
+
   /**
    * Applies sorting to the rows in a data table
    *
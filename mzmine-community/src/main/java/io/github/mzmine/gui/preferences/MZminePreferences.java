@@ -266,6 +266,14 @@ public class MZminePreferences extends SimpleParameterSet {
       new DecimalFormat("0.0000"), new DecimalFormat("0.0000"), new DecimalFormat("0.000"),
       new DecimalFormat("0.0000E0"), new DecimalFormat("0.00"), new DecimalFormat("0.0000"),
       new DecimalFormat("0.0000"), UnitFormat.DIVIDE);
+  /**
+   * The export and stable formats never change but are used on multiple threads, e.g., by parallel
+   * exports. NumberFormats are not thread safe, so each thread uses its own copy.
+   */
+  private static final ThreadLocal<NumberFormats> threadExportFormat = ThreadLocal.withInitial(
+      exportFormat::copy);
+  private static final ThreadLocal<NumberFormats> threadStableFormat = ThreadLocal.withInitial(
+      stableFormat::copy);
   // OLD PARAMETER THAT IS NOW MAPPED
   private final OptionalModuleParameter<ProxyParameters> LEGACY_PROXY_SETTINGS = new OptionalModuleParameter<>(
       "Use proxy", "Use proxy for internet connection?", new ProxyParameters(), false);
@@ -572,8 +580,11 @@ public class MZminePreferences extends SimpleParameterSet {
   }
 
 
+  /**
+   * @return the export formats of the current thread
+   */
   public NumberFormats getExportFormats() {
-    return exportFormat;
+    return threadExportFormat.get();
   }
 
   /**
@@ -581,7 +592,7 @@ public class MZminePreferences extends SimpleParameterSet {
    * precision for mz etc. See {@link FeatureUtils#rowToFullId(FeatureListRow)}
    */
   public NumberFormats getStableFormats() {
-    return stableFormat;
+    return threadStableFormat.get();
   }
 
   public NumberFormats getGuiFormats() {
@@ -45,6 +45,18 @@ public record NumberFormats(NumberFormat mzFormat, NumberFormat rtFormat,
         range.upperEndpoint()) : null;
   }
 
+  /**
+   * NumberFormats are not thread safe, each thread formatting in parallel needs its own copy.
+   *
+   * @return a copy with cloned number formats
+   */
+  public NumberFormats copy() {
+    return new NumberFormats((NumberFormat) mzFormat.clone(), (NumberFormat) rtFormat.clone(),
+        (NumberFormat) mobilityFormat.clone(), (NumberFormat) ccsFormat.clone(),
+        (NumberFormat) intensityFormat.clone(), (NumberFormat) ppmFormat.clone(),
+        (NumberFormat) percentFormat.clone(), (NumberFormat) scoreFormat.clone(), unitFormat);
+  }
+
   public String mz(double mz) {
     return mzFormat.format(mz);
   }
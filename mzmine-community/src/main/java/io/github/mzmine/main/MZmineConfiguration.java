@@ -111,6 +111,13 @@ public interface MZmineConfiguration {
 
   void saveConfiguration(File file) throws IOException;
 
+  /**
+   * Module parameters from the configuration file are applied lazily when a module is first
+   * requested. This method instantiates all remaining modules and applies their parameters, e.g.,
+   * for the GUI that lists all initialized modules.
+   */
+  void loadPendingModuleParameters();
+
   default NumberFormats getFormats(boolean export) {
     return export ? getExportFormats() : getGuiFormats();
   }
@@ -304,6 +304,8 @@ public final class MZmineCore {
   private static void launchGui(final @NotNull String[] args) {
     try {
       logger.info("Starting mzmine GUI");
+      // the GUI lists all modules, headless mode creates modules lazily when referenced
+      ConfigService.getConfiguration().loadPendingModuleParameters();
       MZmineGUI.launch();
     } catch (Throwable e) {
       StartupSplash.hide();
@@ -77,6 +77,8 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
   private static final Logger logger = Logger.getLogger(MZmineConfigurationImpl.class.getName());
 
+  private static final List<String> CONFIG_WARNING_EXCLUSIONS = List.of("jmzml", "adap");
+
   private final MZminePreferences preferences;
 
   // logging file - first is null but can be extracted from Logger.parent.handlers by reflection
@@ -93,6 +95,13 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
    */
   private final Map<String, ParameterSet> moduleParameters;
 
+  /**
+   * Module parameters from the loaded config file that were not requested yet. class.getName is
+   * used as keys. Modules are only instantiated once their parameters are requested, so that
+   * headless batches do not create all modules that were ever used in the GUI.
+   */
+  private final Map<String, Element> pendingModuleParameters;
+
   private final EStandardChartTheme standardChartTheme;
 
   @NotNull
@@ -100,6 +109,7 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
   public MZmineConfigurationImpl() {
     moduleParameters = new Hashtable<>();
+    pendingModuleParameters = new Hashtable<>();
     preferences = new MZminePreferences();
     lastProjects = new FileNameListSilentParameter("Last projects");
     globalEncrypter = new EncryptionKeyParameter();
@@ -159,10 +169,53 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
       parameters.setModuleNameAttribute(MZmineCore.getModuleInstance(moduleClass).getName());
       moduleParameters.put(moduleClass.getName(), parameters);
 
+      // apply values from the config file if present
+      final Element parameterElement = pendingModuleParameters.remove(moduleClass.getName());
+      if (parameterElement != null) {
+        try {
+          parameters.loadValuesFromXML(parameterElement);
+        } catch (Exception e) {
+          logger.log(Level.WARNING,
+              "Failed to load configuration for module " + moduleClass.getName(), e);
+        }
+      }
     }
     return parameters;
   }
 
+  @Override
+  public void loadPendingModuleParameters() {
+    for (String moduleClassName : List.copyOf(pendingModuleParameters.keySet())) {
+      try {
+        final Class<? extends MZmineModule> moduleClass = (Class<? extends MZmineModule>) Class.forName(
+            moduleClassName);
+        final MZmineModule moduleInstance = MZmineCore.getModuleInstance(moduleClass);
+        if (moduleInstance != null && moduleInstance.getParameterSetClass() == null) {
+          // some modules do not have a parameterset class
+          continue;
+        }
+        final ParameterSet parameters = getModuleParameters(moduleClass);
+        if (parameters == null) {
+          logger.info(
+              "Module %s was in the config file but was not found in the current version of MZmine".formatted(
+                  moduleClassName));
+        }
+      } catch (Exception | NoClassDefFoundError e) {
+        if (!isExcludedFromConfigWarnings(moduleClassName)) {
+          logger.log(Level.WARNING, "Failed to load configuration for module " + moduleClassName,
+              e);
+        }
+      } finally {
+        pendingModuleParameters.remove(moduleClassName);
+      }
+    }
+  }
+
+  private static boolean isExcludedFromConfigWarnings(@NotNull String moduleClassName) {
+    return CONFIG_WARNING_EXCLUSIONS.stream()
+        .anyMatch(ex -> moduleClassName.toLowerCase().contains(ex));
+  }
+
   @Override
   public void setModuleParameters(Class<? extends MZmineModule> moduleClass,
       ParameterSet parameters) {
@@ -179,7 +232,7 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
               + parametersClass);
     }
     moduleParameters.put(moduleClass.getName(), parameters);
-
+    pendingModuleParameters.remove(moduleClass.getName());
   }
 
   // color palettes
@@ -246,7 +299,6 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
   @Override
   public void loadConfiguration(File file, boolean loadPreferences) throws IOException {
-    List<String> exculdeWarningsFor = List.of("jmzml", "adap");
 
     try {
       final Document configuration = XMLUtils.load(file);
@@ -291,29 +343,21 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
       for (int i = 0; i < nodes.getLength(); i++) {
         Element moduleElement = (Element) nodes.item(i);
         String moduleClassName = moduleElement.getAttribute("class");
+        var parameterElement = (Element) moduleElement.getElementsByTagName("parameters").item(0);
+        if (parameterElement == null) {
+          continue;
+        }
 
+        final ParameterSet existing = moduleParameters.get(moduleClassName);
+        if (existing == null) {
+          // modules and their parameters are created lazily on first request
+          pendingModuleParameters.put(moduleClassName, parameterElement);
+          continue;
+        }
         try {
-          Class<? extends MZmineModule> moduleClass = (Class<? extends MZmineModule>) Class.forName(
-              moduleClassName);
-
-          ParameterSet moduleParameters = getModuleParameters(moduleClass);
-          if (moduleParameters == null) {
-            logger.info(
-                "Module %s was in the config file but was not found in the current version of MZmine".formatted(
-                    moduleClass.getName()));
-          }
-
-          MZmineModule moduleInstance = MZmineCore.getModuleInstance(moduleClass);
-          if (moduleInstance != null && moduleInstance.getParameterSetClass() == null) {
-            // some modules do not have a parameterset class
-            continue;
-          }
-          var parameterElement = (Element) moduleElement.getElementsByTagName("parameters").item(0);
-          moduleParameters.loadValuesFromXML(parameterElement);
-        } catch (Exception | NoClassDefFoundError e) {
-          boolean exclude = exculdeWarningsFor.stream()
-              .anyMatch(ex -> moduleClassName.toLowerCase().contains(ex));
-          if (!exclude) {
+          existing.loadValuesFromXML(parameterElement);
+        } catch (Exception e) {
+          if (!isExcludedFromConfigWarnings(moduleClassName)) {
             logger.log(Level.WARNING, "Failed to load configuration for module " + moduleClassName,
                 e);
           }
@@ -373,6 +417,14 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
         }
       }
 
+      // keep parameters of modules that were not instantiated in this session
+      for (var pending : Map.copyOf(pendingModuleParameters).entrySet()) {
+        Element moduleElement = configuration.createElement("module");
+        moduleElement.setAttribute("class", pending.getKey());
+        moduleElement.appendChild(configuration.importNode(pending.getValue(), true));
+        modulesElement.appendChild(moduleElement);
+      }
+
       // save encryption key to local config only
       // ATTENTION: this should to be written after all other configs
       final SimpleParameterSet encSet = new SimpleParameterSet(globalEncrypter);
@@ -64,6 +64,9 @@ import io.github.mzmine.util.files.ExtensionFilters;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.io.CsvWriter;
 import java.io.File;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
@@ -73,6 +76,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.scene.control.Alert.AlertType;
@@ -85,6 +89,10 @@ import org.jetbrains.annotations.Nullable;
 public class BatchTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(BatchTask.class.getName());
+  /**
+   * Only the first batch step in this JVM reports the startup time
+   */
+  private static final AtomicBoolean firstStepOfJvm = new AtomicBoolean(false);
   private final BatchQueue queue;
   // advanced parameters
   private final int stepsPerDataset;
@@ -224,6 +232,18 @@ public class BatchTask extends AbstractTask {
     printBatchTimes();
   }
 
+  /**
+   * Reports the startup cost of the JVM and mzmine core until the first batch step starts. Useful
+   * to measure headless start up and the effect of class data sharing archives.
+   */
+  private static void logTimeToFirstStep() {
+    final RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+    final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    logger.info(
+        "Time to first batch step: %.3f seconds after JVM start (%d classes loaded)".formatted(
+            runtime.getUptime() / 1000.0, classLoading.getTotalLoadedClassCount()));
+  }
+
   private void runBatchQueue() {
     int errorDataset = 0;
     currentDataset = -1;
@@ -287,6 +307,9 @@ public class BatchTask extends AbstractTask {
       // run step
       final int stepNumber = i % stepsPerDataset;
       Instant start = Instant.now();
+      if (firstStepOfJvm.compareAndSet(false, true)) {
+        logTimeToFirstStep();
+      }
 
       // the heavy lifting
       processQueueStep(stepNumber);
@@ -25,7 +25,9 @@
 
 package io.github.mzmine.modules.dataanalysis.pca_new;
 
+import java.util.Arrays;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.MatrixUtils;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
 import org.apache.commons.math3.linear.SingularValueDecomposition;
@@ -37,21 +39,41 @@ import org.jetbrains.annotations.NotNull;
  * into the PC space using U and a submatrix of S, which creates the scores plot. Loadings are the
  * transpose of V.
  * <p>
+ * The decomposition may be truncated to the first components, see {@link RandomizedSVD}.
+ * <p>
  * https://stats.stackexchange.com/questions/134282/relationship-between-svd-and-pca-how-to-use-svd-to-perform-pca
+ *
+ * @param u              the first columns of U
+ * @param singularValues the first singular values, one per column of u and v
+ * @param v              the first columns of V
+ * @param totalVariance  sum of all squared singular values, also of truncated components
  */
-public record PCAResult(SingularValueDecomposition svd) {
+public record PCAResult(RealMatrix u, double[] singularValues, RealMatrix v,
+                        double totalVariance) {
+
+  /**
+   * @return all components of a full decomposition
+   */
+  public static PCAResult of(SingularValueDecomposition svd) {
+    final double[] singularValues = svd.getSingularValues();
+    double totalVariance = 0;
+    for (double value : singularValues) {
+      totalVariance += value * value;
+    }
+    return new PCAResult(svd.getU(), singularValues, svd.getV(), totalVariance);
+  }
 
   /**
    * @param numComponents
    * @return Returns a sub-matrix the first n principal components of the decomposition.
    */
   public RealMatrix firstNComponents(int numComponents) {
-    return svd.getU().getSubMatrix(0, svd.getU().getRowDimension() - 1, 0, numComponents - 1);
+    return u.getSubMatrix(0, u.getRowDimension() - 1, 0, numComponents - 1);
   }
 
   public RealMatrix principalComponentsMatrix() {
     // the u matrix of an svd contains the principal components.
-    return svd.getU();
+    return u;
   }
 
   /**
@@ -62,8 +84,8 @@ public record PCAResult(SingularValueDecomposition svd) {
    */
   public RealMatrix projectDataToScores(int numComponents) {
     final RealMatrix firstNComponents = firstNComponents(numComponents);
-    final RealMatrix subMatrixS = svd.getS()
-        .getSubMatrix(0, numComponents - 1, 0, numComponents - 1);
+    final RealMatrix subMatrixS = MatrixUtils.createRealDiagonalMatrix(
+        Arrays.copyOf(singularValues, numComponents));
     final RealMatrix projectedData = firstNComponents.multiply(subMatrixS);
     return projectedData;
   }
@@ -76,7 +98,8 @@ public record PCAResult(SingularValueDecomposition svd) {
    */
   public RealMatrix projectDataToScores(int domainColIndex, int rangeColIndex) {
     final RealMatrix pcMatrix = pcMatrix(domainColIndex, rangeColIndex);
-    final RealMatrix projected = pcMatrix.multiply(svd.getS().getSubMatrix(0, 1, 0, 1));
+    final RealMatrix projected = pcMatrix.multiply(
+        MatrixUtils.createRealDiagonalMatrix(Arrays.copyOf(singularValues, 2)));
     return projected;
   }
 
@@ -85,7 +108,7 @@ public record PCAResult(SingularValueDecomposition svd) {
    */
   @NotNull
   private RealMatrix pcMatrix(int domainColIndex, int rangeColIndex) {
-    final RealMatrix pcs = svd.getU();
+    final RealMatrix pcs = u;
     // the vectors are the respective components.
     final RealVector domainVector = pcs.getColumnVector(domainColIndex);
     final RealVector rangeVector = pcs.getColumnVector(rangeColIndex);
@@ -101,7 +124,7 @@ public record PCAResult(SingularValueDecomposition svd) {
    * loadings are the transpose of the v matrix.
    */
   public RealMatrix getLoadingsMatrix() {
-    final RealMatrix transpose = svd.getV().transpose();
+    final RealMatrix transpose = v.transpose();
     return transpose;
   }
 
@@ -113,13 +136,6 @@ public record PCAResult(SingularValueDecomposition svd) {
    * components available. PC1 will be first element [0].
    */
   public float[] getComponentContributions(int components) {
-    double[] singularValues = svd.getSingularValues();
-    // Calculate total variance - singularValues are related to standard deviation
-    double totalVariance = 0;
-    for (double value : singularValues) {
-      totalVariance += value * value;
-    }
-
     components = Math.min(components, singularValues.length);
     // Calculate variance explained by PC1 and PC2
     float[] contributions = new float[components];
@@ -129,7 +145,10 @@ public record PCAResult(SingularValueDecomposition svd) {
     return contributions;
   }
 
+  /**
+   * @return the number of computed components
+   */
   public int componentCount() {
-    return principalComponentsMatrix().getRowDimension();
+    return singularValues.length;
   }
 }
@@ -128,7 +128,13 @@ public class PCAUpdateTask extends FxUpdateTask<PCAModel> {
     featureDataTable = DataTableUtils.createSortedCopy(featureDataTable, finalRowSorter);
 
     // perform PCA - scaling and missing value imputation is already done
-    pcaRowsResult = PCAUtils.performPCAOnDataTable(featureDataTable);
+    // only compute the components up to the selected ones, selecting a higher component in the
+    // list of all components starts a new update that computes more components
+    final int maxComponents = Math.min(featureDataTable.getNumberOfSamples(),
+        featureDataTable.getNumberOfFeatures());
+    final int numComponents = Math.min(maxComponents, Math.max(PCAUtils.DEFAULT_COMPONENTS,
+        Math.max(domainPcIndex, rangePcIndex) + 1));
+    pcaRowsResult = PCAUtils.performPCAOnDataTable(featureDataTable, numComponents);
     if (pcaRowsResult == null) {
       return;
     }
@@ -147,7 +153,8 @@ public class PCAUpdateTask extends FxUpdateTask<PCAModel> {
     loadingsDatasets.add(new DatasetAndRenderer(loadingsDS, new ColoredXYShapeRenderer()));
     scoresDatasets.add(new DatasetAndRenderer(scoresDS, new ColoredXYShapeRenderer()));
 
-    for (int i = 1; i <= pcaRowsResult.pcaResult().principalComponentsMatrix().getRowDimension();
+    // all components of a full decomposition can be selected
+    for (int i = 1; i <= Math.max(maxComponents, pcaRowsResult.pcaResult().componentCount());
         i++) {
       components.add(i);
     }
@@ -41,6 +41,11 @@ public class PCAUtils {
 
   private static final Logger logger = Logger.getLogger(PCAUtils.class.getName());
 
+  /**
+   * Minimum number of computed components for the PCA plots
+   */
+  public static final int DEFAULT_COMPONENTS = 10;
+
   /**
    * Calculates the PCA of a matrix by singular value decomposition (svd).
    * https://stats.stackexchange.com/questions/134282/relationship-between-svd-and-pca-how-to-use-svd-to-perform-pca
@@ -76,24 +81,43 @@ public class PCAUtils {
     SingularValueDecomposition svd = new SingularValueDecomposition(data);
     // https://stats.stackexchange.com/questions/134282/relationship-between-svd-and-pca-how-to-use-svd-to-perform-pca
 
-    return new PCAResult(svd);
+    return PCAResult.of(svd);
+  }
+
+  /**
+   * Calculates the first principal components of a matrix by randomized truncated singular value
+   * decomposition, see {@link RandomizedSVD}.
+   *
+   * @param scaledCenteredData row-major data, one row per sample. Imputed, scaled, and centered.
+   * @param numComponents      the number of computed components
+   * @return A pca result with up to numComponents components.
+   */
+  public static PCAResult truncatedPCA(double[] scaledCenteredData, int numSamples,
+      int numFeatures, int numComponents) {
+    logger.finest(() -> "Performing truncated singular value decomposition for %d components"
+        .formatted(numComponents));
+    return new RandomizedSVD(scaledCenteredData, numSamples, numFeatures).decompose(
+        numComponents);
   }
 
   /**
-   * @param dataTable already sorted rows, filtered for sample type, and prepared by scaling and
-   *                  centering
+   * @param dataTable     already sorted rows, filtered for sample type, and prepared by scaling
+   *                      and centering
+   * @param numComponents the number of computed components
    * @return the results or null if conditions are not met
    */
-  public static PCARowsResult performPCAOnDataTable(FeaturesDataTable dataTable) {
+  public static PCARowsResult performPCAOnDataTable(FeaturesDataTable dataTable,
+      int numComponents) {
     final List<RawDataFile> files = dataTable.getRawDataFiles();
     if (files.isEmpty()) {
       return null;
     }
 
     // missing values are already imputed and scaling and centering are also already applied
-    final RealMatrix data = DataTableUtils.createRealMatrix(dataTable);
+    final double[] data = DataTableUtils.createRowMajorSampleArray(dataTable);
 
-    final PCAResult pcaResult = quickPCA(data);
+    final PCAResult pcaResult = truncatedPCA(data, dataTable.getNumberOfSamples(),
+        dataTable.getNumberOfFeatures(), numComponents);
     return new PCARowsResult(pcaResult, dataTable.getFeatureListRows(), files);
   }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.pca_new;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Randomized truncated singular value decomposition (Halko, Martinsson, Tropp 2011) of a dense
+ * matrix in a row-major primitive buffer. Only the first k singular vectors are computed. The
+ * matrix is only accessed by matrix products with thin matrices, which run in parallel blocks,
+ * and the final decomposition is done on a small (k + oversampling) sized matrix.
+ */
+public final class RandomizedSVD {
+
+  /**
+   * Additional random vectors to improve the accuracy of the first k components
+   */
+  static final int OVERSAMPLING = 10;
+  /**
+   * Power iterations improve the accuracy for slowly decaying singular values
+   */
+  static final int POWER_ITERATIONS = 4;
+  private static final int BLOCK_SIZE = 256;
+  private static final long SEED = 42;
+
+  private final double[] data;
+  private final int rows;
+  private final int cols;
+
+  /**
+   * @param data row-major matrix with rows * cols values. Not copied or changed.
+   */
+  public RandomizedSVD(double[] data, int rows, int cols) {
+    if ((long) rows * cols != data.length) {
+      throw new IllegalArgumentException(
+          "Data length %d does not match %d rows and %d columns".formatted(data.length, rows,
+              cols));
+    }
+    this.data = data;
+    this.rows = rows;
+    this.cols = cols;
+  }
+
+  /**
+   * @param components number of singular values and vectors, limited by the matrix dimensions
+   * @return the first singular vectors as U (rows x k), the singular values, V (cols x k), and the
+   * sum of all squared singular values
+   */
+  public @NotNull PCAResult decompose(int components) {
+    final int k = Math.max(1, Math.min(components, Math.min(rows, cols)));
+    final int l = Math.min(k + OVERSAMPLING, Math.min(rows, cols));
+
+    // range finder: Q spans the column space of A * Omega
+    final double[] omega = new double[cols * l];
+    final Random random = new Random(SEED);
+    for (int i = 0; i < omega.length; i++) {
+      omega[i] = random.nextGaussian();
+    }
+    final double[] q = multiply(omega, l);
+    orthonormalize(q, rows, l);
+    for (int i = 0; i < POWER_ITERATIONS; i++) {
+      final double[] z = multiplyTransposed(q, l);
+      orthonormalize(z, cols, l);
+      final double[] y = multiply(z, l);
+      orthonormalize(y, rows, l);
+      System.arraycopy(y, 0, q, 0, q.length);
+    }
+
+    // B = Q^T * A is small (l x cols), decompose its transpose B^T = A^T * Q (cols x l)
+    final double[] bt = multiplyTransposed(q, l);
+    final double[][] btRows = new double[cols][];
+    for (int j = 0; j < cols; j++) {
+      btRows[j] = new double[l];
+      System.arraycopy(bt, j * l, btRows[j], 0, l);
+    }
+    final SingularValueDecomposition small = new SingularValueDecomposition(
+        new Array2DRowRealMatrix(btRows, false));
+    // B^T = Ub * S * Vb^T  =>  A ~ Q * B = (Q * Vb) * S * Ub^T
+    final RealMatrix vb = small.getV();
+    final RealMatrix ub = small.getU();
+
+    final double[][] u = new double[rows][k];
+    for (int i = 0; i < rows; i++) {
+      for (int c = 0; c < k; c++) {
+        double sum = 0;
+        for (int t = 0; t < l; t++) {
+          sum += q[i * l + t] * vb.getEntry(t, c);
+        }
+        u[i][c] = sum;
+      }
+    }
+    final double[][] v = new double[cols][k];
+    for (int j = 0; j < cols; j++) {
+      for (int c = 0; c < k; c++) {
+        v[j][c] = ub.getEntry(j, c);
+      }
+    }
+    final double[] singularValues = new double[k];
+    System.arraycopy(small.getSingularValues(), 0, singularValues, 0, k);
+
+    return new PCAResult(new Array2DRowRealMatrix(u, false), singularValues,
+        new Array2DRowRealMatrix(v, false), squaredNorm());
+  }
+
+  /**
+   * @return the squared Frobenius norm, equal to the sum of all squared singular values
+   */
+  private double squaredNorm() {
+    double sum = 0;
+    for (double value : data) {
+      sum += value * value;
+    }
+    return sum;
+  }
+
+  /**
+   * @param other row-major (cols x width) matrix
+   * @return row-major (rows x width) product A * other, computed in parallel blocks of rows
+   */
+  double[] multiply(double[] other, int width) {
+    final double[] result = new double[rows * width];
+    final int blocks = (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    IntStream.range(0, blocks).parallel().forEach(b -> {
+      final int end = Math.min(rows, (b + 1) * BLOCK_SIZE);
+      for (int i = b * BLOCK_SIZE; i < end; i++) {
+        final int rowOffset = i * cols;
+        final int resultOffset = i * width;
+        for (int j = 0; j < cols; j++) {
+          final double a = data[rowOffset + j];
+          if (a == 0) {
+            continue;
+          }
+          final int otherOffset = j * width;
+          for (int c = 0; c < width; c++) {
+            result[resultOffset + c] += a * other[otherOffset + c];
+          }
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @param other row-major (rows x width) matrix
+   * @return row-major (cols x width) product A^T * other, computed in parallel blocks of columns
+   */
+  double[] multiplyTransposed(double[] other, int width) {
+    final double[] result = new double[cols * width];
+    final int blocks = (cols + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    IntStream.range(0, blocks).parallel().forEach(b -> {
+      final int start = b * BLOCK_SIZE;
+      final int end = Math.min(cols, start + BLOCK_SIZE);
+      for (int i = 0; i < rows; i++) {
+        final int rowOffset = i * cols;
+        final int otherOffset = i * width;
+        for (int j = start; j < end; j++) {
+          final double a = data[rowOffset + j];
+          if (a == 0) {
+            continue;
+          }
+          final int resultOffset = j * width;
+          for (int c = 0; c < width; c++) {
+            result[resultOffset + c] += a * other[otherOffset + c];
+          }
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Modified Gram-Schmidt on the columns of a row-major (height x width) matrix. Linearly
+   * dependent columns are set to 0.
+   */
+  static void orthonormalize(double[] matrix, int height, int width) {
+    for (int c = 0; c < width; c++) {
+      for (int prev = 0; prev < c; prev++) {
+        double dot = 0;
+        for (int i = 0; i < height; i++) {
+          dot += matrix[i * width + c] * matrix[i * width + prev];
+        }
+        for (int i = 0; i < height; i++) {
+          matrix[i * width + c] -= dot * matrix[i * width + prev];
+        }
+      }
+      double norm = 0;
+      for (int i = 0; i < height; i++) {
+        norm += matrix[i * width + c] * matrix[i * width + c];
+      }
+      norm = Math.sqrt(norm);
+      final double factor = norm > 1e-12 ? 1 / norm : 0;
+      for (int i = 0; i < height; i++) {
+        matrix[i * width + c] *= factor;
+      }
+    }
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.significance;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.statistics.FeatureListRowAbundances;
+import io.github.mzmine.datamodel.statistics.FeaturesDataTable;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+import org.apache.commons.math3.special.Beta;
+import org.apache.commons.math3.special.Erf;
+import org.apache.commons.math3.util.FastMath;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs a {@link SignificanceTests} on all rows of a {@link FeaturesDataTable} at once and adjusts
+ * the p values by the Benjamini-Hochberg false discovery rate. The abundances are copied once into
+ * a contiguous features x samples matrix per data table and the features are tested in parallel
+ * blocks with primitive implementations of the tests, which give the same results as the commons
+ * math tests used in {@link SignificanceTests#test(List)}.
+ * <p>
+ * The prepared matrix is weakly cached per data table and the results per test and grouping, so
+ * that switching between groupings of the same data table only computes the test statistics. Data
+ * tables are mutable, e.g., scaling functions change the values in place, so the prepared matrix
+ * keeps the modification count of the table and is prepared again on changes.
+ */
+public final class RowSignificanceBatchTest {
+
+  private static final int BLOCK_SIZE = 256;
+  /**
+   * Number of test results that are cached per prepared data table
+   */
+  private static final int MAX_CACHED_RESULTS = 16;
+
+  private static final Map<FeaturesDataTable, PreparedMatrix> preparedTables = Collections.synchronizedMap(
+      new WeakHashMap<>());
+
+  private RowSignificanceBatchTest() {
+  }
+
+  /**
+   * Tests all rows of the data table. Results are cached by data table, test, and grouping.
+   *
+   * @param table  the prepared data table, e.g., after missing value imputation
+   * @param test   the test to apply to each row
+   * @param groups the sample groups, all samples need to be in the data table
+   * @return the statistics, p values, and Benjamini-Hochberg adjusted p values in the order of
+   * the data table rows
+   * @throws IllegalArgumentException if the grouping does not fit the test or contains samples
+   *                                  missing in the table
+   */
+  public static @NotNull Result test(@NotNull FeaturesDataTable table,
+      @NotNull SignificanceTests test, @NotNull List<List<RawDataFile>> groups) {
+    PreparedMatrix matrix = preparedTables.get(table);
+    if (matrix == null || !matrix.matches(table)) {
+      // new or changed table, cached results are dropped with the old matrix
+      matrix = new PreparedMatrix(table);
+      preparedTables.put(table, matrix);
+    }
+    final Grouping key = new Grouping(test, groups.stream().map(List::copyOf).toList());
+    final Result cached = matrix.getResult(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    final int[][] groupIndexes = new int[groups.size()][];
+    for (int g = 0; g < groups.size(); g++) {
+      groupIndexes[g] = toSampleIndexes(table, groups.get(g));
+    }
+    final Result result = test(matrix.values, matrix.features, matrix.samples, test, groupIndexes);
+    matrix.putResult(key, result);
+    return result;
+  }
+
+  /**
+   * Tests all features of a row-major features x samples matrix. Not cached.
+   *
+   * @param groups sample indexes of each group
+   */
+  public static @NotNull Result test(double @NotNull [] values, int features, int samples,
+      @NotNull SignificanceTests test, int @NotNull [][] groups) {
+    if ((long) features * samples != values.length) {
+      throw new IllegalArgumentException(
+          "Data length %d does not match %d features and %d samples".formatted(values.length,
+              features, samples));
+    }
+    checkGroups(test, groups);
+
+    final double[] statistics = new double[features];
+    final double[] pValues = new double[features];
+    final int blocks = (features + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    IntStream.range(0, blocks).parallel().forEach(b -> {
+      // reused buffers of this block
+      final double[][] groupValues = new double[groups.length][];
+      for (int g = 0; g < groups.length; g++) {
+        groupValues[g] = new double[groups[g].length];
+      }
+      final RankBuffer ranks = test.isParametric() ? null : new RankBuffer(groups);
+      final double[] statistic = new double[1];
+
+      final int end = Math.min(features, (b + 1) * BLOCK_SIZE);
+      for (int f = b * BLOCK_SIZE; f < end; f++) {
+        final int offset = f * samples;
+        for (int g = 0; g < groups.length; g++) {
+          final int[] indexes = groups[g];
+          final double[] target = groupValues[g];
+          for (int i = 0; i < indexes.length; i++) {
+            target[i] = values[offset + indexes[i]];
+          }
+        }
+        pValues[f] = switch (test) {
+          case WELCHS_T_TEST -> welchTTest(groupValues[0], groupValues[1], statistic);
+          case STUDENTS_T_TEST -> studentTTest(groupValues[0], groupValues[1], statistic);
+          case PAIRED_T_TEST -> pairedTTest(groupValues[0], groupValues[1], statistic);
+          case MANN_WHITNEY_U_TEST -> ranks.mannWhitneyUTest(groupValues, statistic);
+          case ONE_WAY_ANOVA -> oneWayAnova(groupValues, statistic);
+        };
+        statistics[f] = statistic[0];
+      }
+    });
+
+    return new Result(test, statistics, pValues, benjaminiHochberg(pValues));
+  }
+
+  /**
+   * Benjamini-Hochberg step-up procedure. NaN p values are ignored and stay NaN.
+   *
+   * @return the adjusted p values (q values) controlling the false discovery rate
+   */
+  public static double @NotNull [] benjaminiHochberg(double @NotNull [] pValues) {
+    final double[] adjusted = new double[pValues.length];
+    int tested = 0;
+    final int[] order = new int[pValues.length];
+    for (int i = 0; i < pValues.length; i++) {
+      if (Double.isNaN(pValues[i])) {
+        adjusted[i] = Double.NaN;
+      } else {
+        order[tested++] = i;
+      }
+    }
+    IntArrays.quickSort(order, 0, tested, (a, b) -> Double.compare(pValues[a], pValues[b]));
+
+    // step up from the largest p value and keep the running minimum
+    double min = 1d;
+    for (int rank = tested; rank >= 1; rank--) {
+      final int index = order[rank - 1];
+      min = Math.min(min, pValues[index] * tested / rank);
+      adjusted[index] = min;
+    }
+    return adjusted;
+  }
+
+  private static int[] toSampleIndexes(FeaturesDataTable table, List<RawDataFile> group) {
+    final int[] indexes = new int[group.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      final RawDataFile raw = group.get(i);
+      final int index = table.getSampleIndex(raw);
+      if (index < 0 || index >= table.getNumberOfSamples() || table.getRawDataFile(index) != raw) {
+        throw new IllegalArgumentException(
+            "Raw data file " + raw.getName() + " is not in the data table.");
+      }
+      indexes[i] = index;
+    }
+    return indexes;
+  }
+
+  private static void checkGroups(SignificanceTests test, int[][] groups) {
+    test.checkNumberOfGroups(groups.length);
+    if (test == SignificanceTests.PAIRED_T_TEST && groups[0].length != groups[1].length) {
+      throw new IllegalArgumentException(
+          "Paired test requires the same number of samples in group 1 and group 2. Found %d in group 1 and %d in group 2".formatted(
+              groups[0].length, groups[1].length));
+    }
+    final int minSamples = test.isParametric() ? 2 : 1;
+    for (int[] group : groups) {
+      if (group.length < minSamples) {
+        throw new IllegalArgumentException(
+            "Each group requires at least %d samples for %s but one group has %d".formatted(
+                minSamples, test, group.length));
+      }
+    }
+  }
+
+  // the tests follow the implementations in commons math TestUtils and MannWhitneyUTest but
+  // evaluate the distributions directly to avoid creating a distribution per row
+
+  private static double welchTTest(double[] a, double[] b, double[] statistic) {
+    final double meanA = mean(a);
+    final double meanB = mean(b);
+    final double varA = variance(a, meanA) / a.length;
+    final double varB = variance(b, meanB) / b.length;
+    final double t = (meanA - meanB) / FastMath.sqrt(varA + varB);
+    final double df = (varA + varB) * (varA + varB) / (varA * varA / (a.length - 1d)
+        + varB * varB / (b.length - 1d));
+    statistic[0] = t;
+    return twoSidedTPValue(t, df);
+  }
+
+  private static double studentTTest(double[] a, double[] b, double[] statistic) {
+    final double meanA = mean(a);
+    final double meanB = mean(b);
+    final double df = a.length + b.length - 2d;
+    final double pooledVariance =
+        ((a.length - 1d) * variance(a, meanA) + (b.length - 1d) * variance(b, meanB)) / df;
+    final double t = (meanA - meanB) / FastMath.sqrt(
+        pooledVariance * (1d / a.length + 1d / b.length));
+    statistic[0] = t;
+    return twoSidedTPValue(t, df);
+  }
+
+  private static double pairedTTest(double[] a, double[] b, double[] statistic) {
+    final int n = a.length;
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += a[i] - b[i];
+    }
+    final double meanDifference = sum / n;
+    double squares = 0;
+    double deviations = 0;
+    for (int i = 0; i < n; i++) {
+      final double dev = a[i] - b[i] - meanDifference;
+      squares += dev * dev;
+      deviations += dev;
+    }
+    final double variance = (squares - deviations * deviations / n) / (n - 1);
+    final double t = meanDifference / FastMath.sqrt(variance / n);
+    statistic[0] = t;
+    return twoSidedTPValue(t, n - 1);
+  }
+
+  private static double oneWayAnova(double[][] groups, double[] statistic) {
+    double sumTotal = 0;
+    double sumSquaresTotal = 0;
+    int n = 0;
+    double withinGroups = 0;
+    int dfWithinGroups = 0;
+    for (double[] group : groups) {
+      double sum = 0;
+      double sumSquares = 0;
+      for (double v : group) {
+        sum += v;
+        sumSquares += v * v;
+      }
+      withinGroups += sumSquares - sum * sum / group.length;
+      dfWithinGroups += group.length - 1;
+      sumTotal += sum;
+      sumSquaresTotal += sumSquares;
+      n += group.length;
+    }
+    final int dfBetweenGroups = groups.length - 1;
+    final double betweenGroups = sumSquaresTotal - sumTotal * sumTotal / n - withinGroups;
+    final double f =
+        (betweenGroups / dfBetweenGroups) / (withinGroups / dfWithinGroups);
+    statistic[0] = f;
+    // upper tail of the F distribution
+    if (f <= 0) {
+      return 1d;
+    }
+    return 1d - Beta.regularizedBeta((dfBetweenGroups * f) / (dfWithinGroups + dfBetweenGroups * f),
+        0.5 * dfBetweenGroups, 0.5 * dfWithinGroups);
+  }
+
+  /**
+   * @return two-sided p value of the t distribution with df degrees of freedom
+   */
+  private static double twoSidedTPValue(double t, double df) {
+    if (t == 0) {
+      return 1d;
+    }
+    return Beta.regularizedBeta(df / (df + t * t), 0.5 * df, 0.5);
+  }
+
+  private static double mean(double[] values) {
+    double sum = 0;
+    for (double v : values) {
+      sum += v;
+    }
+    final double mean = sum / values.length;
+    // correction term as in commons math Mean
+    double correction = 0;
+    for (double v : values) {
+      correction += v - mean;
+    }
+    return mean + correction / values.length;
+  }
+
+  /**
+   * Bias corrected sample variance with the corrected two pass algorithm
+   */
+  private static double variance(double[] values, double mean) {
+    double squares = 0;
+    double deviations = 0;
+    for (double v : values) {
+      final double dev = v - mean;
+      squares += dev * dev;
+      deviations += dev;
+    }
+    return (squares - deviations * deviations / values.length) / (values.length - 1);
+  }
+
+  /**
+   * Pools all groups and ranks them with averaged ranks for ties
+   */
+  private static final class RankBuffer {
+
+    private final double[] sorted;
+
+    RankBuffer(int[][] groups) {
+      sorted = new double[Arrays.stream(groups).mapToInt(g -> g.length).sum()];
+    }
+
+    /**
+     * Sorts all values and sums the ranks of each group
+     *
+     * @return the rank sums of each group
+     */
+    private double[] rankSums(double[][] groups) {
+      int n = 0;
+      for (double[] group : groups) {
+        System.arraycopy(group, 0, sorted, n, group.length);
+        n += group.length;
+      }
+      Arrays.sort(sorted);
+
+      final double[] rankSums = new double[groups.length];
+      for (int g = 0; g < groups.length; g++) {
+        for (double v : groups[g]) {
+          rankSums[g] += averageRank(v);
+        }
+      }
+      return rankSums;
+    }
+
+    /**
+     * @return the 1-based rank of the value, the average of all positions for ties
+     */
+    private double averageRank(double value) {
+      // first position and the position after the last value
+      int first = Arrays.binarySearch(sorted, value);
+      int last = first;
+      while (first > 0 && sorted[first - 1] == value) {
+        first--;
+      }
+      while (last < sorted.length && sorted[last] == value) {
+        last++;
+      }
+      return (first + 1 + last) / 2d;
+    }
+
+    double mannWhitneyUTest(double[][] groups, double[] statistic) {
+      final double[] rankSums = rankSums(groups);
+      final int n1 = groups[0].length;
+      final int n2 = groups[1].length;
+      final long n1n2 = (long) n1 * n2;
+      final double u1 = rankSums[0] - ((long) n1 * (n1 + 1)) / 2;
+      final double uMin = Math.min(u1, n1n2 - u1);
+      statistic[0] = n1n2 - uMin;
+
+      // normal approximation
+      final double z = (uMin - n1n2 / 2d) / FastMath.sqrt(n1n2 * (n1 + n2 + 1) / 12d);
+      return 2 * standardNormalCdf(z);
+    }
+
+    private static double standardNormalCdf(double z) {
+      if (FastMath.abs(z) > 40) {
+        return z < 0 ? 0d : 1d;
+      }
+      return 0.5 * Erf.erfc(-z / FastMath.sqrt(2d));
+    }
+  }
+
+  /**
+   * The abundances of a data table as a contiguous row-major features x samples matrix and the
+   * test results for different groupings.
+   */
+  private static final class PreparedMatrix {
+
+    private final double[] values;
+    private final int features;
+    private final int samples;
+    private final long modificationCount;
+    private final Map<Grouping, Result> results = new LinkedHashMap<>(MAX_CACHED_RESULTS, 0.75f,
+        true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Grouping, Result> eldest) {
+        return size() > MAX_CACHED_RESULTS;
+      }
+    };
+
+    PreparedMatrix(FeaturesDataTable table) {
+      modificationCount = table.getModificationCount();
+      features = table.getNumberOfFeatures();
+      samples = table.getNumberOfSamples();
+      values = new double[features * samples];
+      for (int f = 0; f < features; f++) {
+        final FeatureListRowAbundances row = table.getFeatureRow(f);
+        System.arraycopy(row.abundances(), 0, values, f * samples, samples);
+      }
+    }
+
+    /**
+     * @return true if the table was not changed since this matrix was prepared
+     */
+    boolean matches(FeaturesDataTable table) {
+      return table.getModificationCount() == modificationCount
+          && table.getNumberOfFeatures() == features && table.getNumberOfSamples() == samples;
+    }
+
+    synchronized Result getResult(Grouping key) {
+      return results.get(key);
+    }
+
+    synchronized void putResult(Grouping key, Result result) {
+      results.put(key, result);
+    }
+  }
+
+  private record Grouping(SignificanceTests test, List<List<RawDataFile>> groups) {
+
+  }
+
+  /**
+   * @param test       the applied test
+   * @param statistics the test statistic per row: t for t-tests, U for Mann-Whitney, and F for
+   *                   ANOVA
+   * @param pValues    the p value per row
+   * @param qValues    the Benjamini-Hochberg adjusted p value per row
+   */
+  public record Result(@NotNull SignificanceTests test, double @NotNull [] statistics,
+                       double @NotNull [] pValues, double @NotNull [] qValues) {
+
+    public int size() {
+      return pValues.length;
+    }
+
+    public double pValue(int rowIndex) {
+      return pValues[rowIndex];
+    }
+
+    public double qValue(int rowIndex) {
+      return qValues[rowIndex];
+    }
+
+    public double statistic(int rowIndex) {
+      return statistics[rowIndex];
+    }
+  }
+}
@@ -100,6 +100,12 @@ public enum SignificanceTests implements UniqueIdSupplier, SignificanceTest {
 
   public static final MannWhitneyUTest MANN_WHITNEY_U_TEST_INST = new MannWhitneyUTest();
 
+  /**
+   * Minimum number of groups for the multi group tests. The ANOVA of two groups is valid and gives
+   * the p value of the Student's t-test.
+   */
+  public static final int MIN_MULTI_GROUPS = 2;
+
   /**
    * Also checks the previously used TTestSamplingConfig
    */
@@ -212,29 +218,39 @@ public enum SignificanceTests implements UniqueIdSupplier, SignificanceTest {
 
   @Override
   public void applyPreChecks(List<double[]> data) {
-    boolean valid = switch (this) {
-      case STUDENTS_T_TEST, PAIRED_T_TEST, MANN_WHITNEY_U_TEST, WELCHS_T_TEST -> {
-        if (data.size() != 2) {
-          throw new IllegalArgumentException(
-              "Groups need to be exactly 2 but is %d".formatted(data.size()));
-        }
+    checkNumberOfGroups(data.size());
+    if (this.getSamplingConfig() == TTestSamplingConfig.PAIRED) {
+      final int samplesA = data.getFirst().length;
+      final int samplesB = data.get(1).length;
+      if (samplesA != samplesB) {
+        throw new IllegalArgumentException(
+            "Paired test requires the same number of features in group 1 and group 2. Found %d in group 1 and %d in group 2".formatted(
+                samplesA, samplesB));
+      }
+    }
+  }
 
-        final int samplesA = data.getFirst().length;
-        final int samplesB = data.get(1).length;
-        if (this.getSamplingConfig() == TTestSamplingConfig.PAIRED && samplesA != samplesB) {
+  /**
+   * Checks the number of groups, the same rule for single tests and batch tests of all rows.
+   *
+   * @param groups the number of groups
+   * @throws IllegalArgumentException if the test cannot be applied to this number of groups
+   */
+  public void checkNumberOfGroups(int groups) {
+    switch (this) {
+      case STUDENTS_T_TEST, PAIRED_T_TEST, MANN_WHITNEY_U_TEST, WELCHS_T_TEST -> {
+        if (groups != 2) {
           throw new IllegalArgumentException(
-              "Paired test requires the same number of features in group 1 and group 2. Found %d in group 1 and %d in group 2".formatted(
-                  samplesA, samplesB));
+              "Groups need to be exactly 2 but is %d".formatted(groups));
         }
-        yield true;
       }
       case ONE_WAY_ANOVA -> {
-        if (data.size() < 3) {
+        if (groups < MIN_MULTI_GROUPS) {
           throw new IllegalArgumentException(
-              "At least 3 groups required for ANOVA but is %d".formatted(data.size()));
+              "At least %d groups required for ANOVA but is %d".formatted(MIN_MULTI_GROUPS,
+                  groups));
         }
-        yield true;
       }
-    };
+    }
   }
 }
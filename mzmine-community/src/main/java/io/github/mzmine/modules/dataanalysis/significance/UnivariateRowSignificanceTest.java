@@ -28,6 +28,7 @@ package io.github.mzmine.modules.dataanalysis.significance;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.statistics.FeaturesDataTable;
+import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceBatchTest.Result;
 import io.github.mzmine.modules.dataanalysis.significance.ttest.UnivariateRowSignificanceTestResult;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.modules.visualization.projectmetadata.table.columns.MetadataColumn;
@@ -35,7 +36,9 @@ import io.github.mzmine.parameters.parametertypes.statistics.UnivariateRowSignif
 import io.github.mzmine.project.ProjectService;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * @param <T> Type of the metadata column.
@@ -48,6 +51,10 @@ public final class UnivariateRowSignificanceTest<T> implements RowSignificanceTe
   private final T groupB;
   private final FeaturesDataTable groupAData;
   private final FeaturesDataTable groupBData;
+  /**
+   * The full data table if available to test all rows at once
+   */
+  private final @Nullable FeaturesDataTable dataTable;
 
   public UnivariateRowSignificanceTest(@NotNull FeaturesDataTable dataTable,
       @NotNull SignificanceTests test, MetadataColumn<T> column, T groupA, T groupB) {
@@ -63,7 +70,7 @@ public final class UnivariateRowSignificanceTest<T> implements RowSignificanceTe
     // split table into the two groups
     var groupAData = dataTable.subsetBySamples(groupedFilesA);
     var groupBData = dataTable.subsetBySamples(groupedFilesB);
-    this(groupAData, groupBData, test, column, groupA, groupB);
+    this(dataTable, groupAData, groupBData, test, column, groupA, groupB);
   }
 
   public FeaturesDataTable getGroupAData() {
@@ -83,6 +90,13 @@ public final class UnivariateRowSignificanceTest<T> implements RowSignificanceTe
   public UnivariateRowSignificanceTest(@NotNull FeaturesDataTable groupAData,
       @NotNull FeaturesDataTable groupBData, @NotNull SignificanceTests test,
       MetadataColumn<T> column, T groupA, T groupB) {
+    this(null, groupAData, groupBData, test, column, groupA, groupB);
+  }
+
+  private UnivariateRowSignificanceTest(@Nullable FeaturesDataTable dataTable,
+      @NotNull FeaturesDataTable groupAData, @NotNull FeaturesDataTable groupBData,
+      @NotNull SignificanceTests test, MetadataColumn<T> column, T groupA, T groupB) {
+    this.dataTable = dataTable;
     this.test = test;
     this.column = column;
     this.groupA = groupA;
@@ -115,6 +129,31 @@ public final class UnivariateRowSignificanceTest<T> implements RowSignificanceTe
     }
   }
 
+  /**
+   * Tests all rows at once with {@link RowSignificanceBatchTest}, which is cached for the full data
+   * table and grouping. Also provides the Benjamini-Hochberg adjusted p values.
+   *
+   * @return the results in the order of the data table rows
+   */
+  public @NotNull List<UnivariateRowSignificanceTestResult> testAll() {
+    final String columnTitle = column.getTitle();
+    if (dataTable == null) {
+      // only the split tables are available
+      final List<FeatureListRow> rows = groupAData.getFeatureListRows();
+      final double[] pValues = rows.stream().mapToDouble(row -> test(row).pValue()).toArray();
+      final double[] qValues = RowSignificanceBatchTest.benjaminiHochberg(pValues);
+      return IntStream.range(0, rows.size()).mapToObj(
+          i -> new UnivariateRowSignificanceTestResult(rows.get(i), columnTitle, pValues[i],
+              qValues[i])).toList();
+    }
+
+    final Result result = RowSignificanceBatchTest.test(dataTable, test,
+        List.of(groupAData.getRawDataFiles(), groupBData.getRawDataFiles()));
+    return IntStream.range(0, result.size()).mapToObj(
+        i -> new UnivariateRowSignificanceTestResult(dataTable.getFeatureRow(i).row(),
+            columnTitle, result.pValue(i), result.qValue(i))).toList();
+  }
+
   public SignificanceTest getTest() {
     return test;
   }
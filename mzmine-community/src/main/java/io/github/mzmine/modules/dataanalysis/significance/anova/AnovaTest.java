@@ -29,14 +29,19 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.statistics.DataTableUtils;
 import io.github.mzmine.datamodel.statistics.FeaturesDataTable;
+import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceBatchTest;
+import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceBatchTest.Result;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
+import io.github.mzmine.modules.dataanalysis.significance.SignificanceTests;
 import io.github.mzmine.modules.visualization.projectmetadata.MetadataColumnDoesNotExistException;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.modules.visualization.projectmetadata.table.columns.MetadataColumn;
 import io.github.mzmine.project.ProjectService;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 import org.apache.commons.math3.stat.inference.TestUtils;
+import org.jetbrains.annotations.NotNull;
 
 public class AnovaTest implements RowSignificanceTest {
 
@@ -51,7 +56,9 @@ public class AnovaTest implements RowSignificanceTest {
     this.groupingColumn = groupingColumn;
 
     final MetadataTable metadata = ProjectService.getMetadata();
-    final Map<?, List<RawDataFile>> fileGrouping = metadata.groupFilesByColumn(groupingColumn);
+    // only the samples in the data table
+    final Map<?, List<RawDataFile>> fileGrouping = metadata.groupFilesByColumn(
+        dataTable.getRawDataFiles(), groupingColumn);
     // can check conditions here that all groups have at least two values because we impute missing values
     for (var group : fileGrouping.entrySet()) {
       if (group.getValue().size() < 2) {
@@ -73,4 +80,19 @@ public class AnovaTest implements RowSignificanceTest {
     final double fValue = TestUtils.oneWayAnovaFValue(intensityGroups);
     return new AnovaResult(row, groupingColumn.getTitle(), pValue, fValue);
   }
+
+  /**
+   * Tests all rows at once with {@link RowSignificanceBatchTest}, which is cached for the data
+   * table and grouping.
+   *
+   * @return the results in the order of the data table rows
+   */
+  public @NotNull List<AnovaResult> testAll() {
+    final Result result = RowSignificanceBatchTest.test(dataTable, SignificanceTests.ONE_WAY_ANOVA,
+        groupedFiles);
+    final String columnTitle = groupingColumn.getTitle();
+    return IntStream.range(0, result.size()).mapToObj(
+        i -> new AnovaResult(dataTable.getFeatureRow(i).row(), columnTitle, result.pValue(i),
+            result.statistic(i))).toList();
+  }
 }
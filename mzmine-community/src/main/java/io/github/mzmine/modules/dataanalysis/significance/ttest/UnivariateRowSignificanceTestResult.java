@@ -28,8 +28,15 @@ package io.github.mzmine.modules.dataanalysis.significance.ttest;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
 
+/**
+ * @param qValue the Benjamini-Hochberg adjusted p value or NaN if the row was tested alone
+ */
 public record UnivariateRowSignificanceTestResult(FeatureListRow row, String groupingColumn,
-                                                  double pValue) implements
+                                                  double pValue, double qValue) implements
     RowSignificanceTestResult {
 
+  public UnivariateRowSignificanceTestResult(FeatureListRow row, String groupingColumn,
+      double pValue) {
+    this(row, groupingColumn, pValue, Double.NaN);
+  }
 }
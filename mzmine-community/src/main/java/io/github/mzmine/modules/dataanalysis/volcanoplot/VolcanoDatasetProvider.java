@@ -32,6 +32,7 @@ import io.github.mzmine.gui.chartbasics.simplechart.providers.SimpleXYProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.XYItemObjectProvider;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
 import io.github.mzmine.modules.dataanalysis.significance.UnivariateRowSignificanceTest;
+import io.github.mzmine.modules.dataanalysis.significance.ttest.UnivariateRowSignificanceTestResult;
 import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureUtils;
@@ -73,10 +74,14 @@ public class VolcanoDatasetProvider extends SimpleXYProvider implements
     if (bestAnnotation != null) {
       name += ", " + bestAnnotation.getCompoundName();
     }
-    return String.format("""
+    String text = String.format("""
         %s
         Fold change: %.3f
         p-Value: %.3f""", name, Math.pow(2, getDomainValue(index)), result.pValue());
+    if (result instanceof UnivariateRowSignificanceTestResult r && !Double.isNaN(r.qValue())) {
+      text += "\nq-Value (FDR): %.3f".formatted(r.qValue());
+    }
+    return text;
   }
 
   @Override
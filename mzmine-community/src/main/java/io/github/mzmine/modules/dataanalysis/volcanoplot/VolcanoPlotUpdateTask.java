@@ -26,7 +26,6 @@
 package io.github.mzmine.modules.dataanalysis.volcanoplot;
 
 import io.github.mzmine.datamodel.features.FeatureList;
-import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.types.DataType;
 import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.annotations.MissingValueType;
@@ -38,7 +37,6 @@ import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
 import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYShapeRenderer;
 import io.github.mzmine.javafx.mvci.FxUpdateTask;
 import io.github.mzmine.main.ConfigService;
-import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTest;
 import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceTestResult;
 import io.github.mzmine.modules.dataanalysis.significance.UnivariateRowSignificanceTest;
 import io.github.mzmine.parameters.parametertypes.statistics.UnivariateRowSignificanceTestConfig;
@@ -60,7 +58,7 @@ import org.jetbrains.annotations.Nullable;
 class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
 
   private final FeatureList flist;
-  private final RowSignificanceTest test;
+  private final UnivariateRowSignificanceTest<?> test;
   private final double pValue;
   private final TotalFinishedItemsProgress progress = new TotalFinishedItemsProgress();
   private @Nullable List<DatasetAndRenderer> temporaryDatasets;
@@ -98,26 +96,18 @@ class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
     if (!checkPreConditions()) {
       return;
     }
-    List<RowSignificanceTestResult> rowSignificanceTestResults = new ArrayList<>();
-    for (final FeatureListRow row : flist.getRows()) {
-      if (isCanceled()) {
-        return;
-      }
-      RowSignificanceTestResult result = test.test(row);
-      if (result != null) {
-        rowSignificanceTestResults.add(result);
-      }
-      progress.getAndIncrement();
+    // all rows at once, cached for the data table and grouping
+    final List<RowSignificanceTestResult> rowSignificanceTestResults = List.copyOf(
+        test.testAll());
+    progress.setFinished(progress.getTotal().get());
+    if (isCanceled()) {
+      return;
     }
 
     final Map<DataType<?>, List<RowSignificanceTestResult>> dataTypeMap = DataTypeUtils.groupByBestDataType(
         rowSignificanceTestResults, RowSignificanceTestResult::row, true,
         CompoundAnnotationUtils.annotationTypePriority.toArray(DataType[]::new));
 
-    if (!(test instanceof UnivariateRowSignificanceTest<?> ttest)) {
-      return;
-    }
-
     final SimpleColorPalette colors = ConfigService.getConfiguration().getDefaultColorPalette()
         .clone(true);
     temporaryDatasets = new ArrayList<>();
@@ -134,7 +124,7 @@ class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
 
       final Color color = colors.getNextColorAWT();
       if (!significantRows.isEmpty()) {
-        var provider = new VolcanoDatasetProvider(ttest, significantRows, color,
+        var provider = new VolcanoDatasetProvider(test, significantRows, color,
             (type.equals(DataTypes.get(MissingValueType.class)) ? "unknown"
                 : type.getHeaderString()) + " (p < " + pValue + ")");
         temporaryDatasets.add(
@@ -143,7 +133,7 @@ class VolcanoPlotUpdateTask extends FxUpdateTask<VolcanoPlotModel> {
       }
       // NOT significant
       if (!insignificantRows.isEmpty()) {
-        var provider = new VolcanoDatasetProvider(ttest, insignificantRows, color,
+        var provider = new VolcanoDatasetProvider(test, insignificantRows, color,
             (type.equals(DataTypes.get(MissingValueType.class)) ? "unknown"
                 : type.getHeaderString()) + " (p ≥ " + pValue + ")");
         temporaryDatasets.add(
@@ -24,6 +24,8 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_baselinecorrection.als;
 
+import io.github.mzmine.util.maths.kernels.ArrayKernels;
+
 /**
  * Performs asymmetric least squares baseline correction on an array of data
  */
@@ -52,9 +54,7 @@ public class AsymmetricLeastSquaresCorrection {
       double[] W = diag(w);
       z = solve(W, lambda, y);
 
-      for (int j = 0; j < n; j++) {
-        w[j] = y[j] > z[j] ? p : (1.0 - p);
-      }
+      ArrayKernels.getInstance().asymmetricWeights(y, z, p, w, n);
     }
 
     return z;
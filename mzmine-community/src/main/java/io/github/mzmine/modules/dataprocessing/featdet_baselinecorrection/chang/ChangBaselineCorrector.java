@@ -35,6 +35,7 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.util.MathUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.collections.IndexRange;
+import io.github.mzmine.util.maths.kernels.ArrayKernels;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -151,10 +152,8 @@ public class ChangBaselineCorrector extends AbstractBaselineCorrector {
         IntStream.range(0, numValues).filter(j -> !isSignal[j]).mapToDouble(j -> yBuffer[j])
             .toArray(), xBuffer);
 
-    for (int i = 0; i < numValues; i++) {
-      yBuffer[i] = Math.max(0,
-          yBuffer[i] - backgroundSignal[i] + 2 * (threshold * 0.5) * 2 * backgroundSDev);
-    }
+    ArrayKernels.getInstance().subtractBaseline(yBuffer, backgroundSignal,
+        2 * (threshold * 0.5) * 2 * backgroundSDev, yBuffer, numValues);
 
     if (isPreview()) {
       additionalData.add(new AnyXYProvider(Color.RED, "baseline", numValues, i -> xBuffer[i],
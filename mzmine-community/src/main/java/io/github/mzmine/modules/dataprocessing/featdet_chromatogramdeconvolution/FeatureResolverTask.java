@@ -39,6 +39,7 @@ import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
@@ -58,6 +59,7 @@ import io.github.mzmine.modules.dataprocessing.filter_groupms2.GroupMS2Processor
 import io.github.mzmine.modules.dataprocessing.filter_groupms2.GroupMS2SubParameters;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskService;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.DataTypeUtils;
 import io.github.mzmine.util.FeatureListUtils;
@@ -67,16 +69,24 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class FeatureResolverTask extends AbstractTask {
 
   // Logger.
   private static final Logger logger = Logger.getLogger(FeatureResolverTask.class.getName());
 
+  /**
+   * Minimum number of rows per parallel chunk. Smaller feature lists are resolved on one thread
+   */
+  private static final int MIN_ROWS_PER_CHUNK = 500;
+
   // These types will not be copied to a new feature
   private final Set<DataType<?>> featureCopyExcludedTypes = DataTypes.getInstances().stream()
       .<DataType<?>>mapMulti((t, c) -> {
@@ -99,7 +109,7 @@ public class FeatureResolverTask extends AbstractTask {
   private final CenterFunction mzCenterFunction;
   private FeatureList newPeakList;
   // Counters.
-  private int processedRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
   private int totalRows;
   private String errorMsg;
   private boolean setMSMSRange, setMSMSRT;
@@ -124,7 +134,6 @@ public class FeatureResolverTask extends AbstractTask {
     parameters = parameterSet;
     originalPeakList = list;
     newPeakList = null;
-    processedRows = 0;
     totalRows = 0;
     this.mzCenterFunction = mzCenterFunction;
   }
@@ -142,7 +151,7 @@ public class FeatureResolverTask extends AbstractTask {
     if (groupMS2Task != null) {
       return groupMS2Task.getFinishedPercentage();
     }
-    return totalRows == 0 ? 0.0 : processedRows / (double) totalRows;
+    return totalRows == 0 ? 0.0 : processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -216,47 +225,63 @@ public class FeatureResolverTask extends AbstractTask {
       return;
     }
 
-    final RawDataFile dataFile = originalFeatureList.getRawDataFile(0);
     final ModularFeatureList resolvedFeatureList = createNewFeatureList(originalFeatureList);
 
-    final BinningMobilogramDataAccess binningIms = dataFile instanceof IMSRawDataFile imsFile
-        ? BinningMobilogramDataAccess.createWithPreviousParameters(imsFile, originalFeatureList)
-        : null;
-    // use the same in resolver and data access:
-    resolver.setMobilogramDataAccess(binningIms);
-
-    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
-        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, dataFile, binningIms);
+    processedRows.set(0);
+    final List<FeatureListRow> rows = originalFeatureList.getRows();
+    totalRows = rows.size();
+
+    // long or high resolution files have few but expensive chromatograms. Split the rows into
+    // chunks that are resolved in parallel, each with its own resolver and data access
+    final int numChunks = Math.max(1,
+        Math.min(TaskService.getController().getNumberOfThreads(),
+            totalRows / MIN_ROWS_PER_CHUNK));
+    final List<ResolvedChunk> chunks;
+    if (numChunks == 1) {
+      chunks = List.of(resolveChunk(originalFeatureList, rows, resolver));
+    } else {
+      logger.finest(
+          "Resolving %d rows of %s in %d parallel chunks".formatted(totalRows, originalFeatureList,
+              numChunks));
+      final List<CompletableFuture<ResolvedChunk>> futures = new ArrayList<>(numChunks);
+      for (int i = 0; i < numChunks; i++) {
+        final List<FeatureListRow> chunkRows = rows.subList(
+            (int) ((long) totalRows * i / numChunks),
+            (int) ((long) totalRows * (i + 1) / numChunks));
+        final Resolver chunkResolver = i == 0 ? resolver
+            : ((GeneralResolverParameters) parameters).getResolver(parameters,
+                originalFeatureList);
+        futures.add(CompletableFuture.supplyAsync(
+            () -> resolveChunk(originalFeatureList, chunkRows, chunkResolver)));
+      }
+      // join in chunk order to keep the deterministic row order and IDs
+      chunks = futures.stream().map(CompletableFuture::join).toList();
+    }
 
-    processedRows = 0;
-    totalRows = originalFeatureList.getNumberOfRows();
     int peakId = 1;
-
     int c = 0;
-
-    while (access.hasNextFeature()) {
-      final ModularFeature originalFeature = (ModularFeature) access.nextFeature();
-      final List<IonTimeSeries<? extends Scan>> resolvedSeries = resolver.resolve(access,
-          getMemoryMapStorage());
-
-      for (IonTimeSeries<? extends Scan> resolved : resolvedSeries) {
-        final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
-            peakId++);
-        final ModularFeature f = new ModularFeature(resolvedFeatureList,
-            originalFeature.getRawDataFile(), originalFeature.getFeatureStatus());
-        DataTypeUtils.copyAllBut(originalFeature, f, featureCopyExcludedTypes);
-
-        f.set(FeatureDataType.class, resolved);
-        FeatureDataUtils.recalculateIonSeriesDependingTypes(f);
+    for (ResolvedChunk chunk : chunks) {
+      for (int i = 0; i < chunk.originalFeatures().size(); i++) {
+        final ModularFeature originalFeature = chunk.originalFeatures().get(i);
+
+        for (IonTimeSeries<? extends Scan> resolved : chunk.resolvedSeries().get(i)) {
+          final ModularFeatureListRow newRow = new ModularFeatureListRow(resolvedFeatureList,
+              peakId++);
+          final ModularFeature f = new ModularFeature(resolvedFeatureList,
+              originalFeature.getRawDataFile(), originalFeature.getFeatureStatus());
+          DataTypeUtils.copyAllBut(originalFeature, f, featureCopyExcludedTypes);
+
+          f.set(FeatureDataType.class, resolved);
+          FeatureDataUtils.recalculateIonSeriesDependingTypes(f);
 //        handleMrmTraces(f);
 
-        newRow.addFeature(originalFeature.getRawDataFile(), f);
-        resolvedFeatureList.addRow(newRow);
-        if (resolved.getSpectra().size() <= 3) {
-          c++;
+          newRow.addFeature(originalFeature.getRawDataFile(), f);
+          resolvedFeatureList.addRow(newRow);
+          if (resolved.getSpectra().size() <= 3) {
+            c++;
+          }
         }
       }
-      processedRows++;
     }
     logger.info(c + "/" + resolvedFeatureList.getNumberOfRows()
                 + " have less than 4 scans (frames for IMS data)");
@@ -269,6 +294,48 @@ public class FeatureResolverTask extends AbstractTask {
     newPeakList = resolvedFeatureList;
   }
 
+  /**
+   * Resolves all features in a range of rows. Resolvers and data accesses keep buffers and are not
+   * thread safe, so every chunk needs its own instances.
+   *
+   * @param rows     the rows of this chunk
+   * @param resolver the resolver used only for this chunk
+   * @return the original features and their resolved series in row order
+   */
+  private ResolvedChunk resolveChunk(ModularFeatureList originalFeatureList,
+      List<FeatureListRow> rows, @Nullable Resolver resolver) {
+    if (resolver == null) {
+      throw new IllegalStateException("Resolver could not be initialised.");
+    }
+    final RawDataFile dataFile = originalFeatureList.getRawDataFile(0);
+
+    final BinningMobilogramDataAccess binningIms = dataFile instanceof IMSRawDataFile imsFile
+        ? BinningMobilogramDataAccess.createWithPreviousParameters(imsFile, originalFeatureList)
+        : null;
+    // use the same in resolver and data access:
+    resolver.setMobilogramDataAccess(binningIms);
+
+    final FeatureDataAccess access = EfficientDataAccess.of(originalFeatureList,
+        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, rows, dataFile, binningIms);
+
+    final List<ModularFeature> originalFeatures = new ArrayList<>(rows.size());
+    final List<List<IonTimeSeries<? extends Scan>>> resolvedSeries = new ArrayList<>(rows.size());
+    while (access.hasNextFeature() && !isCanceled()) {
+      originalFeatures.add((ModularFeature) access.nextFeature());
+      resolvedSeries.add(resolver.resolve(access, getMemoryMapStorage()));
+      processedRows.incrementAndGet();
+    }
+    return new ResolvedChunk(originalFeatures, resolvedSeries);
+  }
+
+  /**
+   * The resolved series of each original feature of a chunk of rows
+   */
+  private record ResolvedChunk(List<ModularFeature> originalFeatures,
+                               List<List<IonTimeSeries<? extends Scan>>> resolvedSeries) {
+
+  }
+
   /**
    * Currently unused. Only the main trace in the {@link FeatureDataType} is resolved, so
    * reintegration is possible later from the {@link MrmTransitionList} without having to re-process
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.util.MathUtils;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Single pass core of the {@link MinimumSearchFeatureResolver}. A data point is a local minimum if
+ * no point within +-searchXWidth is lower. This does not depend on the current region start, so
+ * it is precomputed for all points with sliding window minima (monotonic deques). The region
+ * search then only walks forward once over the data, which makes resolving linear in the number of
+ * data points instead of scanning the search window for every candidate region end.
+ * <p>
+ * Results are identical to the original region search. Instances keep buffers and are not thread
+ * safe.
+ */
+final class MinimumSearchCore {
+
+  private final double chromThreshold;
+  private final double searchXWidth;
+  private final double minRelativeHeight;
+  private final double minAbsoluteHeight;
+  private final double minRatio;
+  private final Range<Double> xRange;
+  private final int minDataPoints;
+
+  // buffers
+  private boolean[] localMinimum = new boolean[0];
+  private int[] deque = new int[0];
+
+  MinimumSearchCore(double chromThreshold, double searchXWidth, double minRelativeHeight,
+      double minAbsoluteHeight, double minRatio, @NotNull Range<Double> xRange,
+      int minDataPoints) {
+    this.chromThreshold = chromThreshold;
+    this.searchXWidth = searchXWidth;
+    this.minRelativeHeight = minRelativeHeight;
+    this.minAbsoluteHeight = minAbsoluteHeight;
+    this.minRatio = minRatio;
+    this.xRange = xRange;
+    this.minDataPoints = minDataPoints;
+  }
+
+  /**
+   * @param x               domain values, <b>strictly monotonically increasing</b>
+   * @param y               intensities. Values below the chromatographic threshold are set to 0.
+   * @param resolvedIndices receives the inclusive start and end index of each resolved peak as
+   *                        consecutive pairs
+   */
+  void resolve(double[] x, double[] y, @NotNull IntList resolvedIndices) {
+    if (x.length != y.length) {
+      throw new AssertionError("Length of x, y and indices array does not match.");
+    }
+    // Important: empty scans need to be represented by a 0!
+    final int valueCount = x.length;
+    final int lastScan = valueCount - 1;
+    assert valueCount > 0;
+
+    // First, remove all data points below chromatographic threshold.
+    final double chromatographicThresholdLevel = MathUtils.calcQuantile(y, chromThreshold);
+    double maxY = 0;
+    for (int i = 0; i < y.length; i++) {
+      if (y[i] < chromatographicThresholdLevel) {
+        y[i] = 0.0;
+      }
+      if (y[i] > maxY) {
+        maxY = y[i];
+      }
+    }
+    final double minHeight = Math.max(minAbsoluteHeight, minRelativeHeight * maxY);
+
+    findLocalMinima(x, y);
+
+    int start = 0;
+    while (start < lastScan - 2) {
+      // Find at least two consecutive non-zero data points
+      if (y[start] == 0.0 || y[start + 1] == 0.0) {
+        start++;
+        continue;
+      }
+
+      double height = y[start];
+      int end = start + 1;
+      for (; ; end++) {
+        height = Math.max(height, y[end]);
+        // If we reached the end, or if the next intensity is 0, we have to stop here.
+        if (end == lastScan || y[end + 1] == 0.0) {
+          break;
+        }
+        // minimum duration, local minimum in the search range and the ratio condition
+        if (x[end] - x[start] >= searchXWidth && localMinimum[end]
+            && height >= y[end] * minRatio) {
+          break;
+        }
+      }
+
+      if (checkPeakShape(x, y, start, end, height, minHeight)) {
+        addAdjustedStartAndEnd(y, start, end, resolvedIndices);
+      }
+      // the next region starts at the end of this one
+      start = end;
+    }
+  }
+
+  /**
+   * Marks all points that have no lower point within +-searchXWidth. Like the original search,
+   * the first data point is never considered on the left side.
+   */
+  private void findLocalMinima(double[] x, double[] y) {
+    final int n = x.length;
+    if (localMinimum.length < n) {
+      localMinimum = new boolean[n];
+      deque = new int[n];
+    }
+
+    // left window [max(1, first x >= x[i] - width), i - 1]: deque of increasing y
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < n; i++) {
+      final int added = i - 1;
+      if (added >= 1) {
+        while (tail > head && y[deque[tail - 1]] >= y[added]) {
+          tail--;
+        }
+        deque[tail++] = added;
+      }
+      final double lower = x[i] - searchXWidth;
+      while (tail > head && x[deque[head]] < lower) {
+        head++;
+      }
+      localMinimum[i] = tail == head || y[deque[head]] >= y[i];
+    }
+
+    // right window [i + 1, last x <= x[i] + width]
+    head = 0;
+    tail = 0;
+    int next = 1;
+    for (int i = 0; i < n; i++) {
+      final double upper = x[i] + searchXWidth;
+      next = Math.max(next, i + 1);
+      for (; next < n && x[next] <= upper; next++) {
+        while (tail > head && y[deque[tail - 1]] >= y[next]) {
+          tail--;
+        }
+        deque[tail++] = next;
+      }
+      while (tail > head && deque[head] <= i) {
+        head++;
+      }
+      if (tail > head && y[deque[head]] < y[i]) {
+        localMinimum[i] = false;
+      }
+    }
+  }
+
+  private boolean checkPeakShape(double[] x, double[] y, int start, int end, double height,
+      double minHeight) {
+    // inclusive start and end values
+    final int numberOfDataPoints = end - start + 1;
+    return numberOfDataPoints >= minDataPoints && height >= minHeight
+        && height >= y[start] * minRatio && height >= y[end] * minRatio && xRange.contains(
+        x[end] - x[start]);
+  }
+
+  /**
+   * Checks if the current start and end points are non-zero but have zero values next to them. If
+   * yes, these zeros will be included in the region of the peak.
+   */
+  private static void addAdjustedStartAndEnd(double[] y, int start, int end,
+      @NotNull IntList resolvedIndices) {
+    // start and end points of this resolver will never be 0.
+    if (y[start] != 0 && y[Math.max(start - 1, 0)] == 0.0) {
+      start = start - 1;
+    }
+    if (y[end] != 0 && y[Math.min(end + 1, y.length - 1)] == 0.0) {
+      end = end + 1;
+    }
+    resolvedIndices.add(start);
+    resolvedIndices.add(end);
+  }
+}
@@ -40,7 +40,7 @@ import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution
 import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.ResolvingDimension;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
-import io.github.mzmine.util.MathUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.util.ArrayList;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
@@ -62,6 +62,9 @@ public class MinimumSearchFeatureResolver extends AbstractResolver {
   private final double minRelativeHeight;
   double[] xBuffer;
   double[] yBuffer;
+  private final MinimumSearchCore core;
+  // start and end index pairs of resolved peaks
+  private final IntArrayList resolvedIndices = new IntArrayList();
 
   public MinimumSearchFeatureResolver(ParameterSet parameterSet, ModularFeatureList flist) {
     super(parameterSet, flist);
@@ -73,6 +76,8 @@ public class MinimumSearchFeatureResolver extends AbstractResolver {
     minRatio = parameters.getParameter(MIN_RATIO).getValue();
     minAbsoluteHeight = parameters.getParameter(MIN_ABSOLUTE_HEIGHT).getValue();
     minRelativeHeight = parameters.getParameter(MIN_RELATIVE_HEIGHT).getValue();
+    core = new MinimumSearchCore(chromThreshold, searchXWidth, minRelativeHeight,
+        minAbsoluteHeight, minRatio, xRange, minDataPoints);
   }
 
   /**
@@ -119,168 +124,14 @@ public class MinimumSearchFeatureResolver extends AbstractResolver {
   @Override
   @NotNull
   public List<Range<Double>> resolve(double[] x, double[] y) {
-    if (x.length != y.length) {
-      throw new AssertionError("Length of x, y and indices array does not match.");
-    }
-
-    // Important: empty scans need to be represented by a 0!
-    final int valueCount = x.length;
-
-    List<Range<Double>> resolved = new ArrayList<>();
+    resolvedIndices.clear();
+    core.resolve(x, y, resolvedIndices);
 
-    final int lastScan = valueCount - 1;
-    assert valueCount > 0;
-
-    // First, remove all data points below chromatographic threshold.
-    final double chromatographicThresholdLevel = MathUtils.calcQuantile(y, chromThreshold);
-    double maxY = 0;
-    for (int i = 0; i < y.length; i++) {
-      if (y[i] < chromatographicThresholdLevel) {
-        y[i] = 0.0;
-      }
-      if (y[i] > maxY) {
-        maxY = y[i];
-      }
-    }
-
-    final double minHeight = Math.max(minAbsoluteHeight, minRelativeHeight * maxY);
-
-    // Current region is a region between two minima, representing a
-    // candidate for a resolved peak.
-    startSearch:
-    for (int currentRegionStart = 0; currentRegionStart < lastScan - 2; currentRegionStart++) {
-
-      // Find at least two consecutive non-zero data points
-      if (y[currentRegionStart] == 0.0 || y[currentRegionStart + 1] == 0.0) {
-        continue;
-      }
-
-      double currentRegionHeight = y[currentRegionStart];
-
-      endSearch:
-      for (int currentRegionEnd = currentRegionStart + 1; currentRegionEnd < valueCount;
-          currentRegionEnd++) {
-
-        // Update height of current region.
-        currentRegionHeight = Math.max(currentRegionHeight, y[currentRegionEnd]);
-
-        // If we reached the end, or if the next intensity is 0, we
-        // have to stop here.
-        if (currentRegionEnd == lastScan || y[currentRegionEnd + 1] == 0.0) {
-
-          // Find the intensity at the sides (lowest data points).
-          final double peakMinLeft = y[currentRegionStart];
-          final double peakMinRight = y[currentRegionEnd];
-
-          currentRegionStart = tryToFinalizePeak(x, y, currentRegionEnd, currentRegionStart,
-              currentRegionHeight, minHeight, peakMinLeft, peakMinRight, resolved);
-          continue startSearch;
-        }
-
-        // Minimum duration of peak must be at least searchXRange.
-        if (x[currentRegionEnd] - x[currentRegionStart] >= searchXWidth) {
-
-          // Set the RT range to check
-          final Range<Double> checkRange = Range.closed(x[currentRegionEnd] - searchXWidth,
-              x[currentRegionEnd] + searchXWidth);
-
-          // Search if there is lower data point on the left from
-          // current peak i.
-          for (int i = currentRegionEnd - 1; i > 0; i--) {
-
-            if (!checkRange.contains(x[i])) {
-              break;
-            }
-
-            if (y[i] < y[currentRegionEnd]) {
-
-              continue endSearch;
-            }
-          }
-
-          // Search on the right from current peak i.
-          for (int i = currentRegionEnd + 1; i < valueCount; i++) {
-
-            if (!checkRange.contains(x[i])) {
-              break;
-            }
-
-            if (y[i] < y[currentRegionEnd]) {
-
-              continue endSearch;
-            }
-          }
-
-          // Find the intensity at the sides (lowest data points).
-          final double peakMinLeft = y[currentRegionStart];
-          final double peakMinRight = y[currentRegionEnd];
-
-          // If we have reached a minimum which is non-zero, but
-          // the peak shape would not fulfill the
-          // ratio condition, continue searching for next minimum.
-          if (currentRegionHeight >= peakMinRight * minRatio) {
-            currentRegionStart = tryToFinalizePeak(x, y, currentRegionEnd, currentRegionStart,
-                currentRegionHeight, minHeight, peakMinLeft, peakMinRight, resolved);
-            continue startSearch;
-          }
-        }
-      }
+    final List<Range<Double>> resolved = new ArrayList<>(resolvedIndices.size() / 2);
+    for (int i = 0; i < resolvedIndices.size(); i += 2) {
+      resolved.add(
+          Range.closed(x[resolvedIndices.getInt(i)], x[resolvedIndices.getInt(i + 1)]));
     }
     return resolved;
   }
-
-  /**
-   * @return The index at which to start to search for the next peak
-   */
-  private int tryToFinalizePeak(double[] x, double[] y, int currentRegionEnd,
-      int currentRegionStart, double currentRegionHeight, double minHeight, double peakMinLeft,
-      double peakMinRight, List<Range<Double>> resolved) {
-    // inclusive start and end values
-    final int numberOfDataPoints = currentRegionEnd - currentRegionStart + 1;
-    // Check the shape of the peak.
-    if (checkPeakShape(x, numberOfDataPoints, currentRegionHeight, minHeight, peakMinLeft,
-        peakMinRight, currentRegionEnd, currentRegionStart)) {
-
-      final Range<Double> range = adjustStartAndEnd(x, y, currentRegionStart, currentRegionEnd);
-
-      resolved.add(range);
-    }
-
-    // Set the next region start to current region end-1
-    // because it will be immediately
-    // increased +1 as we continue the for-cycle.
-    currentRegionStart = currentRegionEnd - 1;
-    return currentRegionStart;
-  }
-
-  private boolean checkPeakShape(double[] x, int numberOfDataPoints, double currentRegionHeight,
-      double minHeight, double peakMinLeft, double peakMinRight, int currentRegionEnd,
-      int currentRegionStart) {
-    return numberOfDataPoints >= minDataPoints && currentRegionHeight >= minHeight
-        && currentRegionHeight >= peakMinLeft * minRatio
-        && currentRegionHeight >= peakMinRight * minRatio && xRange.contains(
-        x[currentRegionEnd] - x[currentRegionStart]);
-  }
-
-  /**
-   * @return Checks if the current start and end points are non-zero but have zero values next to
-   * them. If yes, these zeros will be included in the region of the peak.
-   */
-  private static @NotNull Range<Double> adjustStartAndEnd(double[] x, double[] y,
-      int currentRegionStart, int currentRegionEnd) {
-    // adjust start and end points of signals to produce better peak shapes
-    // (e.g. include 0 intensity points on the edges.), as start and end points of this
-    // resolver will never be 0.
-    int start = currentRegionStart;
-    if (y[currentRegionStart] != 0 && y[Math.max(currentRegionStart - 1, 0)] == 0.0) {
-      start = currentRegionStart - 1;
-    }
-
-    int end = currentRegionEnd;
-    if (y[currentRegionEnd] != 0 && y[Math.min(currentRegionEnd + 1, y.length - 1)] == 0.0) {
-      end = currentRegionEnd + 1;
-    }
-    final Range<Double> range = Range.closed(x[start], x[end]);
-    return range;
-  }
 }
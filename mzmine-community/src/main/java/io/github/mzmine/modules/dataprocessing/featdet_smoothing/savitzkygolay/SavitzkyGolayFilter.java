@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay;
 
+import io.github.mzmine.util.maths.kernels.ArrayKernels;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -104,31 +105,9 @@ public class SavitzkyGolayFilter {
    * @return the convolution results.
    */
   public static double[] convolve(final double[] intensities, final double[] weights) {
-
-    // Initialise.
-    final int fullWidth = weights.length;
-    final int halfWidth = (fullWidth - 1) / 2;
-    final int numPoints = intensities.length;
-
-    // Convolve.
-    final double[] convolved = new double[numPoints];
-    for (int i = 0; i < numPoints; i++) {
-
-      double sum = 0.0;
-      final int k = i - halfWidth;
-
-      // Boundary handling: strict intersection of filter and data
-      final int startJ = Math.max(0, -k);
-      final int endJ = Math.min(fullWidth, numPoints - k);
-
-      for (int j = startJ; j < endJ; j++) {
-        sum += intensities[k + j] * weights[j];
-      }
-
-      // Set the result.
-      convolved[i] = sum;
-    }
-
+    // Boundary handling: strict intersection of filter and data
+    final double[] convolved = new double[intensities.length];
+    ArrayKernels.getInstance().convolve(intensities, intensities.length, weights, convolved);
     return convolved;
   }
 
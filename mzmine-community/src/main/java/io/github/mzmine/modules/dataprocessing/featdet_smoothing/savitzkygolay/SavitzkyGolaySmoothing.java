@@ -31,6 +31,7 @@ import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.MobilitySeries;
 import io.github.mzmine.modules.dataprocessing.featdet_smoothing.SmoothingAlgorithm;
 import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.util.maths.kernels.ArrayKernels;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -78,28 +79,14 @@ public class SavitzkyGolaySmoothing implements SmoothingAlgorithm {
           "No smoothing weights specified. Was the smoother initialised correctly?");
     }
 
-    // Initialise.
     final int numPoints = access.getNumberOfValues();
-    final int fullWidth = normWeights.length;
-    final int halfWidth = (fullWidth - 1) / 2;
+    final double[] intensities = access.getIntensityValues(new double[numPoints]);
 
-    double[] smoothed = new double[numPoints];
-    for (int i = 0; i < numPoints; i++) {
-      final int k = i - halfWidth;
-      for (int j = Math.max(0, -k); j < Math.min(fullWidth, numPoints - k); j++) {
-        smoothed[i] += access.getIntensity(k + j) * normWeights[j];
-      }
-
-      if (smoothed[i] < 0d) {
-        smoothed[i] = 0d;
-      }
-
-//      if (/*zht == ZeroHandlingType.KEEP &&*/ Double.compare(access.getIntensity(i), 0d) == 0) {
-      // if values that were previously 0 shall remain 0, we process that here.
-      if (Double.compare(access.getIntensity(i), 0d) == 0) {
-        smoothed[i] = 0;
-      }
-    }
+    final ArrayKernels kernels = ArrayKernels.getInstance();
+    final double[] smoothed = new double[numPoints];
+    kernels.convolve(intensities, numPoints, normWeights, smoothed);
+    // no negative values and values that were previously 0 shall remain 0
+    kernels.clampSmoothed(smoothed, intensities, numPoints);
 
     return smoothed;
   }
@@ -0,0 +1,455 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.filter_isotopegrouper;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
+import io.github.mzmine.taskcontrol.TaskService;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Greedy isotope grouping on primitive m/z, RT and mobility arrays. Rows are processed by
+ * descending height and each row claims the best fitting pattern of all charge states from the
+ * remaining rows.
+ * <p>
+ * Two rows can only end up in the same pattern if they are connected by a chain of rows that are
+ * closer than one isotope step (plus m/z tolerances) and two RT tolerances. The list is therefore
+ * partitioned into independent RT/m/z blocks at larger gaps. Blocks are processed in parallel with
+ * reusable buffers per worker and the results are merged in block order. Within a block, the
+ * processing order is the global height order, so the result does not depend on the number of
+ * threads.
+ */
+final class IsotopeGrouperEngine {
+
+  /**
+   * The isotopeDistance constant defines expected distance between isotopes. Actual weight of 1
+   * neutron is 1.008665 Da, but part of this mass is consumed as binding energy to other
+   * protons/neutrons. Actual mass increase of isotopes depends on chemical formula of the molecule.
+   * Since we don't know the formula, we can assume the distance to be ~1.0033 Da, with user-defined
+   * tolerance.
+   */
+  private static final double isotopeDistance = IsotopePatternCalculator.THIRTHEEN_C_DISTANCE;
+
+  private final MZTolerance mzTolerance;
+  private final RTTolerance rtTolerance;
+  private final @Nullable MobilityTolerance mobilityTolerance;
+  private final boolean monotonicShape;
+  private final boolean chooseMostIntense;
+  private final int maximumCharge;
+
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+
+  // data by height rank
+  private double[] mz;
+  private float[] rt;
+  private float[] mobility;
+  // position of each row in the m/z sorted order of its block
+  private int[] blockMzPosition;
+  private boolean[] removed;
+
+  /**
+   * @param mobilityTolerance null to not check the mobility
+   */
+  IsotopeGrouperEngine(@NotNull MZTolerance mzTolerance, @NotNull RTTolerance rtTolerance,
+      @Nullable MobilityTolerance mobilityTolerance, boolean monotonicShape,
+      boolean chooseMostIntense, int maximumCharge) {
+    this.mzTolerance = mzTolerance;
+    this.rtTolerance = rtTolerance;
+    this.mobilityTolerance = mobilityTolerance;
+    this.monotonicShape = monotonicShape;
+    this.chooseMostIntense = chooseMostIntense;
+    this.maximumCharge = maximumCharge;
+  }
+
+  /**
+   * @return number of rows that were assigned to a group so far
+   */
+  int getProcessedRows() {
+    return processedRows.get();
+  }
+
+  /**
+   * Groups all rows into isotope patterns.
+   *
+   * @param rowsByHeight all rows sorted by descending height. Groups reference rows by their index
+   *                     in this list.
+   * @param mzOrder      indices of rowsByHeight sorted by ascending m/z
+   * @param isCanceled   stops processing early
+   * @return all groups of all blocks, including single rows without isotopes
+   */
+  @NotNull List<IsotopeGroup> groupRows(@NotNull List<FeatureListRow> rowsByHeight,
+      int @NotNull [] mzOrder, @NotNull BooleanSupplier isCanceled) {
+    final int numRows = rowsByHeight.size();
+    mz = new double[numRows];
+    rt = new float[numRows];
+    mobility = new float[numRows];
+    blockMzPosition = new int[numRows];
+    removed = new boolean[numRows];
+    for (int i = 0; i < numRows; i++) {
+      final FeatureListRow row = rowsByHeight.get(i);
+      mz[i] = row.getAverageMZ();
+      final Float rowRt = row.getAverageRT();
+      rt[i] = rowRt == null ? Float.NaN : rowRt;
+      final Float rowMobility = row.getAverageMobility();
+      mobility[i] = rowMobility == null ? Float.NaN : rowMobility;
+    }
+
+    final List<Block> blocks = createBlocks(mzOrder);
+    final List<List<IsotopeGroup>> results = new ArrayList<>(blocks.size());
+    for (int i = 0; i < blocks.size(); i++) {
+      results.add(null);
+    }
+
+    // workers take the next block, the results stay in block order
+    final AtomicInteger nextBlock = new AtomicInteger(0);
+    final int numWorkers = Math.max(1,
+        Math.min(TaskService.getController().getNumberOfThreads(), blocks.size()));
+    final List<CompletableFuture<Void>> workers = new ArrayList<>(numWorkers);
+    for (int w = 0; w < numWorkers; w++) {
+      workers.add(CompletableFuture.runAsync(() -> {
+        final SearchBuffers buffers = new SearchBuffers(maximumCharge);
+        int b;
+        while ((b = nextBlock.getAndIncrement()) < blocks.size() && !isCanceled.getAsBoolean()) {
+          results.set(b, processBlock(blocks.get(b), buffers, isCanceled));
+        }
+      }));
+    }
+    workers.forEach(CompletableFuture::join);
+
+    final List<IsotopeGroup> groups = new ArrayList<>(numRows);
+    for (List<IsotopeGroup> result : results) {
+      if (result != null) {
+        groups.addAll(result);
+      }
+    }
+    return groups;
+  }
+
+  /**
+   * Splits the rows at RT gaps larger than two RT tolerances and then at m/z gaps larger than one
+   * isotope step and two m/z tolerances. No chain of candidate rows crosses these gaps.
+   */
+  private List<Block> createBlocks(int[] mzOrder) {
+    final int numRows = mz.length;
+    final List<Block> blocks = new ArrayList<>();
+    if (numRows == 0) {
+      return blocks;
+    }
+
+    double maxMz = 0;
+    float maxRt = 0;
+    final int[] mzOrderPosition = new int[numRows];
+    for (int i = 0; i < numRows; i++) {
+      mzOrderPosition[mzOrder[i]] = i;
+      maxMz = Math.max(maxMz, mz[i]);
+      if (rt[i] > maxRt) {
+        maxRt = rt[i];
+      }
+    }
+    final double maxMzGap = isotopeDistance + 2 * mzTolerance.getMzToleranceForMass(maxMz);
+    final float maxRtGap = 2 * rtTolerance.getToleranceInMinutes(maxRt);
+
+    final int[] rtOrder = sortedIndices(numRows, (a, b) -> {
+      final int compare = Float.compare(rt[a], rt[b]);
+      return compare != 0 ? compare : Integer.compare(a, b);
+    });
+
+    int rtBlockStart = 0;
+    for (int i = 1; i <= numRows; i++) {
+      if (i < numRows && !(rt[rtOrder[i]] - rt[rtOrder[i - 1]] > maxRtGap)) {
+        continue;
+      }
+      // split RT block by m/z
+      final int[] byMz = Arrays.copyOfRange(rtOrder, rtBlockStart, i);
+      IntArrays.quickSort(byMz, (a, b) -> Integer.compare(mzOrderPosition[a], mzOrderPosition[b]));
+      int mzBlockStart = 0;
+      for (int j = 1; j <= byMz.length; j++) {
+        if (j < byMz.length && !(mz[byMz[j]] - mz[byMz[j - 1]] > maxMzGap)) {
+          continue;
+        }
+        blocks.add(new Block(Arrays.copyOfRange(byMz, mzBlockStart, j)));
+        mzBlockStart = j;
+      }
+      rtBlockStart = i;
+    }
+    return blocks;
+  }
+
+  private static int[] sortedIndices(int n, IntComparator comparator) {
+    final int[] indices = new int[n];
+    for (int i = 0; i < n; i++) {
+      indices[i] = i;
+    }
+    IntArrays.quickSort(indices, comparator);
+    return indices;
+  }
+
+  private List<IsotopeGroup> processBlock(Block block, SearchBuffers buffers,
+      BooleanSupplier isCanceled) {
+    final int[] byMz = block.rowsByMz();
+    for (int i = 0; i < byMz.length; i++) {
+      blockMzPosition[byMz[i]] = i;
+    }
+    // height order is the index order
+    final int[] byHeight = byMz.clone();
+    Arrays.sort(byHeight);
+
+    final List<IsotopeGroup> groups = new ArrayList<>();
+    for (int main : byHeight) {
+      if (removed[main]) {
+        continue;
+      }
+      if (isCanceled.getAsBoolean()) {
+        return groups;
+      }
+      removed[main] = true;
+
+      // Check which charge state fits best around this peak
+      final IntArrayList[] fitted = buffers.fitted;
+      for (IntArrayList list : fitted) {
+        list.clear();
+        list.add(main);
+      }
+      // Search for peaks before the start peak
+      if (!monotonicShape) {
+        fitHalfPatterns(main, -1, byMz, buffers);
+      }
+      // Search for peaks after the start peak
+      fitHalfPatterns(main, 1, byMz, buffers);
+
+      int bestFitCharge = 0;
+      int bestFitScore = -1;
+      for (int charge = 1; charge <= maximumCharge; charge++) {
+        final int score = fitted[charge - 1].size();
+        if (score > bestFitScore) {
+          bestFitScore = score;
+          bestFitCharge = charge;
+        }
+      }
+
+      // only one isotope - the row stays as it is
+      if (bestFitScore == 1) {
+        groups.add(new IsotopeGroup(0, main, new int[]{main}));
+        processedRows.incrementAndGet();
+        continue;
+      }
+
+      final int[] members = fitted[bestFitCharge - 1].toIntArray();
+      for (int member : members) {
+        if (!removed[member]) {
+          removed[member] = true;
+          processedRows.incrementAndGet();
+        }
+      }
+      processedRows.incrementAndGet();
+      groups.add(new IsotopeGroup(bestFitCharge, getRepresentative(members), members));
+    }
+    return groups;
+  }
+
+  /**
+   * Either the most intense (the first row) or the lowest m/z row. Ties keep the fitted order.
+   */
+  private int getRepresentative(int[] members) {
+    if (chooseMostIntense) {
+      return members[0];
+    }
+    int lowest = members[0];
+    for (int member : members) {
+      if (mz[member] < mz[lowest]) {
+        lowest = member;
+      }
+    }
+    return lowest;
+  }
+
+  /**
+   * Fits one half of the pattern for all charge states at once. Each charge searches its n:th
+   * isotope in the same walk over the m/z sorted rows and stops when the n:th isotope is missing.
+   *
+   * @param direction -1=fit to peaks before start m/z, +1=fit to peaks after start m/z
+   */
+  private void fitHalfPatterns(int main, int direction, int[] byMz, SearchBuffers buffers) {
+    final double mainMZ = mz[main];
+    final float mainRT = rt[main];
+    final double absoluteMzTolerance = mzTolerance.getMzToleranceForMass(mainMZ);
+    final boolean checkMobility = mobilityTolerance != null && !Float.isNaN(mobility[main]);
+    final float minMobility;
+    final float maxMobility;
+    if (checkMobility) {
+      final Range<Float> mobilityRange = mobilityTolerance.getToleranceRange(mobility[main]);
+      minMobility = mobilityRange.lowerEndpoint();
+      maxMobility = mobilityRange.upperEndpoint();
+    } else {
+      minMobility = maxMobility = Float.NaN;
+    }
+
+    final int[] n = buffers.n;
+    final boolean[] active = buffers.active;
+    final boolean[] searching = buffers.searching;
+    final boolean[] found = buffers.found;
+    Arrays.fill(n, 1);
+    Arrays.fill(active, true);
+    int numActive = maximumCharge;
+
+    while (numActive > 0) {
+      int numSearching = 0;
+      for (int c = 0; c < maximumCharge; c++) {
+        searching[c] = active[c];
+        found[c] = false;
+        if (active[c]) {
+          numSearching++;
+        }
+      }
+
+      // walk from the main row outwards until all charges passed their expected isotope
+      for (int ind = blockMzPosition[main]; ind < byMz.length && ind >= 0 && numSearching > 0;
+          ind += direction) {
+        final int candidate = byMz[ind];
+        if (removed[candidate]) {
+          continue;
+        }
+        final double candidateMZ = mz[candidate];
+        // evaluated lazily once for all charges
+        int matchesRtAndMobility = -1;
+
+        for (int c = 0; c < maximumCharge; c++) {
+          if (!searching[c]) {
+            continue;
+          }
+          final int charge = c + 1;
+          final double isotopeMZ = candidateMZ - isotopeDistance * direction * n[c] / charge;
+          final double deltaMZ = isotopeMZ - mainMZ;
+
+          // out of the maximum allowed mz tolerance (one sided check)
+          if (deltaMZ * direction > absoluteMzTolerance) {
+            searching[c] = false;
+            numSearching--;
+            continue;
+          }
+          if (Math.abs(deltaMZ) <= absoluteMzTolerance) {
+            if (matchesRtAndMobility == -1) {
+              matchesRtAndMobility =
+                  matchesRtAndMobility(candidate, mainRT, checkMobility, minMobility, maxMobility)
+                      ? 1 : 0;
+            }
+            if (matchesRtAndMobility == 1) {
+              buffers.fitted[c].add(candidate);
+              found[c] = true;
+            }
+          }
+        }
+      }
+
+      // n:th peak was found, so let's move on to n+1
+      for (int c = 0; c < maximumCharge; c++) {
+        if (!active[c]) {
+          continue;
+        }
+        if (found[c]) {
+          n[c]++;
+        } else {
+          active[c] = false;
+          numActive--;
+        }
+      }
+    }
+  }
+
+  private boolean matchesRtAndMobility(int candidate, float mainRT, boolean checkMobility,
+      float minMobility, float maxMobility) {
+    if (!rtTolerance.checkWithinTolerance(rt[candidate], mainRT)) {
+      return false;
+    }
+    if (!checkMobility) {
+      return true;
+    }
+    final float candidateMobility = mobility[candidate];
+    return Float.isNaN(candidateMobility) || (minMobility <= candidateMobility
+                                               && candidateMobility <= maxMobility);
+  }
+
+  /**
+   * Independent rows sorted by m/z
+   */
+  private record Block(int[] rowsByMz) {
+
+  }
+
+  /**
+   * Reusable buffers of one worker
+   */
+  private static final class SearchBuffers {
+
+    // fitted rows for each charge
+    private final IntArrayList[] fitted;
+    // the isotope that is currently searched for each charge
+    private final int[] n;
+    private final boolean[] active;
+    private final boolean[] searching;
+    private final boolean[] found;
+
+    private SearchBuffers(int maximumCharge) {
+      fitted = new IntArrayList[maximumCharge];
+      for (int i = 0; i < maximumCharge; i++) {
+        fitted[i] = new IntArrayList();
+      }
+      n = new int[maximumCharge];
+      active = new boolean[maximumCharge];
+      searching = new boolean[maximumCharge];
+      found = new boolean[maximumCharge];
+    }
+  }
+
+  /**
+   * An isotope pattern or a single row without isotopes (charge 0).
+   *
+   * @param charge         the best fitting charge or 0 for single rows
+   * @param representative the row that represents the pattern
+   * @param members        all rows in the pattern starting with the most intense row that
+   *                       started the search
+   */
+  record IsotopeGroup(int charge, int representative, int[] members) {
+
+    boolean isSingle() {
+      return members.length == 1;
+    }
+  }
+}
@@ -36,11 +36,14 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.RangeUtils;
-import io.github.mzmine.util.scans.ScanUtils;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import java.util.ArrayList;
 import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class Gap {
 
@@ -80,17 +83,60 @@ public class Gap {
   }
 
   public void offerNextScan(Scan scan) {
+    offerNextScan(scan, 0);
+  }
 
-    float scanRT = scan.getRetentionTime();
+  /**
+   * Offers the next scan and searches the m/z range starting at fromIndex. Used by
+   * {@link GapScheduler} that offers scans to gaps sorted by m/z, so that the search of the next
+   * gap can start at the returned index.
+   *
+   * @param scan      the next scan in retention time order
+   * @param fromIndex the first data point index that may be in the m/z range of this gap
+   * @return the first data point index >= the lower m/z bound of this gap or fromIndex if the scan
+   * is outside the RT range
+   */
+  public int offerNextScan(@NotNull Scan scan, int fromIndex) {
+    final float scanRT = scan.getRetentionTime();
 
     // If not yet inside the RT range
     if (!rtRange.contains(scanRT)) {
-      return;
+      return fromIndex;
     }
 
     // Find top m/z peak in our range
-    DataPoint basePeak = ScanUtils.findBasePeak(scan, mzRange);
+    final int numDp = scan.getNumberOfDataPoints();
+    final int startIndex = fromIndex >= numDp ? -1
+        : scan.binarySearch(mzRange.lowerEndpoint(), DefaultTo.GREATER_EQUALS, fromIndex, numDp);
+    if (startIndex == -1) {
+      offerBasePeak(scan, null);
+      return numDp;
+    }
+
+    final double upper = mzRange.upperEndpoint();
+    int baseIndex = -1;
+    double baseIntensity = 0d;
+    for (int i = startIndex; i < numDp; i++) {
+      if (scan.getMzValue(i) > upper) {
+        break;
+      }
+      final double intensity = scan.getIntensityValue(i);
+      if (intensity > baseIntensity) {
+        baseIntensity = intensity;
+        baseIndex = i;
+      }
+    }
+    offerBasePeak(scan, baseIndex == -1 ? null
+        : new SimpleDataPoint(scan.getMzValue(baseIndex), baseIntensity));
+    return startIndex;
+  }
 
+  /**
+   * @param scan     a scan inside the RT range
+   * @param basePeak the most intense data point in the m/z range or null
+   */
+  protected void offerBasePeak(@NotNull Scan scan, @Nullable DataPoint basePeak) {
+    final float scanRT = scan.getRetentionTime();
     GapDataPointImpl currentDataPoint;
     if (basePeak != null) {
       currentDataPoint = new GapDataPointImpl(scan, basePeak.getMZ(), scanRT,
@@ -268,4 +314,12 @@ public class Gap {
   public FeatureListRow getFeatureListRow() {
     return featureListRow;
   }
+
+  public Range<Double> getMzRange() {
+    return mzRange;
+  }
+
+  public Range<Float> getRtRange() {
+    return rtRange;
+  }
 }
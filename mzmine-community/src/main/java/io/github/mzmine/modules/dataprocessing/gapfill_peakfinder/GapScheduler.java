@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder;
+
+import io.github.mzmine.datamodel.Scan;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Offers scans only to the gaps that are active at the scan retention time. Gaps are sorted by the
+ * start of their RT range and activated once a scan reaches it, then retired after the end of
+ * their RT range. Active gaps are kept sorted by the lower m/z bound, so that the m/z search of
+ * each gap continues where the search of the previous gap ended.
+ * <p>
+ * Scans should be offered in ascending retention time order. The cost per scan depends on the
+ * active gaps instead of all gaps of a raw data file.
+ *
+ * @param <T> the gap type
+ */
+public final class GapScheduler<T extends Gap> {
+
+  private static final Comparator<Gap> RT_START = Comparator.comparing(
+      gap -> gap.getRtRange().lowerEndpoint());
+  private static final Comparator<Gap> MZ_START = Comparator.comparing(
+      gap -> gap.getMzRange().lowerEndpoint());
+
+  private final List<T> gaps;
+  /**
+   * active gaps sorted by lower m/z bound
+   */
+  private final List<T> active = new ArrayList<>();
+  private int nextGap = 0;
+  private float lastRT = Float.NEGATIVE_INFINITY;
+
+  public GapScheduler(@NotNull Collection<? extends T> gaps) {
+    this.gaps = new ArrayList<>(gaps);
+    this.gaps.sort(RT_START);
+  }
+
+  /**
+   * Retires gaps that ended before the scan, activates gaps that started and offers the scan to
+   * all active gaps.
+   *
+   * @param scan the next scan, retention time should be >= the last scan
+   */
+  public void offerNextScan(@NotNull Scan scan) {
+    final float rt = scan.getRetentionTime();
+    if (rt < lastRT) {
+      // unsorted scans, start over to still offer the scan to all gaps in range
+      active.clear();
+      nextGap = 0;
+    }
+    lastRT = rt;
+
+    active.removeIf(gap -> gap.getRtRange().upperEndpoint() < rt);
+
+    while (nextGap < gaps.size() && gaps.get(nextGap).getRtRange().lowerEndpoint() <= rt) {
+      final T gap = gaps.get(nextGap++);
+      if (gap.getRtRange().upperEndpoint() >= rt) {
+        // insert sorted by m/z
+        final int index = Collections.binarySearch(active, gap, MZ_START);
+        active.add(index < 0 ? -index - 1 : index, gap);
+      }
+    }
+
+    int fromIndex = 0;
+    for (T gap : active) {
+      fromIndex = gap.offerNextScan(scan, fromIndex);
+    }
+  }
+
+  /**
+   * @return true if all gaps were retired or no gaps will become active anymore
+   */
+  public boolean isFinished() {
+    return active.isEmpty() && nextGap >= gaps.size();
+  }
+
+  public int getNumberOfActiveGaps() {
+    return active.size();
+  }
+
+  /**
+   * @return all gaps sorted by the start of their RT range
+   */
+  public @NotNull List<T> getGaps() {
+    return Collections.unmodifiableList(gaps);
+  }
+}
@@ -161,12 +161,11 @@ class PeakFinderTask extends AbstractTask {
         }
 
         // Get all scans of this data file
+        final GapScheduler<Gap> scheduler = new GapScheduler<>(gaps);
         dataFile.getScanNumbers(1).forEach(scan -> {
           if (!isCanceled()) {
-            // Feed this scan to all gaps
-            for (Gap gap : gaps) {
-              gap.offerNextScan(scan);
-            }
+            // Feed this scan to all gaps in RT range
+            scheduler.offerNextScan(scan);
 
             processedScans.incrementAndGet();
           }
@@ -274,12 +273,11 @@ class PeakFinderTask extends AbstractTask {
         }
 
         // Get all scans of this data file
+        final GapScheduler<Gap> scheduler = new GapScheduler<>(gaps);
         datafile1.getScanNumbers(1).forEach(scan -> {
           if (!isCanceled()) {
-            // Feed this scan to all gaps
-            for (Gap gap : gaps) {
-              gap.offerNextScan(scan);
-            }
+            // Feed this scan to all gaps in RT range
+            scheduler.offerNextScan(scan);
             processedScans.incrementAndGet();
           }
         });
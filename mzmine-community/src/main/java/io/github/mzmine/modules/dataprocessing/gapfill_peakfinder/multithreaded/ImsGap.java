@@ -91,6 +91,20 @@ public class ImsGap extends Gap {
     this.mobilogramBinning = mobilogramBinning;
   }
 
+  /**
+   * Resets the mobility scans of the access and searches each mobility scan separately
+   *
+   * @return fromIndex as the frame data points are not searched
+   */
+  @Override
+  public int offerNextScan(@NotNull Scan scan, int fromIndex) {
+    if (scan instanceof MobilityScanDataAccess access) {
+      access.resetMobilityScan();
+    }
+    offerNextScan(scan);
+    return fromIndex;
+  }
+
   @Override
   public void offerNextScan(Scan scan) {
     if (!(scan instanceof MobilityScanDataAccess access)) {
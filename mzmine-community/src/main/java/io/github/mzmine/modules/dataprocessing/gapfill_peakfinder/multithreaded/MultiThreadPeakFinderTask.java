@@ -41,6 +41,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.GapScheduler;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
@@ -208,21 +209,19 @@ class MultiThreadPeakFinderTask extends AbstractTask {
   }
 
   private void processFile(RawDataFile file, List<Gap> gaps) {
+    // only offer scans to gaps in their RT range
+    final GapScheduler<Gap> scheduler = new GapScheduler<>(gaps);
     if (file instanceof IMSRawDataFile imsFile && peakList.hasFeatureType(MobilityType.class)) {
       final MobilityScanDataAccess access = new MobilityScanDataAccess(imsFile,
           MobilityScanDataType.MASS_LIST, (List<Frame>) peakList.getSeletedScans(file));
-      List<ImsGap> imsGaps = (List<ImsGap>) (List<? extends Gap>) gaps;
 
       while (access.hasNextFrame()) {
         if (isCanceled()) {
           return;
         }
 
-        final Frame frame = access.nextFrame();
-        for (ImsGap gap : imsGaps) {
-          access.resetMobilityScan();
-          gap.offerNextScan(access);
-        }
+        access.nextFrame();
+        scheduler.offerNextScan(access);
         processedScans.incrementAndGet();
       }
 
@@ -236,10 +235,8 @@ class MultiThreadPeakFinderTask extends AbstractTask {
           return;
         }
         scanAccess.nextScan();
-        // Feed this scan to all gaps
-        for (Gap gap : gaps) {
-          gap.offerNextScan(scanAccess);
-        }
+        // Feed this scan to all active gaps
+        scheduler.offerNextScan(scanAccess);
 
         processedScans.incrementAndGet();
       }
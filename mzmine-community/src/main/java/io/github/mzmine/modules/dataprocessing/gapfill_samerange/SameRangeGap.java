@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_samerange;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.GapScheduler;
+import io.github.mzmine.util.RangeUtils;
+import io.github.mzmine.util.scans.ScanUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects the most intense data point in the m/z range of every scan in the RT range. Scans are
+ * offered by the {@link GapScheduler}.
+ */
+class SameRangeGap extends Gap {
+
+  /**
+   * m/z range of the features without tolerance to find MS2 scans
+   */
+  private final Range<Double> featureMzRange;
+  private final SimpleGapFeature gapFeature = new SimpleGapFeature();
+  private boolean dataPointFound = false;
+
+  SameRangeGap(@NotNull FeatureListRow row, @NotNull RawDataFile rawDataFile,
+      @NotNull Range<Double> featureMzRange, @NotNull Range<Double> mzRangeWithTol,
+      @NotNull Range<Float> rtRange) {
+    super(row, rawDataFile, mzRangeWithTol, rtRange, 0, false);
+    this.featureMzRange = featureMzRange;
+  }
+
+  @Override
+  protected void offerBasePeak(@NotNull Scan scan, @Nullable DataPoint basePeak) {
+    if (basePeak != null) {
+      if (basePeak.getIntensity() > 0) {
+        dataPointFound = true;
+      }
+      gapFeature.addDataPoint(scan, basePeak);
+    } else {
+      gapFeature.addDataPoint(scan, RangeUtils.rangeCenter(mzRange), 0);
+    }
+  }
+
+  /**
+   * @return the gap filled feature or null if no data point was found
+   */
+  @Nullable ModularFeature createFeature(@NotNull ModularFeatureList flist) {
+    if (!dataPointFound) {
+      return null;
+    }
+    gapFeature.removeEdgeZeroIntensities();
+    if (gapFeature.isEmpty()) {
+      return null;
+    }
+    final ModularFeature feature = new ModularFeature(flist, rawDataFile,
+        gapFeature.toIonTimeSeries(flist.getMemoryMapStorage()), FeatureStatus.ESTIMATED);
+
+    var allMS2 = ScanUtils.streamAllMS2FragmentScans(rawDataFile, rtRange, featureMzRange)
+        .toList();
+    feature.setAllMS2FragmentScans(allMS2);
+    return feature;
+  }
+}
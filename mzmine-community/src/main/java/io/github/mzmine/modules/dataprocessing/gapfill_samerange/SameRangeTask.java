@@ -26,7 +26,6 @@
 package io.github.mzmine.modules.dataprocessing.gapfill_samerange;
 
 import com.google.common.collect.Range;
-import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
@@ -38,20 +37,16 @@ import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
-import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.GapScheduler;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
-import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
-import io.github.mzmine.util.RangeUtils;
-import io.github.mzmine.util.scans.ScanUtils;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
@@ -67,10 +62,10 @@ class SameRangeTask extends AbstractTask {
   private final ModularFeatureList peakList;
   private final String suffix;
   private final MZTolerance mzTolerance;
-  private final AtomicInteger processedRowsAtomic = new AtomicInteger(0);
+  private final AtomicInteger processedFilesAtomic = new AtomicInteger(0);
   private final ParameterSet parameters;
   private ModularFeatureList processedPeakList;
-  private int totalRows;
+  private int totalFiles;
 
   SameRangeTask(MZmineProject project, FeatureList peakList, ParameterSet parameters,
       @Nullable MemoryMapStorage storage, @NotNull Instant moduleCallDate) {
@@ -93,9 +88,6 @@ class SameRangeTask extends AbstractTask {
 
     setStatus(TaskStatus.PROCESSING);
 
-    // Get total number of rows
-    totalRows = peakList.getNumberOfRows();
-
     // Get feature list columns
     RawDataFile[] columns = peakList.getRawDataFiles().toArray(RawDataFile[]::new);
 
@@ -106,44 +98,45 @@ class SameRangeTask extends AbstractTask {
     // do not transfer types add them later
     FeatureListUtils.transferMetadata(peakList, processedPeakList, false);
 
-    List<FeatureListRow> outputList = Collections.synchronizedList(new ArrayList<>());
+    final List<ModularFeatureListRow> sourceRows = peakList.stream()
+        .map(r -> (ModularFeatureListRow) r).toList();
+    final List<FeatureListRow> outputList = new ArrayList<>(sourceRows.size());
+    for (ModularFeatureListRow sourceRow : sourceRows) {
+      outputList.add(new ModularFeatureListRow(processedPeakList, sourceRow.getID(), sourceRow,
+          true));
+    }
+    totalFiles = columns.length;
 
-    peakList.stream().map(r -> (ModularFeatureListRow) r).forEach(sourceRow -> {
+    // fill the gaps of one raw data file at a time, scans are only offered to gaps in RT range
+    for (RawDataFile column : columns) {
       // Canceled?
       if (isCanceled()) {
         return;
       }
 
-      FeatureListRow newRow = new ModularFeatureListRow(processedPeakList, sourceRow.getID(),
-          sourceRow, true);
-
-      // Copy each peaks and fill gaps
-      for (RawDataFile column : columns) {
-        // Canceled?
-        if (isCanceled()) {
-          return;
-        }
-
-        // Get current peak
-        Feature currentPeak = sourceRow.getFeature(column);
-
+      final List<SameRangeGap> gaps = new ArrayList<>();
+      for (int i = 0; i < sourceRows.size(); i++) {
+        final FeatureListRow sourceRow = sourceRows.get(i);
+        final Feature currentPeak = sourceRow.getFeature(column);
         // If there is a gap, try to fill it
         if (currentPeak == null || currentPeak.getFeatureStatus().equals(FeatureStatus.UNKNOWN)) {
-          currentPeak = fillGap(sourceRow, column);
+          final SameRangeGap gap = createGap(sourceRow, outputList.get(i), column);
+          if (gap != null) {
+            gaps.add(gap);
+          }
         }
       }
 
-      outputList.add(newRow);
-
-      processedRowsAtomic.getAndAdd(1);
-    });
+      if (!gaps.isEmpty()) {
+        fillGaps(column, gaps);
+      }
+      processedFilesAtomic.incrementAndGet();
+    }
 
     outputList.forEach(newRow -> {
       processedPeakList.addRow(newRow);
     });
 
-    /* End Parallel Implementation */
-
     // Canceled?
     if (isCanceled()) {
       return;
@@ -165,7 +158,12 @@ class SameRangeTask extends AbstractTask {
 
   }
 
-  private Feature fillGap(FeatureListRow row, RawDataFile fileToFill) {
+  /**
+   * @return a gap with the m/z and RT range of all features in the row or null if there are no
+   * features
+   */
+  private @Nullable SameRangeGap createGap(FeatureListRow row, FeatureListRow newRow,
+      RawDataFile fileToFill) {
 
     Range<Double> mzRange = null;
     Range<Float> rtRange = null;
@@ -185,66 +183,45 @@ class SameRangeTask extends AbstractTask {
       }
     }
 
-    assert mzRange != null;
-    assert rtRange != null;
+    if (mzRange == null || rtRange == null) {
+      return null;
+    }
 
     Range<Double> mzRangeWithTol = mzTolerance.getToleranceRange(mzRange);
-    final double centerMZ = RangeUtils.rangeCenter(mzRangeWithTol);
-
-    // Get scan numbers
-    final ScanSelection scanSelection = new ScanSelection(1, rtRange);
-    final List<Scan> matchingScans = scanSelection.getMatchingScans(
-        (List<Scan>) processedPeakList.getSeletedScans(fileToFill));
-
-    boolean dataPointFound = false;
-
-    // results
-    SimpleGapFeature gapFeature = new SimpleGapFeature();
-
-    for (Scan scan : matchingScans) {
+    return new SameRangeGap(newRow, fileToFill, mzRange, mzRangeWithTol, rtRange);
+  }
 
+  /**
+   * Offers all MS1 scans to the gaps and adds the filled features to the rows
+   */
+  private void fillGaps(RawDataFile fileToFill, List<SameRangeGap> gaps) {
+    final GapScheduler<SameRangeGap> scheduler = new GapScheduler<>(gaps);
+    for (Scan scan : processedPeakList.getSeletedScans(fileToFill)) {
       if (isCanceled()) {
-        return null;
+        return;
       }
-
-      // Find most intense m/z peak
-      DataPoint basePeak = ScanUtils.findBasePeak(scan, mzRangeWithTol);
-
-      if (basePeak != null) {
-        if (basePeak.getIntensity() > 0) {
-          dataPointFound = true;
-        }
-        gapFeature.addDataPoint(scan, basePeak);
-      } else {
-        DataPoint fakeDataPoint = new SimpleDataPoint(centerMZ, 0);
-        gapFeature.addDataPoint(scan, fakeDataPoint);
+      if (scan.getMSLevel() == 1) {
+        scheduler.offerNextScan(scan);
+      }
+      if (scheduler.isFinished()) {
+        break;
       }
-
     }
 
-    if (dataPointFound) {
-      gapFeature.removeEdgeZeroIntensities();
-      if (gapFeature.isEmpty()) {
-        return null;
+    for (SameRangeGap gap : gaps) {
+      final ModularFeature feature = gap.createFeature(processedPeakList);
+      if (feature != null) {
+        gap.getFeatureListRow().addFeature(fileToFill, feature, false);
       }
-      final ModularFeature feature = new ModularFeature(processedPeakList, fileToFill,
-          gapFeature.toIonTimeSeries(processedPeakList.getMemoryMapStorage()),
-          FeatureStatus.ESTIMATED);
-
-      var allMS2 = ScanUtils.streamAllMS2FragmentScans(fileToFill, rtRange, mzRange).toList();
-      feature.setAllMS2FragmentScans(allMS2);
-      return feature;
     }
-
-    return null;
   }
 
   @Override
   public double getFinishedPercentage() {
-    if (totalRows == 0) {
+    if (totalFiles == 0) {
       return 0;
     }
-    return (double) processedRowsAtomic.get() / (double) totalRows;
+    return (double) processedFilesAtomic.get() / (double) totalFiles;
 
   }
 
@@ -42,6 +42,8 @@ import io.github.mzmine.util.collections.BinarySearch;
 import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import io.github.mzmine.util.maths.similarity.Similarity;
 import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -227,15 +229,17 @@ public class FeatureCorrelationUtil {
       return null;
     }
 
-    // access data from features or preloaded data access
-    final double[] intensities1;
-    final double[] intensities2;
+    // access data from features or zero-copy from preloaded data access
+    final MemorySegment intensities1;
+    final MemorySegment intensities2;
     if (data == null) {
-      intensities1 = f1.getFeatureData().getIntensityValues(new double[f1.getNumberOfDataPoints()]);
-      intensities2 = f2.getFeatureData().getIntensityValues(new double[f2.getNumberOfDataPoints()]);
+      intensities1 = MemorySegment.ofArray(
+          f1.getFeatureData().getIntensityValues(new double[f1.getNumberOfDataPoints()]));
+      intensities2 = MemorySegment.ofArray(
+          f2.getFeatureData().getIntensityValues(new double[f2.getNumberOfDataPoints()]));
     } else {
-      intensities1 = data.getIntensityValues(f1);
-      intensities2 = data.getIntensityValues(f2);
+      intensities1 = data.getIntensitySegment(f1);
+      intensities2 = data.getIntensitySegment(f2);
     }
 
     // find array index of max intensity for feature1 sn1
@@ -254,10 +258,11 @@ public class FeatureCorrelationUtil {
       while (i1 >= 0 && i2 >= 0) {
         Scan s1 = scansA.get(i1);
         Scan s2 = scansB.get(i2);
+        final double a = intensities1.getAtIndex(ValueLayout.JAVA_DOUBLE, i1);
+        final double b = intensities2.getAtIndex(ValueLayout.JAVA_DOUBLE, i2);
         // add point, if not break
-        if (s1 == s2 && intensities1[i1] >= noiseLevelShapeCorr
-            && intensities2[i2] >= noiseLevelShapeCorr) {
-          corrData.add(new double[]{intensities1[i1], intensities2[i2]});
+        if (s1 == s2 && a >= noiseLevelShapeCorr && b >= noiseLevelShapeCorr) {
+          corrData.add(new double[]{a, b});
         } else {
           // end of feature found
           break;
@@ -278,10 +283,11 @@ public class FeatureCorrelationUtil {
       while (i1 < scansA.size() && i2 < scansB.size()) {
         Scan s1 = scansA.get(i1);
         Scan s2 = scansB.get(i2);
+        final double a = intensities1.getAtIndex(ValueLayout.JAVA_DOUBLE, i1);
+        final double b = intensities2.getAtIndex(ValueLayout.JAVA_DOUBLE, i2);
         // add point, if not break
-        if (s1 == s2 && intensities1[i1] >= noiseLevelShapeCorr
-            && intensities2[i2] >= noiseLevelShapeCorr) {
-          corrData.add(new double[]{intensities1[i1], intensities2[i2]});
+        if (s1 == s2 && a >= noiseLevelShapeCorr && b >= noiseLevelShapeCorr) {
+          corrData.add(new double[]{a, b});
         } else {
           // end of peak found
           break;
@@ -327,6 +333,23 @@ public class FeatureCorrelationUtil {
     return null;
   }
 
+  /**
+   * @return index of the maximum value in a segment of doubles
+   */
+  public static int indexOfMax(MemorySegment values) {
+    int maxIndex = 0;
+    double max = 0;
+    final long length = values.byteSize() / Double.BYTES;
+    for (int i = 0; i < length; i++) {
+      double val = values.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
+      if (val > max) {
+        maxIndex = i;
+        max = val;
+      }
+    }
+    return maxIndex;
+  }
+
   /**
    * Find index of maximum value
    */
@@ -26,6 +26,7 @@
 package io.github.mzmine.modules.dataprocessing.group_spectral_networking.modified_cosine;
 
 
+import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList;
@@ -57,27 +58,28 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.GraphStreamUtils;
 import io.github.mzmine.util.collections.CollectionUtils;
-import io.github.mzmine.util.collections.StreamUtils;
 import io.github.mzmine.util.exceptions.MissingMassListException;
-import io.github.mzmine.util.maths.Combinatorics;
 import io.github.mzmine.util.maths.similarity.Similarity;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import io.github.mzmine.util.scans.ScanAlignment;
 import io.github.mzmine.util.scans.ScanMZDiffConverter;
 import io.github.mzmine.util.scans.similarity.Weights;
 import java.text.MessageFormat;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import static java.util.Objects.requireNonNullElse;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -90,6 +92,8 @@ public class ModifiedCosineSpectralNetworkingTask extends AbstractFeatureListTas
       ModifiedCosineSpectralNetworkingTask.class.getName());
   // Logger.
   private final AtomicLong processedPairs = new AtomicLong(0);
+  // merging of the fragment scans before the pairs are checked
+  private final AtomicDouble mergeProgress = new AtomicDouble(0);
   private final int minMatch;
   private final MZTolerance mzTolerance;
   private final double minCosineSimilarity;
@@ -99,6 +103,7 @@ public class ModifiedCosineSpectralNetworkingTask extends AbstractFeatureListTas
   private final SpectralSignalFilter signalFilter;
   private final double maxMzDelta;
   private final List<FeatureListRow> mzSortedRows;
+  private static final int ROWS_PER_BLOCK = 64;
   private long totalMaxPairs = 0;
   // this is always off for now. Could be reintroduced as separate similarity metric
   private final @NotNull FragmentScanSelection scanMergeSelect;
@@ -425,59 +430,95 @@ public class ModifiedCosineSpectralNetworkingTask extends AbstractFeatureListTas
   }
 
   /**
-   * Parallel check of all r2r similarities
+   * Parallel check of all r2r similarities. Signal pairs of all spectra are indexed first and only
+   * spectra that share at least minMatch fragment or neutral loss signals are aligned, which gives
+   * the same edges as comparing all pairs.
    *
    * @param mapSimilarity map for all MS2 cosine similarity edges
    * @param mzSortedRows  match rows
    */
   public void checkRows(R2RMap<RowsRelationship> mapSimilarity, List<FeatureListRow> mzSortedRows)
       throws MissingMassListException {
-    List<Entry<FeatureListRow, List<FilteredRowData>>> sortedFilteredRows = new ArrayList<>(
-        prepareRowSpectra(mzSortedRows).entrySet());
-    final int numRows = sortedFilteredRows.size();
-    totalMaxPairs = Combinatorics.uniquePairs(sortedFilteredRows.size());
+    final Map<FeatureListRow, List<FilteredRowData>> filteredRows = prepareRowSpectra(
+        mzSortedRows);
+    final List<FeatureListRow> rows = List.copyOf(filteredRows.keySet());
+    final List<List<FilteredRowData>> rowSpectra = List.copyOf(filteredRows.values());
+    final int numRows = rows.size();
+    totalMaxPairs = numRows;
     logger.log(Level.INFO, MessageFormat.format("Checking MS2 similarity on {0} rows", numRows));
 
-    long comparedPairs = StreamUtils.processPairs(sortedFilteredRows, this::isCanceled, true, //
-        // stop inner loop if mz distance is too far
-        (first, later) -> maxMzDelta < later.getKey().getAverageMZ() - first.getKey()
-            .getAverageMZ(), //
-        pair -> {
-          // the actual processing
-          var row1 = pair.left().getKey();
-          var scans1 = pair.left().getValue();
-          var row2 = pair.right().getKey();
-          var scans2 = pair.right().getValue();
-          checkRowsPair(row1, scans1, row2, scans2, mapSimilarity);
-          processedPairs.incrementAndGet();
-        });
-
-    logger.info("Spectral networking: Performed %d pairwise comparisons.".formatted(comparedPairs));
+    final double[] precursorMzs = new double[numRows];
+    for (int r = 0; r < numRows; r++) {
+      precursorMzs[r] = rows.get(r).getAverageMZ();
+    }
+    final SignalPairIndex index = new SignalPairIndex(rowSpectra, precursorMzs, mzTolerance,
+        minMatch);
+    final int[] spectrumRows = new int[index.getNumberOfSpectra()];
+    for (int r = 0; r < numRows; r++) {
+      for (int s = index.getFirstSpectrum(r); s < index.getEndSpectrum(r); s++) {
+        spectrumRows[s] = r;
+      }
+    }
+
+    final AtomicLong comparedPairs = new AtomicLong();
+    final int blocks = (numRows + ROWS_PER_BLOCK - 1) / ROWS_PER_BLOCK;
+    IntStream.range(0, blocks).parallel().forEach(block -> {
+      final int[] counts = new int[index.getNumberOfSpectra()];
+      final IntArrayList candidates = new IntArrayList();
+      // best similarity of each later row, in order of the first candidate
+      final Int2ObjectMap<SpectralSimilarity> best = new Int2ObjectLinkedOpenHashMap<>();
+
+      int lastRow = block * ROWS_PER_BLOCK;
+      for (int r = block * ROWS_PER_BLOCK; r < Math.min(numRows, (block + 1) * ROWS_PER_BLOCK);
+          r++) {
+        if (isCanceled()) {
+          return;
+        }
+        // stop if mz distance is too far
+        lastRow = Math.max(lastRow, r);
+        while (lastRow + 1 < numRows && maxMzDelta >= precursorMzs[lastRow + 1] - precursorMzs[r]) {
+          lastRow++;
+        }
+
+        final FeatureListRow row = rows.get(r);
+        best.clear();
+        for (int a = index.getFirstSpectrum(r); a < index.getEndSpectrum(r); a++) {
+          index.findCandidates(a, index.getEndSpectrum(r), index.getEndSpectrum(lastRow), counts,
+              candidates);
+          comparedPairs.addAndGet(candidates.size());
+          final FilteredRowData dataA = rowSpectra.get(r).get(a - index.getFirstSpectrum(r));
+          for (int i = 0; i < candidates.size(); i++) {
+            final int b = candidates.getInt(i);
+            final int rowB = spectrumRows[b];
+            final FilteredRowData dataB = rowSpectra.get(rowB)
+                .get(b - index.getFirstSpectrum(rowB));
+            final SpectralSimilarity result = calcSpectralSimilarity(row, dataB.row(),
+                dataA.data(), dataB.data());
+            final SpectralSimilarity current = best.get(rowB);
+            if (result != null && (current == null || result.cosine() > current.cosine())) {
+              best.put(rowB, result);
+            }
+          }
+        }
+        // streaming the edges into the concurrent map
+        for (var entry : best.int2ObjectEntrySet()) {
+          addIfSimilar(row, rows.get(entry.getIntKey()), entry.getValue(), mapSimilarity);
+        }
+        processedPairs.incrementAndGet();
+      }
+    });
+
+    logger.info("Spectral networking: Performed %d pairwise comparisons.".formatted(
+        comparedPairs.get()));
   }
 
   /**
-   * Check and add {@link R2RSpectralSimilarity} to mapSimilarity.
+   * Add {@link R2RSpectralSimilarity} to mapSimilarity if it meets the minimum criteria
    *
-   * @param mapSimilarity results to be added
    * @return true if relationship was added
    */
-  private boolean checkRowsPair(final FeatureListRow row1, final List<FilteredRowData> scans1,
-      final FeatureListRow row2, final List<FilteredRowData> scans2,
-      final R2RMap<RowsRelationship> mapSimilarity) {
-    SpectralSimilarity best = null;
-
-    // TODO think about ways to match the same energies against each other
-    // Maybe in a +- 15 energy range
-    // currently this just matches all scans against all scans and takes the best score
-    for (final FilteredRowData a : scans1) {
-      for (final FilteredRowData b : scans2) {
-        // align and check spectra
-        var result = calcSpectralSimilarity(a.row(), b.row(), a.data(), b.data());
-        if (result != null && (best == null || result.cosine() > best.cosine())) {
-          best = result;
-        }
-      }
-    }
+  private boolean addIfSimilar(final FeatureListRow row1, final FeatureListRow row2,
+      final @Nullable SpectralSimilarity best, final R2RMap<RowsRelationship> mapSimilarity) {
     if (best != null && best.cosine() >= minCosineSimilarity && best.overlap() >= minMatch) {
       var r2r = new R2RSpectralSimilarity(row1, row2, Type.MS2_COSINE_SIM, best);
       mapSimilarity.add(row1, row2, r2r);
@@ -492,6 +533,10 @@ public class ModifiedCosineSpectralNetworkingTask extends AbstractFeatureListTas
     // and prepare data points
     // retain order of mz in LinkedHashMap
     Map<FeatureListRow, List<FilteredRowData>> filteredRows = new LinkedHashMap<>();
+    scanMergeSelect.mergeAllRows(mzSortedRows, this::isCanceled, mergeProgress);
+    if (isCanceled()) {
+      return filteredRows;
+    }
     for (FeatureListRow row : mzSortedRows) {
       List<Scan> selectedScans = scanMergeSelect.getAllFragmentSpectra(row);
       if (selectedScans.isEmpty()) {
@@ -544,7 +589,9 @@ public class ModifiedCosineSpectralNetworkingTask extends AbstractFeatureListTas
 
   @Override
   public double getFinishedPercentage() {
-    return totalMaxPairs == 0 ? 0 : processedPairs.get() / (double) totalMaxPairs;
+    // rows are merged before the number of pairs is known
+    return totalMaxPairs == 0 ? mergeProgress.get()
+        : processedPairs.get() / (double) totalMaxPairs;
   }
 
   @Override
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking.modified_cosine;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.List;
+
+/**
+ * Inverted index of the filtered fragment signals and neutral losses (precursor - fragment) of all
+ * spectra in a networking run. Two signals can only be aligned by the modified cosine if their
+ * fragment m/z match or if they match after shifting by the precursor delta, which is the same as
+ * matching neutral losses. The number of signal pairs in these windows is an upper bound of the
+ * overlap, so pairs below the minimum match can be skipped without changing the result.
+ * <p>
+ * Spectra are numbered in the order of the rows and all spectra of a row are consecutive.
+ */
+final class SignalPairIndex {
+
+  /**
+   * covers rounding differences between neutral loss and shifted fragment m/z
+   */
+  private static final double EPSILON = 1e-9;
+
+  private final int minMatch;
+  private final MZTolerance mzTolerance;
+  private final int[] rowFirstSpectrum;
+  private final DataPoint[][] spectra;
+  private final double[] precursorMzs;
+  private final double maxDirectTolerance;
+  private final double lossTolerance;
+
+  private final double[] fragmentMzs;
+  private final int[] fragmentSpectra;
+  private final double[] lossMzs;
+  private final int[] lossSpectra;
+
+  /**
+   * @param rowSpectra   the filtered spectra of each row, rows sorted by precursor m/z
+   * @param precursorMzs the precursor m/z of each row
+   */
+  SignalPairIndex(List<List<FilteredRowData>> rowSpectra, double[] precursorMzs,
+      MZTolerance mzTolerance, int minMatch) {
+    this.mzTolerance = mzTolerance;
+    this.minMatch = minMatch;
+    final int numRows = rowSpectra.size();
+    rowFirstSpectrum = new int[numRows + 1];
+    int numSignals = 0;
+    for (int r = 0; r < numRows; r++) {
+      rowFirstSpectrum[r + 1] = rowFirstSpectrum[r] + rowSpectra.get(r).size();
+      for (FilteredRowData data : rowSpectra.get(r)) {
+        numSignals += data.data().length;
+      }
+    }
+
+    spectra = new DataPoint[rowFirstSpectrum[numRows]][];
+    this.precursorMzs = new double[spectra.length];
+    fragmentMzs = new double[numSignals];
+    fragmentSpectra = new int[numSignals];
+    lossMzs = new double[numSignals];
+    lossSpectra = new int[numSignals];
+    double maxFragmentMz = 0;
+    double maxPrecursorMz = 0;
+    double minLoss = 0;
+    int signal = 0;
+    for (int r = 0; r < numRows; r++) {
+      for (int i = 0; i < rowSpectra.get(r).size(); i++) {
+        final int s = rowFirstSpectrum[r] + i;
+        spectra[s] = rowSpectra.get(r).get(i).data();
+        this.precursorMzs[s] = precursorMzs[r];
+        maxPrecursorMz = Math.max(maxPrecursorMz, precursorMzs[r]);
+        for (DataPoint dp : spectra[s]) {
+          fragmentMzs[signal] = dp.getMZ();
+          fragmentSpectra[signal] = s;
+          lossMzs[signal] = precursorMzs[r] - dp.getMZ();
+          lossSpectra[signal] = s;
+          maxFragmentMz = Math.max(maxFragmentMz, dp.getMZ());
+          minLoss = Math.min(minLoss, lossMzs[signal]);
+          signal++;
+        }
+      }
+    }
+    sortByValue(fragmentMzs, fragmentSpectra);
+    sortByValue(lossMzs, lossSpectra);
+
+    // the tolerance is relative to the m/z of either signal, use the largest possible
+    maxDirectTolerance = mzTolerance.getMzToleranceForMass(maxFragmentMz);
+    // a shifted fragment is the precursor of the other spectrum minus the neutral loss
+    lossTolerance = mzTolerance.getMzToleranceForMass(maxPrecursorMz - minLoss) + EPSILON;
+  }
+
+  private static void sortByValue(double[] values, int[] spectra) {
+    final int[] order = new int[values.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    IntArrays.parallelQuickSort(order, (a, b) -> Double.compare(values[a], values[b]));
+    final double[] sortedValues = new double[values.length];
+    final int[] sortedSpectra = new int[values.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedValues[i] = values[order[i]];
+      sortedSpectra[i] = spectra[order[i]];
+    }
+    System.arraycopy(sortedValues, 0, values, 0, values.length);
+    System.arraycopy(sortedSpectra, 0, spectra, 0, values.length);
+  }
+
+  int getNumberOfSpectra() {
+    return spectra.length;
+  }
+
+  int getFirstSpectrum(int row) {
+    return rowFirstSpectrum[row];
+  }
+
+  /**
+   * @return the exclusive end of the spectra of the row
+   */
+  int getEndSpectrum(int row) {
+    return rowFirstSpectrum[row + 1];
+  }
+
+  /**
+   * Collects all spectra in [fromSpectrum, toSpectrum) that may reach the minimum match with the
+   * query spectrum.
+   *
+   * @param counts     signal pair counts per spectrum, all zero before and after the call
+   * @param candidates output list, cleared and filled with the candidate spectra in ascending order
+   */
+  void findCandidates(int spectrum, int fromSpectrum, int toSpectrum, int[] counts,
+      IntArrayList candidates) {
+    candidates.clear();
+    if (fromSpectrum >= toSpectrum) {
+      return;
+    }
+    if (minMatch <= 0) {
+      for (int s = fromSpectrum; s < toSpectrum; s++) {
+        candidates.add(s);
+      }
+      return;
+    }
+
+    final IntArrayList touched = new IntArrayList();
+    final double precursorMz = precursorMzs[spectrum];
+    for (DataPoint dp : spectra[spectrum]) {
+      final double mz = dp.getMZ();
+      final double directTolerance =
+          mzTolerance.getMzToleranceForMass(mz + maxDirectTolerance) + EPSILON;
+      countInWindow(fragmentMzs, fragmentSpectra, mz, directTolerance, fromSpectrum, toSpectrum,
+          counts, touched);
+      countInWindow(lossMzs, lossSpectra, precursorMz - mz, lossTolerance, fromSpectrum,
+          toSpectrum, counts, touched);
+    }
+
+    for (int i = 0; i < touched.size(); i++) {
+      final int s = touched.getInt(i);
+      if (counts[s] >= minMatch) {
+        candidates.add(s);
+      }
+      counts[s] = 0;
+    }
+    // same order as the exhaustive search
+    IntArrays.quickSort(candidates.elements(), 0, candidates.size());
+  }
+
+  private static void countInWindow(double[] values, int[] spectra, double center,
+      double tolerance, int fromSpectrum, int toSpectrum, int[] counts, IntArrayList touched) {
+    final IndexRange window = BinarySearch.indexRange(values, center - tolerance,
+        center + tolerance);
+    for (int i = window.min(); i < window.maxExclusive(); i++) {
+      final int s = spectra[i];
+      if (s >= fromSpectrum && s < toSpectrum && counts[s]++ == 0) {
+        touched.add(s);
+      }
+    }
+  }
+}
@@ -37,7 +37,6 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.javafx.concurrent.threading.FxThread;
 import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicParameters;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionParameters;
@@ -52,16 +51,15 @@ import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FormulaUtils;
+import io.github.mzmine.util.formula.FormulaCandidates;
+import io.github.mzmine.util.formula.FormulaEnumerator;
 import java.time.Instant;
 import java.util.Map;
 import java.util.logging.Logger;
 import javafx.application.Platform;
 import org.jetbrains.annotations.NotNull;
-import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 public class SingleRowPredictionTask extends AbstractTask {
 
@@ -90,7 +88,8 @@ public class SingleRowPredictionTask extends AbstractTask {
   private Double msmsMinScore;
   private int topNmsmsSignals;
   private MZTolerance msmsMzTolerance;
-  private MolecularFormulaGenerator generator;
+  private int totalCandidates;
+  private int checkedCandidates;
   private int foundFormulas = 0;
 
 
@@ -156,10 +155,10 @@ public class SingleRowPredictionTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    if (generator == null) {
+    if (totalCandidates == 0) {
       return 0;
     }
-    return generator.getFinishedPercentage();
+    return checkedCandidates / (double) totalCandidates;
   }
 
   @Override
@@ -192,22 +191,21 @@ public class SingleRowPredictionTask extends AbstractTask {
 
     try {
 
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+      final FormulaCandidates candidates = FormulaEnumerator.forRange(elementCounts)
+          .findFormulas(massRange.lowerEndpoint(), massRange.upperEndpoint(), this::isCanceled);
+      totalCandidates = candidates.size();
 
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
-
-      IMolecularFormula cdkFormula;
-      while ((cdkFormula = generator.getNextFormula()) != null) {
+      for (int i = 0; i < candidates.size(); i++) {
 
         if (isCanceled()) {
           return;
         }
 
         // Mass is ok, so test other constraints
-        checkConstraints(cdkFormula);
-
-
+        if (checkElementCounts(candidates, i)) {
+          checkConstraints(candidates.toFormula(i));
+        }
+        checkedCandidates++;
       }
 
       if (isCanceled()) {
@@ -235,26 +233,26 @@ public class SingleRowPredictionTask extends AbstractTask {
   }
 
 
-  private void checkConstraints(IMolecularFormula cdkFormula) {
-
+  /**
+   * Elemental ratios and RDBE are checked on the element counts before creating a CDK formula
+   */
+  private boolean checkElementCounts(FormulaCandidates candidates, int index) {
     // Check elemental ratios
-    if (checkRatios) {
-      boolean check = ElementalHeuristicChecker.checkFormula(cdkFormula, checkHCRatio,
-          checkNOPSRatio, checkMultipleRatios);
-      if (!check) {
-        return;
-      }
+    if (checkRatios && !candidates.checkElementalHeuristics(index, checkHCRatio, checkNOPSRatio,
+        checkMultipleRatios)) {
+      return false;
     }
 
-    Double rdbeValue = RDBERestrictionChecker.calculateRDBE(cdkFormula);
-
-    // Check RDBE condition
-    if (checkRDBE && (rdbeValue != null)) {
-      boolean check = RDBERestrictionChecker.checkRDBE(rdbeValue, rdbeRange, rdbeIsInteger);
-      if (!check) {
-        return;
-      }
+    // Check RDBE condition, NaN if undefined
+    if (checkRDBE) {
+      final double rdbeValue = candidates.getRDBE(index);
+      return Double.isNaN(rdbeValue) || RDBERestrictionChecker.checkRDBE(rdbeValue, rdbeRange,
+          rdbeIsInteger);
     }
+    return true;
+  }
+
+  private void checkConstraints(IMolecularFormula cdkFormula) {
 
     // Calculate isotope similarity score
     final IsotopePattern detectedPattern = peakListRow.getBestIsotopePattern();
@@ -323,15 +321,4 @@ public class SingleRowPredictionTask extends AbstractTask {
 
   }
 
-  @Override
-  public void cancel() {
-    super.cancel();
-
-    // We need to cancel the formula generator, because searching for next
-    // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
-  }
-
 }
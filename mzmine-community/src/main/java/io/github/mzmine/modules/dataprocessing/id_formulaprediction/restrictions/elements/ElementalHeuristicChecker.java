@@ -38,7 +38,7 @@ public class ElementalHeuristicChecker {
       return true;
     }
 
-    double eH = 0, eC = 0, eN = 0, eO = 0, eP = 0, eS = 0;
+    int eH = 0, eC = 0, eN = 0, eO = 0, eP = 0, eS = 0;
     for (IIsotope isotope : formula.isotopes()) {
       if (isotope.getSymbol().equals("C")) {
         eC += formula.getIsotopeCount(isotope);
@@ -60,6 +60,21 @@ public class ElementalHeuristicChecker {
       }
     }
 
+    return checkFormula(eC, eH, eN, eO, eP, eS, checkHC, checkNOPS, checkMultiple);
+  }
+
+  /**
+   * Checks the element counts of a formula, elements that are not part of the formula are 0
+   */
+  public static boolean checkFormula(final double eC, final double eH, final double eN,
+      final double eO, final double eP, final double eS, boolean checkHC, boolean checkNOPS,
+      boolean checkMultiple) {
+
+    // if we dont have to do checks, return true.
+    if (!checkHC && !checkNOPS && !checkMultiple) {
+      return true;
+    }
+
     // If there is no carbon, consider the formula OK
     if (eC == 0) {
       return true;
@@ -26,13 +26,30 @@
 package io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe;
 
 import com.google.common.collect.Range;
-import java.util.HashMap;
 import java.util.Map;
+import org.jetbrains.annotations.Nullable;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 
 public class RDBERestrictionChecker {
 
+  /**
+   * This table defines the ground valence states. Typically, in most molecules atoms will have the
+   * lowest (ground) valence.
+   */
+  private static final Map<String, Integer> VALENCES = Map.ofEntries(Map.entry("H", 1),
+      Map.entry("C", 4), Map.entry("N", 3), Map.entry("O", 2), Map.entry("Si", 4),
+      Map.entry("P", 3), Map.entry("S", 2), Map.entry("F", 1), Map.entry("Cl", 1),
+      Map.entry("Br", 1), Map.entry("I", 1), Map.entry("Na", 1), Map.entry("K", 1),
+      Map.entry("Mg", 2), Map.entry("Ca", 2), Map.entry("Ba", 2));
+
+  /**
+   * @return the ground valence of the element or null if it is not defined
+   */
+  public static @Nullable Integer getValence(String symbol) {
+    return VALENCES.get(symbol);
+  }
+
   /**
    * Calculates possible RDBE (degree of unsaturation) values according to the formula:
    * <p>
@@ -45,31 +62,9 @@ public class RDBERestrictionChecker {
 
     double sum = 0;
 
-    /**
-     * This table defines the ground valence states. Typically, in most molecules atoms will have the
-     * lowest (ground) valence.
-     */
-    Map<String, Integer> valences2 = new HashMap<String, Integer>();
-    valences2.put("H", 1);
-    valences2.put("C", 4);
-    valences2.put("N", 3);
-    valences2.put("O", 2);
-    valences2.put("Si", 4);
-    valences2.put("P", 3);
-    valences2.put("S", 2);
-    valences2.put("F", 1);
-    valences2.put("Cl", 1);
-    valences2.put("Br", 1);
-    valences2.put("I", 1);
-    valences2.put("Na", 1);
-    valences2.put("K", 1);
-    valences2.put("Mg", 2);
-    valences2.put("Ca", 2);
-    valences2.put("Ba", 2);
-
     for (IIsotope isotope : formula.isotopes()) {
 
-      Integer valence = valences2.get(isotope.getSymbol());
+      Integer valence = VALENCES.get(isotope.getSymbol());
       if (valence == null) {
         return null;
       }
@@ -35,7 +35,6 @@ import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.main.ConfigService;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortParameters;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.ResultFormula;
-import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicParameters;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionParameters;
@@ -51,6 +50,8 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.FormulaUtils;
+import io.github.mzmine.util.formula.FormulaCandidates;
+import io.github.mzmine.util.formula.FormulaEnumerator;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -60,11 +61,8 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
-import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 class FormulaPredictionSubTask extends AbstractTask {
 
@@ -87,7 +85,6 @@ class FormulaPredictionSubTask extends AbstractTask {
   private float sortPPMFactor;
   private float sortMSMSFactor;
   private float sortIsotopeFactor;
-  private MolecularFormulaGenerator generator;
   private String message;
   private int totalRows, finishedRows;
   private Range<Double> rdbeRange;
@@ -199,7 +196,8 @@ class FormulaPredictionSubTask extends AbstractTask {
 
     totalRows = rows.size();
 
-    final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+    // shared by all sub tasks with the same element ranges
+    final FormulaEnumerator enumerator = FormulaEnumerator.forRange(elementCounts);
     FeatureListRow row = null;
     while ((row = rows.poll()) != null) {
 
@@ -221,16 +219,15 @@ class FormulaPredictionSubTask extends AbstractTask {
 
       message = "Formula prediction for " + ConfigService.getGuiFormats().mz(searchedMass);
 
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
+      final FormulaCandidates candidates = enumerator.findFormulas(massRange.lowerEndpoint(),
+          massRange.upperEndpoint(), this::isCanceled);
 
-      IMolecularFormula cdkFormula = null;
-
-      // create a map to store ResultFormula and relative mass deviation
-      // for sorting
-      while ((cdkFormula = generator.getNextFormula()) != null) {
+      for (int i = 0; i < candidates.size(); i++) {
         // Mass is ok, so test other constraints
-        ResultFormula molf = checkConstraints(cdkFormula, row, searchedMass);
+        if (!checkElementCounts(candidates, i)) {
+          continue;
+        }
+        ResultFormula molf = checkConstraints(candidates.toFormula(i), row, searchedMass);
 
         if (isCanceled()) {
           return;
@@ -264,25 +261,32 @@ class FormulaPredictionSubTask extends AbstractTask {
   }
 
   /**
-   * @param cdkFormula
-   * @return null if molecular formula does not match requirements
+   * Elemental ratios and RDBE are checked on the element counts before creating a CDK formula
+   *
+   * @return false if the candidate does not match the requirements
    */
-  private ResultFormula checkConstraints(IMolecularFormula cdkFormula, FeatureListRow peakListRow,
-      double searchedMass) {
-
+  private boolean checkElementCounts(FormulaCandidates candidates, int index) {
     // Check elemental ratios
-    if (checkRatios && !ElementalHeuristicChecker.checkFormula(cdkFormula, checkHCRatio,
-        checkNOPSRatio, checkMultipleRatios)) {
-      return null;
+    if (checkRatios && !candidates.checkElementalHeuristics(index, checkHCRatio, checkNOPSRatio,
+        checkMultipleRatios)) {
+      return false;
     }
 
-    Double rdbeValue = RDBERestrictionChecker.calculateRDBE(cdkFormula);
-
-    // Check RDBE condition
-    if (checkRDBE && (rdbeValue != null) && !RDBERestrictionChecker.checkRDBE(rdbeValue, rdbeRange,
-        rdbeIsInteger)) {
-      return null;
+    // Check RDBE condition, NaN if undefined
+    if (checkRDBE) {
+      final double rdbeValue = candidates.getRDBE(index);
+      return Double.isNaN(rdbeValue) || RDBERestrictionChecker.checkRDBE(rdbeValue, rdbeRange,
+          rdbeIsInteger);
     }
+    return true;
+  }
+
+  /**
+   * @param cdkFormula formula that passed {@link #checkElementCounts(FormulaCandidates, int)}
+   * @return null if molecular formula does not match requirements
+   */
+  private ResultFormula checkConstraints(IMolecularFormula cdkFormula, FeatureListRow peakListRow,
+      double searchedMass) {
 
     // Calculate isotope similarity score
     IsotopePattern detectedPattern = peakListRow.getBestIsotopePattern();
@@ -342,16 +346,4 @@ class FormulaPredictionSubTask extends AbstractTask {
     return new ResultFormula(cdkFormula, predictedIsotopePattern, isotopeScore, msmsScore,
         msmsAnnotations, searchedMass);
   }
-
-  @Override
-  public void cancel() {
-    super.cancel();
-
-    // We need to cancel the formula generator, because searching for next
-    // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
-
-  }
 }
@@ -40,7 +40,6 @@ import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortParameters;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortTask;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.ResultFormula;
-import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicParameters;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionParameters;
@@ -57,6 +56,8 @@ import io.github.mzmine.parameters.parametertypes.ValueOption;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.formula.FormulaCandidates;
+import io.github.mzmine.util.formula.FormulaEnumerator;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -69,11 +70,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
 public class FormulaPredictionIonNetworkTask extends AbstractTask {
@@ -98,7 +96,7 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
   private final CreateAvgNetworkFormulasTask netFormulaMerger;
   private final OptionForValues handleHigherMz;
   private final HashMap<IMolecularFormula, IsotopePattern> predictedPattern = new HashMap<>(1000);
-  private MolecularFormulaGenerator generator;
+  private final FormulaEnumerator enumerator;
   private String message;
   private int totalRows;
   private FormulaSortTask sorter;
@@ -117,6 +115,7 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
     this.featureList = featureList;
     mzTolerance = parameters.getValue(FormulaPredictionIonNetworkParameters.mzTolerance);
     elementCounts = parameters.getValue(FormulaPredictionIonNetworkParameters.elements);
+    enumerator = FormulaEnumerator.forRange(elementCounts);
     ppmOffset = parameters.getValue(FormulaPredictionIonNetworkParameters.ppmOffset);
 
     handleHigherMz = parameters.getValue(FormulaPredictionIonNetworkParameters.handleHigherMz);
@@ -269,13 +268,15 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
 
     Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
 
-    IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-    generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-        massRange.upperEndpoint(), elementCounts);
+    final FormulaCandidates candidates = enumerator.findFormulas(massRange.lowerEndpoint(),
+        massRange.upperEndpoint(), this::isCanceled);
 
-    IMolecularFormula cdkFormula;
-    while ((cdkFormula = generator.getNextFormula()) != null) {
+    for (int c = 0; c < candidates.size() && !isCanceled(); c++) {
+      if (!checkElementCounts(candidates, c)) {
+        continue;
+      }
       try {
+        final IMolecularFormula cdkFormula = candidates.toFormula(c);
         // ionized formula
         IMolecularFormula cdkFormulaIon = ion.addToFormula(cdkFormula);
 
@@ -312,12 +313,15 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
 
     Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
 
-    IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-    generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-        massRange.upperEndpoint(), elementCounts);
+    final FormulaCandidates candidates = enumerator.findFormulas(massRange.lowerEndpoint(),
+        massRange.upperEndpoint(), this::isCanceled);
 
-    IMolecularFormula cdkFormula;
-    while ((cdkFormula = generator.getNextFormula()) != null) {
+    for (int c = 0; c < candidates.size() && !isCanceled(); c++) {
+      // neutral formula checks are the same for all ions
+      if (!checkElementCounts(candidates, c)) {
+        continue;
+      }
+      final IMolecularFormula cdkFormula = candidates.toFormula(c);
       for (int i = 0; i < net.size(); i++) {
         try {
           final FeatureListRow row = entries.get(i).getKey();
@@ -359,28 +363,32 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
     }
   }
 
-  private void checkConstraints(List<ResultFormula> resultingFormulas,
-      IMolecularFormula cdkFormulaNeutralM, IMolecularFormula cdkFormulaIon,
-      FeatureListRow featureListRow, IonType ionType, double searchedMass) {
-    int charge = ionType.getCharge();
-
+  /**
+   * Elemental ratios and RDBE of the neutral formula are checked on the element counts before
+   * creating a CDK formula
+   *
+   * @return false if the candidate does not match the requirements
+   */
+  private boolean checkElementCounts(FormulaCandidates candidates, int index) {
     // Check elemental ratios
-    if (checkRatios) {
-      boolean check = ElementalHeuristicChecker.checkFormula(cdkFormulaNeutralM, checkHCRatio,
-          checkNOPSRatio, checkMultipleRatios);
-      if (!check) {
-        return;
-      }
+    if (checkRatios && !candidates.checkElementalHeuristics(index, checkHCRatio, checkNOPSRatio,
+        checkMultipleRatios)) {
+      return false;
     }
 
-    Double rdbeValue = RDBERestrictionChecker.calculateRDBE(cdkFormulaNeutralM);
-    // Check RDBE condition
-    if (checkRDBE && (rdbeValue != null)) {
-      boolean check = RDBERestrictionChecker.checkRDBE(rdbeValue, rdbeRange, rdbeIsInteger);
-      if (!check) {
-        return;
-      }
+    // Check RDBE condition, NaN if undefined
+    if (checkRDBE) {
+      final double rdbeValue = candidates.getRDBE(index);
+      return Double.isNaN(rdbeValue) || RDBERestrictionChecker.checkRDBE(rdbeValue, rdbeRange,
+          rdbeIsInteger);
     }
+    return true;
+  }
+
+  private void checkConstraints(List<ResultFormula> resultingFormulas,
+      IMolecularFormula cdkFormulaNeutralM, IMolecularFormula cdkFormulaIon,
+      FeatureListRow featureListRow, IonType ionType, double searchedMass) {
+    int charge = ionType.getCharge();
 
     // Calculate isotope similarity score
     IsotopePattern detectedPattern = featureListRow.getBestIsotopePattern();
@@ -446,16 +454,4 @@ public class FormulaPredictionIonNetworkTask extends AbstractTask {
     // Add the new formula entry
     resultingFormulas.add(resultEntry);
   }
-
-  @Override
-  public void cancel() {
-    super.cancel();
-
-    // We need to cancel the formula generator, because searching for next
-    // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
-
-  }
 }
@@ -38,6 +38,7 @@ import io.github.mzmine.datamodel.identities.iontype.IonNetwork;
 import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.parameters.parametertypes.ionidentity.IonLibraryParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
@@ -65,6 +66,10 @@ public class IonNetworkLibrary {
   private final PolarityType polarity;
   private final int maxCharge;
   private final int maxMolecules;
+  /**
+   * All valid ion type pairs sorted by their m/z relationship
+   */
+  private IonTypePairIndex pairIndex;
 
   /**
    * Set mztolerance later
@@ -130,6 +135,9 @@ public class IonNetworkLibrary {
     }
 
     addModification();
+    pairIndex = new IonTypePairIndex(allAdducts,
+        (a, b) -> checkMolCount(a, b) && checkMaxMod(a, b) && checkMultiChargeDifference(a, b)
+                  && checkSameAdducts(a, b));
     // print them out
     for (IonType a : allAdducts) {
       LOG.finest("Adding modification: " + a.toString());
@@ -156,44 +164,63 @@ public class IonNetworkLibrary {
   public @NotNull List<IonIdentity[]> findAdducts(final FeatureList featureList,
       final FeatureListRow row1, final FeatureListRow row2, int z1, int z2, final CheckMode mode,
       final double minHeight) {
+    final double[] mzBounds = new double[4];
+    putMzBounds(row1, mode, minHeight, mzBounds, 0);
+    putMzBounds(row2, mode, minHeight, mzBounds, 1);
+    return findAdducts(featureList, row1, row2, z1, z2, mode, minHeight, mzBounds, 0, 1);
+  }
+
+  /**
+   * Does find all possible adducts between row1 and row2. Only ion type pairs that match the m/z
+   * bounds of both rows are checked.
+   *
+   * @param z1       -1 or 0 if not set (charge state always positive)
+   * @param z2       -1 or 0 if not set (charge state always positive)
+   * @param mzBounds packed m/z bounds of rows, see
+   *                 {@link #putMzBounds(FeatureListRow, CheckMode, double, double[], int)}
+   * @param index1   index of row1 in mzBounds
+   * @param index2   index of row2 in mzBounds
+   * @return returns list of adducts for [row1, row2]
+   */
+  public @NotNull List<IonIdentity[]> findAdducts(final FeatureList featureList,
+      final FeatureListRow row1, final FeatureListRow row2, int z1, int z2, final CheckMode mode,
+      final double minHeight, final double[] mzBounds, final int index1, final int index2) {
     z1 = Math.abs(z1);
     z2 = Math.abs(z2);
     List<IonIdentity[]> list = new ArrayList<>();
-    // check all combinations of adducts
-    for (IonType adduct : allAdducts) {
-      for (IonType adduct2 : allAdducts) {
-        if (adduct.equals(adduct2)) {
-          continue;
-        }
-
-        // do not check if MOL = MOL and MOL>1
-        // only one can be modified
-        // check charge state if absCharge is not -1 or 0 (no charge detected)
-        if (checkMolCount(adduct, adduct2) //
-            && checkMaxMod(adduct, adduct2) //
-            && checkChargeStates(adduct, adduct2, z1, z2) //
-            && checkMultiChargeDifference(adduct, adduct2) //
-            && checkSameAdducts(adduct, adduct2)) {
-          // checks each raw file - only true if all m/z are in range
-          if (checkAdduct(featureList, row1, row2, adduct, adduct2, mode, minHeight)) {
-            // is a2 a modification of a1? (same adducts - different mods
-            if (adduct2.isModificationOf(adduct)) {
-              IonType mod = adduct2.subtractMods(adduct);
-              IonType undefined = new IonType(
-                  IonModification.getUndefinedforCharge(adduct.getCharge()));
-              list.add(IonIdentity.addAdductIdentityToRow(mzTolerance, row1, undefined, row1, mod));
-            } else if (adduct.isModificationOf(adduct2)) {
-              IonType mod = adduct.subtractMods(adduct2);
-              IonType undefined = new IonType(
-                  IonModification.getUndefinedforCharge(adduct2.getCharge()));
-              list.add(IonIdentity.addAdductIdentityToRow(mzTolerance, row1, mod, row2, undefined));
-            } else {
-              // Add adduct identity and notify GUI.
-              // only if not already present
-              list.add(
-                  IonIdentity.addAdductIdentityToRow(mzTolerance, row1, adduct, row2, adduct2));
-            }
-          }
+    final double minMz1 = mzBounds[index1 * 2];
+    final double maxMz1 = mzBounds[index1 * 2 + 1];
+    final double minMz2 = mzBounds[index2 * 2];
+    final double maxMz2 = mzBounds[index2 * 2 + 1];
+    if (Double.isNaN(minMz1) || Double.isNaN(minMz2)) {
+      // no features to compare
+      return list;
+    }
+    final IntArrayList candidates = new IntArrayList();
+    pairIndex.findCandidates(mzTolerance, minMz1, maxMz1, z1, minMz2, maxMz2, z2, candidates);
+
+    // check all candidate combinations of adducts
+    for (int i = 0; i < candidates.size(); i++) {
+      final int pair = candidates.getInt(i);
+      final IonType adduct = allAdducts.get(pairIndex.getFirst(pair));
+      final IonType adduct2 = allAdducts.get(pairIndex.getSecond(pair));
+      // checks each raw file - only true if all m/z are in range
+      if (checkAdduct(featureList, row1, row2, adduct, adduct2, mode, minHeight)) {
+        // is a2 a modification of a1? (same adducts - different mods
+        if (adduct2.isModificationOf(adduct)) {
+          IonType mod = adduct2.subtractMods(adduct);
+          IonType undefined = new IonType(
+              IonModification.getUndefinedforCharge(adduct.getCharge()));
+          list.add(IonIdentity.addAdductIdentityToRow(mzTolerance, row1, undefined, row1, mod));
+        } else if (adduct.isModificationOf(adduct2)) {
+          IonType mod = adduct.subtractMods(adduct2);
+          IonType undefined = new IonType(
+              IonModification.getUndefinedforCharge(adduct2.getCharge()));
+          list.add(IonIdentity.addAdductIdentityToRow(mzTolerance, row1, mod, row2, undefined));
+        } else {
+          // Add adduct identity and notify GUI.
+          // only if not already present
+          list.add(IonIdentity.addAdductIdentityToRow(mzTolerance, row1, adduct, row2, adduct2));
         }
       }
     }
@@ -201,6 +228,34 @@ public class IonNetworkLibrary {
     return list;
   }
 
+  /**
+   * Puts the m/z bounds of a row that are compared in {@link CheckMode}: the average m/z or the
+   * range of all feature m/z values with height >= minHeight. NaN if no feature qualifies.
+   *
+   * @param dst   packed [min, max] of each row
+   * @param index row index in dst
+   */
+  public static void putMzBounds(final FeatureListRow row, final CheckMode mode,
+      final double minHeight, final double[] dst, final int index) {
+    if (mode.equals(CheckMode.AVGERAGE)) {
+      dst[index * 2] = dst[index * 2 + 1] = row.getAverageMZ();
+      return;
+    }
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (Feature f : row.getFeatures()) {
+      if (f != null && f.getHeight() >= minHeight) {
+        min = Math.min(min, f.getMZ());
+        max = Math.max(max, f.getMZ());
+      }
+    }
+    if (min > max) {
+      min = max = Double.NaN;
+    }
+    dst[index * 2] = min;
+    dst[index * 2 + 1] = max;
+  }
+
 
   /**
    * Searches for an IonType for row that matches in network
@@ -29,6 +29,7 @@ import com.google.common.util.concurrent.AtomicDouble;
 import io.github.msdk.MSDKRuntimeException;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.correlation.RowGroup;
@@ -196,16 +197,26 @@ public class IonNetworkingTask extends AbstractTask {
    * @param compared
    */
   private long annotateGroup(RowGroup g, AtomicInteger compared) {
+    // pack m/z bounds and charges once per group
+    final int n = g.size();
+    final double[] mzBounds = new double[n * 2];
+    final int[] charges = new int[n];
+    for (int i = 0; i < n; i++) {
+      final FeatureListRow row = g.get(i);
+      IonNetworkLibrary.putMzBounds(row, adductCheckMode, minHeight, mzBounds, i);
+      charges[i] = row.getRowCharge();
+    }
+
     long annotations = 0;
-    for (int i = 0; i < g.size() - 1; i++) {
+    for (int i = 0; i < n - 1; i++) {
       // check against existing networks
-      for (int k = i + 1; k < g.size(); k++) {
+      for (int k = i + 1; k < n; k++) {
         // only if row i and k are correlated
         if (g.isCorrelated(i, k)) {
           compared.incrementAndGet();
           // check for adducts in library
           List<IonIdentity[]> id = library.findAdducts(featureList, g.get(i), g.get(k),
-              adductCheckMode, minHeight);
+              charges[i], charges[k], adductCheckMode, minHeight, mzBounds, i, k);
           if (!id.isEmpty()) {
             annotations++;
           }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking;
+
+import io.github.mzmine.datamodel.identities.iontype.IonType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sorted table of all valid pairs of ion types of an {@link IonNetworkLibrary}. Two ions a and b
+ * of the same neutral mass M with m/z values mz1 and mz2 fulfill
+ * <pre>n_b * z_a * mz1 - n_a * z_b * mz2 = n_b * d_a - n_a * d_b</pre>
+ * with n the number of molecules, z the absolute charge and d the mass difference of each ion
+ * type. Pairs are therefore grouped by (n_a, z_a, n_b, z_b) and sorted by the constant right
+ * side. Finding all ion type pairs that may explain a row pair is one binary search per group
+ * instead of testing all combinations of ion types.
+ */
+final class IonTypePairIndex {
+
+  /**
+   * Slack for rounding errors. Candidates are checked exactly afterward.
+   */
+  private static final double EPSILON = 1e-6;
+
+  private final int numTypes;
+  private final PairGroup[] groups;
+  private final double maxAbsMassDifference;
+
+  /**
+   * @param ionTypes    all ion types of the library
+   * @param isValidPair static checks of an ordered ion type pair that do not depend on rows
+   */
+  IonTypePairIndex(@NotNull List<IonType> ionTypes,
+      @NotNull BiPredicate<IonType, IonType> isValidPair) {
+    numTypes = ionTypes.size();
+    double maxAbsDiff = 0;
+    for (IonType type : ionTypes) {
+      maxAbsDiff = Math.max(maxAbsDiff, Math.abs(type.getMassDifference()));
+    }
+    maxAbsMassDifference = maxAbsDiff;
+
+    final Long2ObjectOpenHashMap<PairGroupBuilder> builders = new Long2ObjectOpenHashMap<>();
+    for (int a = 0; a < numTypes; a++) {
+      final IonType typeA = ionTypes.get(a);
+      // neutral mass is undefined without charge
+      if (typeA.getAbsCharge() == 0) {
+        continue;
+      }
+      for (int b = 0; b < numTypes; b++) {
+        final IonType typeB = ionTypes.get(b);
+        if (a == b || typeB.getAbsCharge() == 0 || typeA.equals(typeB) || !isValidPair.test(
+            typeA, typeB)) {
+          continue;
+        }
+        final int na = typeA.getMolecules();
+        final int za = typeA.getAbsCharge();
+        final int nb = typeB.getMolecules();
+        final int zb = typeB.getAbsCharge();
+        final long key = ((long) na << 48) | ((long) za << 32) | ((long) nb << 16) | zb;
+        builders.computeIfAbsent(key, _ -> new PairGroupBuilder(na, za, nb, zb))
+            .add(nb * typeA.getMassDifference() - na * typeB.getMassDifference(), a * numTypes + b);
+      }
+    }
+    groups = builders.values().stream().map(PairGroupBuilder::build).toArray(PairGroup[]::new);
+  }
+
+  /**
+   * Collects all ion type pairs that may explain the m/z values of two rows. The m/z ranges cover
+   * the average or feature m/z values of each row.
+   *
+   * @param z1  absolute charge of row 1, 0 if unknown
+   * @param z2  absolute charge of row 2, 0 if unknown
+   * @param dst cleared and filled with pair ids ({@link #getFirst(int)}, {@link #getSecond(int)})
+   *            sorted by the first and then the second ion type index
+   */
+  void findCandidates(@NotNull MZTolerance tolerance, double minMz1, double maxMz1, int z1,
+      double minMz2, double maxMz2, int z2, @NotNull IntArrayList dst) {
+    dst.clear();
+    for (PairGroup group : groups) {
+      if ((z1 != 0 && group.za != z1) || (z2 != 0 && group.zb != z2)) {
+        continue;
+      }
+      final double fa = (double) group.nb * group.za;
+      final double fb = (double) group.na * group.zb;
+      // |M1 - M2| <= tol(M1) scaled by na * nb
+      final double maxMass = (group.za * maxMz1 + maxAbsMassDifference) / group.na;
+      final double window =
+          group.na * group.nb * tolerance.getMzToleranceForMass(maxMass) + EPSILON;
+      final double low = fa * minMz1 - fb * maxMz2 - window;
+      final double high = fa * maxMz1 - fb * minMz2 + window;
+
+      final double[] constants = group.constants;
+      int i = Arrays.binarySearch(constants, low);
+      if (i < 0) {
+        i = -i - 1;
+      } else {
+        // first of equal values
+        while (i > 0 && constants[i - 1] == low) {
+          i--;
+        }
+      }
+      for (; i < constants.length && constants[i] <= high; i++) {
+        dst.add(group.pairs[i]);
+      }
+    }
+    // same order as iterating over all combinations of ion types
+    dst.sort(null);
+  }
+
+  int getFirst(int pair) {
+    return pair / numTypes;
+  }
+
+  int getSecond(int pair) {
+    return pair % numTypes;
+  }
+
+  /**
+   * @param constants sorted n_b * d_a - n_a * d_b of each pair
+   * @param pairs     pair ids in the same order
+   */
+  private record PairGroup(int na, int za, int nb, int zb, double[] constants, int[] pairs) {
+
+  }
+
+  private static final class PairGroupBuilder {
+
+    private final int na, za, nb, zb;
+    private final List<double[]> entries = new ArrayList<>();
+
+    private PairGroupBuilder(int na, int za, int nb, int zb) {
+      this.na = na;
+      this.za = za;
+      this.nb = nb;
+      this.zb = zb;
+    }
+
+    private void add(double constant, int pair) {
+      entries.add(new double[]{constant, pair});
+    }
+
+    private PairGroup build() {
+      entries.sort((e1, e2) -> Double.compare(e1[0], e2[0]));
+      final double[] constants = new double[entries.size()];
+      final int[] pairs = new int[entries.size()];
+      for (int i = 0; i < constants.length; i++) {
+        constants[i] = entries.get(i)[0];
+        pairs[i] = (int) entries.get(i)[1];
+      }
+      return new PairGroup(na, za, nb, zb, constants, pairs);
+    }
+  }
+}
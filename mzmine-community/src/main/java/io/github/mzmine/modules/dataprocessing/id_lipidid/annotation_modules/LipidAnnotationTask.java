@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
 
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.IonizationType;
 import io.github.mzmine.datamodel.PolarityType;
@@ -34,25 +35,27 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.annotations.LipidMatchListType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.IndexedFragmentScan;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClasses;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.custom_class.CustomLipidClass;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.custom_class.CustomLipidClassParameters;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.CompiledLipidDatabase;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.AdvancedParametersParameter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.collections.BinarySearch;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import io.github.mzmine.util.collections.IndexRange;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import javafx.collections.ObservableList;
 import org.jetbrains.annotations.NotNull;
@@ -190,35 +193,30 @@ public class LipidAnnotationTask extends AbstractTask {
     totalSteps = rows.size();
     Set<PolarityType> polarityTypes = getPolarityTypes();
 
-    // build lipid species database
-    List<LipidIon> lipidDatabase = LipidAnnotationUtils.buildLipidDatabase(selectedLipids,
+    // load or build lipid species database
+    CompiledLipidDatabase lipidDatabase = CompiledLipidDatabase.loadOrCompile(selectedLipids,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
         ionizationTypesToIgnore, polarityTypes);
-    List<LipidIon> sortedLipidDatabase = lipidDatabase.stream()
-        .sorted(Comparator.comparingDouble(LipidIon::mz)).toList();
 
     rows.parallelStream().forEach(row -> {
       Range<Double> mzTolRange = mzTolerance.getToleranceRange(row.getAverageMZ());
-      double lowerEdge = mzTolRange.lowerEndpoint();
-      double upperEdge = mzTolRange.upperEndpoint();
-      int index = BinarySearch.binarySearch(lowerEdge, DefaultTo.GREATER_EQUALS,
-          sortedLipidDatabase.size(), i -> sortedLipidDatabase.get(i).mz());
-      if (index >= 0) {
-        for (int i = index; i < sortedLipidDatabase.size(); i++) {
-          if (isCanceled()) {
-            return;
-          }
-
-          LipidAnnotationUtils.findPossibleLipid(sortedLipidDatabase.get(i), row, parameters,
-              mzTolerance, mzToleranceMS2, searchForMSMSFragments, minMsMsScore,
-              keepUnconfirmedAnnotations,
-              sortedLipidDatabase.get(i).lipidAnnotation().getLipidClass().getCoreClass(),
-              scanMergeSelect);
-
-          if (upperEdge < sortedLipidDatabase.get(i).mz()) {
-            break;
-          }
+      // fragment scans are selected once per row and shared by all candidate lipids
+      Supplier<List<IndexedFragmentScan>> fragmentScans = Suppliers.memoize(
+          () -> IndexedFragmentScan.of(scanMergeSelect.getAllFragmentSpectra(row)));
+      final IndexRange candidates = lipidDatabase.indexRange(mzTolRange);
+      for (int i = candidates.min(); i < candidates.maxExclusive(); i++) {
+        if (isCanceled()) {
+          return;
         }
+        if (!Objects.equals(row.getRepresentativePolarity(),
+            lipidDatabase.getIonizationType(i).getPolarity())) {
+          continue;
+        }
+
+        LipidIon lipidIon = lipidDatabase.getLipidIon(i);
+        LipidAnnotationUtils.findPossibleLipid(lipidIon, row, parameters, mzTolerance,
+            mzToleranceMS2, searchForMSMSFragments, minMsMsScore, keepUnconfirmedAnnotations,
+            lipidIon.lipidAnnotation().getLipidClass().getCoreClass(), fragmentScans);
       }
       finishedSteps++;
     });
@@ -29,10 +29,10 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.IonizationType;
 import io.github.mzmine.datamodel.PolarityType;
-import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.ILipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.IndexedFragmentScan;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.MatchedLipid;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.MatchedLipidStatus;
@@ -54,7 +54,6 @@ import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidAnnotationR
 import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidFactory;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
-import io.github.mzmine.util.scans.FragmentScanSelection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -64,6 +63,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
@@ -80,19 +80,36 @@ public class LipidAnnotationUtils {
     List<LipidIon> lipidDatabase = new ArrayList<>();
 
     // add selected lipids
-    buildLipidCombinations(lipidDatabase, selectedLipids, minChainLength, maxChainLength,
-        minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains, ionizationTypesToIgnore,
-        polarityTypes);
+    buildLipidCombinations(selectedLipids, minChainLength, maxChainLength, minDoubleBonds,
+        maxDoubleBonds, onlySearchForEvenChains, ionizationTypesToIgnore, polarityTypes,
+        (_, _, _, lipid, ionization, mz) -> lipidDatabase.add(
+            new LipidIon(lipid, ionization, mz)));
 
     return lipidDatabase;
   }
 
-  private static void buildLipidCombinations(List<LipidIon> lipidDatabase,
-      ILipidClass[] lipidClasses, int minChainLength, int maxChainLength, int minDoubleBonds,
-      int maxDoubleBonds, boolean onlySearchForEvenChains, IonizationType[] ionizationTypesToIgnore,
-      Set<PolarityType> polarityTypes) {
+  /**
+   * Receives each lipid ion of all combinations of chain lengths and double bonds
+   */
+  @FunctionalInterface
+  public interface LipidIonConsumer {
+
+    /**
+     * @param lipidClassIndex  index in the selected lipid classes
+     * @param chainLength      total chain length
+     * @param chainDoubleBonds total number of double bonds in chains
+     */
+    void accept(int lipidClassIndex, int chainLength, int chainDoubleBonds,
+        ILipidAnnotation lipid, IonizationType ionization, double mz);
+  }
+
+  public static void buildLipidCombinations(ILipidClass[] lipidClasses, int minChainLength,
+      int maxChainLength, int minDoubleBonds, int maxDoubleBonds, boolean onlySearchForEvenChains,
+      IonizationType[] ionizationTypesToIgnore, Set<PolarityType> polarityTypes,
+      LipidIonConsumer consumer) {
     // Try all combinations of fatty acid lengths and double bonds
-    for (ILipidClass lipidClass : lipidClasses) {
+    for (int classIndex = 0; classIndex < lipidClasses.length; classIndex++) {
+      final ILipidClass lipidClass = lipidClasses[classIndex];
 
       // TODO starting point to extend for better oxidized lipid support
       int numberOfAdditionalOxygens = 0;
@@ -134,7 +151,8 @@ public class LipidAnnotationUtils {
                 double lipidIonMass =
                     MolecularFormulaManipulator.getMass(lipid.getMolecularFormula(),
                         AtomContainerManipulator.MonoIsotopic) + ionization.getAddedMass();
-                lipidDatabase.add(new LipidIon(lipid, ionization, lipidIonMass));
+                consumer.accept(classIndex, chainLength, chainDoubleBonds, lipid, ionization,
+                    lipidIonMass);
               }
             }
           }
@@ -143,10 +161,20 @@ public class LipidAnnotationUtils {
     }
   }
 
+  /**
+   * Builds the species level lipid of one lipid class, chain length and number of double bonds in
+   * the same way as {@link #buildLipidDatabase}
+   */
+  public static ILipidAnnotation buildSpeciesLevelLipid(ILipidClass lipidClass, int chainLength,
+      int chainDoubleBonds) {
+    return LIPID_FACTORY.buildSpeciesLevelLipid(lipidClass, chainLength, chainDoubleBonds, 0);
+  }
+
   public static void findPossibleLipid(LipidIon lipidIon, FeatureListRow row,
       ParameterSet parameters, MZTolerance mzTolerance, MZTolerance mzToleranceMS2,
       boolean searchForMSMSFragments, double minMsMsScore, boolean keepUnconfirmedAnnotations,
-      LipidCategories lipidCategory, final FragmentScanSelection scanMergeSelect) {
+      LipidCategories lipidCategory,
+      final Supplier<List<IndexedFragmentScan>> fragmentScans) {
     Set<MatchedLipid> possibleRowAnnotations = new HashSet<>();
 
     if (Objects.equals(row.getRepresentativePolarity(), lipidIon.ionizationType().getPolarity())) {
@@ -160,7 +188,7 @@ public class LipidAnnotationUtils {
           possibleRowAnnotations.addAll(
               searchMsmsFragments(row, lipidIon.ionizationType(), lipidIon.lipidAnnotation(),
                   parameters, mzToleranceMS2, minMsMsScore, keepUnconfirmedAnnotations,
-                  lipidCategory, scanMergeSelect));
+                  lipidCategory, fragmentScans));
         } else {
 
           // make MS1 annotation
@@ -178,23 +206,25 @@ public class LipidAnnotationUtils {
 
   /**
    * This method searches for MS/MS fragments. A mass list for MS2 scans will be used if present.
+   *
+   * @param fragmentScans fragment scans of the row, shared by all candidate lipids of the row
    */
   private static Set<MatchedLipid> searchMsmsFragments(FeatureListRow row,
       IonizationType ionization, ILipidAnnotation lipid, ParameterSet parameters,
       MZTolerance mzToleranceMS2, double minMsMsScore, boolean keepUnconfirmedAnnotations,
-      LipidCategories lipidCategory, final FragmentScanSelection scanMergeSelect) {
+      LipidCategories lipidCategory,
+      final Supplier<List<IndexedFragmentScan>> fragmentScans) {
     Set<MatchedLipid> matchedLipids = new HashSet<>();
     LipidFragmentationRule[] rules = lipid.getLipidClass().getFragmentationRules();
-    List<Scan> msmsScans = scanMergeSelect.getAllFragmentSpectra(row);
+    List<IndexedFragmentScan> msmsScans = fragmentScans.get();
 
     if (!msmsScans.isEmpty() || keepUnconfirmedAnnotations) {
-      for (Scan msmsScan : msmsScans) {
+      for (IndexedFragmentScan msmsScan : msmsScans) {
         Set<MatchedLipid> matchedLipidsInScan = new HashSet<>();
-        if (msmsScan.getMassList() == null) {
+        if (!msmsScan.hasMassList()) {
           return new HashSet<>();
         }
-        DataPoint[] dataPoints = null;
-        dataPoints = msmsScan.getMassList().getDataPoints();
+        DataPoint[] dataPoints = msmsScan.getDataPoints();
         Set<LipidFragment> annotatedFragments = new HashSet<>();
         if (rules != null && rules.length > 0) {
           ILipidFragmentFactory lipidFragmentFactory = new LipidFragmentFactory(mzToleranceMS2,
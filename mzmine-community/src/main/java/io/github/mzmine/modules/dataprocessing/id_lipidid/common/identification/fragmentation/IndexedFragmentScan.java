@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Mass list of a fragment scan copied to primitive arrays once. It is shared by all candidate
+ * lipids of a row, so the mass list is not read again for each lipid and fragmentation rule.
+ */
+public final class IndexedFragmentScan {
+
+  private final @NotNull Scan scan;
+  private final boolean hasMassList;
+  private final double[] mzs;
+  private final double[] intensities;
+  private @Nullable DataPoint[] dataPoints;
+
+  public IndexedFragmentScan(@NotNull Scan scan) {
+    this.scan = scan;
+    final MassList massList = scan.getMassList();
+    hasMassList = massList != null;
+    final int n = hasMassList ? massList.getNumberOfDataPoints() : 0;
+    mzs = new double[n];
+    intensities = new double[n];
+    if (hasMassList) {
+      massList.getMzValues(mzs);
+      massList.getIntensityValues(intensities);
+    }
+  }
+
+  public static @NotNull List<IndexedFragmentScan> of(@NotNull List<Scan> scans) {
+    return scans.stream().map(IndexedFragmentScan::new).toList();
+  }
+
+  public @NotNull Scan getScan() {
+    return scan;
+  }
+
+  public boolean hasMassList() {
+    return hasMassList;
+  }
+
+  /**
+   * @return the data points of the mass list, created on first access
+   */
+  public synchronized @NotNull DataPoint[] getDataPoints() {
+    if (dataPoints == null) {
+      final MassList massList = scan.getMassList();
+      dataPoints = massList != null ? massList.getDataPoints() : new DataPoint[0];
+    }
+    return dataPoints;
+  }
+
+  public int getNumberOfDataPoints() {
+    return mzs.length;
+  }
+
+  public double getMzValue(int index) {
+    return mzs[index];
+  }
+
+  public double getIntensityValue(int index) {
+    return intensities[index];
+  }
+
+  /**
+   * Finds the most intense signal whose tolerance range around its m/z contains the exact m/z.
+   *
+   * @return the index of the signal or -1 if no signal matches
+   */
+  public int findBestSignal(double mzExact, @NotNull MZTolerance tolerance) {
+    // first signal >= lower edge
+    final double lowerEdge = mzExact - tolerance.getMzToleranceForMass(mzExact);
+    int low = 0;
+    int high = mzs.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (mzs[mid] < lowerEdge) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    int best = -1;
+    double maxIntensity = 0.0;
+    for (int i = low; i < mzs.length; i++) {
+      final double mz = mzs[i];
+      final double mzTolerance = tolerance.getMzToleranceForMass(mz);
+      // the lower edge grows with m/z, no later signal can match
+      if (mz - mzTolerance > mzExact) {
+        break;
+      }
+      if (mzExact <= mz + mzTolerance && intensities[i] > maxIntensity) {
+        maxIntensity = intensities[i];
+        best = i;
+      }
+    }
+    return best;
+  }
+}
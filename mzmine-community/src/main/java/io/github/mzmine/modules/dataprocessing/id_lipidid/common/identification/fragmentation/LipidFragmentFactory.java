@@ -25,9 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation;
 
-import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.IonizationType;
-import io.github.mzmine.datamodel.MassList;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
@@ -41,7 +39,6 @@ import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidcha
 import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.FormulaUtils;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import java.util.ArrayList;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
@@ -61,15 +58,27 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
   protected IonizationType ionizationType;
   protected LipidFragmentationRule[] rules;
   protected Scan msMsScan;
+  protected final IndexedFragmentScan fragmentScan;
 
   public LipidFragmentFactory(MZTolerance mzToleranceMS2, ILipidAnnotation lipidAnnotation,
       IonizationType ionizationType, LipidFragmentationRule[] rules, Scan msMsScan,
       LipidAnnotationChainParameters chainParameters) {
+    this(mzToleranceMS2, lipidAnnotation, ionizationType, rules,
+        new IndexedFragmentScan(msMsScan), chainParameters);
+  }
+
+  /**
+   * @param fragmentScan mass list of the fragment scan, may be shared by all candidate lipids
+   */
+  public LipidFragmentFactory(MZTolerance mzToleranceMS2, ILipidAnnotation lipidAnnotation,
+      IonizationType ionizationType, LipidFragmentationRule[] rules,
+      IndexedFragmentScan fragmentScan, LipidAnnotationChainParameters chainParameters) {
     this.mzToleranceMS2 = mzToleranceMS2;
     this.lipidAnnotation = lipidAnnotation;
     this.ionizationType = ionizationType;
     this.rules = rules;
-    this.msMsScan = msMsScan;
+    this.fragmentScan = fragmentScan;
+    this.msMsScan = fragmentScan.getScan();
     this.minChainLength = chainParameters.getParameter(
         LipidAnnotationChainParameters.minChainLength).getValue();
     this.maxChainLength = chainParameters.getParameter(
@@ -443,33 +452,12 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
 
   @NotNull
   protected BestDataPoint getBestDataPoint(Double mzExact) {
-    boolean fragmentMatched = false;
-    MassList massList = msMsScan.getMassList();
-    if (massList != null) {
-      Range<Double> toleranceRange = mzToleranceMS2.getToleranceRange(mzExact);
-      int index = massList.binarySearch(toleranceRange.lowerEndpoint(), DefaultTo.GREATER_EQUALS);
-      if (index < 0) {
-        return new BestDataPoint(fragmentMatched, 0.0, 0.0);
-      }
-      int numberOfDataPoints = massList.getNumberOfDataPoints();
-      double maxIntensity = 0.0;
-      double bestMzValue = 0.0;
-      for (int i = index; i < numberOfDataPoints; i++) {
-        double intensity = massList.getIntensityValue(i);
-        double mzValue = massList.getMzValue(i);
-        Range<Double> mzTolRangeMSMS = mzToleranceMS2.getToleranceRange(mzValue);
-        if (mzTolRangeMSMS.contains(mzExact) && intensity > maxIntensity) {
-          maxIntensity = intensity;
-          bestMzValue = mzValue;
-          fragmentMatched = true;
-        }
-        if (mzTolRangeMSMS.upperEndpoint() < mzValue) {
-          break;
-        }
-      }
-      return new BestDataPoint(fragmentMatched, bestMzValue, maxIntensity);
+    final int index = fragmentScan.findBestSignal(mzExact, mzToleranceMS2);
+    if (index < 0) {
+      return new BestDataPoint(false, 0.0, 0.0);
     }
-    return new BestDataPoint(fragmentMatched, 0.0, 0.0);
+    return new BestDataPoint(true, fragmentScan.getMzValue(index),
+        fragmentScan.getIntensityValue(index));
   }
 
   protected record BestDataPoint(boolean fragmentMatched, double mzValue, double intensity) {
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.utils;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.IonizationType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationUtils;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidAnnotation;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.SemverVersionReader;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lipid ion database sorted by m/z. Each entry only stores the m/z, the lipid class index, the
+ * total chain length and double bonds and the ionization type in primitive columns. The
+ * {@link LipidIon} with its species level annotation is only built for entries that match a row.
+ * <p>
+ * Compiled databases are cached in files named by a hash of the lipid class definitions and the
+ * chain parameters. The cache file is memory mapped read-only, so the page cache is shared by
+ * concurrent mzmine instances and no rebuild is needed in following batches. Only the
+ * {@link #MAX_CACHED_DATABASES} most recently used cache files are kept.
+ * <p>
+ * Layout: magic, version, number of entries, padding, then the m/z column as doubles followed by
+ * the class, chain length, double bond and ionization columns as ints, in native byte order.
+ */
+public final class CompiledLipidDatabase {
+
+  private static final Logger logger = Logger.getLogger(CompiledLipidDatabase.class.getName());
+
+  private static final int MAGIC = 0x4D5A4C44;
+  /**
+   * Increase on any change to the layout or the way lipid ions are built
+   */
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".mzlipiddb";
+  /**
+   * Number of cache files that are kept, the least recently used files are deleted
+   */
+  public static final int MAX_CACHED_DATABASES = 10;
+  private static final int HEADER_BYTES = 4 * Integer.BYTES;
+  private static final IonizationType[] IONIZATION_TYPES = IonizationType.values();
+
+  private final ILipidClass[] lipidClasses;
+  private final int size;
+  private final MemorySegment mzs;
+  private final MemorySegment classes;
+  private final MemorySegment chainLengths;
+  private final MemorySegment chainDoubleBonds;
+  private final MemorySegment ionizations;
+  /**
+   * Lipid ions are built on first access
+   */
+  private final AtomicReferenceArray<LipidIon> lipidIons;
+
+  private CompiledLipidDatabase(ILipidClass[] lipidClasses, MemorySegment segment) {
+    this.lipidClasses = lipidClasses;
+    size = segment.get(ValueLayout.JAVA_INT, 8);
+    final long intBytes = (long) size * Integer.BYTES;
+    long offset = HEADER_BYTES;
+    mzs = segment.asSlice(offset, (long) size * Double.BYTES);
+    offset += mzs.byteSize();
+    classes = segment.asSlice(offset, intBytes);
+    offset += intBytes;
+    chainLengths = segment.asSlice(offset, intBytes);
+    offset += intBytes;
+    chainDoubleBonds = segment.asSlice(offset, intBytes);
+    offset += intBytes;
+    ionizations = segment.asSlice(offset, intBytes);
+    lipidIons = new AtomicReferenceArray<>(size);
+  }
+
+  private static long byteSize(int size) {
+    return HEADER_BYTES + (long) size * (Double.BYTES + 4 * Integer.BYTES);
+  }
+
+  /**
+   * Loads the compiled database from the default cache directory or compiles and caches it
+   */
+  public static @NotNull CompiledLipidDatabase loadOrCompile(@NotNull ILipidClass[] lipidClasses,
+      int minChainLength, int maxChainLength, int minDoubleBonds, int maxDoubleBonds,
+      boolean onlySearchForEvenChains, @Nullable IonizationType[] ionizationTypesToIgnore,
+      @NotNull Set<PolarityType> polarityTypes) {
+    return loadOrCompile(FileAndPathUtil.resolveInMzmineDir("lipid_cache"), lipidClasses,
+        minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
+        ionizationTypesToIgnore, polarityTypes);
+  }
+
+  public static @NotNull CompiledLipidDatabase loadOrCompile(@NotNull File cacheDir,
+      @NotNull ILipidClass[] lipidClasses, int minChainLength, int maxChainLength,
+      int minDoubleBonds, int maxDoubleBonds, boolean onlySearchForEvenChains,
+      @Nullable IonizationType[] ionizationTypesToIgnore,
+      @NotNull Set<PolarityType> polarityTypes) {
+    final File cacheFile = new File(cacheDir,
+        createKey(lipidClasses, minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds,
+            onlySearchForEvenChains, ionizationTypesToIgnore, polarityTypes) + SUFFIX);
+
+    final CompiledLipidDatabase cached = load(cacheFile, lipidClasses);
+    if (cached != null) {
+      // modification time marks the last use
+      cacheFile.setLastModified(System.currentTimeMillis());
+      return cached;
+    }
+
+    final CompiledLipidDatabase database = compile(lipidClasses, minChainLength, maxChainLength,
+        minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains, ionizationTypesToIgnore,
+        polarityTypes);
+    if (database.write(cacheFile)) {
+      deleteLeastRecentlyUsed(cacheDir, cacheFile);
+    }
+    return database;
+  }
+
+  /**
+   * Keeps the {@link #MAX_CACHED_DATABASES} cache files with the latest modification time
+   */
+  private static void deleteLeastRecentlyUsed(@NotNull File cacheDir, @NotNull File current) {
+    final File[] files = cacheDir.listFiles(
+        file -> file.getName().endsWith(SUFFIX) && !file.equals(current));
+    if (files == null || files.length < MAX_CACHED_DATABASES) {
+      return;
+    }
+    // newest first, the current file is always kept
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+    for (int i = MAX_CACHED_DATABASES - 1; i < files.length; i++) {
+      try {
+        Files.deleteIfExists(files[i].toPath());
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Cannot delete lipid database cache " + files[i], e);
+      }
+    }
+  }
+
+  /**
+   * Builds all lipid ions of the selected classes and chain parameters in memory
+   */
+  public static @NotNull CompiledLipidDatabase compile(@NotNull ILipidClass[] lipidClasses,
+      int minChainLength, int maxChainLength, int minDoubleBonds, int maxDoubleBonds,
+      boolean onlySearchForEvenChains, @Nullable IonizationType[] ionizationTypesToIgnore,
+      @NotNull Set<PolarityType> polarityTypes) {
+    final DoubleArrayList mzs = new DoubleArrayList();
+    final IntArrayList classes = new IntArrayList();
+    final IntArrayList chainLengths = new IntArrayList();
+    final IntArrayList doubleBonds = new IntArrayList();
+    final IntArrayList ionizations = new IntArrayList();
+    LipidAnnotationUtils.buildLipidCombinations(lipidClasses, minChainLength, maxChainLength,
+        minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains, ionizationTypesToIgnore,
+        polarityTypes, (classIndex, chainLength, chainDoubleBonds, _, ionization, mz) -> {
+          mzs.add(mz);
+          classes.add(classIndex);
+          chainLengths.add(chainLength);
+          doubleBonds.add(chainDoubleBonds);
+          ionizations.add(ionization.ordinal());
+        });
+
+    // sort by m/z, ties by insertion order
+    final int size = mzs.size();
+    final int[] order = new int[size];
+    Arrays.setAll(order, i -> i);
+    IntArrays.stableSort(order, (a, b) -> Double.compare(mzs.getDouble(a), mzs.getDouble(b)));
+
+    final MemorySegment segment = MemorySegment.ofArray(new long[(int) (byteSize(size) / 8)]);
+    segment.set(ValueLayout.JAVA_INT, 0, MAGIC);
+    segment.set(ValueLayout.JAVA_INT, 4, VERSION);
+    segment.set(ValueLayout.JAVA_INT, 8, size);
+    final CompiledLipidDatabase database = new CompiledLipidDatabase(lipidClasses, segment);
+    for (int i = 0; i < size; i++) {
+      final int source = order[i];
+      database.mzs.setAtIndex(ValueLayout.JAVA_DOUBLE, i, mzs.getDouble(source));
+      database.classes.setAtIndex(ValueLayout.JAVA_INT, i, classes.getInt(source));
+      database.chainLengths.setAtIndex(ValueLayout.JAVA_INT, i, chainLengths.getInt(source));
+      database.chainDoubleBonds.setAtIndex(ValueLayout.JAVA_INT, i, doubleBonds.getInt(source));
+      database.ionizations.setAtIndex(ValueLayout.JAVA_INT, i, ionizations.getInt(source));
+    }
+    return database;
+  }
+
+  /**
+   * Hash of all properties that define the lipid ions: the lipid class definitions, chain
+   * parameters, ionization types and the mzmine version
+   */
+  static @NotNull String createKey(@NotNull ILipidClass[] lipidClasses, int minChainLength,
+      int maxChainLength, int minDoubleBonds, int maxDoubleBonds, boolean onlySearchForEvenChains,
+      @Nullable IonizationType[] ionizationTypesToIgnore,
+      @NotNull Set<PolarityType> polarityTypes) {
+    final StringBuilder b = new StringBuilder();
+    b.append(VERSION).append('|').append(SemverVersionReader.getMZmineVersion()).append('|')
+        .append(minChainLength).append('|').append(maxChainLength).append('|')
+        .append(minDoubleBonds).append('|').append(maxDoubleBonds).append('|')
+        .append(onlySearchForEvenChains).append('|');
+    if (ionizationTypesToIgnore != null) {
+      Arrays.stream(ionizationTypesToIgnore).map(Enum::name).sorted()
+          .forEach(name -> b.append(name).append(','));
+    }
+    b.append('|');
+    polarityTypes.stream().map(Enum::name).sorted().forEach(name -> b.append(name).append(','));
+    for (ILipidClass lipidClass : lipidClasses) {
+      b.append('\n').append(lipidClass.getName()).append('|').append(lipidClass.getAbbr())
+          .append('|').append(lipidClass.getBackBoneFormula()).append('|')
+          .append(Arrays.toString(lipidClass.getChainTypes()));
+      for (LipidFragmentationRule rule : lipidClass.getFragmentationRules()) {
+        b.append('|').append(rule.getIonizationType());
+      }
+    }
+
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of()
+          .formatHex(digest.digest(b.toString().getBytes(StandardCharsets.UTF_8)), 0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the cached database or null if the file does not exist or is invalid
+   */
+  private static @Nullable CompiledLipidDatabase load(@NotNull File cacheFile,
+      @NotNull ILipidClass[] lipidClasses) {
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+      // auto arena keeps the mapping alive as long as the database is referenced
+      final MemorySegment segment = channel.map(MapMode.READ_ONLY, 0, channel.size(),
+          Arena.ofAuto());
+      if (segment.byteSize() < HEADER_BYTES || segment.get(ValueLayout.JAVA_INT, 0) != MAGIC
+          || segment.get(ValueLayout.JAVA_INT, 4) != VERSION
+          || byteSize(segment.get(ValueLayout.JAVA_INT, 8)) != segment.byteSize()) {
+        throw new IOException("Not a lipid database cache of this version");
+      }
+      final CompiledLipidDatabase database = new CompiledLipidDatabase(lipidClasses, segment);
+      logger.fine(() -> "Loaded %d lipid ions from cache %s".formatted(database.size(),
+          cacheFile));
+      return database;
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING,
+          "Cannot read lipid database cache %s, the database will be built".formatted(cacheFile),
+          e);
+      cacheFile.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Writes to a temporary file first and moves it to the cache file, so that concurrent tasks
+   * never see a partial file.
+   *
+   * @return true if the cache was written
+   */
+  boolean write(@NotNull File cacheFile) {
+    try {
+      final File cacheDir = cacheFile.getParentFile();
+      FileAndPathUtil.createDirectory(cacheDir);
+      final Path tmp = Files.createTempFile(cacheDir.toPath(), "lipids", ".tmp");
+      try {
+        try (Arena arena = Arena.ofConfined(); FileChannel channel = FileChannel.open(tmp,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+          final MemorySegment segment = channel.map(MapMode.READ_WRITE, 0, byteSize(size),
+              arena);
+          segment.set(ValueLayout.JAVA_INT, 0, MAGIC);
+          segment.set(ValueLayout.JAVA_INT, 4, VERSION);
+          segment.set(ValueLayout.JAVA_INT, 8, size);
+          long offset = HEADER_BYTES;
+          for (MemorySegment column : new MemorySegment[]{mzs, classes, chainLengths,
+              chainDoubleBonds, ionizations}) {
+            MemorySegment.copy(column, 0, segment, offset, column.byteSize());
+            offset += column.byteSize();
+          }
+          segment.force();
+        }
+        Files.move(tmp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+      logger.fine(() -> "Wrote lipid database cache " + cacheFile);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING, "Cannot write lipid database cache " + cacheFile, e);
+      return false;
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public double getMz(int index) {
+    return mzs.getAtIndex(ValueLayout.JAVA_DOUBLE, index);
+  }
+
+  /**
+   * @return the indexes of all entries with m/z within the range, both bounds included
+   */
+  public @NotNull IndexRange indexRange(@NotNull Range<Double> mzRange) {
+    return BinarySearch.indexRange(mzRange, size, this::getMz);
+  }
+
+  public @NotNull IonizationType getIonizationType(int index) {
+    return IONIZATION_TYPES[ionizations.getAtIndex(ValueLayout.JAVA_INT, index)];
+  }
+
+  /**
+   * @return the lipid ion of the entry, built on first access
+   */
+  public @NotNull LipidIon getLipidIon(int index) {
+    final LipidIon existing = lipidIons.get(index);
+    if (existing != null) {
+      return existing;
+    }
+    final ILipidClass lipidClass = lipidClasses[classes.getAtIndex(ValueLayout.JAVA_INT, index)];
+    final ILipidAnnotation lipid = LipidAnnotationUtils.buildSpeciesLevelLipid(lipidClass,
+        chainLengths.getAtIndex(ValueLayout.JAVA_INT, index),
+        chainDoubleBonds.getAtIndex(ValueLayout.JAVA_INT, index));
+    final LipidIon ion = new LipidIon(lipid, getIonizationType(index), getMz(index));
+    // keep the first instance if another thread was faster
+    return lipidIons.compareAndSet(index, null, ion) ? ion : lipidIons.get(index);
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
+
+import io.github.mzmine.datamodel.features.compoundannotations.CompoundDBAnnotation;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * All ions of a local CSV database sorted by m/z in primitive arrays. Each ion points to its
+ * database line and to its position in the list of annotations that are built for this line, so
+ * annotation objects are only created again for lines that match a row.
+ * <p>
+ * The last compiled index is kept in a soft reference and reused by subsequent searches with the
+ * same database file and the same import and ion library parameters, e.g., in batch mode.
+ */
+final class LocalCSVDatabaseIndex {
+
+  private static final Logger logger = Logger.getLogger(LocalCSVDatabaseIndex.class.getName());
+  private static final int LINES_PER_CHUNK = 4096;
+
+  private static final Object cacheLock = new Object();
+  private static @Nullable Key cachedKey;
+  private static @NotNull SoftReference<LocalCSVDatabaseIndex> cachedIndex = new SoftReference<>(
+      null);
+
+  /**
+   * all lines of the database including the header
+   */
+  private final @NotNull List<String[]> lines;
+  private final double[] mzs;
+  private final int[] lineIndices;
+  /**
+   * index of the annotation in the list of annotations built for the line
+   */
+  private final int[] annotationIndices;
+  /**
+   * NaN if not defined
+   */
+  private final float[] rts;
+  private final float[] mobilities;
+
+  private LocalCSVDatabaseIndex(@NotNull List<String[]> lines, double[] mzs, int[] lineIndices,
+      int[] annotationIndices, float[] rts, float[] mobilities) {
+    this.lines = lines;
+    this.mzs = mzs;
+    this.lineIndices = lineIndices;
+    this.annotationIndices = annotationIndices;
+    this.rts = rts;
+    this.mobilities = mobilities;
+  }
+
+  /**
+   * @return the cached index if it was compiled with the same key and was not collected yet
+   */
+  static @Nullable LocalCSVDatabaseIndex getCached(@NotNull Key key) {
+    synchronized (cacheLock) {
+      return key.equals(cachedKey) ? cachedIndex.get() : null;
+    }
+  }
+
+  static void cache(@NotNull Key key, @NotNull LocalCSVDatabaseIndex index) {
+    synchronized (cacheLock) {
+      cachedKey = key;
+      cachedIndex = new SoftReference<>(index);
+    }
+  }
+
+  /**
+   * Builds the annotations of all lines in parallel and sorts their ions by m/z. Lines that fail
+   * to parse and annotations without precursor m/z are skipped.
+   *
+   * @param lines             all lines of the database, the first line is the header
+   * @param annotationsOfLine creates all annotations of a line, needs to be deterministic, as it is
+   *                          called again for matching lines
+   */
+  static @NotNull LocalCSVDatabaseIndex compile(@NotNull List<String[]> lines,
+      @NotNull IntFunction<List<CompoundDBAnnotation>> annotationsOfLine,
+      @NotNull BooleanSupplier isCanceled) {
+    final int numChunks = Math.max(0, (lines.size() - 2) / LINES_PER_CHUNK + 1);
+    final List<CompletableFuture<Chunk>> futures = new ArrayList<>(numChunks);
+    for (int c = 0; c < numChunks; c++) {
+      // skip header
+      final int start = 1 + c * LINES_PER_CHUNK;
+      final int end = Math.min(lines.size(), start + LINES_PER_CHUNK);
+      futures.add(CompletableFuture.supplyAsync(
+          () -> isCanceled.getAsBoolean() ? new Chunk()
+              : compileChunk(start, end, annotationsOfLine)));
+    }
+
+    // concatenate in line order
+    final Chunk all = new Chunk();
+    for (CompletableFuture<Chunk> future : futures) {
+      all.addAll(future.join());
+    }
+
+    final int size = all.mzs.size();
+    final double[] unsortedMzs = all.mzs.toDoubleArray();
+    final int[] order = new int[size];
+    Arrays.setAll(order, i -> i);
+    // ties keep the line order
+    IntArrays.parallelQuickSort(order, (a, b) -> {
+      final int compare = Double.compare(unsortedMzs[a], unsortedMzs[b]);
+      return compare != 0 ? compare : Integer.compare(a, b);
+    });
+
+    final double[] mzs = new double[size];
+    final int[] lineIndices = new int[size];
+    final int[] annotationIndices = new int[size];
+    final float[] rts = new float[size];
+    final float[] mobilities = new float[size];
+    for (int i = 0; i < size; i++) {
+      final int source = order[i];
+      mzs[i] = unsortedMzs[source];
+      lineIndices[i] = all.lineIndices.getInt(source);
+      annotationIndices[i] = all.annotationIndices.getInt(source);
+      rts[i] = all.rts.getFloat(source);
+      mobilities[i] = all.mobilities.getFloat(source);
+    }
+    logger.fine(() -> "Compiled %d ions of %d database entries".formatted(size, lines.size() - 1));
+    return new LocalCSVDatabaseIndex(lines, mzs, lineIndices, annotationIndices, rts, mobilities);
+  }
+
+  private static Chunk compileChunk(int start, int end,
+      IntFunction<List<CompoundDBAnnotation>> annotationsOfLine) {
+    final Chunk chunk = new Chunk();
+    for (int line = start; line < end; line++) {
+      try {
+        final List<CompoundDBAnnotation> annotations = annotationsOfLine.apply(line);
+        for (int a = 0; a < annotations.size(); a++) {
+          final CompoundDBAnnotation annotation = annotations.get(a);
+          final Double mz = annotation.getPrecursorMZ();
+          if (mz == null) {
+            continue;
+          }
+          final Float rt = annotation.getRT();
+          final Float mobility = annotation.getMobility();
+          chunk.mzs.add(mz.doubleValue());
+          chunk.lineIndices.add(line);
+          chunk.annotationIndices.add(a);
+          chunk.rts.add(rt == null ? Float.NaN : rt);
+          chunk.mobilities.add(mobility == null ? Float.NaN : mobility);
+        }
+      } catch (Exception e) {
+        final int lineIndex = line;
+        logger.log(Level.FINE, e, () -> "Exception while processing csv line " + lineIndex);
+      }
+    }
+    return chunk;
+  }
+
+  /**
+   * @return all lines of the database including the header
+   */
+  @NotNull List<String[]> getLines() {
+    return lines;
+  }
+
+  int size() {
+    return mzs.length;
+  }
+
+  /**
+   * @return the indexes of all ions with m/z within the range, both bounds included
+   */
+  @NotNull IndexRange indexRange(double minMz, double maxMz) {
+    return BinarySearch.indexRange(mzs, minMz, maxMz);
+  }
+
+  double getMz(int ion) {
+    return mzs[ion];
+  }
+
+  int getLineIndex(int ion) {
+    return lineIndices[ion];
+  }
+
+  int getAnnotationIndex(int ion) {
+    return annotationIndices[ion];
+  }
+
+  /**
+   * @return the retention time or NaN
+   */
+  float getRT(int ion) {
+    return rts[ion];
+  }
+
+  /**
+   * @return the mobility or NaN
+   */
+  float getMobility(int ion) {
+    return mobilities[ion];
+  }
+
+  /**
+   * Identifies a compiled index. The file modification time and size invalidate the index if the
+   * database changed, all other values define how the annotations of a line are built.
+   */
+  record Key(@NotNull String path, long lastModified, long length, @NotNull String separator,
+             @NotNull String columns, @NotNull String extraColumns, @NotNull String adducts,
+             @NotNull String mainSignalTolerance) {
+
+    static @NotNull Key of(@NotNull File file, @NotNull String separator, @NotNull String columns,
+        @NotNull String extraColumns, @NotNull String adducts,
+        @NotNull String mainSignalTolerance) {
+      return new Key(file.getAbsolutePath(), file.lastModified(), file.length(), separator,
+          columns, extraColumns, adducts, mainSignalTolerance);
+    }
+  }
+
+  private static final class Chunk {
+
+    private final DoubleArrayList mzs = new DoubleArrayList();
+    private final IntArrayList lineIndices = new IntArrayList();
+    private final IntArrayList annotationIndices = new IntArrayList();
+    private final FloatArrayList rts = new FloatArrayList();
+    private final FloatArrayList mobilities = new FloatArrayList();
+
+    private void addAll(Chunk other) {
+      mzs.addAll(other.mzs);
+      lineIndices.addAll(other.lineIndices);
+      annotationIndices.addAll(other.annotationIndices);
+      rts.addAll(other.rts);
+      mobilities.addAll(other.mobilities);
+    }
+  }
+}
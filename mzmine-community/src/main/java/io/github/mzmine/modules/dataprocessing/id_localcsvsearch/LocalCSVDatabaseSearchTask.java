@@ -25,7 +25,6 @@
 
 package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
 
-import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
@@ -47,21 +46,24 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.CSVParsingUtils;
 import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.FeatureListUtils;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.File;
 import java.nio.file.NoSuchFileException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import javafx.collections.transformation.SortedList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -69,6 +71,8 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(LocalCSVDatabaseSearchTask.class.getName());
 
+  private static final int ROWS_PER_CHUNK = 512;
+
   private final DatabaseNameType databaseType = DataTypes.get(DatabaseNameType.class);
 
   // vars
@@ -89,14 +93,13 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
   private final IonLibraryParameterSet ionLibraryParameterSet;
   private final Boolean filterSamples;
   private final String sampleHeader;
-  private final List<RawDataFile> allRawDataFiles;
   private final ExtraColumnHandler extraColumnHandler;
   private final boolean calcMainSignal;
   private final ChargeFilterType chargeFilter;
   private IonNetworkLibrary ionNetworkLibrary;
 
-  private List<String[]> databaseValues;
-  private int finishedLines = 0;
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
+  private int totalRows;
   private int sampleColIndex = -1;
   private boolean importOtherColumns = true;
 
@@ -127,9 +130,6 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
         LocalCSVDatabaseSearchParameters.ionLibrary).getEmbeddedParameters() : null;
     filterSamples = parameters.getValue(LocalCSVDatabaseSearchParameters.filterSamples);
 
-    // all raw data files for a name check if selected
-    allRawDataFiles = Arrays.stream(featureLists).map(FeatureList::getRawDataFiles)
-        .flatMap(Collection::stream).distinct().toList();
     sampleHeader = parameters.getParameter(LocalCSVDatabaseSearchParameters.filterSamples)
         .getEmbeddedParameter().getValue();
     chargeFilter = parameters.getValue(LocalCSVDatabaseSearchParameters.chargeFilter);
@@ -160,10 +160,10 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    if (databaseValues == null) {
+    if (totalRows == 0) {
       return 0;
     }
-    return ((double) finishedLines) / databaseValues.size();
+    return finishedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -175,27 +175,22 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
-    try {
-      // read database contents in memory
-      databaseValues = CSVParsingUtils.readData(dataBaseFile, fieldSeparator);
-    } catch (NoSuchFileException e) {
-      error("File %s does not exist.".formatted(
-          Objects.requireNonNullElse(dataBaseFile, "File does not exist.")));
-      return;
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "Could not read file " + dataBaseFile, e);
-      error(e.getMessage(), e);
-      return;
-    }
-
+    final List<String[]> databaseValues;
+    final LocalCSVDatabaseIndex index;
+    final List<ImportType<?>> lineIds;
     try {
       ionNetworkLibrary =
           ionLibraryParameterSet != null ? new IonNetworkLibrary(ionLibraryParameterSet,
               mzTolerance) : null;
 
+      final LocalCSVDatabaseIndex.Key key = createIndexKey();
+      final LocalCSVDatabaseIndex cached = LocalCSVDatabaseIndex.getCached(key);
+      // read database contents in memory
+      databaseValues = cached != null ? cached.getLines()
+          : CSVParsingUtils.readData(dataBaseFile, fieldSeparator);
+
       final StringProperty error = new SimpleStringProperty();
-      final List<ImportType<?>> lineIds = CSVParsingUtils.findLineIds(importTypes,
-          databaseValues.getFirst(), error, true);
+      lineIds = CSVParsingUtils.findLineIds(importTypes, databaseValues.getFirst(), error, true);
       if (lineIds == null) {
         this.error(error.get());
         return;
@@ -210,34 +205,40 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
         }
       }
 
-      // extract rows and sort by mz for binary search
-      var mzSortedRows = Arrays.stream(featureLists)
-          .map(flist -> flist.getRows().sorted(FeatureListRowSorter.MZ_ASCENDING)).toList();
-
-      for (String[] currentLine : databaseValues) {
-        if (finishedLines == 0) {
-          finishedLines++;
-          continue; // skip header
-        }
+      if (cached != null) {
+        logger.fine(() -> "Reusing compiled database index of " + dataBaseFile);
+        index = cached;
+      } else {
+        final String[] header = databaseValues.getFirst();
+        index = LocalCSVDatabaseIndex.compile(databaseValues,
+            line -> getCompoundDBAnnotations(databaseValues.get(line), lineIds, header,
+                extraColumnHandler, ionNetworkLibrary), this::isCanceled);
         if (isCanceled()) {
           return;
         }
-        try {
-          // check already once for all raw data files
-          if (filterSamples && !matchSample(allRawDataFiles, currentLine[sampleColIndex])) {
-            // sample mismatch for this line
-            continue;
-          }
+        LocalCSVDatabaseIndex.cache(key, index);
+      }
+    } catch (NoSuchFileException e) {
+      error("File %s does not exist.".formatted(
+          Objects.requireNonNullElse(dataBaseFile, "File does not exist.")));
+      return;
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Could not read file " + dataBaseFile, e);
+      error(e.getMessage(), e);
+      return;
+    }
 
-          processOneLine(mzSortedRows, currentLine, lineIds, databaseValues.getFirst());
-        } catch (Exception e) {
-          logger.log(Level.FINE, "Exception while processing csv line " + finishedLines, e);
+    try {
+      totalRows = Arrays.stream(featureLists).mapToInt(FeatureList::getNumberOfRows).sum();
+      for (FeatureList flist : featureLists) {
+        if (isCanceled()) {
+          return;
         }
-        finishedLines++;
+        searchFeatureList(flist, index, lineIds);
       }
 
-      for (final SortedList<FeatureListRow> flist : mzSortedRows) {
-        for (final FeatureListRow row : flist) {
+      for (final FeatureList flist : featureLists) {
+        for (final FeatureListRow row : flist.getRows()) {
           var matches = row.getCompoundAnnotations().stream().sorted()
               .collect(Collectors.toCollection(ArrayList::new));
           if (matches.isEmpty()) {
@@ -269,74 +270,154 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   }
 
-  private void refineAnnotationsByIsotopes(FeatureList flist) {
-    DatabaseIsotopeRefinerScanBased.refineAnnotationsByIsotopesDifferentResolutions(flist.getRows(),
-        isotopeMzTolerance, minRelativeIsotopeIntensity, minIsotopeScore);
-  }
-
-  private boolean matchSample(final List<RawDataFile> raws, final String sample) {
-    return raws.stream()
-        .anyMatch(raw -> raw.getName().toLowerCase().contains(sample.toLowerCase()));
+  /**
+   * All parameters that change the annotations built from the database lines
+   */
+  private LocalCSVDatabaseIndex.Key createIndexKey() {
+    final String columns = importTypes.stream()
+        .map(t -> t.isSelected() + ":" + t.getCsvColumnName() + ":" + t.getDataType()
+            .getUniqueID()).collect(Collectors.joining(";"));
+    final String extraColumns =
+        extraColumnHandler.getSelectedOption() + ":" + extraColumnHandler.getExtraColumns()
+            .stream().sorted().collect(Collectors.joining(","));
+    final String adducts = ionNetworkLibrary == null ? ""
+        : ionNetworkLibrary.getAllAdducts().stream().map(IonType::toString)
+            .collect(Collectors.joining(";"));
+    final String mainSignalTolerance =
+        mzTolerance != null && calcMainSignal ? mzTolerance.toString() : "";
+    return LocalCSVDatabaseIndex.Key.of(dataBaseFile, fieldSeparator, columns, extraColumns,
+        adducts, mainSignalTolerance);
   }
 
   /**
-   * @param mzSortedRows     rows per feature list sorted by mz
-   * @param values           csv values to be parsed into annotation
-   * @param linesWithIndices columns
-   * @param csvHeaders
+   * Sweeps the m/z sorted rows and the database ions in parallel chunks of rows. Annotations are
+   * only built for lines with ions within the m/z, RT, and mobility ranges of a row and are added
+   * to the rows after all chunks finished.
    */
-  @SuppressWarnings("ResultOfMethodCallIgnored")
-  private void processOneLine(final List<SortedList<FeatureListRow>> mzSortedRows,
-      @NotNull String[] values, @NotNull List<ImportType<?>> linesWithIndices,
-      @NotNull String[] csvHeaders) {
-
-    final List<CompoundDBAnnotation> annotations = getCompoundDBAnnotations(values,
-        linesWithIndices, csvHeaders, extraColumnHandler, ionNetworkLibrary);
+  private void searchFeatureList(final FeatureList flist, final LocalCSVDatabaseIndex index,
+      final List<ImportType<?>> lineIds) {
+    final List<FeatureListRow> rows = flist.getRows().stream()
+        .sorted(FeatureListRowSorter.MZ_ASCENDING).toList();
+    final int numChunks = (rows.size() + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+    final List<CompletableFuture<List<RowMatches>>> futures = new ArrayList<>(numChunks);
+    for (int c = 0; c < numChunks; c++) {
+      final List<FeatureListRow> chunk = rows.subList(c * ROWS_PER_CHUNK,
+          Math.min(rows.size(), (c + 1) * ROWS_PER_CHUNK));
+      futures.add(CompletableFuture.supplyAsync(
+          () -> isCanceled() ? List.of() : searchRows(chunk, flist, index, lineIds)));
+    }
 
-    IntStream indexStream = IntStream.range(0, featureLists.length);
-    if (featureLists.length > 1000) {
-      indexStream.parallel();
+    // rows are annotated in the task thread as it may change the feature list types
+    for (CompletableFuture<List<RowMatches>> future : futures) {
+      for (RowMatches matches : future.join()) {
+        matches.annotations.forEach(matches.row::addCompoundAnnotation);
+      }
     }
-    // not all feature lists have all samples
-    indexStream.forEach(i -> {
-      var rawFiles = featureLists[i].getRawDataFiles();
-      //  if active, check sample name contains id - this time for the feature list
-      if (!filterSamples || matchSample(rawFiles, values[sampleColIndex])) {
-        var sortedRows = mzSortedRows.get(i);
-
-        for (CompoundDBAnnotation annotation : annotations) {
-          List<FeatureListRow> candidates = binarySearchCandidates(sortedRows, annotation);
-
-          for (FeatureListRow row : candidates) {
-            checkMatchAndAnnotate(annotation, row, mzTolerance, rtTolerance, mobTolerance,
-                ccsTolerance, riTolerance);
+  }
+
+  private List<RowMatches> searchRows(final List<FeatureListRow> mzSortedRows,
+      final FeatureList flist, final LocalCSVDatabaseIndex index,
+      final List<ImportType<?>> lineIds) {
+    final List<String[]> lines = index.getLines();
+    final String[] header = lines.getFirst();
+    final var rawFiles = flist.getRawDataFiles();
+    // annotations of the matched lines, in the same order as during index compilation
+    final Int2ObjectMap<List<CompoundDBAnnotation>> lineAnnotations = new Int2ObjectOpenHashMap<>();
+    final List<RowMatches> results = new ArrayList<>();
+    final IntArrayList candidates = new IntArrayList();
+
+    for (FeatureListRow row : mzSortedRows) {
+      final double rowMz = row.getAverageMZ();
+      final Float rowRt = row.getAverageRT();
+      final Float rowMobility = row.getAverageMobility();
+      // tolerance is defined relative to the database m/z, twice the tolerance of the row m/z
+      // covers all ions
+      final IndexRange ions;
+      if (mzTolerance != null) {
+        final double searchTolerance = 2 * mzTolerance.getMzToleranceForMass(rowMz);
+        ions = index.indexRange(rowMz - searchTolerance, rowMz + searchTolerance);
+      } else {
+        ions = IndexRange.ofExclusive(0, index.size());
+      }
+
+      candidates.clear();
+      for (int ion = ions.min(); ion < ions.maxExclusive(); ion++) {
+        if (isCandidate(index, ion, rowMz, rowRt, rowMobility)) {
+          candidates.add(ion);
+        }
+      }
+      finishedRows.incrementAndGet();
+      if (candidates.isEmpty()) {
+        continue;
+      }
+      // keep the order of the database
+      candidates.sort((a, b) -> {
+        final int compare = Integer.compare(index.getLineIndex(a), index.getLineIndex(b));
+        return compare != 0 ? compare
+            : Integer.compare(index.getAnnotationIndex(a), index.getAnnotationIndex(b));
+      });
+
+      final List<CompoundDBAnnotation> matches = new ArrayList<>();
+      for (int ion : candidates) {
+        final int line = index.getLineIndex(ion);
+        try {
+          final String[] values = lines.get(line);
+          //  if active, check sample name contains id - this time for the feature list
+          if (filterSamples && !matchSample(rawFiles, values[sampleColIndex])) {
+            continue;
+          }
+          List<CompoundDBAnnotation> annotations = lineAnnotations.get(line);
+          if (annotations == null) {
+            annotations = getCompoundDBAnnotations(values, lineIds, header, extraColumnHandler,
+                ionNetworkLibrary);
+            lineAnnotations.put(line, annotations);
+          }
+          final CompoundDBAnnotation annotation = annotations.get(index.getAnnotationIndex(ion));
+          final CompoundDBAnnotation match = checkMatch(annotation, row, mzTolerance, rtTolerance,
+              mobTolerance, ccsTolerance, riTolerance);
+          if (match != null) {
+            matches.add(match);
           }
+        } catch (Exception e) {
+          // a single broken line should not stop the search
+          logger.log(Level.FINE, e, () -> "Exception while processing csv line " + line);
         }
       }
-    });
+      if (!matches.isEmpty()) {
+        results.add(new RowMatches(row, matches));
+      }
+    }
+    return results;
   }
 
-  @NotNull
-  private List<FeatureListRow> binarySearchCandidates(final SortedList<FeatureListRow> mzSortedRows,
-      final CompoundDBAnnotation annotation) {
-    // ranges are build with prechecks - so if there is no mobility use Range.all() to deactivate the filter
-    Double mz = annotation.getPrecursorMZ();
-    assert mz != null;
-    final Float rt = annotation.getRT();
-    final Float mobility = annotation.getMobility();
-    // we need a range with boundaries for binary search. Range.all does not have boundaries
-    final Range<Double> mzRange = mzTolerance != null ? mzTolerance.getToleranceRange(mz)
-        : Range.closed(0d, Double.MAX_VALUE);
-    final Range<Float> rtRange =
-        rtTolerance != null && rt != null ? rtTolerance.getToleranceRange(rt) : Range.all();
-    final Range<Float> mobilityRange =
-        mobTolerance != null && mobility != null ? mobTolerance.getToleranceRange(mobility)
-            : Range.all();
-
-    // get all canditates with binary search
-    // CCS is still missing here but will be tested later
-    return FeatureListUtils.getCandidatesWithinRanges(mzRange, rtRange, mobilityRange, mzSortedRows,
-        true);
+  /**
+   * Same ranges as {@link FeatureListUtils#getCandidatesWithinRanges}, CCS and RI are checked on
+   * the annotation
+   */
+  private boolean isCandidate(final LocalCSVDatabaseIndex index, final int ion,
+      final double rowMz, final @Nullable Float rowRt, final @Nullable Float rowMobility) {
+    if (mzTolerance != null && !mzTolerance.getToleranceRange(index.getMz(ion))
+        .contains(rowMz)) {
+      return false;
+    }
+    final float rt = index.getRT(ion);
+    if (rtTolerance != null && !Float.isNaN(rt) && rowRt != null
+        && !rtTolerance.getToleranceRange(rt).contains(rowRt)) {
+      return false;
+    }
+    final float mobility = index.getMobility(ion);
+    return mobTolerance == null || Float.isNaN(mobility) || rowMobility == null
+        || mobTolerance.getToleranceRange(mobility).contains(rowMobility);
+  }
+
+  private void refineAnnotationsByIsotopes(FeatureList flist) {
+    DatabaseIsotopeRefinerScanBased.refineAnnotationsByIsotopesDifferentResolutions(flist.getRows(),
+        isotopeMzTolerance, minRelativeIsotopeIntensity, minIsotopeScore);
+  }
+
+  private boolean matchSample(final List<RawDataFile> raws, final String sample) {
+    return raws.stream()
+        .anyMatch(raw -> raw.getName().toLowerCase().contains(sample.toLowerCase()));
   }
 
   @NotNull
@@ -361,20 +442,20 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
     return annotations;
   }
 
-  private void checkMatchAndAnnotate(@NotNull CompoundDBAnnotation annotation,
+  /**
+   * @return a clone of the annotation with the deviations to the row or null if it does not match
+   */
+  private @Nullable CompoundDBAnnotation checkMatch(@NotNull CompoundDBAnnotation annotation,
       @NotNull FeatureListRow row, @Nullable MZTolerance mzTolerance,
       @Nullable RTTolerance rtTolerance, @Nullable MobilityTolerance mobTolerance,
       @Nullable Double percCcsTolerance, @Nullable RITolerance riTolerance) {
 
     if (!chargeFilter.matches(row, annotation)) {
-      return;
+      return null;
     }
 
-    final CompoundDBAnnotation clone = annotation.checkMatchAndCalculateDeviation(row, mzTolerance,
-        rtTolerance, mobTolerance, percCcsTolerance, riTolerance);
-    if (clone != null) {
-      row.addCompoundAnnotation(clone);
-    }
+    return annotation.checkMatchAndCalculateDeviation(row, mzTolerance, rtTolerance, mobTolerance,
+        percCcsTolerance, riTolerance);
   }
 
   private int getHeaderColumnIndex(final String[] firstLine, final String colHeader) {
@@ -396,4 +477,9 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
       r.run();
     }
   }
+
+  private record RowMatches(@NotNull FeatureListRow row,
+                            @NotNull List<CompoundDBAnnotation> annotations) {
+
+  }
 }
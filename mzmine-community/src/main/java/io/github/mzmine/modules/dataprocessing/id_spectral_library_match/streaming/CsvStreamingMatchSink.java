@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming;
+
+import io.github.mzmine.util.io.CSVUtils;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes one line per match to a csv or tsv file. The file is flushed after each scan so that
+ * the results can be followed while the data is imported. Matches are appended to existing files,
+ * the header is only written to new or empty files.
+ */
+public class CsvStreamingMatchSink implements StreamingMatchSink {
+
+  private static final List<String> HEADER = List.of("raw_file", "scan_number", "rt",
+      "precursor_mz", "polarity", "library", "entry_id", "compound_name", "ion_type",
+      "library_precursor_mz", "score", "matched_signals", "explained_library_intensity");
+
+  private final BufferedWriter writer;
+  private final String separator;
+
+  public CsvStreamingMatchSink(@NotNull File file) throws IOException {
+    separator = String.valueOf(CSVUtils.detectSeparatorFromName(file));
+    final File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      Files.createDirectories(parent.toPath());
+    }
+    final boolean writeHeader = !file.isFile() || file.length() == 0;
+    writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    if (writeHeader) {
+      writer.write(String.join(separator, HEADER));
+      writer.newLine();
+      writer.flush();
+    }
+  }
+
+  @Override
+  public void accept(@NotNull List<StreamingSpectralMatch> matches) throws IOException {
+    for (StreamingSpectralMatch match : matches) {
+      final SpectralLibraryEntry entry = match.entry();
+      final SpectralSimilarity similarity = match.similarity();
+      final String line = Stream.of(match.dataFile(), match.scanNumber(), match.rt(),
+          match.precursorMz(), match.polarity(), entry.getLibraryName(),
+          entry.getOrElse(DBEntryField.ENTRY_ID, null), entry.getOrElse(DBEntryField.NAME, null),
+          entry.getOrElse(DBEntryField.ION_TYPE, null), entry.getPrecursorMZ(),
+          similarity.getScore(), similarity.getOverlap(),
+          similarity.getExplainedLibraryIntensity()).map(value -> Objects.toString(value, ""))
+          .map(value -> CSVUtils.escape(value, separator)).collect(Collectors.joining(separator));
+      writer.write(line);
+      writer.newLine();
+    }
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
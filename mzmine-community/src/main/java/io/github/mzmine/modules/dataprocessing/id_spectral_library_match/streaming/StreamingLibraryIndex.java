@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.util.Comparator;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Library entries with a precursor m/z, sorted by precursor m/z. Only the precursor values are
+ * held in a primitive array, the spectral data stays in the library storage and is only read for
+ * candidates.
+ */
+final class StreamingLibraryIndex {
+
+  private final double[] precursorMzs;
+  private final SpectralLibraryEntry[] entries;
+
+  StreamingLibraryIndex(@NotNull List<SpectralLibraryEntry> libraryEntries, int minDataPoints) {
+    entries = libraryEntries.stream().filter(e -> e.getPrecursorMZ() != null)
+        .filter(e -> e.getNumberOfDataPoints() >= minDataPoints)
+        .sorted(Comparator.comparingDouble(SpectralLibraryEntry::getPrecursorMZ))
+        .toArray(SpectralLibraryEntry[]::new);
+    precursorMzs = new double[entries.length];
+    for (int i = 0; i < entries.length; i++) {
+      precursorMzs[i] = entries[i].getPrecursorMZ();
+    }
+  }
+
+  /**
+   * @return the indexes of all entries with a precursor m/z within the range, both bounds included
+   */
+  @NotNull IndexRange indexRange(@NotNull Range<Double> precursorRange) {
+    return BinarySearch.indexRange(precursorMzs, precursorRange);
+  }
+
+  @NotNull SpectralLibraryEntry get(int index) {
+    return entries[index];
+  }
+
+  int size() {
+    return entries.length;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming;
+
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.SpectralLibrarySearchParameters;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
+import io.github.mzmine.util.files.ExtensionFilters;
+
+/**
+ * Spectral library search of fragment scans while they are imported, see
+ * {@link StreamingSpectralLibrarySearch}
+ */
+public class StreamingLibrarySearchParameters extends SimpleParameterSet {
+
+  public static final FileNamesParameter libraryFiles = new FileNamesParameter(
+      "Spectral library files", """
+      Libraries to match the fragment scans against. Libraries that are already loaded in the
+      project are reused, others are loaded from the library cache or parsed once.""",
+      ExtensionFilters.ALL_LIBRARY);
+
+  public static final FileNameParameter outputFile = new FileNameParameter("Results file",
+      "Matches are appended to this csv or tsv file while the data is imported. The header is"
+          + " only written to new files.",
+      ExtensionFilters.CSV_TSV_EXPORT, FileSelectionType.SAVE, false);
+
+  public static final IntegerParameter queueCapacity = new IntegerParameter("Queue capacity", """
+      Maximum number of fragment scans waiting for the search. The import never waits for the search,
+      scans are skipped and counted while the queue is full.""", 4096, 1, null);
+
+  public StreamingLibrarySearchParameters() {
+    super(libraryFiles, outputFile, SpectralLibrarySearchParameters.mzTolerancePrecursor,
+        SpectralLibrarySearchParameters.mzTolerance, SpectralLibrarySearchParameters.removePrecursor,
+        SpectralLibrarySearchParameters.minMatch,
+        SpectralLibrarySearchParameters.similarityFunction, queueCapacity);
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming;
+
+import java.io.IOException;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the matches of a {@link StreamingSpectralLibrarySearch} while the data is still
+ * imported. Calls are serialized by the search, so implementations do not need to be thread
+ * safe. Should return quickly, a slow sink delays the search workers and scans are dropped once
+ * the queue is full.
+ */
+public interface StreamingMatchSink extends AutoCloseable {
+
+  /**
+   * @param matches the matches of one scan, sorted by descending score
+   */
+  void accept(@NotNull List<StreamingSpectralMatch> matches) throws IOException;
+
+  /**
+   * Called once after the last matches were accepted
+   */
+  @Override
+  default void close() throws IOException {
+  }
+}
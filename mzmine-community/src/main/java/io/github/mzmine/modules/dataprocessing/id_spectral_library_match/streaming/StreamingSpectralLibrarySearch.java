@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.SpectralLibrarySearchParameters;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryCache;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.project.ProjectService;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.collections.IndexRange;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunctions;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.parser.AutoLibraryParser;
+import io.github.mzmine.util.spectraldb.parser.UnsupportedFormatException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Spectral library search of fragment scans while the raw data is still imported. Scans are
+ * offered by the import processors and put into a bounded queue, worker threads match them
+ * against the libraries and emit the matches to a {@link StreamingMatchSink}.
+ * <p>
+ * The import never waits for the search. If the search cannot keep up and the queue is full, new
+ * scans are skipped and counted as dropped, so the memory is bounded by the queue capacity.
+ * <p>
+ * Life cycle: {@link #start(AbstractTask)} before the import, {@link #offer(Scan, SimpleSpectralArrays)}
+ * during the import, and {@link #close()} after the import, which waits until all queued scans
+ * were searched.
+ * <p>
+ * Errors in the search of a single scan are logged and counted as failed scans. Errors that stop a
+ * worker are reported by {@link #getWorkerError()} as the results are incomplete.
+ */
+public final class StreamingSpectralLibrarySearch implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(
+      StreamingSpectralLibrarySearch.class.getName());
+  private static final long POLL_MILLIS = 100;
+
+  // remove +- 4 Da around the precursor - same as the feature list library search
+  private final MZTolerance mzToleranceRemovePrecursor = new MZTolerance(4d, 0d);
+  private final MZTolerance mzTolerancePrecursor;
+  private final MZTolerance mzToleranceSpectra;
+  private final boolean removePrecursor;
+  private final int minMatch;
+  private final SpectralSimilarityFunction simFunction;
+  private final BlockingQueue<Query> queue;
+  private final int numThreads;
+  // only set when created from parameters
+  private final @Nullable List<File> libraryFiles;
+  private final @Nullable File outputFile;
+
+  private final AtomicLong searchedScans = new AtomicLong();
+  private final AtomicLong droppedScans = new AtomicLong();
+  private final AtomicLong failedScans = new AtomicLong();
+  private final AtomicLong matches = new AtomicLong();
+  private final List<Thread> workers = new ArrayList<>();
+  private final AtomicReference<Throwable> workerError = new AtomicReference<>();
+  private final Object sinkLock = new Object();
+
+  private volatile boolean accepting = false;
+  private volatile boolean closed = false;
+  private StreamingLibraryIndex index;
+  private StreamingMatchSink sink;
+  private boolean sinkFailed = false;
+
+  public StreamingSpectralLibrarySearch(@NotNull ParameterSet parameters) {
+    this(parameters.getValue(SpectralLibrarySearchParameters.mzTolerancePrecursor),
+        parameters.getValue(SpectralLibrarySearchParameters.mzTolerance),
+        parameters.getValue(SpectralLibrarySearchParameters.removePrecursor),
+        parameters.getValue(SpectralLibrarySearchParameters.minMatch),
+        SpectralSimilarityFunctions.createOption(
+            parameters.getParameter(SpectralLibrarySearchParameters.similarityFunction)
+                .getValueWithParameters()),
+        parameters.getValue(StreamingLibrarySearchParameters.queueCapacity),
+        // the import uses most threads
+        Math.max(1, MZmineCore.getConfiguration().getNumOfThreads() / 2),
+        List.of(parameters.getValue(StreamingLibrarySearchParameters.libraryFiles)),
+        parameters.getValue(StreamingLibrarySearchParameters.outputFile));
+  }
+
+  /**
+   * Search with libraries and sink provided in {@link #start(List, StreamingMatchSink)}
+   */
+  public StreamingSpectralLibrarySearch(@NotNull MZTolerance mzTolerancePrecursor,
+      @NotNull MZTolerance mzToleranceSpectra, boolean removePrecursor, int minMatch,
+      @NotNull SpectralSimilarityFunction simFunction, int queueCapacity, int numThreads) {
+    this(mzTolerancePrecursor, mzToleranceSpectra, removePrecursor, minMatch, simFunction,
+        queueCapacity, numThreads, null, null);
+  }
+
+  private StreamingSpectralLibrarySearch(@NotNull MZTolerance mzTolerancePrecursor,
+      @NotNull MZTolerance mzToleranceSpectra, boolean removePrecursor, int minMatch,
+      @NotNull SpectralSimilarityFunction simFunction, int queueCapacity, int numThreads,
+      @Nullable List<File> libraryFiles, @Nullable File outputFile) {
+    this.mzTolerancePrecursor = mzTolerancePrecursor;
+    this.mzToleranceSpectra = mzToleranceSpectra;
+    this.removePrecursor = removePrecursor;
+    this.minMatch = minMatch;
+    this.simFunction = simFunction;
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    this.numThreads = Math.max(1, numThreads);
+    this.libraryFiles = libraryFiles;
+    this.outputFile = outputFile;
+  }
+
+  /**
+   * Loads the library files and opens the results file of the parameters. Blocks until all
+   * libraries are loaded, so call this on a task thread before the import starts.
+   *
+   * @param task the task that loads the libraries, used to cancel parsing
+   */
+  public void start(@NotNull AbstractTask task) throws IOException, UnsupportedFormatException {
+    if (libraryFiles == null || outputFile == null) {
+      throw new IllegalStateException(
+          "Library files and results file are only defined when created from parameters");
+    }
+    final List<SpectralLibraryEntry> entries = loadLibraryEntries(task, libraryFiles);
+    start(entries, new CsvStreamingMatchSink(outputFile));
+  }
+
+  /**
+   * Indexes the entries and starts the search workers. Scans are only accepted after this call.
+   */
+  public synchronized void start(@NotNull List<SpectralLibraryEntry> entries,
+      @NotNull StreamingMatchSink sink) {
+    if (accepting || closed) {
+      throw new IllegalStateException("Streaming library search was already started");
+    }
+    this.sink = sink;
+    index = new StreamingLibraryIndex(entries, minMatch);
+    logger.info(
+        "Streaming library search of fragment scans against %d library entries with %d threads".formatted(
+            index.size(), numThreads));
+    for (int i = 0; i < numThreads; i++) {
+      workers.add(
+          Thread.ofPlatform().daemon().name("streaming-library-search-" + i).start(this::work));
+    }
+    accepting = true;
+  }
+
+  /**
+   * Offers a fragment scan during import. Never blocks.
+   *
+   * @param scan     the scan metadata, only fragment scans with a precursor m/z are searched
+   * @param spectrum the processed spectral data of the scan
+   * @return true if the scan was queued for the search
+   */
+  public boolean offer(@Nullable Scan scan, @NotNull SimpleSpectralArrays spectrum) {
+    if (!accepting || scan == null || scan.getMSLevel() < 2
+        || spectrum.getNumberOfDataPoints() < minMatch) {
+      return false;
+    }
+    final Double precursorMz = scan.getPrecursorMz();
+    if (precursorMz == null) {
+      return false;
+    }
+    final PolarityType polarity = scan.getPolarity();
+    // the import may reuse the arrays of the spectrum
+    final Query query = new Query(getDataFileName(scan), scan.getScanNumber(),
+        scan.getRetentionTime(), precursorMz, polarity == null ? PolarityType.UNKNOWN : polarity,
+        Arrays.copyOf(spectrum.mzs(), spectrum.getNumberOfDataPoints()),
+        Arrays.copyOf(spectrum.intensities(), spectrum.getNumberOfDataPoints()));
+    if (queue.offer(query)) {
+      return true;
+    }
+    droppedScans.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Stops accepting scans, waits until the queued scans were searched and closes the sink.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      accepting = false;
+      closed = true;
+      if (sink == null) {
+        // never started
+        return;
+      }
+    }
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    // scans offered concurrently to close
+    droppedScans.addAndGet(queue.size());
+    queue.clear();
+
+    try {
+      sink.close();
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot close streaming library search results", e);
+    }
+    logger.info(
+        ("Streaming library search finished: %d searched scans, %d matches, %d dropped scans, "
+            + "%d failed scans").formatted(
+            getSearchedScans(), getMatches(), getDroppedScans(), getFailedScans()));
+  }
+
+  private void work() {
+    try {
+      while (!closed || !queue.isEmpty()) {
+        final Query query = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (query == null) {
+          continue;
+        }
+        try {
+          final List<StreamingSpectralMatch> results = match(query);
+          searchedScans.incrementAndGet();
+          if (!results.isEmpty()) {
+            matches.addAndGet(results.size());
+            emit(results);
+          }
+        } catch (Exception e) {
+          // skip this scan and continue with the next
+          failedScans.incrementAndGet();
+          logger.log(Level.WARNING,
+              "Error in streaming library search of scan %d in %s: %s".formatted(
+                  query.scanNumber(), query.dataFile(), e.getMessage()), e);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable t) {
+      // the worker stops, the queued scans may not be searched
+      workerError.compareAndSet(null, t);
+      logger.log(Level.SEVERE, "Streaming library search worker stopped: " + t.getMessage(), t);
+    }
+  }
+
+  private void emit(List<StreamingSpectralMatch> results) {
+    synchronized (sinkLock) {
+      if (sinkFailed) {
+        return;
+      }
+      try {
+        sink.accept(results);
+      } catch (Exception e) {
+        // keep searching so that the import is not affected, but stop writing
+        sinkFailed = true;
+        logger.log(Level.WARNING,
+            "Cannot write streaming library search results, further results are discarded", e);
+      }
+    }
+  }
+
+  /**
+   * @return matches sorted by descending score
+   */
+  @NotNull List<StreamingSpectralMatch> match(@NotNull Query query) {
+    final DataPoint[] queryPoints = toDataPoints(query);
+    if (queryPoints.length < minMatch) {
+      return List.of();
+    }
+
+    final Range<Double> precursorRange = mzTolerancePrecursor.getToleranceRange(
+        query.precursorMz());
+    final IndexRange candidates = index.indexRange(precursorRange);
+
+    List<StreamingSpectralMatch> results = null;
+    for (int i = candidates.min(); i < candidates.maxExclusive(); i++) {
+      final SpectralLibraryEntry entry = index.get(i);
+      if (!polarityMatches(query.polarity(), entry.getPolarity())) {
+        continue;
+      }
+      DataPoint[] library = entry.getDataPoints();
+      if (removePrecursor) {
+        library = removePrecursor(library, entry.getPrecursorMZ());
+      }
+      final SpectralSimilarity similarity = simFunction.getSimilarity(mzToleranceSpectra,
+          minMatch, library, queryPoints);
+      if (similarity != null) {
+        if (results == null) {
+          results = new ArrayList<>();
+        }
+        results.add(new StreamingSpectralMatch(query.dataFile(), query.scanNumber(), query.rt(),
+            query.precursorMz(), query.polarity(), entry, similarity));
+      }
+    }
+    if (results == null) {
+      return List.of();
+    }
+    results.sort(Comparator.comparingDouble(
+        (StreamingSpectralMatch m) -> m.similarity().getScore()).reversed());
+    return results;
+  }
+
+  private DataPoint[] toDataPoints(Query query) {
+    final double[] mzs = query.mzs();
+    final double[] intensities = query.intensities();
+    final Range<Double> removeRange = removePrecursor
+        ? mzToleranceRemovePrecursor.getToleranceRange(query.precursorMz()) : null;
+    final List<DataPoint> dps = new ArrayList<>(mzs.length);
+    for (int i = 0; i < mzs.length; i++) {
+      if (removeRange == null || !removeRange.contains(mzs[i])) {
+        dps.add(new SimpleDataPoint(mzs[i], intensities[i]));
+      }
+    }
+    return dps.toArray(DataPoint[]::new);
+  }
+
+  private DataPoint[] removePrecursor(DataPoint[] dataPoints, double precursorMz) {
+    final Range<Double> removeRange = mzToleranceRemovePrecursor.getToleranceRange(precursorMz);
+    return Arrays.stream(dataPoints).filter(dp -> !removeRange.contains(dp.getMZ()))
+        .toArray(DataPoint[]::new);
+  }
+
+  /**
+   * Weak polarity check, only false if both are defined and differ
+   */
+  private static boolean polarityMatches(@NotNull PolarityType scanPolarity,
+      @NotNull PolarityType entryPolarity) {
+    return !scanPolarity.isDefined() || !entryPolarity.isDefined()
+        || scanPolarity == entryPolarity;
+  }
+
+  /**
+   * The scans offered during import may only contain metadata without the raw data file
+   */
+  private static @Nullable String getDataFileName(@NotNull Scan scan) {
+    try {
+      final RawDataFile raw = scan.getDataFile();
+      return raw == null ? null : raw.getName();
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Uses libraries that are already loaded in the project. Other libraries are loaded from the
+   * {@link SpectralLibraryCache} or parsed and cached.
+   */
+  static @NotNull List<SpectralLibraryEntry> loadLibraryEntries(@NotNull AbstractTask task,
+      @NotNull List<File> files) throws IOException, UnsupportedFormatException {
+    final List<SpectralLibrary> loaded = ProjectService.getProject()
+        .getCurrentSpectralLibraries();
+    final SpectralLibraryCache cache = new SpectralLibraryCache();
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
+    for (File file : files) {
+      if (task.isCanceled()) {
+        break;
+      }
+      SpectralLibrary library = loaded.stream().filter(lib -> file.equals(lib.getPath()))
+          .findFirst().orElse(null);
+      if (library == null) {
+        library = cache.load(file);
+      }
+      if (library == null) {
+        final SpectralLibrary parsed = new SpectralLibrary(MemoryMapStorage.forMassList(), file);
+        new AutoLibraryParser(1000, (list, _) -> parsed.addEntries(list), false).parse(task,
+            file, parsed);
+        parsed.removeif(entry -> entry.getNumberOfDataPoints() == 0);
+        parsed.trim();
+        library = parsed;
+        if (parsed.size() > 0 && cache.write(parsed)) {
+          library = Objects.requireNonNullElse(cache.load(file), parsed);
+        }
+      }
+      entries.addAll(library.getEntries());
+    }
+    return entries;
+  }
+
+  public long getSearchedScans() {
+    return searchedScans.get();
+  }
+
+  public long getDroppedScans() {
+    return droppedScans.get();
+  }
+
+  public long getMatches() {
+    return matches.get();
+  }
+
+  /**
+   * @return number of scans that were skipped because of errors in their search
+   */
+  public long getFailedScans() {
+    return failedScans.get();
+  }
+
+  /**
+   * @return the first error that stopped a worker or null if all workers finished normally. The
+   * search results are incomplete on errors.
+   */
+  public @Nullable Throwable getWorkerError() {
+    return workerError.get();
+  }
+
+  public boolean isAccepting() {
+    return accepting;
+  }
+
+  /**
+   * A fragment scan waiting in the queue
+   */
+  record Query(@Nullable String dataFile, int scanNumber, float rt, double precursorMz,
+               @NotNull PolarityType polarity, double[] mzs, double[] intensities) {
+
+  }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_arrow;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.LinkedGraphicalType;
+import io.github.mzmine.datamodel.features.types.modifiers.NoTextColumn;
+import io.github.mzmine.datamodel.features.types.modifiers.NullColumnType;
+import io.github.mzmine.datamodel.features.types.modifiers.SubColumnsFactory;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleRangeType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatRangeType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.IntegerType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.LongType;
+import io.github.mzmine.datamodel.utils.UniqueIdSupplier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Maps a {@link DataType} to one or more typed Arrow vectors. Numbers and ranges are written as
+ * native columns, all other types with a text representation as UTF-8. The same mapping is used
+ * to read the values back, see {@link #isImportable()}.
+ * <p>
+ * Call {@link #bind(VectorSchemaRoot)} once for a root before reading or writing values. The
+ * vectors of a root are reused for all record batches of a file.
+ */
+public abstract sealed class ArrowDataTypeColumn {
+
+  public static final String RANGE_MIN_SUFFIX = ":min";
+  public static final String RANGE_MAX_SUFFIX = ":max";
+
+  protected final DataType<?> type;
+
+  protected ArrowDataTypeColumn(final DataType<?> type) {
+    this.type = type;
+  }
+
+  /**
+   * @return the column mapping or null if the type cannot be exported to Arrow
+   */
+  public static @Nullable ArrowDataTypeColumn of(@NotNull final DataType<?> type) {
+    return switch (type) {
+      case NoTextColumn _, NullColumnType _, LinkedGraphicalType _ -> null;
+      case IntegerType t -> new IntColumn(t);
+      case LongType t -> new LongColumn(t);
+      case DoubleType t -> new DoubleColumn(t);
+      case FloatType t -> new FloatColumn(t);
+      case DoubleRangeType t -> new DoubleRangeColumn(t);
+      case FloatRangeType t -> new FloatRangeColumn(t);
+      // nested types like annotations are not flattened
+      case SubColumnsFactory _ -> null;
+      default -> new StringColumn(type);
+    };
+  }
+
+  public static @NotNull List<ArrowDataTypeColumn> ofTypes(
+      @NotNull final Iterable<? extends DataType> types) {
+    final List<ArrowDataTypeColumn> columns = new ArrayList<>();
+    for (final DataType<?> type : types) {
+      final ArrowDataTypeColumn column = of(type);
+      if (column != null) {
+        columns.add(column);
+      }
+    }
+    return columns;
+  }
+
+  protected static Field nullableField(String name, ArrowType arrowType) {
+    return new Field(name, FieldType.nullable(arrowType), null);
+  }
+
+  public DataType<?> getType() {
+    return type;
+  }
+
+  /**
+   * @return the Arrow fields of this column
+   */
+  public abstract @NotNull List<Field> fields();
+
+  /**
+   * Binds the vectors of the root to this column.
+   *
+   * @return false if the root does not contain all fields of this column
+   */
+  public abstract boolean bind(@NotNull VectorSchemaRoot root);
+
+  /**
+   * @param index the index in the current record batch
+   * @param model the data source or null to write a null value
+   */
+  public abstract void write(int index, @Nullable ModularDataModel model);
+
+  /**
+   * Sets the value at index of the current record batch to the model. Null values are skipped.
+   */
+  public abstract void read(int index, @NotNull ModularDataModel model);
+
+  /**
+   * @return true if values of this column can be converted back to the data type
+   */
+  public boolean isImportable() {
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  protected <T> T value(@Nullable ModularDataModel model) {
+    return model == null ? null : (T) model.get(type);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  protected void setValue(@NotNull ModularDataModel model, Object value) {
+    model.set((DataType) type, value);
+  }
+
+  private static final class IntColumn extends ArrowDataTypeColumn {
+
+    private IntVector vector;
+
+    private IntColumn(final IntegerType type) {
+      super(type);
+    }
+
+    @Override
+    public @NotNull List<Field> fields() {
+      return List.of(nullableField(type.getUniqueID(), new ArrowType.Int(32, true)));
+    }
+
+    @Override
+    public boolean bind(@NotNull VectorSchemaRoot root) {
+      vector = root.getVector(type.getUniqueID()) instanceof IntVector v ? v : null;
+      return vector != null;
+    }
+
+    @Override
+    public void write(int index, @Nullable ModularDataModel model) {
+      final Integer value = value(model);
+      if (value == null) {
+        vector.setNull(index);
+      } else {
+        vector.setSafe(index, value);
+      }
+    }
+
+    @Override
+    public void read(int index, @NotNull ModularDataModel model) {
+      if (!vector.isNull(index)) {
+        setValue(model, vector.get(index));
+      }
+    }
+  }
+
+  private static final class LongColumn extends ArrowDataTypeColumn {
+
+    private BigIntVector vector;
+
+    private LongColumn(final LongType type) {
+      super(type);
+    }
+
+    @Override
+    public @NotNull List<Field> fields() {
+      return List.of(nullableField(type.getUniqueID(), new ArrowType.Int(64, true)));
+    }
+
+    @Override
+    public boolean bind(@NotNull VectorSchemaRoot root) {
+      vector = root.getVector(type.getUniqueID()) instanceof BigIntVector v ? v : null;
+      return vector != null;
+    }
+
+    @Override
+    public void write(int index, @Nullable ModularDataModel model) {
+      final Long value = value(model);
+      if (value == null) {
+        vector.setNull(index);
+      } else {
+        vector.setSafe(index, value);
+      }
+    }
+
+    @Override
+    public void read(int index, @NotNull ModularDataModel model) {
+      if (!vector.isNull(index)) {
+        setValue(model, vector.get(index));
+      }
+    }
+  }
+
+  private static final class DoubleColumn extends ArrowDataTypeColumn {
+
+    private Float8Vector vector;
+
+    private DoubleColumn(final DoubleType type) {
+      super(type);
+    }
+
+    @Override
+    public @NotNull List<Field> fields() {
+      return List.of(nullableField(type.getUniqueID(),
+          new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)));
+    }
+
+    @Override
+    public boolean bind(@NotNull VectorSchemaRoot root) {
+      vector = root.getVector(type.getUniqueID()) instanceof Float8Vector v ? v : null;
+      return vector != null;
+    }
+
+    @Override
+    public void write(int index, @Nullable ModularDataModel model) {
+      final Double value = value(model);
+      if (value == null) {
+        vector.setNull(index);
+      } else {
+        vector.setSafe(index, value);
+      }
+    }
+
+    @Override
+    public void read(int index, @NotNull ModularDataModel model) {
+      if (!vector.isNull(index)) {
+        setValue(model, vector.get(index));
+      }
+    }
+  }
+
+  private static final class FloatColumn extends ArrowDataTypeColumn {
+
+    private Float4Vector vector;
+
+    private FloatColumn(final FloatType type) {
+      super(type);
+    }
+
+    @Override
+    public @NotNull List<Field> fields() {
+      return List.of(nullableField(type.getUniqueID(),
+          new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE)));
+    }
+
+    @Override
+    public boolean bind(@NotNull VectorSchemaRoot root) {
+      vector = root.getVector(type.getUniqueID()) instanceof Float4Vector v ? v : null;
+      return vector != null;
+    }
+
+    @Override
+    public void write(int index, @Nullable ModularDataModel model) {
+      final Float value = value(model);
+      if (value == null) {
+        vector.setNull(index);
+      } else {
+        vector.setSafe(index, value);
+      }
+    }
+
+    @Override
+    public void read(int index, @NotNull ModularDataModel model) {
+      if (!vector.isNull(index)) {
+        setValue(model, vector.get(index));
+      }
+    }
+  }
+
+  /**
+   * Ranges are split into a min and max column
+   */
+  private static final class DoubleRangeColumn extends ArrowDataTypeColumn {
+
+    private Float8Vector min;
+    private Float8Vector max;
+
+    private DoubleRangeColumn(final DoubleRangeType type) {
+      super(type);
+    }
+
+    @Override
+    public @NotNull List<Field> fields() {
+      final ArrowType arrowType = new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+      return List.of(nullableField(type.getUniqueID() + RANGE_MIN_SUFFIX, arrowType),
+          nullableField(type.getUniqueID() + RANGE_MAX_SUFFIX, arrowType));
+    }
+
+    @Override
+    public boolean bind(@NotNull VectorSchemaRoot root) {
+      final FieldVector minVector = root.getVector(type.getUniqueID() + RANGE_MIN_SUFFIX);
+      final FieldVector maxVector = root.getVector(type.getUniqueID() + RANGE_MAX_SUFFIX);
+      min = minVector instanceof Float8Vector v ? v : null;
+      max = maxVector instanceof Float8Vector v ? v : null;
+      return min != null && max != null;
+    }
+
+    @Override
+    public void write(int index, @Nullable ModularDataModel model) {
+      final Range<Double> value = value(model);
+      if (value == null) {
+        min.setNull(index);
+        max.setNull(index);
+      } else {
+        min.setSafe(index, value.lowerEndpoint());
+        max.setSafe(index, value.upperEndpoint());
+      }
+    }
+
+    @Override
+    public void read(int index, @NotNull ModularDataModel model) {
+      if (!min.isNull(index) && !max.isNull(index)) {
+        setValue(model, Range.closed(min.get(index), max.get(index)));
+      }
+    }
+  }
+
+  private static final class FloatRangeColumn extends ArrowDataTypeColumn {
+
+    private Float4Vector min;
+    private Float4Vector max;
+
+    private FloatRangeColumn(final FloatRangeType type) {
+      super(type);
+    }
+
+    @Override
+    public @NotNull List<Field> fields() {
+      final ArrowType arrowType = new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+      return List.of(nullableField(type.getUniqueID() + RANGE_MIN_SUFFIX, arrowType),
+          nullableField(type.getUniqueID() + RANGE_MAX_SUFFIX, arrowType));
+    }
+
+    @Override
+    public boolean bind(@NotNull VectorSchemaRoot root) {
+      final FieldVector minVector = root.getVector(type.getUniqueID() + RANGE_MIN_SUFFIX);
+      final FieldVector maxVector = root.getVector(type.getUniqueID() + RANGE_MAX_SUFFIX);
+      min = minVector instanceof Float4Vector v ? v : null;
+      max = maxVector instanceof Float4Vector v ? v : null;
+      return min != null && max != null;
+    }
+
+    @Override
+    public void write(int index, @Nullable ModularDataModel model) {
+      final Range<Float> value = value(model);
+      if (value == null) {
+        min.setNull(index);
+        max.setNull(index);
+      } else {
+        min.setSafe(index, value.lowerEndpoint());
+        max.setSafe(index, value.upperEndpoint());
+      }
+    }
+
+    @Override
+    public void read(int index, @NotNull ModularDataModel model) {
+      if (!min.isNull(index) && !max.isNull(index)) {
+        setValue(model, Range.closed(min.get(index), max.get(index)));
+      }
+    }
+  }
+
+  /**
+   * Enums are written by their unique id, all other values by their export string. Only types
+   * with a {@link DataType#getMapper()} can be imported again.
+   */
+  private static final class StringColumn extends ArrowDataTypeColumn {
+
+    private final @Nullable Function<@Nullable String, ?> mapper;
+    private VarCharVector vector;
+
+    private StringColumn(final DataType<?> type) {
+      super(type);
+      mapper = type.getMapper();
+    }
+
+    @Override
+    public @NotNull List<Field> fields() {
+      return List.of(nullableField(type.getUniqueID(), ArrowType.Utf8.INSTANCE));
+    }
+
+    @Override
+    public boolean bind(@NotNull VectorSchemaRoot root) {
+      vector = root.getVector(type.getUniqueID()) instanceof VarCharVector v ? v : null;
+      return vector != null;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void write(int index, @Nullable ModularDataModel model) {
+      final Object value = value(model);
+      final String text = switch (value) {
+        case null -> null;
+        case UniqueIdSupplier id -> id.getUniqueID();
+        default -> ((DataType) type).getFormattedExportString(value);
+      };
+      if (text == null || text.isEmpty()) {
+        vector.setNull(index);
+      } else {
+        vector.setSafe(index, text.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    @Override
+    public void read(int index, @NotNull ModularDataModel model) {
+      if (mapper == null || vector.isNull(index)) {
+        return;
+      }
+      final Object value = mapper.apply(new String(vector.get(index), StandardCharsets.UTF_8));
+      if (value != null) {
+        setValue(model, value);
+      }
+    }
+
+    @Override
+    public boolean isImportable() {
+      return mapper != null;
+    }
+  }
+}
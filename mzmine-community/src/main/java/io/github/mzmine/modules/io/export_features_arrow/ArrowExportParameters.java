@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_arrow;
+
+import static io.github.mzmine.util.StringUtils.inQuotes;
+
+import io.github.mzmine.modules.io.export_features_sirius.SiriusExportTask;
+import io.github.mzmine.parameters.impl.IonMobilitySupport;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameSuffixExportParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
+import java.util.Collection;
+import java.util.List;
+import javafx.stage.FileChooser.ExtensionFilter;
+import org.jetbrains.annotations.NotNull;
+
+public class ArrowExportParameters extends SimpleParameterSet {
+
+  private static final List<ExtensionFilter> extensions = List.of(
+      new ExtensionFilter("Arrow IPC file", "*.arrow"));
+
+  public static final FeatureListsParameter flists = new FeatureListsParameter();
+
+  public static final FileNameSuffixExportParameter file = new FileNameSuffixExportParameter(
+      "Export file name", """
+      Base name of the exported files. The suffixes _rows, _features and _feature_data are appended.
+      Use '{}' to automatically insert the name of the feature list.""", extensions, "arrow");
+
+  public static final BooleanParameter exportFeatureData = new BooleanParameter(
+      "Export feature data", """
+      Also export all data points (scan, rt, m/z, intensity) of the feature chromatograms.
+      Required to restore feature shapes on import. Ion mobility data (mobilograms) is not exported,
+      imported ion mobility features only contain the retention time dimension.""", false);
+
+  public ArrowExportParameters() {
+    super(flists, file, exportFeatureData);
+  }
+
+  @Override
+  public boolean checkParameterValues(Collection<String> errorMessages,
+      boolean skipRawDataAndFeatureListParameters) {
+    final boolean superCheck = super.checkParameterValues(errorMessages,
+        skipRawDataAndFeatureListParameters);
+
+    if (getValue(flists).getMatchingFeatureLists().length > 1 && !getValue(file).getName()
+        .contains(SiriusExportTask.MULTI_NAME_PATTERN)) {
+      errorMessages.add(
+          "Multiple feature lists (%d) were selected, but the file name does not contain the pattern %s.".formatted(
+              getValue(flists).getMatchingFeatureLists().length,
+              inQuotes(SiriusExportTask.MULTI_NAME_PATTERN)));
+    }
+
+    return superCheck && errorMessages.isEmpty();
+  }
+
+  @Override
+  public @NotNull IonMobilitySupport getIonMobilitySupport() {
+    return IonMobilitySupport.SUPPORTED;
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_arrow;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.io.export_features_sirius.SiriusExportTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractFeatureListTask;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Exports a feature list to Arrow IPC files. The row table contains one line per row, the feature
+ * table one line per feature in long format (row id, raw data file, feature types). Optionally,
+ * the chromatograms of all features are exported in long format with one line per data point.
+ */
+public class ArrowExportTask extends AbstractFeatureListTask {
+
+  public static final String ROWS_SUFFIX = "_rows";
+  public static final String FEATURES_SUFFIX = "_features";
+  public static final String FEATURE_DATA_SUFFIX = "_feature_data";
+  public static final String FORMAT = "arrow";
+
+  public static final String ROW_ID_COLUMN = "row_id";
+  public static final String RAW_FILE_COLUMN = "raw_file";
+  public static final String SCAN_COLUMN = "scan";
+  public static final String RT_COLUMN = "rt";
+  public static final String MZ_COLUMN = "mz";
+  public static final String INTENSITY_COLUMN = "intensity";
+  public static final String FEATURE_LIST_METADATA_KEY = "mzmine.feature_list";
+  /**
+   * Names of all raw data files of the feature list, separated by line breaks
+   */
+  public static final String RAW_FILES_METADATA_KEY = "mzmine.raw_files";
+
+  /**
+   * Number of lines per record batch. Arrow readers load one batch at a time.
+   */
+  private static final int BATCH_SIZE = 8192;
+
+  private static final Logger logger = Logger.getLogger(ArrowExportTask.class.getName());
+
+  private final ModularFeatureList flist;
+  private final boolean exportFeatureData;
+  private File file;
+
+  protected ArrowExportTask(@Nullable MemoryMapStorage storage, @NotNull Instant moduleCallDate,
+      @NotNull ParameterSet parameters, @NotNull Class<? extends MZmineModule> moduleClass,
+      ModularFeatureList flist) {
+    super(storage, moduleCallDate, parameters, moduleClass);
+    this.flist = flist;
+    file = parameters.getValue(ArrowExportParameters.file);
+    exportFeatureData = parameters.getValue(ArrowExportParameters.exportFeatureData);
+  }
+
+  /**
+   * @param rowsFile the row table file
+   * @return the file of the table with the suffix, located next to the row table
+   */
+  public static @NotNull File getSiblingFile(@NotNull File rowsFile, @NotNull String suffix) {
+    final String name = FileAndPathUtil.eraseFormat(rowsFile).getName();
+    final String baseName = name.endsWith(ROWS_SUFFIX) ? name.substring(0,
+        name.length() - ROWS_SUFFIX.length()) : name;
+    return new File(rowsFile.getParentFile(), baseName + suffix + "." + FORMAT);
+  }
+
+  @Override
+  protected @NotNull List<FeatureList> getProcessedFeatureLists() {
+    return List.of(flist);
+  }
+
+  @Override
+  protected void process() {
+    file = SiriusExportTask.getFileForFeatureList(flist, file, "{}", null);
+    if (file == null) {
+      error("Cannot create the export directory for feature list " + flist.getName());
+      return;
+    }
+    final File rowsFile = FileAndPathUtil.getRealFilePathWithSuffix(file, ROWS_SUFFIX, FORMAT);
+
+    final List<FeatureListRow> rows = flist.getRowsCopy();
+    final List<RawDataFile> dataFiles = flist.getRawDataFiles();
+    totalItems = (long) rows.size() * (exportFeatureData ? 3 : 2);
+
+    try (BufferAllocator allocator = new RootAllocator()) {
+      writeRows(allocator, rows, rowsFile);
+      if (isCanceled()) {
+        return;
+      }
+      writeFeatures(allocator, rows, dataFiles, getSiblingFile(rowsFile, FEATURES_SUFFIX));
+      if (isCanceled() || !exportFeatureData) {
+        return;
+      }
+      writeFeatureData(allocator, rows, dataFiles, getSiblingFile(rowsFile, FEATURE_DATA_SUFFIX));
+    } catch (IOException e) {
+      error("Error while exporting feature list %s to %s: %s".formatted(flist.getName(),
+          rowsFile.getAbsolutePath(), e.getMessage()), e);
+    }
+  }
+
+  private void writeRows(BufferAllocator allocator, List<FeatureListRow> rows, File target)
+      throws IOException {
+    final List<ArrowDataTypeColumn> columns = ArrowDataTypeColumn.ofTypes(flist.getRowTypes());
+    final List<Field> fields = new ArrayList<>();
+    columns.forEach(c -> fields.addAll(c.fields()));
+
+    try (VectorSchemaRoot root = VectorSchemaRoot.create(createSchema(fields), allocator);
+        FileChannel channel = openChannel(target);
+        ArrowFileWriter writer = new ArrowFileWriter(root, null, channel)) {
+      columns.forEach(c -> c.bind(root));
+      writer.start();
+
+      for (int start = 0; start < rows.size(); start += BATCH_SIZE) {
+        if (isCanceled()) {
+          return;
+        }
+        final int end = Math.min(rows.size(), start + BATCH_SIZE);
+        root.allocateNew();
+        for (int i = start; i < end; i++) {
+          final FeatureListRow row = rows.get(i);
+          for (ArrowDataTypeColumn column : columns) {
+            column.write(i - start, row);
+          }
+          incrementFinishedItems();
+        }
+        root.setRowCount(end - start);
+        writer.writeBatch();
+      }
+      writer.end();
+    }
+    logger.finest("Exported %d rows of %s to %s".formatted(rows.size(), flist.getName(),
+        target.getAbsolutePath()));
+  }
+
+  private void writeFeatures(BufferAllocator allocator, List<FeatureListRow> rows,
+      List<RawDataFile> dataFiles, File target) throws IOException {
+    final List<ArrowDataTypeColumn> columns = ArrowDataTypeColumn.ofTypes(
+        flist.getFeatureTypes().stream().filter(t -> !(t instanceof RawFileType)).toList());
+    final List<Field> fields = new ArrayList<>();
+    fields.add(ArrowDataTypeColumn.nullableField(ROW_ID_COLUMN, new ArrowType.Int(32, true)));
+    fields.add(ArrowDataTypeColumn.nullableField(RAW_FILE_COLUMN, ArrowType.Utf8.INSTANCE));
+    columns.forEach(c -> fields.addAll(c.fields()));
+
+    final byte[][] fileNames = encodeNames(dataFiles);
+
+    try (VectorSchemaRoot root = VectorSchemaRoot.create(createSchema(fields), allocator);
+        FileChannel channel = openChannel(target);
+        ArrowFileWriter writer = new ArrowFileWriter(root, null, channel)) {
+      final IntVector rowIds = (IntVector) root.getVector(ROW_ID_COLUMN);
+      final VarCharVector rawFiles = (VarCharVector) root.getVector(RAW_FILE_COLUMN);
+      columns.forEach(c -> c.bind(root));
+      writer.start();
+
+      root.allocateNew();
+      int index = 0;
+      for (FeatureListRow row : rows) {
+        if (isCanceled()) {
+          return;
+        }
+        for (int f = 0; f < dataFiles.size(); f++) {
+          final Feature feature = row.getFeature(dataFiles.get(f));
+          if (feature == null) {
+            continue;
+          }
+          rowIds.setSafe(index, row.getID());
+          rawFiles.setSafe(index, fileNames[f]);
+          for (ArrowDataTypeColumn column : columns) {
+            column.write(index, (ModularFeature) feature);
+          }
+          if (++index == BATCH_SIZE) {
+            root.setRowCount(index);
+            writer.writeBatch();
+            root.allocateNew();
+            index = 0;
+          }
+        }
+        incrementFinishedItems();
+      }
+      if (index > 0) {
+        root.setRowCount(index);
+        writer.writeBatch();
+      }
+      writer.end();
+    }
+  }
+
+  private void writeFeatureData(BufferAllocator allocator, List<FeatureListRow> rows,
+      List<RawDataFile> dataFiles, File target) throws IOException {
+    final List<Field> fields = List.of(
+        ArrowDataTypeColumn.nullableField(ROW_ID_COLUMN, new ArrowType.Int(32, true)),
+        ArrowDataTypeColumn.nullableField(RAW_FILE_COLUMN, ArrowType.Utf8.INSTANCE),
+        ArrowDataTypeColumn.nullableField(SCAN_COLUMN, new ArrowType.Int(32, true)),
+        ArrowDataTypeColumn.nullableField(RT_COLUMN,
+            new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE)),
+        ArrowDataTypeColumn.nullableField(MZ_COLUMN,
+            new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+        ArrowDataTypeColumn.nullableField(INTENSITY_COLUMN,
+            new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)));
+
+    final byte[][] fileNames = encodeNames(dataFiles);
+
+    try (VectorSchemaRoot root = VectorSchemaRoot.create(createSchema(fields), allocator);
+        FileChannel channel = openChannel(target);
+        ArrowFileWriter writer = new ArrowFileWriter(root, null, channel)) {
+      final IntVector rowIds = (IntVector) root.getVector(ROW_ID_COLUMN);
+      final VarCharVector rawFiles = (VarCharVector) root.getVector(RAW_FILE_COLUMN);
+      final IntVector scans = (IntVector) root.getVector(SCAN_COLUMN);
+      final Float4Vector rts = (Float4Vector) root.getVector(RT_COLUMN);
+      final Float8Vector mzs = (Float8Vector) root.getVector(MZ_COLUMN);
+      final Float8Vector intensities = (Float8Vector) root.getVector(INTENSITY_COLUMN);
+      writer.start();
+
+      root.allocateNew();
+      int index = 0;
+      for (FeatureListRow row : rows) {
+        if (isCanceled()) {
+          return;
+        }
+        for (int f = 0; f < dataFiles.size(); f++) {
+          final Feature feature = row.getFeature(dataFiles.get(f));
+          if (feature == null) {
+            continue;
+          }
+          final IonTimeSeries<? extends Scan> data = feature.getFeatureData();
+          if (data == null) {
+            continue;
+          }
+          final List<? extends Scan> spectra = data.getSpectra();
+          for (int i = 0; i < data.getNumberOfValues(); i++) {
+            rowIds.setSafe(index, row.getID());
+            rawFiles.setSafe(index, fileNames[f]);
+            scans.setSafe(index, spectra.get(i).getScanNumber());
+            rts.setSafe(index, data.getRetentionTime(i));
+            mzs.setSafe(index, data.getMZ(i));
+            intensities.setSafe(index, data.getIntensity(i));
+            if (++index == BATCH_SIZE) {
+              root.setRowCount(index);
+              writer.writeBatch();
+              root.allocateNew();
+              index = 0;
+            }
+          }
+        }
+        incrementFinishedItems();
+      }
+      if (index > 0) {
+        root.setRowCount(index);
+        writer.writeBatch();
+      }
+      writer.end();
+    }
+  }
+
+  private Schema createSchema(List<Field> fields) {
+    final String rawFiles = flist.getRawDataFiles().stream().map(RawDataFile::getName)
+        .collect(Collectors.joining("\n"));
+    return new Schema(fields,
+        Map.of(FEATURE_LIST_METADATA_KEY, flist.getName(), RAW_FILES_METADATA_KEY, rawFiles));
+  }
+
+  private static byte[][] encodeNames(List<RawDataFile> dataFiles) {
+    final byte[][] names = new byte[dataFiles.size()][];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = dataFiles.get(i).getName().getBytes(StandardCharsets.UTF_8);
+    }
+    return names;
+  }
+
+  private static FileChannel openChannel(File target) throws IOException {
+    return FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Exporting feature list %s to Arrow files".formatted(flist.getName());
+  }
+}
@@ -32,6 +32,7 @@ import io.github.mzmine.parameters.impl.IonMobilitySupport;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameSuffixExportParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
@@ -54,6 +55,13 @@ public class CSVExportModularParameters extends SimpleParameterSet {
   public static final ComboParameter<FeatureListRowsFilter> filter = new ComboParameter<>(
       "Filter rows", "Limit the exported rows to those with MS/MS data (or annotated rows)",
       FeatureListRowsFilter.values(), FeatureListRowsFilter.ALL);
+  public static final BooleanParameter compress = new BooleanParameter("Compress (gzip)",
+      "Compresses the output while writing. Appends .gz to the file name.", false);
+  public static final OptionalParameter<StringParameter> exportTypes = new OptionalParameter<>(
+      new StringParameter("Export only data types",
+          "Comma-separated list of data type unique IDs (the column headers without sub column), e.g., id,mz,rt,height,area. "
+              + "Only these types are read and exported, which reduces the export time of large feature lists.",
+          "id,mz,rt,height,area"), false);
   private static final List<ExtensionFilter> extensions = List.of( //
       new ExtensionFilter("comma-separated values", "*.csv"), //
       new ExtensionFilter("All files", "*.*") //
@@ -67,7 +75,7 @@ public class CSVExportModularParameters extends SimpleParameterSet {
 
   public CSVExportModularParameters() {
     super(new Parameter[]{featureLists, filename, fieldSeparator, idSeparator, omitEmptyColumns,
-        filter});
+        filter, exportTypes, compress});
   }
 
   @Override
@@ -98,6 +106,8 @@ public class CSVExportModularParameters extends SimpleParameterSet {
     parameters.setParameter(CSVExportModularParameters.idSeparator, idSeparator);
     parameters.setParameter(CSVExportModularParameters.fieldSeparator, fieldSep);
     parameters.setParameter(CSVExportModularParameters.featureLists, featureListsSelection);
+    parameters.setParameter(CSVExportModularParameters.exportTypes, false);
+    parameters.setParameter(CSVExportModularParameters.compress, false);
     return (CSVExportModularParameters) parameters;
   }
 
@@ -56,9 +56,11 @@ import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.io.CSVUtils;
 import io.github.mzmine.util.spectraldb.entry.SpectralDBAnnotation;
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.text.MessageFormat;
@@ -78,7 +80,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -86,6 +90,11 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
   public static final String DATAFILE_PREFIX = "datafile";
   private static final Logger logger = Logger.getLogger(CSVExportModularTask.class.getName());
+  /**
+   * Rows are formatted in chunks on worker threads and written in order
+   */
+  private static final int ROWS_PER_CHUNK = 256;
+  private static final int BUFFER_SIZE = 1 << 16;
   private final ModularFeatureList[] featureLists;
   // parameter values
   private final File fileName;
@@ -94,6 +103,11 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   private final String headerSeparator = ":";
   private final FeatureListRowsFilter rowFilter;
   private final boolean removeEmptyCols;
+  private final boolean compress;
+  /**
+   * Unique IDs of the exported types or null to export all types
+   */
+  private final @Nullable Set<String> exportTypeIds;
   private final ParameterSet parameters;
   // track number of exported items
   private final AtomicInteger exportedRows = new AtomicInteger(0);
@@ -108,6 +122,9 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
     idSeparator = parameters.getParameter(CSVExportModularParameters.idSeparator).getValue();
     this.rowFilter = parameters.getParameter(CSVExportModularParameters.filter).getValue();
     removeEmptyCols = parameters.getValue(CSVExportModularParameters.omitEmptyColumns);
+    compress = parameters.getValue(CSVExportModularParameters.compress);
+    exportTypeIds = parameters.getOptionalValue(CSVExportModularParameters.exportTypes)
+        .map(CSVExportModularTask::parseTypeIds).orElse(null);
     this.parameters = parameters;
   }
 
@@ -132,9 +149,16 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
     this.idSeparator = idSeparator;
     this.rowFilter = rowFilter;
     this.removeEmptyCols = removeEmptyCols;
+    compress = false;
+    exportTypeIds = null;
     parameters = null;
   }
 
+  private static @NotNull Set<String> parseTypeIds(@NotNull String ids) {
+    return Arrays.stream(ids.split(",")).map(String::trim).filter(id -> !id.isEmpty())
+        .collect(Collectors.toSet());
+  }
+
   @Override
   public int getProcessedItems() {
     return exportedRows.get();
@@ -198,12 +222,14 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
         curFile = new File(newFilename);
       }
       curFile = FileAndPathUtil.getRealFilePath(curFile, "csv");
+      if (compress && !curFile.getName().endsWith(".gz")) {
+        curFile = new File(curFile.getPath() + ".gz");
+      }
 
       // Open file
 
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
-        exportFeatureList(featureList, writer);
+      try (OutputStream out = openOutputStream(curFile)) {
+        exportFeatureList(featureList, out);
 
       } catch (IOException e) {
         setStatus(TaskStatus.ERROR);
@@ -234,20 +260,30 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
     }
   }
 
+  private @NotNull OutputStream openOutputStream(@NotNull File file) throws IOException {
+    OutputStream out = Files.newOutputStream(file.toPath());
+    if (compress) {
+      out = new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+    return new BufferedOutputStream(out, BUFFER_SIZE);
+  }
+
   @SuppressWarnings("rawtypes")
-  private void exportFeatureList(ModularFeatureList flist, BufferedWriter writer)
-      throws IOException {
+  private void exportFeatureList(ModularFeatureList flist, OutputStream out) throws IOException {
     final List<FeatureListRow> rows = flist.getRows().stream().filter(rowFilter::accept)
         .sorted(FeatureListRowSorter.DEFAULT_ID).toList();
     List<RawDataFile> rawDataFiles = flist.getRawDataFiles();
 
     final Comparator<DataType> sorter = DataTypes.getDefaultSorterFeatureTable();
 
+    // projection first so that other types are never read from the feature list
     List<DataType> rowTypes = flist.getRowTypes().stream().filter(this::filterType)
+        .filter(this::isSelectedForExport)
         .filter(type -> !removeEmptyCols || typeContainData(type, rows, false, -1)).sorted(sorter)
         .collect(Collectors.toList());
 
     List<DataType> featureTypes = flist.getFeatureTypes().stream().filter(this::filterType)
+        .filter(this::isSelectedForExport)
         .filter(type -> !removeEmptyCols || typeContainData(type, rows, true, -1)).sorted(sorter)
         .collect(Collectors.toList());
 
@@ -262,51 +298,89 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
               true, null));
     }
 
-    writer.append(header.toString());
-    writer.newLine();
-
-    // write data
-    totalTypes = rowTypes.size() + featureTypes.size() * rawDataFiles.size();
-
-    List<String[]> formattedCols = new ArrayList<>(totalTypes);
+    final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+    out.write(lineSeparator);
 
-    // list string values for each type and sub type
+    // formatters for each type and sub type, values are only formatted when rows are written
+    List<ColumnFormatter> columns = new ArrayList<>();
     for (DataType rowType : rowTypes) {
-      if (isCanceled()) {
-        return;
-      }
-
-      addFormattedColumnsRecursively(formattedCols, rows, null, rowType, rowsSubTypesIndex);
-
-      processedTypes++;
+      addColumnFormattersRecursively(columns, rows, null, rowType, rowsSubTypesIndex);
     }
 
     // add feature types for each raw data file
     for (RawDataFile raw : rawDataFiles) {
       for (DataType featureType : featureTypes) {
-        if (isCanceled()) {
-          return;
-        }
-
-        addFormattedColumnsRecursively(formattedCols, rows, raw, featureType, null);
-        processedTypes++;
+        addColumnFormattersRecursively(columns, rows, raw, featureType, null);
       }
     }
 
-    for (int i = 0; i < rows.size(); i++) {
+    if (isCanceled()) {
+      return;
+    }
+
+    // write data
+    totalTypes = rows.size();
+    processedTypes = 0;
+
+    // format chunks of rows on worker threads into byte buffers and write them in order.
+    // the export number formats are copied per thread, see MZminePreferences#getExportFormats.
+    // a limited number of chunks is formatted at once to bound the memory usage
+    final int numChunks = (rows.size() + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+    final int chunksPerBatch = Runtime.getRuntime().availableProcessors() * 4;
+    for (int firstChunk = 0; firstChunk < numChunks; firstChunk += chunksPerBatch) {
       // Cancel?
       if (isCanceled()) {
         return;
       }
 
-      final int row = i;
-      writer.append(
-          formattedCols.stream().map(col -> col[row]).collect(Collectors.joining(fieldSeparator)));
-      writer.newLine();
+      final int lastChunk = Math.min(numChunks, firstChunk + chunksPerBatch);
+      // toList keeps the encounter order
+      final List<byte[]> formattedChunks = IntStream.range(firstChunk, lastChunk).parallel()
+          .mapToObj(chunk -> formatRows(columns, rows, chunk * ROWS_PER_CHUNK,
+              Math.min(rows.size(), (chunk + 1) * ROWS_PER_CHUNK), lineSeparator)).toList();
 
-      exportedRows.incrementAndGet();
-      processedTypes++;
+      for (byte[] chunk : formattedChunks) {
+        out.write(chunk);
+      }
+
+      final int writtenRows = Math.min(rows.size(), lastChunk * ROWS_PER_CHUNK)
+          - firstChunk * ROWS_PER_CHUNK;
+      exportedRows.addAndGet(writtenRows);
+      processedTypes += writtenRows;
+    }
+  }
+
+  /**
+   * Formats a range of rows into UTF-8 encoded lines
+   *
+   * @param start inclusive
+   * @param end   exclusive
+   */
+  private byte[] formatRows(@NotNull List<ColumnFormatter> columns,
+      @NotNull List<FeatureListRow> rows, int start, int end, byte[] lineSeparator) {
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+    final StringBuilder line = new StringBuilder(256);
+    for (int i = start; i < end; i++) {
+      final FeatureListRow row = rows.get(i);
+      line.setLength(0);
+      for (int c = 0; c < columns.size(); c++) {
+        if (c > 0) {
+          line.append(fieldSeparator);
+        }
+        line.append(columns.get(c).format(row));
+      }
+      buffer.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+      buffer.writeBytes(lineSeparator);
     }
+    return buffer.toByteArray();
+  }
+
+  /**
+   * @return true if the type was selected for export or if all types are exported
+   */
+  private boolean isSelectedForExport(@NotNull DataType type) {
+    return exportTypeIds == null || exportTypeIds.contains(type.getUniqueID());
   }
 
   /**
@@ -417,15 +491,15 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   }
 
   /**
-   * Adds columns of formatted values for each column / sub column. missing values are replaced by
-   * empty strings or default values
+   * Adds formatters for each column / sub column. missing values are replaced by empty strings or
+   * default values
    *
-   * @param formattedCols the target list
-   * @param rows          the data
-   * @param raw           defines the feature
-   * @param type          the feature data type to be added (and its sub columns)
+   * @param columns the target list
+   * @param rows    the data
+   * @param raw     defines the feature
+   * @param type    the feature data type to be added (and its sub columns)
    */
-  private void addFormattedColumnsRecursively(List<String[]> formattedCols,
+  private void addColumnFormattersRecursively(List<ColumnFormatter> columns,
       @NotNull final List<FeatureListRow> rows, @Nullable RawDataFile raw,
       @NotNull final DataType type, @Nullable final Map<DataType, List<DataType>> subTypesIndex) {
 
@@ -434,10 +508,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
       // explicitly indexed types
       final List<DataType> subTypes = subTypesIndex.get(type);
       for (DataType subType : subTypes) {
-        // collect column data
-        String[] column = getDataStream(rows, raw, false).map(
-            data -> getFormattedValue(data, subFactory, subType)).toArray(String[]::new);
-        formattedCols.add(column);
+        columns.add(row -> getFormattedValue(getData(row, raw), subFactory, subType));
       }
     } else if (type instanceof SubColumnsFactory subFactory) {
       // only "static" sub columns for this type, e.g. for number types as they are a dirty hack
@@ -449,19 +520,22 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
             s))) {
           continue;
         }
-        // collect column data
         final int subIndex = s;
-        String[] column = getDataStream(rows, raw, false).map(
-            data -> getFormattedValue(data, subFactory, subIndex)).toArray(String[]::new);
-        formattedCols.add(column);
+        columns.add(row -> getFormattedValue(getData(row, raw), subFactory, subIndex));
       }
     } else {
-      String[] column = getDataStream(rows, raw, false).map(data -> getFormattedValue(data, type))
-          .toArray(String[]::new);
-      formattedCols.add(column);
+      columns.add(row -> getFormattedValue(getData(row, raw), type));
     }
   }
 
+  /**
+   * @return the row if raw is null, otherwise the feature of this raw data file
+   */
+  private @Nullable ModularDataModel getData(@NotNull FeatureListRow row,
+      @Nullable RawDataFile raw) {
+    return raw == null ? row : ((ModularFeatureListRow) row).getFeature(raw);
+  }
+
   /**
    * Data stream for rows or all features
    *
@@ -647,6 +721,16 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   }
 
 
+  /**
+   * Formats the value of one column for a row. Used to format rows independently on multiple
+   * threads, the export number formats of data types are copied for each thread.
+   */
+  @FunctionalInterface
+  private interface ColumnFormatter {
+
+    @NotNull String format(@NotNull FeatureListRow row);
+  }
+
   private void checkConcurrentModification(FeatureList featureList, int numRows, long numFeatures,
       long numMS2) {
     final int numRowsEnd = featureList.getNumberOfRows();
@@ -36,6 +36,7 @@
 
 package io.github.mzmine.modules.io.export_features_gnps.fbmn;
 
+import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList;
@@ -85,7 +86,8 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
   private final IntensityNormalizer normalizer;
   private final SpectralLibraryEntryFactory entryFactory;
   private final @NotNull FragmentScanSelection scanMergeSelect;
-  private int currentIndex = 0;
+  // increased by 1 for each feature list with merged fragment scans
+  private final AtomicDouble mergeProgress = new AtomicDouble(0);
 
   GnpsFbmnMgfExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -107,7 +109,7 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
     if (featureLists.length == 0) {
       return 1;
     } else {
-      return currentIndex / (double) featureLists.length;
+      return mergeProgress.get() / featureLists.length;
     }
   }
 
@@ -137,8 +139,6 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
         return;
       }
 
-      currentIndex++;
-
       // Filename
       final File curFile = SiriusExportTask.getFileForFeatureList(featureList, fileName, "mgf");
 
@@ -202,6 +202,9 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
       throws IOException {
 
     int noMS2Counter = 0;
+    // merge in parallel, the export only selects the cached merged spectra
+    scanMergeSelect.mergeAllRows(rows.stream().filter(filter::accept).toList(), this::isCanceled,
+        mergeProgress);
     // count exported
     for (FeatureListRow row : rows) {
       // do not export if no MSMS
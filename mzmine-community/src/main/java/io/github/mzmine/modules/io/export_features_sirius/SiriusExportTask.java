@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.io.export_features_sirius;
 
+import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.IsotopePattern;
@@ -90,6 +91,8 @@ public class SiriusExportTask extends AbstractTask {
   private final NumberFormats format = MZmineCore.getConfiguration().getExportFormats();
   private final AtomicInteger exportedRows = new AtomicInteger(0);
   private final AtomicInteger processedRows = new AtomicInteger(0);
+  // increased by 1 for each feature list with merged fragment scans
+  private final AtomicDouble mergeProgress = new AtomicDouble(0);
   private final IntensityNormalizer normalizer;
   private final SpectralLibraryEntryFactory entryFactory;
   private final FragmentScanSelection scanMergeSelect;
@@ -129,7 +132,12 @@ public class SiriusExportTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    return processedRows.get() / (double) totalRows;
+    if (totalRows == 0) {
+      return 0;
+    }
+    // merging and export of the rows are weighted equally
+    return (mergeProgress.get() / featureLists.length + processedRows.get() / (double) totalRows)
+        / 2d;
   }
 
   @Override
@@ -191,6 +199,8 @@ public class SiriusExportTask extends AbstractTask {
   private void exportFeatureList(FeatureList featureList, BufferedWriter writer)
       throws IOException {
 
+    // merge in parallel, the export only selects the cached merged spectra
+    scanMergeSelect.mergeAllRows(featureList.getRows(), this::isCanceled, mergeProgress);
     for (FeatureListRow row : featureList.getRows()) {
       if (isCanceled()) {
         return;
@@ -28,6 +28,7 @@ package io.github.mzmine.modules.io.export_features_sql;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
 
@@ -49,8 +50,21 @@ public class SQLExportParameters extends SimpleParameterSet {
       "Export empty feature list",
       "If selected, an empty feature list will be exported with null values for all column other than the rawdatafile and any constant values.");
 
+  public static final IntegerParameter batchSize = new IntegerParameter("Batch size",
+      "Number of lines that are sent to the database in one batch.", 1000, 1, null);
+
+  public static final IntegerParameter connections = new IntegerParameter(
+      "Parallel connections",
+      "Number of database connections that insert rows in parallel. Multiple connections write into a temporary staging table that is moved into the target table in a single transaction, so failed exports leave the table unchanged. SQLite always uses a single connection.",
+      1, 1, 32);
+
+  public static final BooleanParameter bulkCopy = new BooleanParameter("Bulk load (COPY)",
+      "Use the COPY protocol to load rows into PostgreSQL databases. Not used for other databases or if binary columns (isotope pattern, MS/MS) are exported.",
+      true);
+
   public SQLExportParameters() {
-    super(new Parameter[] {featureList, connectionString, tableName, exportColumns, emptyExport});
+    super(new Parameter[] {featureList, connectionString, tableName, exportColumns, emptyExport,
+        batchSize, connections, bulkCopy});
   }
 
 }
@@ -22,43 +22,49 @@
  * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
  * OTHER DEALINGS IN THE SOFTWARE.
  */
-
 package io.github.mzmine.modules.io.export_features_sql;
 
-import java.io.ByteArrayInputStream;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.sql.Types;
-import io.github.mzmine.datamodel.DataPoint;
-import io.github.mzmine.datamodel.FeatureIdentity;
-import io.github.mzmine.datamodel.IsotopePattern;
-import io.github.mzmine.datamodel.MassList;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.RangeUtils;
-import io.github.mzmine.util.scans.ScanUtils;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 
 class SQLExportTask extends AbstractTask {
 
+  private static final Logger logger = Logger.getLogger(SQLExportTask.class.getName());
+
   private final FeatureList featureList;
   private final String connectionString;
   private final String tableName;
   private final SQLColumnSettings exportColumns;
   private final boolean emptyExport;
+  private final int batchSize;
+  private final int connections;
+  private final boolean bulkCopy;
 
-  private int processedRows = 0, totalRows = 0;
-
-  private Connection dbConnection;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private int totalRows = 0;
+  private long startTime;
 
   SQLExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -71,7 +77,15 @@ class SQLExportTask extends AbstractTask {
     this.tableName = parameters.getParameter(SQLExportParameters.tableName).getValue();
     this.exportColumns = parameters.getParameter(SQLExportParameters.exportColumns).getValue();
     this.emptyExport = parameters.getParameter(SQLExportParameters.emptyExport).getValue();
+    this.batchSize = parameters.getValue(SQLExportParameters.batchSize);
+    // SQLite only allows a single writer
+    this.connections = isSQLite(connectionString) ? 1
+        : parameters.getValue(SQLExportParameters.connections);
+    this.bulkCopy = parameters.getValue(SQLExportParameters.bulkCopy);
+  }
 
+  private static boolean isSQLite(String connectionString) {
+    return connectionString.startsWith("jdbc:sqlite:");
   }
 
   @Override
@@ -79,243 +93,153 @@ class SQLExportTask extends AbstractTask {
     if (totalRows == 0) {
       return 0;
     }
-    return (double) processedRows / (double) totalRows;
+    return (double) processedRows.get() / (double) totalRows;
   }
 
   @Override
   public String getTaskDescription() {
-    return "Exporting feature list \"" + featureList + "\" to SQL table " + tableName;
+    return "Exporting feature list \"" + featureList + "\" to SQL table " + tableName + " ("
+        + (int) getRowsPerSecond() + " rows/s)";
+  }
+
+  private double getRowsPerSecond() {
+    final long elapsed = System.nanoTime() - startTime;
+    return startTime == 0 || elapsed <= 0 ? 0 : processedRows.get() / (elapsed / 1E9);
   }
 
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
+    startTime = System.nanoTime();
 
-    // Get number of rows
-    totalRows = featureList.getNumberOfRows();
+    final List<FeatureListRow> rows = List.copyOf(featureList.getRows());
+    totalRows = rows.size();
 
-    try {
-      this.dbConnection = DriverManager.getConnection(connectionString);
-    } catch (SQLException e) {
-      setStatus(TaskStatus.ERROR);
-      setErrorMessage("Error connecting to the SQL database: " + e.toString());
-      return;
-    }
+    // If select, an empty row with just the raw data file
+    // information will be exported
+    final RawDataFile emptyExportFile =
+        emptyExport && !featureList.getRawDataFiles().isEmpty() ? featureList.getRawDataFiles()
+            .getFirst() : null;
 
-    FeatureListRow rows[] = featureList.getRows().toArray(FeatureListRow[]::new);
+    final SQLFeatureListWriter writer = new SQLFeatureListWriter(tableName, exportColumns,
+        batchSize);
+    final List<List<FeatureListRow>> partitions = SQLFeatureListWriter.partition(rows,
+        connections);
 
+    final long lines;
     try {
-      dbConnection.setAutoCommit(false);
-
-      // If select, an empty row with just the raw data file
-      // information will be exported
-      if (rows.length < 1 && emptyExport) {
-        exportFeatureListRow(null);
+      // a single partition is written in one transaction, parallel writers use a staging table
+      lines = partitions.size() == 1 ? writePartitions(writer, partitions, emptyExportFile)
+          : writeStaged(writer, partitions, emptyExportFile);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException sqlException) {
+        error("Error running SQL query: " + sqlException, sqlException);
       } else {
-        for (FeatureListRow row : rows) {
-          if (getStatus() != TaskStatus.PROCESSING)
-            break;
-          exportFeatureListRow(row);
-          processedRows++;
-        }
+        error("Error during SQL export: " + cause, e);
       }
-      dbConnection.commit();
-      dbConnection.close();
+      return;
     } catch (SQLException e) {
-      setStatus(TaskStatus.ERROR);
-      setErrorMessage("Error running SQL query: " + e.toString());
+      error("Error running SQL query: " + e, e);
+      return;
+    } catch (InterruptedException e) {
+      error("SQL export was interrupted", e);
       return;
     }
-
-    if (getStatus() == TaskStatus.PROCESSING)
-      setStatus(TaskStatus.FINISHED);
-
-  }
-
-  private void exportFeatureListRow(FeatureListRow row) throws SQLException {
-
-    // Cancel?
     if (isCanceled()) {
       return;
     }
 
-    // Value for looping through raw data files
-    boolean loopDataFiles = false;
+    final double seconds = (System.nanoTime() - startTime) / 1E9;
+    logger.info("Exported %d lines of %d rows from %s to SQL table %s in %.1f s (%.0f lines/s)".formatted(
+        lines, processedRows.get(), featureList.getName(), tableName, seconds,
+        seconds > 0 ? lines / seconds : lines));
 
-    StringBuilder sql = new StringBuilder();
-    sql.append("INSERT INTO ");
-    sql.append(tableName);
-    sql.append(" (");
-    for (int i = 0; i < exportColumns.getRowCount(); i++) {
-      sql.append(exportColumns.getValueAt(i, 0));
-      if (i < exportColumns.getRowCount() - 1)
-        sql.append(",");
-    }
-    sql.append(" ) VALUES (");
-    for (int i = 0; i < exportColumns.getRowCount(); i++) {
-      sql.append("?");
-      if (i < exportColumns.getRowCount() - 1)
-        sql.append(",");
+    if (getStatus() == TaskStatus.PROCESSING) {
+      setStatus(TaskStatus.FINISHED);
     }
-    sql.append(")");
-
-    PreparedStatement statement = dbConnection.prepareStatement(sql.toString());
+  }
 
-    if (row == null) {
-      for (int i = 0; i < exportColumns.getRowCount(); i++) {
-        SQLExportDataType dataType = (SQLExportDataType) exportColumns.getValueAt(i, 1);
-        String dataValue = (String) exportColumns.getValueAt(i, 2);
-        switch (dataType) {
-          case CONSTANT:
-            statement.setString(i + 1, dataValue);
-            break;
-          case RAWFILE:
-            RawDataFile rawdatafiles[] = featureList.getRawDataFiles().toArray(RawDataFile[]::new);
-            statement.setString(i + 1, rawdatafiles[0].getName());
-            break;
-          default:
-            statement.setString(i + 1, null);
-            break;
+  /**
+   * Writes all partitions into a new staging table and moves the lines into the target table in
+   * one transaction. The staging table is always dropped, so the target table stays unchanged on
+   * errors and cancellation.
+   */
+  private long writeStaged(SQLFeatureListWriter writer, List<List<FeatureListRow>> partitions,
+      RawDataFile emptyExportFile)
+      throws SQLException, ExecutionException, InterruptedException {
+    final String stagingTable = "%s_staging_%s".formatted(tableName,
+        UUID.randomUUID().toString().replace("-", "").substring(0, 12));
+
+    try (Connection connection = DriverManager.getConnection(connectionString);
+        Statement statement = connection.createStatement()) {
+      statement.execute(writer.getCreateStagingStatement(stagingTable));
+      try {
+        final long lines = writePartitions(writer.forTable(stagingTable), partitions,
+            emptyExportFile);
+        if (isCanceled()) {
+          return lines;
+        }
+        connection.setAutoCommit(false);
+        try {
+          statement.executeUpdate(writer.getMoveStagingStatement(stagingTable));
+          connection.commit();
+        } catch (SQLException e) {
+          connection.rollback();
+          throw e;
+        } finally {
+          connection.setAutoCommit(true);
+        }
+        return lines;
+      } finally {
+        try {
+          statement.execute("DROP TABLE IF EXISTS " + stagingTable);
+        } catch (SQLException e) {
+          logger.log(Level.WARNING, "Cannot drop SQL staging table " + stagingTable, e);
         }
       }
-      statement.executeUpdate();
     }
+  }
 
-    else {
-      for (RawDataFile rawDataFile : row.getRawDataFiles()) {
-        Feature feature = row.getFeature(rawDataFile);
-
-        for (int i = 0; i < exportColumns.getRowCount(); i++) {
-          SQLExportDataType dataType = (SQLExportDataType) exportColumns.getValueAt(i, 1);
-          String dataValue = (String) exportColumns.getValueAt(i, 2);
-          switch (dataType) {
-            case CONSTANT:
-              statement.setString(i + 1, dataValue);
-              break;
-            case MZ:
-              statement.setDouble(i + 1, row.getAverageMZ());
-              break;
-            case RT:
-              statement.setDouble(i + 1, row.getAverageRT());
-              break;
-            case ID:
-              statement.setInt(i + 1, row.getID());
-              break;
-            case FEATURECHARGE:
-              statement.setDouble(i + 1, feature.getCharge());
-              loopDataFiles = true;
-              break;
-            case FEATUREDURATION:
-              statement.setDouble(i + 1, RangeUtils.rangeLength(feature.getRawDataPointsRTRange()));
-              loopDataFiles = true;
-              break;
-            case FEATURESTATUS:
-              statement.setString(i + 1, feature.getFeatureStatus().name());
-              loopDataFiles = true;
-              break;
-            case FEATUREMZ:
-              statement.setDouble(i + 1, feature.getMZ());
-              loopDataFiles = true;
-              break;
-            case FEATURERT:
-              statement.setDouble(i + 1, feature.getRT());
-              loopDataFiles = true;
-              break;
-            case FEATURERT_START:
-              statement.setDouble(i + 1, feature.getRawDataPointsRTRange().lowerEndpoint());
-              loopDataFiles = true;
-              break;
-            case FEATURERT_END:
-              statement.setDouble(i + 1, feature.getRawDataPointsRTRange().upperEndpoint());
-              loopDataFiles = true;
-              break;
-            case FEATUREHEIGHT:
-              statement.setDouble(i + 1, feature.getHeight());
-              loopDataFiles = true;
-              break;
-            case FEATUREAREA:
-              statement.setDouble(i + 1, feature.getArea());
-              loopDataFiles = true;
-              break;
-            case DATAPOINTS:
-              statement.setDouble(i + 1, feature.getScanNumbers().size());
-              loopDataFiles = true;
-              break;
-            case FWHM:
-              statement.setDouble(i + 1, feature.getFWHM());
-              loopDataFiles = true;
-              break;
-            case TAILINGFACTOR:
-              statement.setDouble(i + 1, feature.getTailingFactor());
-              loopDataFiles = true;
-              break;
-            case ASYMMETRYFACTOR:
-              statement.setDouble(i + 1, feature.getAsymmetryFactor());
-              loopDataFiles = true;
-              break;
-            case RAWFILE:
-              statement.setString(i + 1, rawDataFile.getName());
-              loopDataFiles = true;
-              break;
-            case HEIGHT:
-              statement.setDouble(i + 1, row.getMaxHeight());
-              break;
-            case AREA:
-              statement.setDouble(i + 1, row.getMaxArea());
-              break;
-            case COMMENT:
-              statement.setString(i + 1, row.getComment());
-              break;
-            case IDENTITY:
-              FeatureIdentity id = row.getPreferredFeatureIdentity();
-              if (id != null) {
-                statement.setString(i + 1, id.getName());
-              } else {
-                statement.setNull(i + 1, Types.VARCHAR);
-              }
-              break;
-            case ISOTOPEPATTERN:
-              IsotopePattern isotopes = row.getBestIsotopePattern();
-              if (isotopes == null) {
-                statement.setNull(i + 1, Types.BLOB);
-                break;
-              }
-              DataPoint dataPoints[] = ScanUtils.extractDataPoints(isotopes);
-              byte bytes[] = ScanUtils.encodeDataPointsToBytes(dataPoints);
-              ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-              statement.setBlob(i + 1, is);
-              break;
-            case MSMS:
-              Scan msmsScan = row.getBestFeature().getMostIntenseFragmentScan();
-              // Check if there is any MS/MS scan
-              if (msmsScan == null) {
-                statement.setNull(i + 1, Types.BLOB);
-                break;
-              }
-              MassList msmsMassList = msmsScan.getMassList();
-              // Check if there is a masslist for the scan
-              if (msmsMassList == null) {
-                statement.setNull(i + 1, Types.BLOB);
-                break;
-              }
-              dataPoints = msmsMassList.getDataPoints();
-              bytes = ScanUtils.encodeDataPointsToBytes(dataPoints);
-              is = new ByteArrayInputStream(bytes);
-              statement.setBlob(i + 1, is);
-              break;
-            default:
-              break;
-          }
+  /**
+   * Writes each partition on its own connection. The first failure stops and cancels all other
+   * partitions, which roll back their transactions.
+   */
+  private long writePartitions(SQLFeatureListWriter writer, List<List<FeatureListRow>> partitions,
+      RawDataFile emptyExportFile) throws ExecutionException, InterruptedException {
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    final BooleanSupplier stop = () -> failed.get() || isCanceled();
+
+    // JDBC calls block on I/O
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      final List<Future<Long>> futures = new ArrayList<>();
+      for (List<FeatureListRow> partition : partitions) {
+        futures.add(
+            executor.submit(() -> writePartition(writer, partition, emptyExportFile, stop)));
+      }
+      long lines = 0;
+      try {
+        for (Future<Long> future : futures) {
+          lines += future.get();
         }
-        statement.executeUpdate();
+      } catch (ExecutionException | InterruptedException e) {
+        failed.set(true);
+        futures.forEach(future -> future.cancel(true));
+        throw e;
+      }
+      return lines;
+    }
+  }
 
-        // If no data file elements are selected then don't loop through
-        // all
-        // data files in feature list
-        if (!loopDataFiles) {
-          break;
-        }
+  private long writePartition(SQLFeatureListWriter writer, List<FeatureListRow> rows,
+      RawDataFile emptyExportFile, BooleanSupplier stop) throws SQLException {
+    try (Connection connection = DriverManager.getConnection(connectionString)) {
+      if (bulkCopy && writer.supportsCopy(connection)) {
+        return writer.copyRows(connection, rows, emptyExportFile, stop,
+            processedRows::incrementAndGet);
       }
+      return writer.insertRows(connection, rows, emptyExportFile, stop,
+          processedRows::incrementAndGet);
     }
   }
 }
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_sql;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.FeatureIdentity;
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.util.RangeUtils;
+import io.github.mzmine.util.scans.ScanUtils;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Writes feature list rows into one database table. Lines are either inserted with batched
+ * prepared statements or streamed with the PostgreSQL COPY protocol. Each call writes its rows in
+ * one transaction on the given connection, so multiple connections can be used in parallel.
+ * Parallel writers fill a staging table that is moved into the target table with one statement.
+ */
+final class SQLFeatureListWriter {
+
+  private final String tableName;
+  private final List<SQLRowObject> columns;
+  private final int batchSize;
+  /**
+   * Feature columns export one line per feature, otherwise one line per row
+   */
+  private final boolean featureColumns;
+  private final boolean blobColumns;
+
+  SQLFeatureListWriter(@NotNull String tableName, @NotNull SQLColumnSettings settings,
+      int batchSize) {
+    this(tableName, List.copyOf(settings.getTableData()), batchSize);
+  }
+
+  private SQLFeatureListWriter(@NotNull String tableName, @NotNull List<SQLRowObject> columns,
+      int batchSize) {
+    this.tableName = tableName;
+    this.columns = columns;
+    this.batchSize = Math.max(1, batchSize);
+    featureColumns = columns.stream().anyMatch(c -> isFeatureColumn(c.getType()));
+    blobColumns = columns.stream().anyMatch(c -> "BLOB".equals(c.getType().valueType()));
+  }
+
+  private static boolean isFeatureColumn(SQLExportDataType type) {
+    return switch (type) {
+      case FEATURECHARGE, FEATUREDURATION, FEATURESTATUS, FEATUREMZ, FEATURERT, FEATURERT_START,
+           FEATURERT_END, FEATUREHEIGHT, FEATUREAREA, DATAPOINTS, FWHM, TAILINGFACTOR,
+           ASYMMETRYFACTOR, RAWFILE -> true;
+      default -> false;
+    };
+  }
+
+  private static int sqlType(SQLExportDataType type) {
+    return switch (type.valueType()) {
+      case "INT" -> Types.INTEGER;
+      case "DOUBLE" -> Types.DOUBLE;
+      case "BLOB" -> Types.BLOB;
+      default -> Types.VARCHAR;
+    };
+  }
+
+  /**
+   * @return true if the connection is a PostgreSQL connection and all columns can be written as
+   * text by COPY
+   */
+  boolean supportsCopy(@NotNull Connection connection) {
+    try {
+      return !blobColumns && connection.isWrapperFor(PGConnection.class);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return a writer with the same columns that writes into another table
+   */
+  @NotNull SQLFeatureListWriter forTable(@NotNull String otherTable) {
+    return new SQLFeatureListWriter(otherTable, columns, batchSize);
+  }
+
+  private String getColumnNames() {
+    return columns.stream().map(SQLRowObject::getName).collect(Collectors.joining(","));
+  }
+
+  /**
+   * @return statement that creates an empty table with the exported columns of this table
+   */
+  String getCreateStagingStatement(@NotNull String stagingTable) {
+    return "CREATE TABLE %s AS SELECT %s FROM %s WHERE 1=0".formatted(stagingTable,
+        getColumnNames(), tableName);
+  }
+
+  /**
+   * @return statement that copies all lines of the staging table into this table
+   */
+  String getMoveStagingStatement(@NotNull String stagingTable) {
+    final String names = getColumnNames();
+    return "INSERT INTO %s (%s) SELECT %s FROM %s".formatted(tableName, names, names,
+        stagingTable);
+  }
+
+  String getInsertStatement() {
+    return "INSERT INTO %s (%s) VALUES (%s)".formatted(tableName, getColumnNames(),
+        columns.stream().map(_ -> "?").collect(Collectors.joining(",")));
+  }
+
+  String getCopyStatement() {
+    return "COPY %s (%s) FROM STDIN WITH CSV".formatted(tableName, getColumnNames());
+  }
+
+  /**
+   * Inserts all lines of the rows with batched prepared statements and commits once.
+   *
+   * @param emptyExportFile if not null and rows are empty, a single line with the raw data file
+   *                        name and constants is exported
+   * @return the number of inserted lines
+   */
+  long insertRows(@NotNull Connection connection, @NotNull List<FeatureListRow> rows,
+      @Nullable RawDataFile emptyExportFile, @NotNull BooleanSupplier isCanceled,
+      @NotNull Runnable onRowFinished) throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement statement = connection.prepareStatement(getInsertStatement())) {
+      long lines = 0;
+      int pending = 0;
+      if (rows.isEmpty() && emptyExportFile != null) {
+        bind(statement, emptyLine(emptyExportFile));
+        statement.addBatch();
+        lines++;
+        pending++;
+      }
+      for (FeatureListRow row : rows) {
+        if (isCanceled.getAsBoolean()) {
+          connection.rollback();
+          return lines;
+        }
+        for (RawDataFile raw : getLineFiles(row)) {
+          bind(statement, line(row, raw));
+          statement.addBatch();
+          lines++;
+          if (++pending == batchSize) {
+            statement.executeBatch();
+            pending = 0;
+          }
+        }
+        onRowFinished.run();
+      }
+      if (pending > 0) {
+        statement.executeBatch();
+      }
+      connection.commit();
+      return lines;
+    } catch (SQLException e) {
+      rollbackQuietly(connection);
+      throw e;
+    }
+  }
+
+  /**
+   * Streams all lines of the rows as CSV with the PostgreSQL COPY protocol and commits once.
+   *
+   * @return the number of copied lines
+   * @see #supportsCopy(Connection)
+   */
+  long copyRows(@NotNull Connection connection, @NotNull List<FeatureListRow> rows,
+      @Nullable RawDataFile emptyExportFile, @NotNull BooleanSupplier isCanceled,
+      @NotNull Runnable onRowFinished) throws SQLException {
+    connection.setAutoCommit(false);
+    final CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+        .copyIn(getCopyStatement());
+    try {
+      final StringBuilder csv = new StringBuilder();
+      long lines = 0;
+      int pending = 0;
+      if (rows.isEmpty() && emptyExportFile != null) {
+        appendCsv(csv, emptyLine(emptyExportFile));
+        lines++;
+        pending++;
+      }
+      for (FeatureListRow row : rows) {
+        if (isCanceled.getAsBoolean()) {
+          copy.cancelCopy();
+          connection.rollback();
+          return lines;
+        }
+        for (RawDataFile raw : getLineFiles(row)) {
+          appendCsv(csv, line(row, raw));
+          lines++;
+          if (++pending == batchSize) {
+            writeToCopy(copy, csv);
+            pending = 0;
+          }
+        }
+        onRowFinished.run();
+      }
+      writeToCopy(copy, csv);
+      copy.endCopy();
+      connection.commit();
+      return lines;
+    } catch (SQLException e) {
+      if (copy.isActive()) {
+        copy.cancelCopy();
+      }
+      rollbackQuietly(connection);
+      throw e;
+    }
+  }
+
+  private static void writeToCopy(CopyIn copy, StringBuilder csv) throws SQLException {
+    if (csv.isEmpty()) {
+      return;
+    }
+    final byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+    copy.writeToCopy(bytes, 0, bytes.length);
+    csv.setLength(0);
+  }
+
+  private static void rollbackQuietly(Connection connection) {
+    try {
+      connection.rollback();
+    } catch (SQLException _) {
+      // the original exception is more relevant
+    }
+  }
+
+  /**
+   * A line per feature if feature columns are exported, otherwise only the first raw data file.
+   */
+  private List<RawDataFile> getLineFiles(FeatureListRow row) {
+    final List<RawDataFile> files = row.getRawDataFiles();
+    if (featureColumns || files.isEmpty()) {
+      return files;
+    }
+    return files.subList(0, 1);
+  }
+
+  private void bind(PreparedStatement statement, Object[] values) throws SQLException {
+    for (int i = 0; i < values.length; i++) {
+      final int index = i + 1;
+      switch (values[i]) {
+        case null -> statement.setNull(index, sqlType(columns.get(i).getType()));
+        case byte[] bytes -> statement.setBlob(index, new ByteArrayInputStream(bytes));
+        case Integer value -> statement.setInt(index, value);
+        case Number value -> statement.setDouble(index, value.doubleValue());
+        default -> statement.setString(index, values[i].toString());
+      }
+    }
+  }
+
+  /**
+   * CSV format of COPY: unquoted empty values are null, text is always quoted
+   */
+  private static void appendCsv(StringBuilder csv, Object[] values) {
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        csv.append(',');
+      }
+      switch (values[i]) {
+        case null -> {
+        }
+        case Number value -> csv.append(value);
+        default -> csv.append('"').append(values[i].toString().replace("\"", "\"\""))
+            .append('"');
+      }
+    }
+    csv.append('\n');
+  }
+
+  private Object[] emptyLine(RawDataFile raw) {
+    final Object[] values = new Object[columns.size()];
+    for (int i = 0; i < values.length; i++) {
+      final SQLRowObject column = columns.get(i);
+      values[i] = switch (column.getType()) {
+        case CONSTANT -> column.getValue();
+        case RAWFILE -> raw.getName();
+        default -> null;
+      };
+    }
+    return values;
+  }
+
+  private Object[] line(FeatureListRow row, RawDataFile raw) {
+    final Feature feature = row.getFeature(raw);
+    final Object[] values = new Object[columns.size()];
+    for (int i = 0; i < values.length; i++) {
+      final SQLRowObject column = columns.get(i);
+      values[i] = switch (column.getType()) {
+        case CONSTANT -> column.getValue();
+        case MZ -> row.getAverageMZ();
+        case RT -> toDouble(row.getAverageRT());
+        case ID -> row.getID();
+        case FEATURECHARGE -> toDouble(feature.getCharge());
+        case FEATUREDURATION -> RangeUtils.rangeLength(feature.getRawDataPointsRTRange());
+        case FEATURESTATUS -> feature.getFeatureStatus().name();
+        case FEATUREMZ -> feature.getMZ();
+        case FEATURERT -> toDouble(feature.getRT());
+        case FEATURERT_START -> toDouble(feature.getRawDataPointsRTRange().lowerEndpoint());
+        case FEATURERT_END -> toDouble(feature.getRawDataPointsRTRange().upperEndpoint());
+        case FEATUREHEIGHT -> toDouble(feature.getHeight());
+        case FEATUREAREA -> toDouble(feature.getArea());
+        case DATAPOINTS -> (double) feature.getScanNumbers().size();
+        case FWHM -> toDouble(feature.getFWHM());
+        case TAILINGFACTOR -> toDouble(feature.getTailingFactor());
+        case ASYMMETRYFACTOR -> toDouble(feature.getAsymmetryFactor());
+        case RAWFILE -> raw.getName();
+        case HEIGHT -> toDouble(row.getMaxHeight());
+        case AREA -> toDouble(row.getMaxArea());
+        case COMMENT -> row.getComment();
+        case IDENTITY -> {
+          final FeatureIdentity identity = row.getPreferredFeatureIdentity();
+          yield identity != null ? identity.getName() : null;
+        }
+        case ISOTOPEPATTERN -> {
+          final IsotopePattern isotopes = row.getBestIsotopePattern();
+          if (isotopes == null) {
+            yield null;
+          }
+          final DataPoint[] dataPoints = ScanUtils.extractDataPoints(isotopes);
+          yield ScanUtils.encodeDataPointsToBytes(dataPoints);
+        }
+        case MSMS -> {
+          final Scan msmsScan = row.getBestFeature().getMostIntenseFragmentScan();
+          final MassList massList = msmsScan != null ? msmsScan.getMassList() : null;
+          yield massList != null ? ScanUtils.encodeDataPointsToBytes(massList.getDataPoints())
+              : null;
+        }
+        default -> null;
+      };
+    }
+    return values;
+  }
+
+  private static @Nullable Double toDouble(@Nullable Number value) {
+    return value == null ? null : value.doubleValue();
+  }
+
+  /**
+   * Splits the rows into about equal contiguous parts, one per connection
+   */
+  static @NotNull List<List<FeatureListRow>> partition(@NotNull List<FeatureListRow> rows,
+      int parts) {
+    parts = Math.max(1, Math.min(parts, rows.size()));
+    final List<List<FeatureListRow>> partitions = new ArrayList<>(parts);
+    for (int i = 0; i < parts; i++) {
+      final int start = (int) ((long) rows.size() * i / parts);
+      final int end = (int) ((long) rows.size() * (i + 1) / parts);
+      partitions.add(rows.subList(start, end));
+    }
+    return partitions;
+  }
+}
@@ -38,6 +38,7 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.io.WriterOptions;
 import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.MappedSpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.entry.SpectralDBEntry;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
@@ -130,7 +131,12 @@ public class MergeLibrariesTask extends AbstractTask {
           final String newEntryId = idHandling.getNewEntryId(libraryName, entry, usedIds,
               () -> entryId.incrementAndGet() + "_id"); // add suffix to not end with number
 
-          final SpectralDBEntry copy = new SpectralDBEntry((SpectralDBEntry) entry);
+          final SpectralDBEntry copy = switch (entry) {
+            case SpectralDBEntry dbEntry -> new SpectralDBEntry(dbEntry);
+            case MappedSpectralLibraryEntry mapped -> mapped.toSpectralDBEntry();
+            default -> new SpectralDBEntry(null, entry.getMzValues(new double[0]),
+                entry.getIntensityValues(new double[0]), entry.getFields(), entry.getLibrary());
+          };
           usedIds.add(newEntryId); // add to duplicates to avoid another one
           copy.putIfNotNull(DBEntryField.ENTRY_ID, newEntryId);
           ExportScansFeatureTask.exportEntry(w, copy, format, intensityNormalizer);
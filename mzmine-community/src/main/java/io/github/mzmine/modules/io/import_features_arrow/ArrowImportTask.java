@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_features_arrow;
+
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.FEATURES_SUFFIX;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.FEATURE_DATA_SUFFIX;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.FEATURE_LIST_METADATA_KEY;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.INTENSITY_COLUMN;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.MZ_COLUMN;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.RAW_FILES_METADATA_KEY;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.RAW_FILE_COLUMN;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.ROW_ID_COLUMN;
+import static io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask.SCAN_COLUMN;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.FeatureDataType;
+import io.github.mzmine.datamodel.features.types.numbers.IDType;
+import io.github.mzmine.modules.io.export_features_arrow.ArrowDataTypeColumn;
+import io.github.mzmine.modules.io.export_features_arrow.ArrowExportTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.MemoryMapStorage;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Logger;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.message.ArrowBlock;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Imports feature lists from Arrow IPC files written by
+ * {@link io.github.mzmine.modules.io.export_features_arrow.ArrowExportModule}. The raw data files
+ * are matched by name and need to be imported first. Feature shapes are restored if the feature
+ * data table was exported.
+ * <p>
+ * Ion mobility is not supported: features of {@link IMSRawDataFile}s are restored as
+ * {@link SimpleIonTimeSeries} over the frames, without mobilograms.
+ */
+public class ArrowImportTask extends AbstractTask {
+
+  private static final Logger logger = Logger.getLogger(ArrowImportTask.class.getName());
+
+  private final MZmineProject project;
+  private final File[] files;
+  private final ParameterSet parameters;
+  private int finishedFiles = 0;
+
+  ArrowImportTask(MZmineProject project, ParameterSet parameters,
+      @Nullable MemoryMapStorage storage, @NotNull Instant moduleCallDate) {
+    super(storage, moduleCallDate);
+    this.project = project;
+    this.parameters = parameters;
+    files = parameters.getValue(ArrowImportParameters.files);
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Importing feature lists from Arrow files (%d/%d)".formatted(finishedFiles,
+        files.length);
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return files.length == 0 ? 0 : finishedFiles / (double) files.length;
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+
+    try (BufferAllocator allocator = new RootAllocator()) {
+      for (File file : files) {
+        if (isCanceled()) {
+          return;
+        }
+        final ModularFeatureList flist = importFeatureList(allocator, file);
+        if (flist == null) {
+          return;
+        }
+        project.addFeatureList(flist);
+        finishedFiles++;
+      }
+    } catch (IOException | RuntimeException e) {
+      error("Could not import feature list from Arrow file: " + e.getMessage(), e);
+      return;
+    }
+
+    setStatus(TaskStatus.FINISHED);
+  }
+
+  private @Nullable ModularFeatureList importFeatureList(BufferAllocator allocator, File rowsFile)
+      throws IOException {
+    final Map<String, RawDataFile> projectFiles = new HashMap<>();
+    for (RawDataFile raw : project.getDataFiles()) {
+      projectFiles.putIfAbsent(raw.getName(), raw);
+    }
+
+    final ModularFeatureList flist;
+    final Int2ObjectMap<ModularFeatureListRow> rowsById = new Int2ObjectOpenHashMap<>();
+    final Map<String, RawDataFile> dataFiles = new HashMap<>();
+
+    try (FileChannel channel = FileChannel.open(rowsFile.toPath(), StandardOpenOption.READ);
+        ArrowFileReader reader = new ArrowFileReader(channel, allocator)) {
+      final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      final Schema schema = root.getSchema();
+
+      // raw data files need to be part of the project
+      final List<RawDataFile> flistFiles = new ArrayList<>();
+      final String rawNames = schema.getCustomMetadata().getOrDefault(RAW_FILES_METADATA_KEY, "");
+      for (String name : rawNames.split("\n")) {
+        if (name.isBlank()) {
+          continue;
+        }
+        final RawDataFile raw = projectFiles.get(name);
+        if (raw == null) {
+          error("Raw data file %s of feature list file %s is not loaded. Import all raw data files first.".formatted(
+              name, rowsFile.getName()));
+          return null;
+        }
+        flistFiles.add(raw);
+        dataFiles.put(name, raw);
+      }
+
+      final String name = schema.getCustomMetadata()
+          .getOrDefault(FEATURE_LIST_METADATA_KEY, rowsFile.getName());
+      flist = new ModularFeatureList(name, storage, flistFiles);
+
+      final String idColumn = DataTypes.get(IDType.class).getUniqueID();
+      final IntVector ids = root.getVector(idColumn) instanceof IntVector v ? v : null;
+      if (ids == null) {
+        error("File %s does not contain a row id column.".formatted(rowsFile.getName()));
+        return null;
+      }
+      final List<ArrowDataTypeColumn> columns = bindColumns(root, Set.of());
+
+      for (ArrowBlock block : reader.getRecordBlocks()) {
+        if (isCanceled()) {
+          return null;
+        }
+        reader.loadRecordBatch(block);
+        for (int i = 0; i < root.getRowCount(); i++) {
+          final ModularFeatureListRow row = new ModularFeatureListRow(flist, ids.get(i));
+          for (ArrowDataTypeColumn column : columns) {
+            column.read(i, row);
+          }
+          flist.addRow(row);
+          rowsById.put(row.getID().intValue(), row);
+        }
+      }
+    }
+
+    final File featuresFile = ArrowExportTask.getSiblingFile(rowsFile, FEATURES_SUFFIX);
+    if (featuresFile.exists()) {
+      importFeatures(allocator, featuresFile, flist, rowsById, dataFiles);
+    }
+    final File dataFile = ArrowExportTask.getSiblingFile(rowsFile, FEATURE_DATA_SUFFIX);
+    if (dataFile.exists()) {
+      importFeatureData(allocator, dataFile, rowsById, dataFiles);
+    }
+
+    for (RawDataFile raw : flist.getRawDataFiles()) {
+      flist.setSelectedScans(raw, raw.getScanNumbers(1));
+    }
+    flist.addDescriptionOfAppliedTask(
+        new SimpleFeatureListAppliedMethod(ArrowImportModule.class, parameters,
+            getModuleCallDate()));
+    logger.finest("Imported %d rows of feature list %s from %s".formatted(flist.getNumberOfRows(),
+        flist.getName(), rowsFile.getAbsolutePath()));
+    return flist;
+  }
+
+  private void importFeatures(BufferAllocator allocator, File file, ModularFeatureList flist,
+      Int2ObjectMap<ModularFeatureListRow> rowsById, Map<String, RawDataFile> dataFiles)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ArrowFileReader reader = new ArrowFileReader(channel, allocator)) {
+      final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      final IntVector rowIds = (IntVector) root.getVector(ROW_ID_COLUMN);
+      final VarCharVector rawFiles = (VarCharVector) root.getVector(RAW_FILE_COLUMN);
+      final List<ArrowDataTypeColumn> columns = bindColumns(root,
+          Set.of(ROW_ID_COLUMN, RAW_FILE_COLUMN));
+
+      for (ArrowBlock block : reader.getRecordBlocks()) {
+        if (isCanceled()) {
+          return;
+        }
+        reader.loadRecordBatch(block);
+        for (int i = 0; i < root.getRowCount(); i++) {
+          final ModularFeatureListRow row = rowsById.get(rowIds.get(i));
+          final RawDataFile raw = dataFiles.get(
+              new String(rawFiles.get(i), StandardCharsets.UTF_8));
+          if (row == null || raw == null) {
+            continue;
+          }
+          // detection type is overwritten by the imported value
+          final ModularFeature feature = new ModularFeature(flist, raw, FeatureStatus.UNKNOWN);
+          for (ArrowDataTypeColumn column : columns) {
+            column.read(i, feature);
+          }
+          row.addFeature(raw, feature, false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Data points are grouped by feature in the exported file. Scans are matched by scan number.
+   */
+  private void importFeatureData(BufferAllocator allocator, File file,
+      Int2ObjectMap<ModularFeatureListRow> rowsById, Map<String, RawDataFile> dataFiles)
+      throws IOException {
+    final Map<RawDataFile, Int2ObjectMap<Scan>> scansByNumber = new HashMap<>();
+    dataFiles.values().stream().filter(IMSRawDataFile.class::isInstance).findFirst()
+        .ifPresent(raw -> logger.warning(
+            "Ion mobility data of %s is not restored from %s. Features only contain the retention time dimension.".formatted(
+                raw.getName(), file.getName())));
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ArrowFileReader reader = new ArrowFileReader(channel, allocator)) {
+      final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      final IntVector rowIds = (IntVector) root.getVector(ROW_ID_COLUMN);
+      final VarCharVector rawFiles = (VarCharVector) root.getVector(RAW_FILE_COLUMN);
+      final IntVector scanNumbers = (IntVector) root.getVector(SCAN_COLUMN);
+      final Float8Vector mzs = (Float8Vector) root.getVector(MZ_COLUMN);
+      final Float8Vector intensities = (Float8Vector) root.getVector(INTENSITY_COLUMN);
+
+      final FeatureDataBuilder current = new FeatureDataBuilder();
+      for (ArrowBlock block : reader.getRecordBlocks()) {
+        if (isCanceled()) {
+          return;
+        }
+        reader.loadRecordBatch(block);
+        for (int i = 0; i < root.getRowCount(); i++) {
+          final int rowId = rowIds.get(i);
+          final String rawName = new String(rawFiles.get(i), StandardCharsets.UTF_8);
+          if (current.rowId != rowId || !Objects.equals(current.rawName, rawName)) {
+            current.finish();
+            final ModularFeatureListRow row = rowsById.get(rowId);
+            final RawDataFile raw = dataFiles.get(rawName);
+            final Feature feature = row == null || raw == null ? null : row.getFeature(raw);
+            current.start(rowId, rawName, (ModularFeature) feature,
+                raw == null ? null : scansByNumber.computeIfAbsent(raw, this::indexScans));
+          }
+          current.add(scanNumbers.get(i), mzs.get(i), intensities.get(i));
+        }
+      }
+      current.finish();
+    }
+  }
+
+  private Int2ObjectMap<Scan> indexScans(RawDataFile raw) {
+    final Int2ObjectMap<Scan> scans = new Int2ObjectOpenHashMap<>();
+    for (Scan scan : raw.getScans()) {
+      scans.putIfAbsent(scan.getScanNumber(), scan);
+    }
+    return scans;
+  }
+
+  /**
+   * Maps all fields of the schema to their data types. Fields that are not mzmine types or cannot
+   * be parsed are skipped.
+   */
+  private static List<ArrowDataTypeColumn> bindColumns(VectorSchemaRoot root,
+      Set<String> skipFields) {
+    final Set<DataType<?>> types = new LinkedHashSet<>();
+    for (Field field : root.getSchema().getFields()) {
+      if (skipFields.contains(field.getName())) {
+        continue;
+      }
+      final DataType<?> type = DataTypes.getTypeForId(removeRangeSuffix(field.getName()));
+      if (type != null) {
+        types.add(type);
+      }
+    }
+
+    final List<ArrowDataTypeColumn> columns = new ArrayList<>();
+    for (ArrowDataTypeColumn column : ArrowDataTypeColumn.ofTypes(types)) {
+      if (column.isImportable() && column.bind(root)) {
+        columns.add(column);
+      } else {
+        logger.finest("Skipping column of type " + column.getType().getUniqueID());
+      }
+    }
+    return columns;
+  }
+
+  private static String removeRangeSuffix(String name) {
+    if (name.endsWith(ArrowDataTypeColumn.RANGE_MIN_SUFFIX)) {
+      return name.substring(0, name.length() - ArrowDataTypeColumn.RANGE_MIN_SUFFIX.length());
+    }
+    if (name.endsWith(ArrowDataTypeColumn.RANGE_MAX_SUFFIX)) {
+      return name.substring(0, name.length() - ArrowDataTypeColumn.RANGE_MAX_SUFFIX.length());
+    }
+    return name;
+  }
+
+  /**
+   * Collects the data points of one feature
+   */
+  private class FeatureDataBuilder {
+
+    private final DoubleArrayList mzs = new DoubleArrayList();
+    private final DoubleArrayList intensities = new DoubleArrayList();
+    private final List<Scan> scans = new ArrayList<>();
+    private int rowId = -1;
+    private @Nullable String rawName;
+    private @Nullable ModularFeature feature;
+    private @Nullable Int2ObjectMap<Scan> scanMap;
+
+    void start(int rowId, String rawName, @Nullable ModularFeature feature,
+        @Nullable Int2ObjectMap<Scan> scanMap) {
+      this.rowId = rowId;
+      this.rawName = rawName;
+      this.feature = feature;
+      this.scanMap = scanMap;
+      mzs.clear();
+      intensities.clear();
+      scans.clear();
+    }
+
+    void add(int scanNumber, double mz, double intensity) {
+      if (feature == null || scanMap == null) {
+        return;
+      }
+      final Scan scan = scanMap.get(scanNumber);
+      if (scan == null) {
+        return;
+      }
+      scans.add(scan);
+      mzs.add(mz);
+      intensities.add(intensity);
+    }
+
+    void finish() {
+      if (feature == null || scans.isEmpty()) {
+        return;
+      }
+      feature.set(FeatureDataType.class,
+          new SimpleIonTimeSeries(storage, mzs.toDoubleArray(), intensities.toDoubleArray(),
+              List.copyOf(scans)));
+      feature = null;
+    }
+  }
+}
@@ -27,6 +27,7 @@ package io.github.mzmine.modules.io.import_rawdata_all;
 import com.google.common.collect.Range;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectors;
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming.StreamingLibrarySearchParameters;
 import io.github.mzmine.modules.tools.batchwizard.subparameters.MassDetectorWizardOptions;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
@@ -36,6 +37,7 @@ import io.github.mzmine.parameters.parametertypes.ranges.DoubleRangeParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelectionParameter;
 import io.github.mzmine.parameters.parametertypes.submodules.ModuleOptionsEnumComboParameter;
+import io.github.mzmine.parameters.parametertypes.submodules.OptionalModuleParameter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -64,9 +66,15 @@ public class AdvancedSpectraImportParameters extends SimpleParameterSet {
       This reduces the intensity differences between spectra acquired with different injection times
       and reverts to "raw" intensities.""", false);
 
+  public static final OptionalModuleParameter<StreamingLibrarySearchParameters> streamingLibrarySearch = new OptionalModuleParameter<>(
+      "Library search during import", """
+      Match fragment scans against spectral libraries while the data is imported and write the matches
+      to a file, e.g., for quality control of running acquisitions. Does not annotate feature lists.""",
+      new StreamingLibrarySearchParameters(), false);
 
   public AdvancedSpectraImportParameters() {
-    super(scanFilter, mzRange, msMassDetection, ms2MassDetection, denormalizeMSnScans);
+    super(scanFilter, mzRange, msMassDetection, ms2MassDetection, denormalizeMSnScans,
+        streamingLibrarySearch);
   }
 
   /**
@@ -26,6 +26,9 @@
 package io.github.mzmine.modules.io.import_rawdata_all;
 
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming.StreamingSpectralLibrarySearch;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.StreamingLibrarySearchMsProcessor;
 import io.github.mzmine.modules.visualization.projectmetadata.color.ColorByMetadataParameters;
 import io.github.mzmine.modules.visualization.projectmetadata.color.ColorByMetadataTask;
 import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportParameters;
@@ -40,18 +43,33 @@ import io.github.mzmine.taskcontrol.threadpools.ThreadPoolTask;
 import java.io.File;
 import java.time.Instant;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class AllSpectralDataImportMainTask extends AbstractTask {
 
+  private static final Logger logger = Logger.getLogger(
+      AllSpectralDataImportMainTask.class.getName());
+
   private final ThreadPoolTask mainImportTask;
   private final File metadataFile;
   private final ParameterSet parameters;
   private final boolean sortAndRecolor;
+  private final @Nullable StreamingSpectralLibrarySearch streamingSearch;
 
+  /**
+   * @param scanProcessorConfig used by the import tasks, a streaming library search in the
+   *                            processors is started before and closed after the import
+   */
   public AllSpectralDataImportMainTask(final List<? extends Task> tasks,
-      final @NotNull ParameterSet parameters) {
+      final @NotNull ParameterSet parameters,
+      final @NotNull ScanImportProcessorConfig scanProcessorConfig) {
     super(Instant.now(), "Main data import task");
+    streamingSearch = scanProcessorConfig.processor()
+        .findFirst(StreamingLibrarySearchMsProcessor.class)
+        .map(StreamingLibrarySearchMsProcessor::getSearch).orElse(null);
     mainImportTask = ThreadPoolTask.createDefaultTaskManagerPool("Importing data", tasks);
     metadataFile = parameters.getEmbeddedParameterValueIfSelectedOrElse(
         AllSpectralDataImportParameters.metadataFile, null);
@@ -74,14 +92,28 @@ public class AllSpectralDataImportMainTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
+    startStreamingSearch();
     // do data import and library import directly and import metadata after all is completed.
     // this ensures that data files are already loaded
-    mainImportTask.run();
+    try {
+      mainImportTask.run();
+    } finally {
+      if (streamingSearch != null) {
+        // waits for the queued scans
+        streamingSearch.close();
+      }
+    }
     if (mainImportTask.isCanceled()) {
       setStatus(mainImportTask.getStatus());
       setErrorMessage(mainImportTask.getErrorMessage());
       return;
     }
+    final Throwable searchError = streamingSearch != null ? streamingSearch.getWorkerError() : null;
+    if (searchError != null) {
+      error("Library search during import stopped, the search results are incomplete: "
+          + searchError.getMessage(), null);
+      return;
+    }
 
     if (metadataFile != null) {
       // load metadata after data files
@@ -106,6 +138,23 @@ public class AllSpectralDataImportMainTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  /**
+   * Loads the libraries before the import so that no scans are skipped during loading. Errors do
+   * not stop the import.
+   */
+  private void startStreamingSearch() {
+    if (streamingSearch == null) {
+      return;
+    }
+    try {
+      streamingSearch.start(this);
+    } catch (Exception e) {
+      logger.log(Level.WARNING,
+          "Cannot start library search during import, importing data without search: "
+              + e.getMessage(), e);
+    }
+  }
+
   private ColorByMetadataTask recolorBlanksAndQcs() {
     List<RawDataFile> loaded = AllSpectralDataImportParameters.getLoadedRawDataFiles(
         ProjectService.getProject(), parameters);
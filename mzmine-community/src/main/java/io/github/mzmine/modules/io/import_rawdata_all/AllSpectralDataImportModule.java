@@ -39,6 +39,8 @@ import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming.StreamingLibrarySearchParameters;
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming.StreamingSpectralLibrarySearch;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.MsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.MsProcessorList;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
@@ -46,6 +48,7 @@ import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.process
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.DenormalizeInjectTimeMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.MassDetectorMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.SortByMzMsProcessor;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.StreamingLibrarySearchMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_bruker_baf.library.BafImportTask;
 import io.github.mzmine.modules.io.import_rawdata_bruker_tdf.TDFImportTask;
 import io.github.mzmine.modules.io.import_rawdata_bruker_tsf.TSFImportTask;
@@ -128,6 +131,13 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
     if (denormalizeMsn) {
       processors.add(new DenormalizeInjectTimeMsProcessor());
     }
+    // last step to search the final data, started and closed by the main import task
+    final StreamingLibrarySearchParameters streamingSearch = advanced.getEmbeddedParametersIfSelectedOrElse(
+        AdvancedSpectraImportParameters.streamingLibrarySearch, null);
+    if (streamingSearch != null) {
+      processors.add(
+          new StreamingLibrarySearchMsProcessor(new StreamingSpectralLibrarySearch(streamingSearch)));
+    }
 
     var scanFilter = advanced.getValue(AdvancedSpectraImportParameters.scanFilter);
     var conf = new ScanImportProcessorConfig(scanFilter, new MsProcessorList(processors));
@@ -361,7 +371,8 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
 //    var threadPoolTask = new ThreadPoolTask(description , nThreads, tasks);
 //    tasksToAdd.add(threadPoolTask);
 
-    AllSpectralDataImportMainTask mainTask = new AllSpectralDataImportMainTask(tasks, parameters);
+    AllSpectralDataImportMainTask mainTask = new AllSpectralDataImportMainTask(tasks, parameters,
+        scanProcessorConfig);
     tasksToAdd.add(mainTask);
 
     return ExitCode.OK;
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors;
+
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming.StreamingSpectralLibrarySearch;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.MsProcessor;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Offers the processed fragment scans to a {@link StreamingSpectralLibrarySearch}. Does not change
+ * the data and never blocks, should be the last processor so that the final data is searched.
+ */
+public class StreamingLibrarySearchMsProcessor implements MsProcessor {
+
+  private final StreamingSpectralLibrarySearch search;
+
+  public StreamingLibrarySearchMsProcessor(@NotNull StreamingSpectralLibrarySearch search) {
+    this.search = search;
+  }
+
+  @Override
+  public @NotNull SimpleSpectralArrays processScan(final @Nullable Scan metadataOnlyScan,
+      final @NotNull SimpleSpectralArrays spectrum) {
+    search.offer(metadataOnlyScan, spectrum);
+    return spectrum;
+  }
+
+  public @NotNull StreamingSpectralLibrarySearch getSearch() {
+    return search;
+  }
+
+  @Override
+  public @NotNull String description() {
+    return "Streaming spectral library search of fragment scans";
+  }
+}
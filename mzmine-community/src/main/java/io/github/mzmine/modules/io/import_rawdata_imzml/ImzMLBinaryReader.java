@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import com.alanmrace.jimzmlparser.mzml.BinaryDataArray;
+import com.alanmrace.jimzmlparser.mzml.CVParam;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the binary data arrays of an imzML file directly from the .ibd file by their external
+ * offset and length. Uses positional reads on one {@link FileChannel}, which can be called from
+ * multiple threads concurrently.
+ */
+final class ImzMLBinaryReader implements AutoCloseable {
+
+  // imzML CV terms of the binary data arrays
+  private static final String EXTERNAL_OFFSET = "IMS:1000102";
+  private static final String EXTERNAL_ARRAY_LENGTH = "IMS:1000103";
+  private static final String FLOAT_32 = "MS:1000521";
+  private static final String FLOAT_64 = "MS:1000523";
+  private static final String INT_32 = "MS:1000519";
+  private static final String INT_64 = "MS:1000522";
+  /**
+   * zlib and numpress compression are not supported by positional reads
+   */
+  private static final String[] COMPRESSIONS = {"MS:1000574", "MS:1002312", "MS:1002313",
+      "MS:1002314"};
+
+  private final FileChannel channel;
+
+  ImzMLBinaryReader(@NotNull File ibdFile) throws IOException {
+    channel = FileChannel.open(ibdFile.toPath(), StandardOpenOption.READ);
+  }
+
+  /**
+   * @return the .ibd file next to the imzML file
+   */
+  static @NotNull File getBinaryFile(@NotNull File imzmlFile) {
+    // only the extension is replaced, the name may contain the extension more than once
+    return FileAndPathUtil.getRealFilePath(imzmlFile, "ibd");
+  }
+
+  /**
+   * @return the values of the array as doubles
+   */
+  double @NotNull [] read(@NotNull ArrayPosition array) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(
+        Math.multiplyExact(array.length(), array.type().bytes)).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, array.offset() + buffer.position());
+      if (read < 0) {
+        throw new EOFException(
+            "Binary array at offset %d with %d values exceeds the .ibd file".formatted(
+                array.offset(), array.length()));
+      }
+    }
+    buffer.flip();
+
+    final double[] values = new double[array.length()];
+    switch (array.type()) {
+      case FLOAT_32 -> {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = buffer.getFloat();
+        }
+      }
+      case FLOAT_64 -> buffer.asDoubleBuffer().get(values);
+      case INT_32 -> {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = buffer.getInt();
+        }
+      }
+      case INT_64 -> {
+        for (int i = 0; i < values.length; i++) {
+          values[i] = buffer.getLong();
+        }
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  enum NumberType {
+    FLOAT_32(4), FLOAT_64(8), INT_32(4), INT_64(8);
+
+    private final int bytes;
+
+    NumberType(int bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * Position of an uncompressed binary data array in the .ibd file
+   *
+   * @param offset byte offset in the .ibd file
+   * @param length number of values
+   * @param type   the encoded number type
+   */
+  record ArrayPosition(long offset, int length, @NotNull NumberType type) {
+
+    /**
+     * @return the position or null if the array is compressed or the offset, length, or number
+     * type are missing
+     */
+    static @Nullable ArrayPosition of(@Nullable BinaryDataArray array) {
+      if (array == null) {
+        return null;
+      }
+      for (String compression : COMPRESSIONS) {
+        if (array.getCVParam(compression) != null) {
+          return null;
+        }
+      }
+      final CVParam offset = array.getCVParam(EXTERNAL_OFFSET);
+      final CVParam length = array.getCVParam(EXTERNAL_ARRAY_LENGTH);
+      final NumberType type = getNumberType(array);
+      if (offset == null || length == null || type == null) {
+        return null;
+      }
+      try {
+        return new ArrayPosition(Long.parseLong(offset.getValueAsString().trim()),
+            Integer.parseInt(length.getValueAsString().trim()), type);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    private static @Nullable NumberType getNumberType(BinaryDataArray array) {
+      if (array.getCVParam(FLOAT_32) != null) {
+        return NumberType.FLOAT_32;
+      }
+      if (array.getCVParam(FLOAT_64) != null) {
+        return NumberType.FLOAT_64;
+      }
+      if (array.getCVParam(INT_32) != null) {
+        return NumberType.INT_32;
+      }
+      if (array.getCVParam(INT_64) != null) {
+        return NumberType.INT_64;
+      }
+      return null;
+    }
+  }
+}
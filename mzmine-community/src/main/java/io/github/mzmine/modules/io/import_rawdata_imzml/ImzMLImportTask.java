@@ -44,14 +44,15 @@ import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.RawDataImportTask;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.impl.SimpleImagingScan;
-import io.github.mzmine.datamodel.impl.SimpleScan;
 import io.github.mzmine.datamodel.impl.builders.SimpleBuildingScan;
 import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.modules.io.import_rawdata_imzml.ImzMLBinaryReader.ArrayPosition;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.impl.ImagingRawDataFileImpl;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -61,11 +62,16 @@ import io.github.mzmine.util.exceptions.ExceptionUtils;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.io.File;
 import java.io.IOException;
+import java.lang.foreign.MemorySegment;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -80,14 +86,10 @@ import org.jetbrains.annotations.Nullable;
 public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
 
   private static final Logger logger = Logger.getLogger(ImzMLImportTask.class.getName());
-  /*
-   * This stack stores at most 20 consecutive scans. This window serves to find possible fragments
-   * (current scan) that belongs to any of the stored scans in the stack. The reason of the size
-   * follows the concept of neighborhood of scans and all his fragments. These solution is
-   * implemented because exists the possibility to find fragments of one scan after one or more full
-   * scans.
+  /**
+   * Number of pixel spectra read and processed by one worker
    */
-  private static final int PARENT_STACK_SIZE = 20;
+  private static final int BLOCK_SIZE = 512;
   private final File file;
   private final MZmineProject project;
   private final ScanImportProcessorConfig scanProcessorConfig;
@@ -95,8 +97,8 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
   private final ParameterSet parameters;
   private final Class<? extends MZmineModule> module;
   private final Map<String, Integer> scanIdTable = new Hashtable<>();
-  private final LinkedList<SimpleScan> parentStack = new LinkedList<>();
-  private int totalScans = 0, parsedScans;
+  private final AtomicInteger parsedScans = new AtomicInteger();
+  private int totalScans = 0;
   private int lastScanNumber = 0;
 
   public ImzMLImportTask(MZmineProject project, File fileToOpen,
@@ -115,7 +117,7 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
 
   @Override
   public double getFinishedPercentage() {
-    return totalScans == 0 ? 0 : (double) parsedScans / totalScans;
+    return totalScans == 0 ? 0 : (double) parsedScans.get() / totalScans;
   }
 
   /**
@@ -133,81 +135,41 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
 
       SpectrumList spectra = imzml.getRun().getSpectrumList();
       totalScans = spectra.size();
-      for (int i = 0; i < totalScans; i++) {
 
+      // metadata and binary positions of all pixels from the parsed imzML
+      final List<PixelSpectrum> pixels = new ArrayList<>(totalScans);
+      for (int i = 0; i < totalScans; i++) {
         if (isCanceled()) {
           return;
         }
-
-        Spectrum spectrum = spectra.get(i);
-
-        // Ignore scans that are not MS, e.g. UV
-        if (!isMsSpectrum(spectrum)) {
-          parsedScans++;
+        final PixelSpectrum pixel = extractPixelSpectrum(spectra.get(i));
+        if (pixel == null) {
+          parsedScans.incrementAndGet();
           continue;
         }
+        pixels.add(pixel);
+      }
 
-        String scanId = spectrum.getID();
-        int scanNumber = convertScanIdToScanNumber(scanId);
-
-        // Extract scan data
-        int msLevel = extractMSLevel(spectrum);
-        float retentionTime = extractRetentionTime(spectrum);
-        PolarityType polarity = extractPolarity(spectrum);
-        int parentScan = extractParentScanNumber(spectrum);
-        double precursorMz = extractPrecursorMz(spectrum);
-        int precursorCharge = extractPrecursorCharge(spectrum);
-        String scanDefinition = extractScanDefinition(spectrum);
-        // imaging
-        Coordinates coord = extractCoordinates(spectrum);
-
-        // TODO find out if spectrum type is encoded in imzml file
-        var metadataScan = new SimpleBuildingScan(scanNumber, msLevel, polarity,
-            MassSpectrumType.CENTROIDED, retentionTime, precursorMz, precursorCharge);
-        if (!scanProcessorConfig.scanFilter().matches(metadataScan)) {
-          // skip parsing of data and skip this scan completely
-          parsedScans++;
-          continue;
-        }
-
-        double[] mzValues = extractMzValues(spectrum);
-        double[] intensityValues = extractIntensityValues(spectrum);
-        // Auto-detect whether this scan is centroided
-        SimpleSpectralArrays data = new SimpleSpectralArrays(mzValues, intensityValues);
-        MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
-
-        data = scanProcessorConfig.processor().processScan(metadataScan, data);
-
-        if (scanProcessorConfig.isMassDetectActive(msLevel)) {
-          spectrumType = MassSpectrumType.CENTROIDED;
-        }
-
-        SimpleImagingScan scan = new SimpleImagingScan(newMZmineFile, scanNumber, msLevel,
-            retentionTime, precursorMz, precursorCharge, data.mzs(), data.intensities(),
-            spectrumType, polarity, scanDefinition, null, coord);
-
-        if (scanProcessorConfig.isMassDetectActive(msLevel)) {
-          scan.addMassList(new ScanPointerMassList(scan));
+      try (ImzMLBinaryReader reader = new ImzMLBinaryReader(
+          ImzMLBinaryReader.getBinaryFile(file))) {
+        final SharedMzs sharedMzs = readSharedMzs(pixels, reader);
+
+        // read and process blocks of pixels in parallel, add scans in the original order
+        final List<CompletableFuture<List<SimpleImagingScan>>> blocks = new ArrayList<>();
+        for (int start = 0; start < pixels.size(); start += BLOCK_SIZE) {
+          final List<PixelSpectrum> block = pixels.subList(start,
+              Math.min(pixels.size(), start + BLOCK_SIZE));
+          blocks.add(CompletableFuture.supplyAsync(
+              () -> createScans(block, reader, sharedMzs, imzml)));
         }
-
-        /*
-         * Verify the size of parentStack. The actual size of the window to cover possible
-         * candidates is defined by limitSize.
-         */
-        if (parentStack.size() > PARENT_STACK_SIZE) {
-          io.github.mzmine.datamodel.Scan firstScan = parentStack.removeLast();
-          newMZmineFile.addScan(firstScan);
+        for (CompletableFuture<List<SimpleImagingScan>> block : blocks) {
+          for (SimpleImagingScan scan : block.join()) {
+            newMZmineFile.addScan(scan);
+          }
         }
-
-        parentStack.addFirst(scan);
-
-        parsedScans++;
-
       }
-
-      while (!parentStack.isEmpty()) {
-        io.github.mzmine.datamodel.Scan scan = parentStack.removeLast();
-        newMZmineFile.addScan(scan);
+      if (isCanceled()) {
+        return;
       }
       newMZmineFile.getScans().sort(io.github.mzmine.datamodel.Scan::compareTo);
 
@@ -218,22 +180,159 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
       project.addFile(newMZmineFile);
 
     } catch (Throwable e) {
-      logger.log(Level.WARNING, "Error in imzML import: " + e.getMessage(), e);
-      error("Error parsing imzML: " + ExceptionUtils.exceptionToString(e));
+      final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause()
+          : e;
+      logger.log(Level.WARNING, "Error in imzML import: " + cause.getMessage(), cause);
+      error("Error parsing imzML: " + ExceptionUtils.exceptionToString(cause));
       return;
     }
 
-    if (parsedScans == 0) {
+    if (parsedScans.get() == 0) {
       setStatus(TaskStatus.ERROR);
       setErrorMessage("No scans found");
       return;
     }
 
-    logger.info("Finished parsing " + file + ", parsed " + parsedScans + " scans");
+    logger.info("Finished parsing " + file + ", parsed " + parsedScans.get() + " scans");
     setStatus(TaskStatus.FINISHED);
 
   }
 
+  /**
+   * @return the metadata and binary data positions or null if the spectrum is no MS spectrum or
+   * is excluded by the scan filter
+   */
+  private @Nullable PixelSpectrum extractPixelSpectrum(Spectrum spectrum) {
+    // Ignore scans that are not MS, e.g. UV
+    if (!isMsSpectrum(spectrum)) {
+      return null;
+    }
+
+    String scanId = spectrum.getID();
+    int scanNumber = convertScanIdToScanNumber(scanId);
+
+    // Extract scan data
+    int msLevel = extractMSLevel(spectrum);
+    float retentionTime = extractRetentionTime(spectrum);
+    PolarityType polarity = extractPolarity(spectrum);
+    int parentScan = extractParentScanNumber(spectrum);
+    double precursorMz = extractPrecursorMz(spectrum);
+    int precursorCharge = extractPrecursorCharge(spectrum);
+    String scanDefinition = extractScanDefinition(spectrum);
+    // imaging
+    Coordinates coord = extractCoordinates(spectrum);
+
+    // TODO find out if spectrum type is encoded in imzml file
+    var metadataScan = new SimpleBuildingScan(scanNumber, msLevel, polarity,
+        MassSpectrumType.CENTROIDED, retentionTime, precursorMz, precursorCharge);
+    if (!scanProcessorConfig.scanFilter().matches(metadataScan)) {
+      // skip parsing of data and skip this scan completely
+      return null;
+    }
+
+    final BinaryDataArrayList dataList = spectrum.getBinaryDataArrayList();
+    return new PixelSpectrum(spectrum, metadataScan, scanDefinition, coord,
+        ArrayPosition.of(dataList != null ? dataList.getmzArray() : null),
+        ArrayPosition.of(dataList != null ? dataList.getIntensityArray() : null));
+  }
+
+  /**
+   * In continuous mode all pixels point to the same m/z array in the .ibd file. This array is read
+   * and stored only once.
+   *
+   * @return the shared m/z values or null if the data is in processed mode
+   */
+  private @Nullable SharedMzs readSharedMzs(List<PixelSpectrum> pixels, ImzMLBinaryReader reader)
+      throws IOException {
+    if (pixels.isEmpty()) {
+      return null;
+    }
+    final ArrayPosition mzs = pixels.getFirst().mzs();
+    if (mzs == null || !pixels.stream().allMatch(pixel -> mzs.equals(pixel.mzs()))) {
+      return null;
+    }
+    final double[] values = reader.read(mzs);
+    for (int i = 1; i < values.length; i++) {
+      if (values[i - 1] > values[i]) {
+        // unsorted, every scan needs to be sorted
+        return null;
+      }
+    }
+    return new SharedMzs(values,
+        StorageUtils.storeValuesToDoubleBuffer(newMZmineFile.getMemoryMapStorage(), values));
+  }
+
+  /**
+   * Reads, processes, and creates the scans of a block of pixels. Called in parallel.
+   */
+  private List<SimpleImagingScan> createScans(List<PixelSpectrum> block, ImzMLBinaryReader reader,
+      @Nullable SharedMzs sharedMzs, ImzML imzml) {
+    final List<SimpleImagingScan> scans = new ArrayList<>(block.size());
+    for (PixelSpectrum pixel : block) {
+      if (isCanceled()) {
+        return scans;
+      }
+      try {
+        scans.add(createScan(pixel, reader, sharedMzs, imzml));
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+      parsedScans.incrementAndGet();
+    }
+    return scans;
+  }
+
+  private SimpleImagingScan createScan(PixelSpectrum pixel, ImzMLBinaryReader reader,
+      @Nullable SharedMzs sharedMzs, ImzML imzml) throws IOException {
+    final SimpleBuildingScan metadataScan = pixel.metadataScan();
+    final int msLevel = metadataScan.getMSLevel();
+
+    final double[] mzValues;
+    final double[] intensityValues;
+    if (pixel.mzs() != null && pixel.intensities() != null) {
+      // processors may change the arrays in place, each scan works on its own copy
+      mzValues = sharedMzs != null ? sharedMzs.values().clone() : reader.read(pixel.mzs());
+      intensityValues = reader.read(pixel.intensities());
+    } else {
+      // compressed or incomplete binary information, the parser reads from one shared file handle
+      synchronized (imzml) {
+        mzValues = extractMzValues(pixel.spectrum());
+        intensityValues = extractIntensityValues(pixel.spectrum());
+      }
+    }
+
+    // Auto-detect whether this scan is centroided
+    SimpleSpectralArrays data = new SimpleSpectralArrays(mzValues, intensityValues);
+    MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
+
+    data = scanProcessorConfig.processor().processScan(metadataScan, data);
+
+    if (scanProcessorConfig.isMassDetectActive(msLevel)) {
+      spectrumType = MassSpectrumType.CENTROIDED;
+    }
+
+    final SimpleImagingScan scan;
+    if (sharedMzs != null && Arrays.equals(data.mzs(), sharedMzs.values())) {
+      // unchanged m/z values of continuous data are only stored once
+      final MemorySegment intensities = StorageUtils.storeValuesToDoubleBuffer(
+          newMZmineFile.getMemoryMapStorage(), data.intensities());
+      scan = new SimpleImagingScan(newMZmineFile, metadataScan.getScanNumber(), msLevel,
+          metadataScan.getRetentionTime(), metadataScan.precursorMz,
+          metadataScan.precursorCharge, sharedMzs.segment(), intensities, spectrumType,
+          metadataScan.getPolarity(), pixel.scanDefinition(), null, pixel.coordinates());
+    } else {
+      scan = new SimpleImagingScan(newMZmineFile, metadataScan.getScanNumber(), msLevel,
+          metadataScan.getRetentionTime(), metadataScan.precursorMz,
+          metadataScan.precursorCharge, data.mzs(), data.intensities(), spectrumType,
+          metadataScan.getPolarity(), pixel.scanDefinition(), null, pixel.coordinates());
+    }
+
+    if (scanProcessorConfig.isMassDetectActive(msLevel)) {
+      scan.addMassList(new ScanPointerMassList(scan));
+    }
+    return scan;
+  }
+
   private int convertScanIdToScanNumber(String scanId) {
 
     if (scanIdTable.containsKey(scanId)) {
@@ -473,4 +572,24 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
   public @NotNull List<RawDataFile> getImportedRawDataFiles() {
     return getStatus() == TaskStatus.FINISHED ? List.of(newMZmineFile) : List.of();
   }
+
+  /**
+   * Metadata of a pixel spectrum and the positions of its data in the .ibd file
+   *
+   * @param mzs         null if the array cannot be read directly
+   * @param intensities null if the array cannot be read directly
+   */
+  private record PixelSpectrum(@NotNull Spectrum spectrum, @NotNull SimpleBuildingScan metadataScan,
+                               String scanDefinition, Coordinates coordinates,
+                               @Nullable ArrayPosition mzs, @Nullable ArrayPosition intensities) {
+
+  }
+
+  /**
+   * The m/z values of continuous mode data and their stored segment. Scans only process copies of
+   * the values.
+   */
+  private record SharedMzs(double @NotNull [] values, @NotNull MemorySegment segment) {
+
+  }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_spectral_library;
+
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.spectraldb.entry.MappedSpectralLibraryFile;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Binary cache of imported spectral libraries. The cache file is named by a hash of the library
+ * path, size, modification time and the first and last bytes of the file, so changed libraries
+ * are parsed again.
+ * <p>
+ * The cache file is a {@link MappedSpectralLibraryFile} that is memory mapped read-only on load.
+ * Entries are views of the mapping, so the page cache is shared by concurrent mzmine instances and
+ * the heap only holds one small object per entry.
+ * <p>
+ * Only the latest cache file of each library name is kept. Older files of changed libraries or
+ * previous cache versions are deleted after writing a new cache file.
+ */
+public final class SpectralLibraryCache {
+
+  private static final Logger logger = Logger.getLogger(SpectralLibraryCache.class.getName());
+
+  private static final String SUFFIX = ".mzlibcache";
+  private static final int HASHED_BYTES = 1 << 20;
+
+  private final @NotNull File cacheDir;
+
+  public SpectralLibraryCache() {
+    this(FileAndPathUtil.resolveInMzmineDir("library_cache"));
+  }
+
+  public SpectralLibraryCache(@NotNull File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * @return the cache file for the current state of the library file
+   */
+  public @NotNull File getCacheFile(@NotNull File libraryFile) throws IOException {
+    return new File(cacheDir, libraryFile.getName() + "-" + createKey(libraryFile) + SUFFIX);
+  }
+
+  /**
+   * Hash of the path, size, modification time and the first and last MiB of the file
+   */
+  static @NotNull String createKey(@NotNull File libraryFile) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    final long length = libraryFile.length();
+    digest.update(("%s|%d|%d|%d".formatted(libraryFile.getAbsolutePath(), length,
+        libraryFile.lastModified(), MappedSpectralLibraryFile.VERSION)).getBytes(
+        StandardCharsets.UTF_8));
+
+    try (RandomAccessFile raf = new RandomAccessFile(libraryFile, "r")) {
+      final byte[] buffer = new byte[(int) Math.min(HASHED_BYTES, length)];
+      raf.readFully(buffer);
+      digest.update(buffer);
+      if (length > HASHED_BYTES) {
+        raf.seek(Math.max(HASHED_BYTES, length - HASHED_BYTES));
+        final int read = raf.read(buffer);
+        digest.update(buffer, 0, Math.max(read, 0));
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest(), 0, 16);
+  }
+
+  /**
+   * @return the cached library or null if there is no valid cache file for the library file
+   */
+  public @Nullable SpectralLibrary load(@NotNull File libraryFile) {
+    final File cacheFile;
+    try {
+      cacheFile = getCacheFile(libraryFile);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot read library file " + libraryFile, e);
+      return null;
+    }
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+      // auto arena keeps the mapping alive as long as any entry references the file
+      final MemorySegment segment = channel.map(MapMode.READ_ONLY, 0, channel.size(),
+          Arena.ofAuto());
+      final SpectralLibrary library = read(segment, libraryFile);
+      logger.info(() -> "Loaded %d library entries of %s from cache %s".formatted(library.size(),
+          libraryFile, cacheFile));
+      return library;
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING,
+          "Cannot read library cache file %s, the library will be parsed".formatted(cacheFile), e);
+      cacheFile.delete();
+      return null;
+    }
+  }
+
+  private static SpectralLibrary read(MemorySegment segment, File libraryFile) throws IOException {
+    final MappedSpectralLibraryFile mapped = MappedSpectralLibraryFile.open(segment);
+    final SpectralLibrary library = new SpectralLibrary(MemoryMapStorage.forMassList(),
+        libraryFile);
+    library.addEntries(mapped.createEntries(library));
+    library.trim();
+    return library;
+  }
+
+  /**
+   * Deletes all other cache files of libraries with the same file name. Files that are still mapped
+   * by other processes may fail to delete on some systems and are removed on the next write.
+   */
+  private void deleteOutdated(@NotNull File libraryFile, @NotNull File currentCacheFile) {
+    final Pattern pattern = Pattern.compile(
+        Pattern.quote(libraryFile.getName()) + "-[0-9a-f]{32}" + Pattern.quote(SUFFIX));
+    final File[] outdated = cacheDir.listFiles(
+        file -> pattern.matcher(file.getName()).matches() && !file.equals(currentCacheFile));
+    if (outdated == null) {
+      return;
+    }
+    for (File file : outdated) {
+      try {
+        Files.deleteIfExists(file.toPath());
+        logger.fine(() -> "Deleted outdated library cache " + file);
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Cannot delete outdated library cache " + file, e);
+      }
+    }
+  }
+
+  /**
+   * Writes the library to a temporary file first and moves it to the cache file, so that
+   * concurrent imports never see a partial file.
+   *
+   * @return true if the cache was written
+   */
+  public boolean write(@NotNull SpectralLibrary library) {
+    final File libraryFile = library.getPath();
+    try {
+      final File cacheFile = getCacheFile(libraryFile);
+      FileAndPathUtil.createDirectory(cacheDir);
+
+      final Path tmp = Files.createTempFile(cacheDir.toPath(), libraryFile.getName(), ".tmp");
+      try {
+        MappedSpectralLibraryFile.write(library.getEntries(), tmp);
+        Files.move(tmp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+      logger.fine(() -> "Wrote library cache " + cacheFile);
+      deleteOutdated(libraryFile, cacheFile);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING, "Cannot write library cache for " + libraryFile, e);
+      return false;
+    }
+  }
+}
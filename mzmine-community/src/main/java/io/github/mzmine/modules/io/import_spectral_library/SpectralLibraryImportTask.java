@@ -37,6 +37,7 @@ import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -77,11 +78,19 @@ public class SpectralLibraryImportTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
 
     try {
-      // will block until all library spectra are added to entries list
-      SpectralLibrary library = parseFile(dataBaseFile);
-      // remove empty or 0 intensity spectra
-      library.removeif(this::checkRemoveEntry);
-      library.trim(); // trim to save memory
+      final SpectralLibraryCache cache = new SpectralLibraryCache();
+      SpectralLibrary library = cache.load(dataBaseFile);
+      if (library == null) {
+        // will block until all library spectra are added to entries list
+        library = parseFile(dataBaseFile);
+        // remove empty or 0 intensity spectra
+        library.removeif(this::checkRemoveEntry);
+        library.trim(); // trim to save memory
+        if (!isCanceled() && library.size() > 0 && cache.write(library)) {
+          // use the mapped entries, the parsed entries are released and the page cache is shared
+          library = Objects.requireNonNullElse(cache.load(dataBaseFile), library);
+        }
+      }
       final List<SpectralLibraryEntry> entries = library.getEntries();
       if (!entries.isEmpty()) {
         project.addSpectralLibrary(library);
@@ -35,16 +35,15 @@ import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.FormulaUtils;
 import io.github.mzmine.util.FormulaWithExactMz;
 import io.github.mzmine.util.exceptions.MissingMassListException;
+import io.github.mzmine.util.formula.FormulaCandidates;
+import io.github.mzmine.util.formula.FormulaEnumerator;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.util.HashMap;
 import java.util.Map;
 import org.jetbrains.annotations.NotNull;
-import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
 public class MSMSScoreCalculator {
@@ -100,6 +99,9 @@ public class MSMSScoreCalculator {
     for (IIsotope isotope : parentFormula.isotopes()) {
       msmsElementRange.addIsotope(isotope, 0, parentFormula.getIsotopeCount(isotope));
     }
+    // the lattice of all sub formulas is reused for all signals. It is not shared, because each
+    // candidate parent formula has its own range and would evict the shared enumerators
+    final FormulaEnumerator msmsEngine = FormulaEnumerator.create(msmsElementRange);
 
     int totalMSMSpeaks = 0, interpretedMSMSpeaks = 0;
     double totalIntensity = 0, explainedIntensity = 0;
@@ -138,13 +140,11 @@ public class MSMSScoreCalculator {
       }
 
       Range<Double> msmsTargetRange = msmsTolerance.getToleranceRange(neutralLoss);
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-      MolecularFormulaGenerator msmsEngine = new MolecularFormulaGenerator(builder,
-          msmsTargetRange.lowerEndpoint(), msmsTargetRange.upperEndpoint(), msmsElementRange);
+      final FormulaCandidates losses = msmsEngine.findFormulas(msmsTargetRange.lowerEndpoint(),
+          msmsTargetRange.upperEndpoint());
 
-      IMolecularFormula formula = msmsEngine.getNextFormula();
-      if (formula != null) {
-        String formulaString = MolecularFormulaManipulator.getString(formula);
+      if (!losses.isEmpty()) {
+        String formulaString = MolecularFormulaManipulator.getString(losses.toFormula(0));
         msmsAnnotations.put(dp, String.format("[M-%s]", formulaString));
         interpretedMSMSpeaks++;
         explainedIntensity += dp.getIntensity();
@@ -281,6 +281,9 @@ public class Fx3DBorderPaneController {
     addMenuItems();
     addColorListener(dataset);
     addOpacityListener(dataset);
+    if (dataset instanceof Fx3DRawDataFileDataset rawDataset) {
+      rawDataset.setViewScale(plot.getScaleX());
+    }
     dataset.visibilityProperty().bindBidirectional(dataset.getNode().visibleProperty());
     updateLabel();
   }
@@ -693,6 +696,12 @@ public class Fx3DBorderPaneController {
 
     plot.setScaleX(scale);
     plot.setScaleY(scale);
+    // finer or coarser pyramid levels for the zoom
+    for (Fx3DAbstractDataset dataset : visualizedMeshPlots) {
+      if (dataset instanceof Fx3DRawDataFileDataset rawDataset) {
+        rawDataset.setViewScale(scale);
+      }
+    }
 
     event.consume();
   }
@@ -25,10 +25,12 @@
 package io.github.mzmine.modules.visualization.fx3d;
 
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.javafx.concurrent.threading.FxThread;
+import io.github.mzmine.modules.visualization.fx3d.Fx3DSamplingPyramid.Level;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import javafx.scene.DepthTest;
 import javafx.scene.Node;
-import javafx.scene.image.Image;
 import javafx.scene.image.PixelWriter;
 import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
@@ -39,100 +41,164 @@ import javafx.scene.shape.MeshView;
 import javafx.scene.shape.TriangleMesh;
 
 /**
- * @author akshaj This class represents the dataset of a Raw data file.
+ * Surface of a raw data file. The mesh shows one level of the {@link Fx3DSamplingPyramid}, chosen
+ * by the zoom of the plot, and coarser or finer levels are meshed asynchronously when the zoom
+ * changes.
  */
 public class Fx3DRawDataFileDataset extends Fx3DAbstractDataset {
 
   private static final int SIZE = 500;
   private static float AMPLIFI = 130;
-  private int rtResolution;
-  private int mzResolution;
-  private MeshView meshView = new MeshView();
+  /**
+   * mesh points per plot unit on each axis, the plot is {@link #SIZE} units wide
+   */
+  private static final double POINTS_PER_UNIT = 2;
+  private static final long MAX_MESH_POINTS = 4_000_000;
   private static final Logger logger = Logger.getLogger(Fx3DRawDataFileDataset.class.getName());
+
+  private final Fx3DSamplingPyramid pyramid;
+  private final MeshView meshView = new MeshView();
   private TriangleMesh mesh;
-  private int[][] peakListIndices;
-  private float[][] intensityValues;
-  private double maxBinnedIntensity;
+  private Level level;
+  private Level requestedLevel;
+  private float factorY = 1;
+  private Color nodeColor;
   private float maxIntensityValue = Float.NEGATIVE_INFINITY;
 
-  public Fx3DRawDataFileDataset(RawDataFile dataFile, float[][] intensityValues, int rtResolution,
-      int mzResolution, double maxBinnedIntensity, String fileName, Color peakColor) {
+  public Fx3DRawDataFileDataset(RawDataFile dataFile, Fx3DSamplingPyramid pyramid,
+      String fileName, Color peakColor) {
     super(dataFile, fileName, peakColor);
-    this.intensityValues = intensityValues;
-    this.rtResolution = rtResolution;
-    this.mzResolution = mzResolution;
-    this.maxBinnedIntensity = maxBinnedIntensity;
-    mesh = new TriangleMesh();
-
-    peakListIndices = new int[rtResolution][mzResolution];
-    float factorX = (float) SIZE / rtResolution;
-    float factorZ = (float) SIZE / mzResolution;
-
-    for (int i = 0; i < rtResolution; i++) {
-      for (int j = 0; j < mzResolution; j++) {
-        if (maxIntensityValue < intensityValues[i][j]) {
-          maxIntensityValue = intensityValues[i][j];
-        }
-      }
-    }
+    this.pyramid = pyramid;
+    level = selectLevel(1d);
+    requestedLevel = level;
 
-    for (int x = 0; x < rtResolution; x++) {
-      for (int z = 0; z < mzResolution; z++) {
-        mesh.getPoints().addAll((float) x * factorX, -intensityValues[x][z] * AMPLIFI,
-            (float) z * factorZ);
-        if (intensityValues[x][z] > 0.022 * maxIntensityValue) {
-          peakListIndices[x][z] = 1;
-        }
-      }
+    for (float value : pyramid.getLevels().getFirst().values()) {
+      maxIntensityValue = Math.max(maxIntensityValue, value);
     }
 
-    int rtLength = rtResolution;
-    int mzLength = mzResolution;
-    float rtTotal = rtLength;
-    float mzTotal = mzLength;
-
-    for (float x = 0; x < rtLength - 1; x++) {
-      for (float y = 0; y < mzLength - 1; y++) {
-
-        float x0 = x / rtTotal;
-        float y0 = y / mzTotal;
-        float x1 = (x + 1) / rtTotal;
-        float y1 = (y + 1) / mzTotal;
-
-        mesh.getTexCoords().addAll( //
-            x0, y0, // 0, top-left
-            x0, y1, // 1, bottom-left
-            x1, y0, // 2, top-right
-            x1, y1 // 3, bottom-right
-        );
-      }
+    mesh = createMesh(level, factorY);
+    setNodeColor(peakColor);
+    meshView.setMesh(mesh);
+    meshView.setCullFace(CullFace.NONE);
+    meshView.setDrawMode(DrawMode.FILL);
+    meshView.setDepthTest(DepthTest.ENABLE);
+    logger.finest("Plot mesh is ready.");
+  }
+
+  private Level selectLevel(double scale) {
+    final int maxPointsPerAxis = (int) Math.max(2, SIZE * scale * POINTS_PER_UNIT);
+    return pyramid.getLevel(maxPointsPerAxis, maxPointsPerAxis, MAX_MESH_POINTS);
+  }
+
+  /**
+   * Switches to the pyramid level of the zoom scale. The new mesh is computed asynchronously and
+   * replaces the current mesh on the FX thread.
+   *
+   * @param scale the scale of the plot
+   */
+  public void setViewScale(double scale) {
+    final Level target = selectLevel(scale);
+    if (target == requestedLevel) {
+      return;
     }
+    requestedLevel = target;
+    final float targetFactorY = factorY;
+    CompletableFuture.supplyAsync(() -> createMesh(target, targetFactorY))
+        .thenAccept(newMesh -> FxThread.runLater(() -> {
+          // a newer level was requested meanwhile
+          if (requestedLevel != target) {
+            return;
+          }
+          if (targetFactorY != factorY) {
+            newMesh.getPoints().setAll(createPoints(target, factorY));
+          }
+          level = target;
+          mesh = newMesh;
+          meshView.setMesh(newMesh);
+          setNodeColor(nodeColor);
+          logger.finest(
+              "Switched 3D mesh to %d x %d points".formatted(target.rtResolution(),
+                  target.mzResolution()));
+        })).exceptionally(ex -> {
+          logger.log(java.util.logging.Level.WARNING,
+              "Cannot create the 3D mesh for " + getFileName(), ex);
+          // keep the current mesh, the same level is computed again on the next request
+          FxThread.runLater(() -> {
+            if (requestedLevel == target) {
+              requestedLevel = level;
+            }
+          });
+          return null;
+        });
+  }
+
+  private static TriangleMesh createMesh(Level level, float factorY) {
+    final int rtLength = level.rtResolution();
+    final int mzLength = level.mzResolution();
+    final TriangleMesh mesh = new TriangleMesh();
+    mesh.getPoints().setAll(createPoints(level, factorY));
 
-    // faces
+    final int quads = Math.max(0, rtLength - 1) * Math.max(0, mzLength - 1);
+    final float[] texCoords = new float[quads * 8];
+    final int[] faces = new int[quads * 12];
+    int t = 0;
+    int f = 0;
     for (int x = 0; x < rtLength - 1; x++) {
       for (int z = 0; z < mzLength - 1; z++) {
+        final float x0 = (float) x / rtLength;
+        final float y0 = (float) z / mzLength;
+        final float x1 = (float) (x + 1) / rtLength;
+        final float y1 = (float) (z + 1) / mzLength;
 
-        int tl = x * mzLength + z; // top-left
-        int bl = x * mzLength + z + 1; // bottom-left
-        int tr = (x + 1) * mzLength + z; // top-right
-        int br = (x + 1) * mzLength + z + 1; // bottom-right
+        // top-left, bottom-left, top-right, bottom-right
+        final int offset = t / 2; // div 2 because we have u AND v in the list
+        texCoords[t++] = x0;
+        texCoords[t++] = y0;
+        texCoords[t++] = x0;
+        texCoords[t++] = y1;
+        texCoords[t++] = x1;
+        texCoords[t++] = y0;
+        texCoords[t++] = x1;
+        texCoords[t++] = y1;
 
-        int offset = (x * (mzLength - 1) + z) * 8 / 2; // div 2 because
-                                                       // we have u AND
-                                                       // v in the list
+        final int tl = x * mzLength + z; // top-left
+        final int bl = x * mzLength + z + 1; // bottom-left
+        final int tr = (x + 1) * mzLength + z; // top-right
+        final int br = (x + 1) * mzLength + z + 1; // bottom-right
 
-        // working
-        mesh.getFaces().addAll(bl, offset + 1, tl, offset + 0, tr, offset + 2);
-        mesh.getFaces().addAll(tr, offset + 2, br, offset + 3, bl, offset + 1);
+        faces[f++] = bl;
+        faces[f++] = offset + 1;
+        faces[f++] = tl;
+        faces[f++] = offset;
+        faces[f++] = tr;
+        faces[f++] = offset + 2;
 
+        faces[f++] = tr;
+        faces[f++] = offset + 2;
+        faces[f++] = br;
+        faces[f++] = offset + 3;
+        faces[f++] = bl;
+        faces[f++] = offset + 1;
       }
     }
-    setNodeColor(peakColor);
-    meshView.setMesh(mesh);
-    meshView.setCullFace(CullFace.NONE);
-    meshView.setDrawMode(DrawMode.FILL);
-    meshView.setDepthTest(DepthTest.ENABLE);
-    logger.finest("Plot mesh is ready.");
+    mesh.getTexCoords().setAll(texCoords);
+    mesh.getFaces().setAll(faces);
+    return mesh;
+  }
+
+  private static float[] createPoints(Level level, float factorY) {
+    final float factorX = (float) SIZE / level.rtResolution();
+    final float factorZ = (float) SIZE / level.mzResolution();
+    final float[] points = new float[level.rtResolution() * level.mzResolution() * 3];
+    int p = 0;
+    for (int x = 0; x < level.rtResolution(); x++) {
+      for (int z = 0; z < level.mzResolution(); z++) {
+        points[p++] = x * factorX;
+        points[p++] = -level.value(x, z) * AMPLIFI * factorY;
+        points[p++] = z * factorZ;
+      }
+    }
+    return points;
   }
 
   /*
@@ -142,14 +208,15 @@ public class Fx3DRawDataFileDataset extends Fx3DAbstractDataset {
    * (javafx.scene.paint.Color)
    */
   public void setNodeColor(Color peakColor) {
-    int width = rtResolution;
-    int height = mzResolution;
+    nodeColor = peakColor;
+    int width = level.rtResolution();
+    int height = level.mzResolution();
     WritableImage wr = new WritableImage(width, height);
     PixelWriter pw = wr.getPixelWriter();
     for (int x = 0; x < width; x++) {
       for (int y = 0; y < height; y++) {
 
-        float value = intensityValues[x][y];
+        float value = level.value(x, y);
         double gray = normalizeValue(value, 0, maxIntensityValue, 0., 1.);
         gray = clamp(gray, 0, 1);
 
@@ -157,7 +224,7 @@ public class Fx3DRawDataFileDataset extends Fx3DAbstractDataset {
           Color color = Color.GREY.interpolate(peakColor, gray);
           pw.setColor(x, y, color);
         } else {
-          if (peakListIndices[x][y] == 1) {
+          if (value > 0.022 * maxIntensityValue) {
             Color color = peakColor;
             pw.setColor(x, y, color);
             if (x - 1 >= 0 && y - 1 >= 0) {
@@ -169,11 +236,9 @@ public class Fx3DRawDataFileDataset extends Fx3DAbstractDataset {
         }
       }
     }
-    Image diffuseMap = wr;
     PhongMaterial material = new PhongMaterial();
     material.setSpecularColor(Color.WHITE);
-    material.setDiffuseMap(diffuseMap);
-    material.setSpecularColor(Color.WHITE);
+    material.setDiffuseMap(wr);
     meshView.setMaterial(material);
   }
 
@@ -201,23 +266,12 @@ public class Fx3DRawDataFileDataset extends Fx3DAbstractDataset {
    * @see io.github.mzmine.modules.visualization.fx3d.Fx3DAbstractDataset# normalize( double)
    */
   public void normalize(double maxOfAllBinnedIntensities) {
-    float factorX = (float) SIZE / rtResolution;
-    float factorZ = (float) SIZE / mzResolution;
-    float factorY = (float) ((float) maxBinnedIntensity / maxOfAllBinnedIntensities);
-    mesh.getPoints().clear();
-    for (int x = 0; x < rtResolution; x++) {
-      for (int z = 0; z < mzResolution; z++) {
-        mesh.getPoints().addAll((float) x * factorX, -intensityValues[x][z] * AMPLIFI * factorY,
-            (float) z * factorZ);
-        if (intensityValues[x][z] > 0.022 * maxIntensityValue) {
-          peakListIndices[x][z] = 1;
-        }
-      }
-    }
+    factorY = (float) (pyramid.getMaxBinnedIntensity() / maxOfAllBinnedIntensities);
+    mesh.getPoints().setAll(createPoints(level, factorY));
   }
 
   public double getMaxBinnedIntensity() {
-    return maxBinnedIntensity;
+    return pyramid.getMaxBinnedIntensity();
   }
 
   public Node getNode() {
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.fx3d;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.util.scans.ScanUtils;
+import io.github.mzmine.util.scans.ScanUtils.BinningType;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Multiresolution RT x m/z intensity grids of a raw data file for the 3D view. Level 0 is sampled
+ * at the full resolution, each following level halves both resolutions by max pooling, so peaks
+ * stay visible on coarse levels. Intensities are normalized to the maximum of level 0.
+ * <p>
+ * Pyramids are sampled once per data file, scans, m/z range, and resolution and cached.
+ */
+class Fx3DSamplingPyramid {
+
+  /**
+   * levels are pooled down to this resolution on both axes
+   */
+  private static final int MIN_RESOLUTION = 16;
+  private static final int ROWS_PER_TASK = 16;
+  private static final int MAX_CACHED_PER_FILE = 4;
+
+  private static final Map<RawDataFile, Map<Key, Fx3DSamplingPyramid>> cache = Collections.synchronizedMap(
+      new WeakHashMap<>());
+
+  private final List<Level> levels;
+  private final double maxBinnedIntensity;
+
+  private Fx3DSamplingPyramid(List<Level> levels, double maxBinnedIntensity) {
+    this.levels = levels;
+    this.maxBinnedIntensity = maxBinnedIntensity;
+  }
+
+  /**
+   * Cached pyramid or samples a new one
+   *
+   * @param retrievedScans counts the sampled scans for progress
+   * @return the pyramid or null if canceled
+   */
+  static @Nullable Fx3DSamplingPyramid of(@NotNull RawDataFile dataFile, @NotNull Scan[] scans,
+      @NotNull Range<Float> rtRange, @NotNull Range<Double> mzRange, int rtResolution,
+      int mzResolution, @NotNull BooleanSupplier isCanceled,
+      @NotNull AtomicInteger retrievedScans) {
+    // scan numbers, the cached values must not reference the data file
+    final Key key = new Key(
+        IntArrayList.wrap(Arrays.stream(scans).mapToInt(Scan::getScanNumber).toArray()), rtRange,
+        mzRange, rtResolution, mzResolution);
+    final Map<Key, Fx3DSamplingPyramid> filePyramids = cache.computeIfAbsent(dataFile,
+        _ -> createLruMap());
+    synchronized (filePyramids) {
+      final Fx3DSamplingPyramid pyramid = filePyramids.get(key);
+      if (pyramid != null) {
+        retrievedScans.set(scans.length);
+        return pyramid;
+      }
+    }
+
+    final Fx3DSamplingPyramid pyramid = sample(scans, rtRange, mzRange, rtResolution,
+        mzResolution, isCanceled, retrievedScans);
+    if (pyramid != null) {
+      synchronized (filePyramids) {
+        filePyramids.put(key, pyramid);
+      }
+    }
+    return pyramid;
+  }
+
+  private static Map<Key, Fx3DSamplingPyramid> createLruMap() {
+    return new LinkedHashMap<>(MAX_CACHED_PER_FILE, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Entry<Key, Fx3DSamplingPyramid> eldest) {
+        return size() > MAX_CACHED_PER_FILE;
+      }
+    };
+  }
+
+  private static @Nullable Fx3DSamplingPyramid sample(Scan[] scans, Range<Float> rtRange,
+      Range<Double> mzRange, int rtResolution, int mzResolution, BooleanSupplier isCanceled,
+      AtomicInteger retrievedScans) {
+    final double rtStep = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / rtResolution;
+
+    // sort scans into RT bins, so that parallel tasks write distinct rows
+    final int[] rowStarts = new int[rtResolution + 1];
+    final int[] scanRows = new int[scans.length];
+    for (int i = 0; i < scans.length; i++) {
+      final int row = rtStep > 0 ? (int) ((scans[i].getRetentionTime() - rtRange.lowerEndpoint())
+          / rtStep) : 0;
+      // last scan falls into last bin
+      scanRows[i] = Math.max(0, Math.min(rtResolution - 1, row));
+      rowStarts[scanRows[i] + 1]++;
+    }
+    for (int row = 0; row < rtResolution; row++) {
+      rowStarts[row + 1] += rowStarts[row];
+    }
+    final int[] rowScans = new int[scans.length];
+    final int[] cursors = new int[rtResolution];
+    System.arraycopy(rowStarts, 0, cursors, 0, rtResolution);
+    for (int i = 0; i < scans.length; i++) {
+      rowScans[cursors[scanRows[i]]++] = i;
+    }
+
+    final float[] values = new float[rtResolution * mzResolution];
+    final int tasks = (rtResolution + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+    IntStream.range(0, tasks).parallel().forEach(task -> {
+      for (int row = task * ROWS_PER_TASK;
+          row < Math.min(rtResolution, (task + 1) * ROWS_PER_TASK); row++) {
+        for (int k = rowStarts[row]; k < rowStarts[row + 1]; k++) {
+          if (isCanceled.getAsBoolean()) {
+            return;
+          }
+          final Scan scan = scans[rowScans[k]];
+          final double[] mzs = scan.getMzValues(new double[scan.getNumberOfDataPoints()]);
+          final double[] intensities = scan.getIntensityValues(
+              new double[scan.getNumberOfDataPoints()]);
+          final double[] binned = ScanUtils.binValues(mzs, intensities, mzRange, mzResolution,
+              scan.getSpectrumType() != MassSpectrumType.CENTROIDED, BinningType.MAX);
+          final int offset = row * mzResolution;
+          for (int mz = 0; mz < mzResolution; mz++) {
+            values[offset + mz] = Math.max(values[offset + mz], (float) binned[mz]);
+          }
+          retrievedScans.incrementAndGet();
+        }
+      }
+    });
+    if (isCanceled.getAsBoolean()) {
+      return null;
+    }
+
+    interpolateMissingRows(values, rowStarts, rtResolution, mzResolution);
+
+    float max = 0;
+    for (final float value : values) {
+      max = Math.max(max, value);
+    }
+    if (max > 0) {
+      for (int i = 0; i < values.length; i++) {
+        values[i] /= max;
+      }
+    }
+
+    final List<Level> levels = new ArrayList<>();
+    Level level = new Level(rtResolution, mzResolution, values);
+    levels.add(level);
+    while (level.rtResolution() > MIN_RESOLUTION || level.mzResolution() > MIN_RESOLUTION) {
+      level = level.maxPool();
+      levels.add(level);
+    }
+    return new Fx3DSamplingPyramid(List.copyOf(levels), max);
+  }
+
+  /**
+   * Linear interpolation of RT rows without scans between their neighboring rows
+   */
+  static void interpolateMissingRows(float[] values, int[] rowStarts, int rtResolution,
+      int mzResolution) {
+    int prev = -1;
+    for (int row = 0; row < rtResolution; row++) {
+      if (rowStarts[row + 1] == rowStarts[row]) {
+        continue;
+      }
+      if (prev >= 0 && row - prev > 1) {
+        for (int missing = prev + 1; missing < row; missing++) {
+          final float fraction = (float) (missing - prev) / (row - prev);
+          for (int mz = 0; mz < mzResolution; mz++) {
+            final float prevValue = values[prev * mzResolution + mz];
+            final float nextValue = values[row * mzResolution + mz];
+            values[missing * mzResolution + mz] = prevValue + (nextValue - prevValue) * fraction;
+          }
+        }
+      }
+      prev = row;
+    }
+  }
+
+  /**
+   * @return the finest level with at most the given number of points on each axis, or the
+   * coarsest level
+   */
+  @NotNull Level getLevel(int maxRtPoints, int maxMzPoints, long maxPoints) {
+    for (final Level level : levels) {
+      if (level.rtResolution() <= maxRtPoints && level.mzResolution() <= maxMzPoints
+          && (long) level.rtResolution() * level.mzResolution() <= maxPoints) {
+        return level;
+      }
+    }
+    return levels.getLast();
+  }
+
+  @NotNull List<Level> getLevels() {
+    return levels;
+  }
+
+  double getMaxBinnedIntensity() {
+    return maxBinnedIntensity;
+  }
+
+  /**
+   * @param values normalized intensities in row major order, one row per RT bin
+   */
+  record Level(int rtResolution, int mzResolution, float[] values) {
+
+    float value(int rt, int mz) {
+      return values[rt * mzResolution + mz];
+    }
+
+    /**
+     * @return the next coarser level with half the resolution on both axes
+     */
+    Level maxPool() {
+      final int rtRes = Math.max(1, (rtResolution + 1) / 2);
+      final int mzRes = Math.max(1, (mzResolution + 1) / 2);
+      final float[] pooled = new float[rtRes * mzRes];
+      IntStream.range(0, rtRes).parallel().forEach(rt -> {
+        for (int mz = 0; mz < mzRes; mz++) {
+          float max = 0;
+          for (int r = 2 * rt; r < Math.min(rtResolution, 2 * rt + 2); r++) {
+            for (int m = 2 * mz; m < Math.min(mzResolution, 2 * mz + 2); m++) {
+              max = Math.max(max, value(r, m));
+            }
+          }
+          pooled[rt * mzRes + mz] = max;
+        }
+      });
+      return new Level(rtRes, mzRes, pooled);
+    }
+  }
+
+  private record Key(IntList scanNumbers, Range<Float> rtRange, Range<Double> mzRange,
+                     int rtResolution, int mzResolution) {
+
+  }
+}
@@ -26,19 +26,17 @@
 package io.github.mzmine.modules.visualization.fx3d;
 
 import com.google.common.collect.Range;
-import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.gui.MZmineDesktop;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.exceptions.ExceptionUtils;
 import io.github.mzmine.util.scans.ScanUtils;
-import io.github.mzmine.util.scans.ScanUtils.BinningType;
 import java.time.Instant;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import javafx.application.Platform;
 import javafx.scene.paint.Color;
@@ -58,10 +56,7 @@ class Fx3DSamplingTask extends AbstractTask {
   // Data resolution on m/z and retention time axis
   private int rtResolution, mzResolution;
   private Random random = new Random();
-  private int retrievedScans = 0;
-
-  // maximum value on Z axis
-  private double maxBinnedIntensity;
+  private final AtomicInteger retrievedScans = new AtomicInteger();
 
   private Fx3DBorderPaneController controller;
   private static final Color[] PEAK_COLORS = {Color.BLUE, Color.GREEN, Color.RED, Color.YELLOW,
@@ -104,7 +99,7 @@ class Fx3DSamplingTask extends AbstractTask {
    */
   @Override
   public double getFinishedPercentage() {
-    return (double) retrievedScans / scans.length;
+    return scans.length == 0 ? 0 : (double) retrievedScans.get() / scans.length;
   }
 
   /**
@@ -118,114 +113,22 @@ class Fx3DSamplingTask extends AbstractTask {
     logger.info("Started sampling 3D plot of " + dataFile);
 
     try {
-
-      final double rtStep = (rtRange.upperEndpoint() - rtRange.lowerEndpoint()) / rtResolution;
-
-      // create an array for all data points
-      float[][] intensityValues = new float[1][mzResolution * rtResolution];
-      boolean rtDataSet[] = new boolean[rtResolution];
-
-      // load scans
-      for (int scanIndex = 0; scanIndex < scans.length; scanIndex++) {
-
-        if (isCanceled()) {
-          return;
-        }
-
-        Scan scan = scans[scanIndex];
-        final MZmineDesktop desktop = MZmineCore.getDesktop();
-
-        // Check scan numbers.
-        if (scans.length == 0) {
-          desktop.displayErrorMessage("No scans found");
-          return;
-        }
-
-        double[] scanMZValues = new double[scan.getNumberOfDataPoints()];
-        double[] scanIntensityValues = new double[scan.getNumberOfDataPoints()];
-        scan.getMzValues(scanMZValues);
-        scan.getIntensityValues(scanIntensityValues);
-
-        double[] binnedIntensities = ScanUtils.binValues(scanMZValues, scanIntensityValues, mzRange,
-            mzResolution, scan.getSpectrumType() != MassSpectrumType.CENTROIDED, BinningType.MAX);
-
-        int scanBinIndex;
-
-        double rt = scan.getRetentionTime();
-        scanBinIndex = (int) ((rt - rtRange.lowerEndpoint()) / rtStep);
-
-        // last scan falls into last bin
-        if (scanBinIndex == rtResolution) {
-          scanBinIndex--;
-        }
-
-        for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
-
-          int intensityValuesIndex = (rtResolution * mzIndex) + scanBinIndex;
-          if (binnedIntensities[mzIndex] > intensityValues[0][intensityValuesIndex]) {
-            intensityValues[0][intensityValuesIndex] = (float) binnedIntensities[mzIndex];
-          }
-          if (intensityValues[0][intensityValuesIndex] > maxBinnedIntensity) {
-            maxBinnedIntensity = binnedIntensities[mzIndex];
-          }
-        }
-
-        rtDataSet[scanBinIndex] = true;
-
-        retrievedScans++;
-
+      // Check scan numbers.
+      if (scans.length == 0) {
+        MZmineCore.getDesktop().displayErrorMessage("No scans found");
+        setStatus(TaskStatus.FINISHED);
+        return;
       }
 
-      // Interpolate missing values on the RT-axis
-      for (int rtIndex = 1; rtIndex < rtResolution - 1; rtIndex++) {
-
-        // If the data was set, go to next RT line
-        if (rtDataSet[rtIndex]) {
-          continue;
-        }
-        int prevIndex, nextIndex;
-        for (prevIndex = rtIndex - 1; prevIndex >= 0; prevIndex--) {
-          if (rtDataSet[prevIndex]) {
-            break;
-          }
-        }
-        for (nextIndex = rtIndex + 1; nextIndex < rtResolution; nextIndex++) {
-          if (rtDataSet[nextIndex]) {
-            break;
-          }
-        }
-
-        // If no neighboring data was found, give up
-        if ((prevIndex < 0) || (nextIndex >= rtResolution)) {
-          continue;
-        }
-
-        for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
-
-          int valueIndex = (rtResolution * mzIndex) + rtIndex;
-          int nextValueIndex = (rtResolution * mzIndex) + nextIndex;
-          int prevValueIndex = (rtResolution * mzIndex) + prevIndex;
-
-          double prevValue = intensityValues[0][prevValueIndex];
-          double nextValue = intensityValues[0][nextValueIndex];
-
-          double slope = (nextValue - prevValue) / (nextIndex - prevIndex);
-          intensityValues[0][valueIndex] = (float) (prevValue + (slope * (rtIndex - prevIndex)));
-
-        }
+      // sampled in parallel once per file and range, all levels are max pooled
+      final Fx3DSamplingPyramid pyramid = Fx3DSamplingPyramid.of(dataFile, scans, rtRange,
+          mzRange, rtResolution, mzResolution, this::isCanceled, retrievedScans);
+      if (pyramid == null || isCanceled()) {
+        return;
       }
 
-      float[][] finalIntensityValues = new float[rtResolution][mzResolution];
-      for (int rtIndex = 0; rtIndex < rtResolution; rtIndex++) {
-        for (int mzIndex = 0; mzIndex < mzResolution; mzIndex++) {
-          int valueIndex = (rtResolution * mzIndex) + rtIndex;
-          finalIntensityValues[rtIndex][mzIndex] = (float) (intensityValues[0][valueIndex]
-              / maxBinnedIntensity);
-        }
-      }
-      Fx3DRawDataFileDataset plotMesh = new Fx3DRawDataFileDataset(dataFile, finalIntensityValues,
-          rtResolution, mzResolution, maxBinnedIntensity, dataFile.toString(),
-          PEAK_COLORS[random.nextInt(14)]);
+      Fx3DRawDataFileDataset plotMesh = new Fx3DRawDataFileDataset(dataFile, pyramid,
+          dataFile.toString(), PEAK_COLORS[random.nextInt(14)]);
 
       Platform.runLater(() -> {
         controller.addDataset(plotMesh);
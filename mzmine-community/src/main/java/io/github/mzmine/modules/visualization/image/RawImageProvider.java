@@ -26,6 +26,7 @@
 package io.github.mzmine.modules.visualization.image;
 
 import com.google.common.collect.Range;
+import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.ImagingFrame;
@@ -35,6 +36,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.data_access.ImagingMzIndex;
 import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
@@ -86,7 +88,7 @@ public class RawImageProvider implements PlotXYZDataProvider {
   protected PaintScale paintScale;
   // output
   private IonTimeSeries<Scan> series;
-  private double finishedPercentage;
+  private final AtomicDouble finishedPercentage = new AtomicDouble(0d);
   private boolean isComputed;
 
   public RawImageProvider(ImagingRawDataFile raw, ParameterSet parameters) {
@@ -110,7 +112,6 @@ public class RawImageProvider implements PlotXYZDataProvider {
     intensityFormat = MZmineCore.getConfiguration().getIntensityFormat();
     unitFormat = MZmineCore.getConfiguration().getUnitFormat();
 
-    finishedPercentage = 0d;
   }
 
   @NotNull
@@ -167,7 +168,7 @@ public class RawImageProvider implements PlotXYZDataProvider {
 
   @Override
   public double getComputationFinishedPercentage() {
-    return finishedPercentage;
+    return finishedPercentage.get();
   }
 
   @Override
@@ -223,6 +224,18 @@ public class RawImageProvider implements PlotXYZDataProvider {
 
   @NotNull
   private SimpleIonTimeSeries extractFromScans() {
+    // the index is built once per data file if it fits into memory, following images are range
+    // scans over the index
+    final ImagingMzIndex index = ImagingMzIndex.of(raw, finishedPercentage);
+    if (index != null) {
+      logger.info("ImageViewer: Start data point extraction from m/z index");
+      final SimpleIonTimeSeries series = index.extractImage(raw, mzRange,
+          scanSelection.getMatchingScans(raw.getScans()));
+      finishedPercentage.set(1d);
+      return series;
+    }
+    finishedPercentage.set(0d);
+
     double minMz = mzRange.lowerEndpoint();
     double maxMz = mzRange.upperEndpoint();
 
@@ -234,7 +247,7 @@ public class RawImageProvider implements PlotXYZDataProvider {
     List<Scan> scans = new ArrayList<>(numberOfScans);
     int finished = 0;
     while (scanAccess.hasNextScan()) {
-      finishedPercentage = finished / numberOfScans;
+      finishedPercentage.set(finished / numberOfScans);
       finished++;
       Scan scan = scanAccess.nextScan();
       if (!(scan instanceof ImagingScan)) {
@@ -267,7 +280,7 @@ public class RawImageProvider implements PlotXYZDataProvider {
       intensities.add(sum);
       scans.add(scan);
     }
-    finishedPercentage = 1d;
+    finishedPercentage.set(1d);
     return new SimpleIonTimeSeries(null, mzs.toDoubleArray(), intensities.toDoubleArray(), scans);
   }
 
@@ -285,7 +298,7 @@ public class RawImageProvider implements PlotXYZDataProvider {
     List<Scan> scans = new ArrayList<>(numberOfFrames);
     double finished = 0;
     while (scanAccess.hasNextFrame()) {
-      finishedPercentage = finished / numberOfFrames;
+      finishedPercentage.set(finished / numberOfFrames);
       Frame scan = scanAccess.nextFrame();
       if (!(scan instanceof ImagingFrame)) {
         continue;
@@ -325,7 +338,7 @@ public class RawImageProvider implements PlotXYZDataProvider {
       intensities.add(sum);
       scans.add(scan);
     }
-    finishedPercentage = 1;
+    finishedPercentage.set(1);
     return new SimpleIonTimeSeries(null, mzs.toDoubleArray(), intensities.toDoubleArray(), scans);
   }
 }
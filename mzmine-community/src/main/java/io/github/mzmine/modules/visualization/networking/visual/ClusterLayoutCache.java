@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.networking.visual;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.graphstream.algorithm.Toolkit;
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Node;
+import org.graphstream.graph.implementations.MultiGraph;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Layouts of network clusters by their nodes and edges. Edge filters only change some clusters of
+ * a network, all unchanged clusters reuse their layout.
+ */
+public class ClusterLayoutCache {
+
+  private static final int MAX_CLUSTERS = 4096;
+
+  private final Map<ClusterKey, ClusterLayout> layouts = new LinkedHashMap<>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Entry<ClusterKey, ClusterLayout> eldest) {
+      return size() > MAX_CLUSTERS;
+    }
+  };
+
+  /**
+   * Sets the cached layout to the nodes of the cluster graph
+   *
+   * @return true if the layout was cached
+   */
+  public boolean applyCached(@NotNull ClusterKey key, @NotNull MultiGraph cluster) {
+    final ClusterLayout layout;
+    synchronized (layouts) {
+      layout = layouts.get(key);
+    }
+    if (layout == null) {
+      return false;
+    }
+    for (int i = 0; i < layout.nodeIds().length; i++) {
+      cluster.getNode(layout.nodeIds()[i]).setAttribute("xy", layout.x()[i], layout.y()[i]);
+    }
+    return true;
+  }
+
+  /**
+   * Caches the current node positions of the cluster graph
+   */
+  public void put(@NotNull ClusterKey key, @NotNull MultiGraph cluster) {
+    final int n = cluster.getNodeCount();
+    final String[] ids = new String[n];
+    final double[] x = new double[n];
+    final double[] y = new double[n];
+    final double[] xyz = new double[3];
+    for (int i = 0; i < n; i++) {
+      final Node node = cluster.getNode(i);
+      Toolkit.nodePosition(node, xyz);
+      ids[i] = node.getId();
+      x[i] = xyz[0];
+      y[i] = xyz[1];
+    }
+    synchronized (layouts) {
+      layouts.put(key, new ClusterLayout(ids, x, y));
+    }
+  }
+
+  /**
+   * A cluster is identified by its node and edge IDs
+   */
+  public record ClusterKey(Set<String> nodes, Set<String> edges) {
+
+    public static @NotNull ClusterKey of(@NotNull MultiGraph cluster) {
+      final Set<String> nodes = new HashSet<>(cluster.getNodeCount());
+      cluster.nodes().map(Node::getId).forEach(nodes::add);
+      final Set<String> edges = new HashSet<>(cluster.getEdgeCount());
+      cluster.edges().map(Edge::getId).forEach(edges::add);
+      return new ClusterKey(nodes, edges);
+    }
+  }
+
+  private record ClusterLayout(String[] nodeIds, double[] x, double[] y) {
+
+  }
+
+}
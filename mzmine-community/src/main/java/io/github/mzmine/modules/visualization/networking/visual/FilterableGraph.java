@@ -60,6 +60,10 @@ public class FilterableGraph extends MultiGraph {
   private boolean fullGraphLayoutFinished = false;
   private boolean edgeGraphLayoutApplied = false;
   private boolean edgeGraphLayoutFinished = false;
+  /**
+   * layouts of clusters, edge filters only compute the layout of changed clusters
+   */
+  private final ClusterLayoutCache layoutCache = new ClusterLayoutCache();
 
   public FilterableGraph(String id, final MultiGraph fullGraph, boolean showFullNetwork) {
     super(id);
@@ -103,7 +107,7 @@ public class FilterableGraph extends MultiGraph {
 
   private void applyLayout(final @Nullable Node frozen, final MultiGraph gl,
       boolean externalThread) {
-    Task task = new NetworkLayoutParallelComputeTask(gl);
+    Task task = new NetworkLayoutParallelComputeTask(gl, layoutCache);
     if (externalThread) {
       task.addTaskStatusListener((task1, newStatus, oldStatus) -> {
         if (newStatus == TaskStatus.FINISHED) {
@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.networking.visual;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Node;
+import org.graphstream.graph.implementations.MultiGraph;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Multilevel spring-electrical layout (Hu 2005) on primitive arrays. The graph is coarsened by
+ * heavy edge matching until it is small, the coarsest graph is laid out from random positions and
+ * each finer level starts from the positions of its coarse nodes. Repulsion is approximated by a
+ * Barnes-Hut quadtree and forces of large graphs are evaluated in parallel.
+ * <p>
+ * Replaces the GraphStream {@link org.graphstream.ui.layout.springbox.implementations.SpringBox}
+ * for large networks, which is O(n²) per step and single threaded.
+ */
+public final class MultilevelForceLayout {
+
+  private static final Logger logger = Logger.getLogger(MultilevelForceLayout.class.getName());
+
+  /**
+   * natural spring length, the final layout is scaled to a mean edge length of 1
+   */
+  private static final double K = 1;
+  /**
+   * relative strength of the repulsive force
+   */
+  private static final double REPULSION = 0.2;
+  /**
+   * Barnes-Hut opening criterion, cells with width / distance below theta are approximated
+   */
+  private static final double THETA = 1.2;
+  private static final double STEP_COOLING = 0.9;
+  private static final double CONVERGENCE = 0.01;
+  private static final int COARSEST_SIZE = 32;
+  private static final int MAX_LEVELS = 40;
+  private static final int COARSEST_ITERATIONS = 500;
+  private static final int REFINE_ITERATIONS = 100;
+  private static final int PARALLEL_THRESHOLD = 2048;
+  private static final int NODES_PER_TASK = 512;
+
+  private MultilevelForceLayout() {
+  }
+
+  /**
+   * Computes the layout and sets the xy attribute of all nodes, like
+   * {@link NetworkLayoutComputeTask#applyLayout(Node, MultiGraph)}.
+   *
+   * @param isCanceled cancels the layout, positions are not changed then
+   * @return false if canceled
+   */
+  public static boolean applyLayout(@NotNull MultiGraph g, @Nullable BooleanSupplier isCanceled) {
+    final int n = g.getNodeCount();
+    final int[] sources = new int[g.getEdgeCount()];
+    final int[] targets = new int[g.getEdgeCount()];
+    for (int i = 0; i < sources.length; i++) {
+      final Edge edge = g.getEdge(i);
+      sources[i] = edge.getSourceNode().getIndex();
+      targets[i] = edge.getTargetNode().getIndex();
+    }
+
+    final Coordinates xy = layout(n, sources, targets, 42, isCanceled);
+    if (xy == null) {
+      return false;
+    }
+    for (int i = 0; i < n; i++) {
+      final Node node = g.getNode(i);
+      node.setAttribute("xy", xy.x()[i], xy.y()[i]);
+    }
+    return true;
+  }
+
+  /**
+   * @param sources edge source node indexes, self loops and duplicate edges are ignored
+   * @param targets edge target node indexes
+   * @return the node coordinates or null if canceled
+   */
+  public static @Nullable Coordinates layout(int numNodes, int @NotNull [] sources,
+      int @NotNull [] targets, long seed, @Nullable BooleanSupplier isCanceled) {
+    final Random random = new Random(seed);
+    if (numNodes == 0) {
+      return new Coordinates(new double[0], new double[0]);
+    }
+
+    // coarsen
+    final Level[] levels = new Level[MAX_LEVELS];
+    final int[][] coarseIndexes = new int[MAX_LEVELS][];
+    levels[0] = Level.of(numNodes, sources, targets, null, null);
+    int numLevels = 1;
+    while (numLevels < MAX_LEVELS && levels[numLevels - 1].size() > COARSEST_SIZE) {
+      final Level fine = levels[numLevels - 1];
+      final int[] coarseIndex = new int[fine.size()];
+      final Level coarse = fine.coarsen(coarseIndex, random);
+      // little progress, e.g., for many disconnected nodes
+      if (coarse.size() > 0.9 * fine.size()) {
+        break;
+      }
+      coarseIndexes[numLevels - 1] = coarseIndex;
+      levels[numLevels++] = coarse;
+    }
+
+    // layout coarsest from random positions
+    Level level = levels[numLevels - 1];
+    final double side = Math.sqrt(level.size()) * K;
+    double[] x = new double[level.size()];
+    double[] y = new double[level.size()];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = random.nextDouble() * side;
+      y[i] = random.nextDouble() * side;
+    }
+    if (!level.layout(x, y, Math.max(K, side / 4), COARSEST_ITERATIONS, isCanceled)) {
+      return null;
+    }
+
+    // refine
+    for (int l = numLevels - 2; l >= 0; l--) {
+      level = levels[l];
+      final int[] coarseIndex = coarseIndexes[l];
+      final double[] fineX = new double[level.size()];
+      final double[] fineY = new double[level.size()];
+      for (int i = 0; i < fineX.length; i++) {
+        // small offset to separate the merged nodes
+        fineX[i] = x[coarseIndex[i]] + (random.nextDouble() - 0.5) * 0.1 * K;
+        fineY[i] = y[coarseIndex[i]] + (random.nextDouble() - 0.5) * 0.1 * K;
+      }
+      x = fineX;
+      y = fineY;
+      if (!level.layout(x, y, K, REFINE_ITERATIONS, isCanceled)) {
+        return null;
+      }
+    }
+
+    levels[0].normalizeEdgeLength(x, y);
+    final int usedLevels = numLevels;
+    logger.finest(() -> "Layout of %d nodes and %d edges on %d levels".formatted(numNodes,
+        sources.length, usedLevels));
+    return new Coordinates(x, y);
+  }
+
+  public record Coordinates(double[] x, double[] y) {
+
+  }
+
+  /**
+   * One level of the multilevel graph as symmetric compressed adjacency with edge weights. Node
+   * mass is the number of original nodes.
+   */
+  private record Level(int size, int[] offsets, int[] neighbors, double[] weights,
+                       double[] mass) {
+
+    /**
+     * @param weights edge weights or null for 1, duplicate edges are merged and weights summed
+     * @param mass    node mass or null for 1
+     */
+    static Level of(int size, int[] sources, int[] targets, double @Nullable [] weights,
+        double @Nullable [] mass) {
+      final int[] degree = new int[size + 1];
+      for (int e = 0; e < sources.length; e++) {
+        if (sources[e] != targets[e]) {
+          degree[sources[e] + 1]++;
+          degree[targets[e] + 1]++;
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        degree[i + 1] += degree[i];
+      }
+      final int[] cursor = Arrays.copyOf(degree, size);
+      final int[] rawNeighbors = new int[degree[size]];
+      final double[] rawWeights = new double[degree[size]];
+      for (int e = 0; e < sources.length; e++) {
+        final int u = sources[e];
+        final int v = targets[e];
+        if (u != v) {
+          final double w = weights == null ? 1 : weights[e];
+          rawNeighbors[cursor[u]] = v;
+          rawWeights[cursor[u]++] = w;
+          rawNeighbors[cursor[v]] = u;
+          rawWeights[cursor[v]++] = w;
+        }
+      }
+
+      // merge duplicates, the original graph is a multi graph with edges of different types
+      final int[] offsets = new int[size + 1];
+      final int[] neighbors = new int[rawNeighbors.length];
+      final double[] merged = new double[rawNeighbors.length];
+      final int[] position = new int[size];
+      Arrays.fill(position, -1);
+      int count = 0;
+      for (int u = 0; u < size; u++) {
+        offsets[u] = count;
+        for (int k = degree[u]; k < degree[u + 1]; k++) {
+          final int v = rawNeighbors[k];
+          if (position[v] >= offsets[u]) {
+            // unweighted graph keeps weight 1 for duplicate edges
+            if (weights != null) {
+              merged[position[v]] += rawWeights[k];
+            }
+          } else {
+            position[v] = count;
+            neighbors[count] = v;
+            merged[count++] = rawWeights[k];
+          }
+        }
+      }
+      offsets[size] = count;
+
+      if (mass == null) {
+        mass = new double[size];
+        Arrays.fill(mass, 1d);
+      }
+      return new Level(size, offsets, Arrays.copyOf(neighbors, count), Arrays.copyOf(merged, count),
+          mass);
+    }
+
+    /**
+     * Heavy edge matching in random order. Leaves that found no partner join the group of their
+     * neighbor so that star shaped networks coarsen quickly.
+     *
+     * @param coarseIndex output: the coarse node of each node
+     */
+    Level coarsen(int[] coarseIndex, Random random) {
+      final int[] order = IntStream.range(0, size).toArray();
+      for (int i = size - 1; i > 0; i--) {
+        final int j = random.nextInt(i + 1);
+        final int tmp = order[i];
+        order[i] = order[j];
+        order[j] = tmp;
+      }
+
+      Arrays.fill(coarseIndex, -1);
+      final boolean[] single = new boolean[size];
+      int numCoarse = 0;
+      for (final int u : order) {
+        if (coarseIndex[u] >= 0) {
+          continue;
+        }
+        int best = -1;
+        double bestScore = 0;
+        for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+          final int v = neighbors[k];
+          final double score = weights[k] / (mass[u] * mass[v]);
+          if (coarseIndex[v] < 0 && score > bestScore) {
+            best = v;
+            bestScore = score;
+          }
+        }
+        coarseIndex[u] = numCoarse;
+        if (best >= 0) {
+          coarseIndex[best] = numCoarse;
+        } else {
+          single[u] = true;
+        }
+        numCoarse++;
+      }
+
+      // join leaves into the group of the neighbor and renumber
+      final int[] newIndex = new int[numCoarse];
+      Arrays.fill(newIndex, -1);
+      for (int u = 0; u < size; u++) {
+        if (single[u] && offsets[u + 1] - offsets[u] == 1) {
+          final int v = neighbors[offsets[u]];
+          if (!single[v]) {
+            coarseIndex[u] = coarseIndex[v];
+          }
+        }
+      }
+      int next = 0;
+      for (int u = 0; u < size; u++) {
+        final int c = coarseIndex[u];
+        if (newIndex[c] < 0) {
+          newIndex[c] = next++;
+        }
+        coarseIndex[u] = newIndex[c];
+      }
+
+      final double[] coarseMass = new double[next];
+      for (int u = 0; u < size; u++) {
+        coarseMass[coarseIndex[u]] += mass[u];
+      }
+      // each undirected edge once
+      final int[] sources = new int[neighbors.length / 2];
+      final int[] targets = new int[sources.length];
+      final double[] edgeWeights = new double[sources.length];
+      int numEdges = 0;
+      for (int u = 0; u < size; u++) {
+        for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+          final int v = neighbors[k];
+          if (u < v && coarseIndex[u] != coarseIndex[v]) {
+            sources[numEdges] = coarseIndex[u];
+            targets[numEdges] = coarseIndex[v];
+            edgeWeights[numEdges++] = weights[k];
+          }
+        }
+      }
+      return of(next, Arrays.copyOf(sources, numEdges), Arrays.copyOf(targets, numEdges),
+          Arrays.copyOf(edgeWeights, numEdges), coarseMass);
+    }
+
+    /**
+     * Force directed iterations with adaptive step length. Each node moves by the step length in
+     * the direction of its force.
+     *
+     * @return false if canceled
+     */
+    boolean layout(double[] x, double[] y, double step, int maxIterations,
+        @Nullable BooleanSupplier isCanceled) {
+      if (size < 2) {
+        return true;
+      }
+      final double[] fx = new double[size];
+      final double[] fy = new double[size];
+      double energy = Double.POSITIVE_INFINITY;
+      int progress = 0;
+      for (int iteration = 0; iteration < maxIterations; iteration++) {
+        if (isCanceled != null && isCanceled.getAsBoolean()) {
+          return false;
+        }
+        computeForces(x, y, fx, fy);
+
+        final double lastEnergy = energy;
+        energy = 0;
+        for (int i = 0; i < size; i++) {
+          final double norm = Math.sqrt(fx[i] * fx[i] + fy[i] * fy[i]);
+          if (norm > 0) {
+            x[i] += step * fx[i] / norm;
+            y[i] += step * fy[i] / norm;
+            energy += norm * norm;
+          }
+        }
+
+        if (energy < lastEnergy) {
+          if (++progress >= 5) {
+            progress = 0;
+            step /= STEP_COOLING;
+          }
+        } else {
+          progress = 0;
+          step *= STEP_COOLING;
+        }
+        if (step < CONVERGENCE * K) {
+          break;
+        }
+      }
+      return true;
+    }
+
+    private void computeForces(double[] x, double[] y, double[] fx, double[] fy) {
+      final QuadTree tree = new QuadTree(x, y, mass);
+      if (size < PARALLEL_THRESHOLD) {
+        computeForces(x, y, fx, fy, tree, 0, size);
+        return;
+      }
+      final int tasks = (size + NODES_PER_TASK - 1) / NODES_PER_TASK;
+      IntStream.range(0, tasks).parallel().forEach(
+          task -> computeForces(x, y, fx, fy, tree, task * NODES_PER_TASK,
+              Math.min(size, (task + 1) * NODES_PER_TASK)));
+    }
+
+    private void computeForces(double[] x, double[] y, double[] fx, double[] fy, QuadTree tree,
+        int from, int to) {
+      final int[] stack = tree.createStack();
+      final double[] force = new double[2];
+      for (int i = from; i < to; i++) {
+        force[0] = 0;
+        force[1] = 0;
+        tree.addRepulsion(i, stack, force);
+        // attraction d² / K along the edges
+        for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+          final int j = neighbors[k];
+          final double dx = x[j] - x[i];
+          final double dy = y[j] - y[i];
+          final double d = Math.sqrt(dx * dx + dy * dy);
+          force[0] += weights[k] * d * dx / K;
+          force[1] += weights[k] * d * dy / K;
+        }
+        fx[i] = force[0];
+        fy[i] = force[1];
+      }
+    }
+
+    void normalizeEdgeLength(double[] x, double[] y) {
+      double sum = 0;
+      for (int u = 0; u < size; u++) {
+        for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+          final int v = neighbors[k];
+          sum += Math.hypot(x[u] - x[v], y[u] - y[v]);
+        }
+      }
+      if (sum <= 0) {
+        return;
+      }
+      final double scale = neighbors.length / sum;
+      for (int i = 0; i < size; i++) {
+        x[i] *= scale;
+        y[i] *= scale;
+      }
+    }
+  }
+
+  /**
+   * Barnes-Hut quadtree in primitive arrays. The cells partition the node indexes in place and
+   * store the center of mass, cells of up to {@link #LEAF_SIZE} nodes are leaves.
+   */
+  static final class QuadTree {
+
+    private static final int LEAF_SIZE = 8;
+    private static final int MAX_DEPTH = 32;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] nodeMass;
+    private final int[] nodes;
+    private int numCells;
+    private double[] cellX = new double[64];
+    private double[] cellY = new double[64];
+    private double[] cellMass = new double[64];
+    private double[] cellWidth = new double[64];
+    private int[] firstChild = new int[64];
+    private int[] start = new int[64];
+    private int[] end = new int[64];
+
+    QuadTree(double[] x, double[] y, double[] nodeMass) {
+      this.x = x;
+      this.y = y;
+      this.nodeMass = nodeMass;
+      nodes = IntStream.range(0, x.length).toArray();
+      double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < x.length; i++) {
+        minX = Math.min(minX, x[i]);
+        maxX = Math.max(maxX, x[i]);
+        minY = Math.min(minY, y[i]);
+        maxY = Math.max(maxY, y[i]);
+      }
+      final double width = Math.max(maxX - minX, maxY - minY);
+      numCells = 1;
+      build(0, 0, nodes.length, minX, minY, width, 0);
+    }
+
+    private void build(int cell, int from, int to, double x0, double y0, double width,
+        int depth) {
+      double sumX = 0, sumY = 0, sumMass = 0;
+      for (int k = from; k < to; k++) {
+        final double m = nodeMass[nodes[k]];
+        sumX += m * x[nodes[k]];
+        sumY += m * y[nodes[k]];
+        sumMass += m;
+      }
+      cellMass[cell] = sumMass;
+      cellX[cell] = sumMass > 0 ? sumX / sumMass : 0;
+      cellY[cell] = sumMass > 0 ? sumY / sumMass : 0;
+      cellWidth[cell] = width;
+      start[cell] = from;
+      end[cell] = to;
+      if (to - from <= LEAF_SIZE || depth >= MAX_DEPTH || width <= 0) {
+        firstChild[cell] = -1;
+        return;
+      }
+
+      final int child = numCells;
+      numCells += 4;
+      ensureCapacity(numCells);
+      firstChild[cell] = child;
+
+      final double half = width / 2;
+      final double midX = x0 + half;
+      final double midY = y0 + half;
+      final int splitY = partition(from, to, y, midY);
+      final int splitLow = partition(from, splitY, x, midX);
+      final int splitHigh = partition(splitY, to, x, midX);
+      build(child, from, splitLow, x0, y0, half, depth + 1);
+      build(child + 1, splitLow, splitY, midX, y0, half, depth + 1);
+      build(child + 2, splitY, splitHigh, x0, midY, half, depth + 1);
+      build(child + 3, splitHigh, to, midX, midY, half, depth + 1);
+    }
+
+    /**
+     * @return the first index of nodes with values >= split
+     */
+    private int partition(int from, int to, double[] values, double split) {
+      int low = from;
+      int high = to - 1;
+      while (low <= high) {
+        if (values[nodes[low]] < split) {
+          low++;
+        } else {
+          final int tmp = nodes[low];
+          nodes[low] = nodes[high];
+          nodes[high--] = tmp;
+        }
+      }
+      return low;
+    }
+
+    private void ensureCapacity(int cells) {
+      if (cells <= cellX.length) {
+        return;
+      }
+      final int capacity = Math.max(cells, cellX.length * 2);
+      cellX = Arrays.copyOf(cellX, capacity);
+      cellY = Arrays.copyOf(cellY, capacity);
+      cellMass = Arrays.copyOf(cellMass, capacity);
+      cellWidth = Arrays.copyOf(cellWidth, capacity);
+      firstChild = Arrays.copyOf(firstChild, capacity);
+      start = Arrays.copyOf(start, capacity);
+      end = Arrays.copyOf(end, capacity);
+    }
+
+    int[] createStack() {
+      return new int[3 * MAX_DEPTH + 4];
+    }
+
+    /**
+     * Adds the repulsive force C K² m_i m_j / d of all other nodes to force
+     */
+    void addRepulsion(int i, int[] stack, double[] force) {
+      final double xi = x[i];
+      final double yi = y[i];
+      final double factor = REPULSION * K * K * nodeMass[i];
+      int top = 0;
+      stack[top++] = 0;
+      while (top > 0) {
+        final int cell = stack[--top];
+        if (cellMass[cell] <= 0) {
+          continue;
+        }
+        final double dx = xi - cellX[cell];
+        final double dy = yi - cellY[cell];
+        final double d2 = dx * dx + dy * dy;
+        if (firstChild[cell] < 0) {
+          for (int k = start[cell]; k < end[cell]; k++) {
+            final int j = nodes[k];
+            if (j == i) {
+              continue;
+            }
+            double jx = xi - x[j];
+            double jy = yi - y[j];
+            double jd2 = jx * jx + jy * jy;
+            if (jd2 == 0) {
+              // separate identical positions deterministically
+              jx = i < j ? 1e-3 : -1e-3;
+              jd2 = jx * jx;
+            }
+            force[0] += factor * nodeMass[j] * jx / jd2;
+            force[1] += factor * nodeMass[j] * jy / jd2;
+          }
+        } else if (cellWidth[cell] * cellWidth[cell] < THETA * THETA * d2) {
+          force[0] += factor * cellMass[cell] * dx / d2;
+          force[1] += factor * cellMass[cell] * dy / d2;
+        } else {
+          final int child = firstChild[cell];
+          stack[top++] = child;
+          stack[top++] = child + 1;
+          stack[top++] = child + 2;
+          stack[top++] = child + 3;
+        }
+      }
+    }
+  }
+}
@@ -28,6 +28,7 @@ package io.github.mzmine.modules.visualization.networking.visual;
 import com.google.common.collect.Range;
 import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.modules.dataprocessing.group_spectral_networking.NetworkCluster;
+import io.github.mzmine.modules.visualization.networking.visual.ClusterLayoutCache.ClusterKey;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.GraphStreamUtils;
@@ -39,17 +40,28 @@ import java.util.logging.Logger;
 import org.graphstream.algorithm.Toolkit;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.MultiGraph;
+import org.jetbrains.annotations.Nullable;
 
 public class NetworkLayoutParallelComputeTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(
       NetworkLayoutParallelComputeTask.class.getName());
   private final MultiGraph mainGraph;
+  private final @Nullable ClusterLayoutCache layoutCache;
   private final AtomicDouble progress = new AtomicDouble(0);
 
   public NetworkLayoutParallelComputeTask(final MultiGraph mainGraph) {
+    this(mainGraph, null);
+  }
+
+  /**
+   * @param layoutCache clusters with unchanged nodes and edges reuse their cached layout
+   */
+  public NetworkLayoutParallelComputeTask(final MultiGraph mainGraph,
+      final @Nullable ClusterLayoutCache layoutCache) {
     super(null, Instant.now());
     this.mainGraph = mainGraph;
+    this.layoutCache = layoutCache;
   }
 
   @Override
@@ -75,7 +87,9 @@ public class NetworkLayoutParallelComputeTask extends AbstractTask {
           if (isCanceled()) {
             return null;
           }
-          NetworkLayoutComputeTask.applyLayout(null, graph);
+          if (!applyLayout(graph)) {
+            return null;
+          }
           progress.addAndGet(progressStep);
           return measureSize(graph);
         }).filter(Objects::nonNull).toList();
@@ -148,6 +162,25 @@ public class NetworkLayoutParallelComputeTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  /**
+   * Layout of one cluster, reused from the cache if the cluster did not change
+   *
+   * @return false if canceled
+   */
+  private boolean applyLayout(MultiGraph cluster) {
+    final ClusterKey key = layoutCache != null ? ClusterKey.of(cluster) : null;
+    if (key != null && layoutCache.applyCached(key, cluster)) {
+      return true;
+    }
+    if (!MultilevelForceLayout.applyLayout(cluster, this::isCanceled)) {
+      return false;
+    }
+    if (key != null) {
+      layoutCache.put(key, cluster);
+    }
+    return true;
+  }
+
   public MeasuredGraph measureSize(MultiGraph graph) {
     double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
     double[] xyz = new double[3];
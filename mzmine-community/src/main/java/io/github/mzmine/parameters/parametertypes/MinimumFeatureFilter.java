@@ -36,6 +36,8 @@ import io.github.mzmine.modules.visualization.projectmetadata.table.columns.Meta
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.parameters.parametertypes.absoluterelative.AbsoluteAndRelativeInt;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -299,22 +301,22 @@ public class MinimumFeatureFilter {
 
     List<Scan> bigScans = big.getScanNumbers();
     List<Scan> smallScans = small.getScanNumbers();
-    double[] bigIntensities;
-    double[] smallIntensities;
+    MemorySegment bigIntensities;
+    MemorySegment smallIntensities;
     if (data != null) {
-      // get preloaded
-      bigIntensities = data.getIntensityValues(big);
-      smallIntensities = data.getIntensityValues(small);
+      // get preloaded, zero-copy
+      bigIntensities = data.getIntensitySegment(big);
+      smallIntensities = data.getIntensitySegment(small);
     } else {
       // load from features
-      bigIntensities = big.getFeatureData()
-          .getIntensityValues(new double[big.getNumberOfDataPoints()]);
-      smallIntensities = small.getFeatureData()
-          .getIntensityValues(new double[small.getNumberOfDataPoints()]);
+      bigIntensities = MemorySegment.ofArray(
+          big.getFeatureData().getIntensityValues(new double[big.getNumberOfDataPoints()]));
+      smallIntensities = MemorySegment.ofArray(
+          small.getFeatureData().getIntensityValues(new double[small.getNumberOfDataPoints()]));
     }
     // at 5% height
     for (int i = 0; i < big.getNumberOfDataPoints(); i++) {
-      double intensity = bigIntensities[i];
+      double intensity = bigIntensities.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
       Scan sn = bigScans.get(i);
       if (intensity >= big.getHeight() * 0.05 || intensity >= minHeight) {
         if (start <= 0) {
@@ -327,7 +329,7 @@ public class MinimumFeatureFilter {
     // check smaller
     double overlap = 0, sum = 0;
     for (int i = 0; i < small.getNumberOfDataPoints(); i++) {
-      double intensity = smallIntensities[i];
+      double intensity = smallIntensities.getAtIndex(ValueLayout.JAVA_DOUBLE, i);
       Scan sn = smallScans.get(i);
       double rt = sn.getRetentionTime();
 
@@ -34,10 +34,12 @@ import static io.github.mzmine.modules.visualization.networking.visual.enums.Nod
 import static io.github.mzmine.modules.visualization.networking.visual.enums.NodeAtt.COMMUNITY_SIZE;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -221,11 +223,7 @@ public class GraphStreamUtils {
         id = nextClusterId.getAndIncrement();
         clusterIds.put(node, id);
         // check all connected nodes
-        try {
-          addAllNodeNeighbors(clusterIds, node, id);
-        } catch (StackOverflowError ex) {
-          logger.fine("Failed to nubmer clusters correctly. Networks were too large.");
-        }
+        addAllNodeNeighbors(clusterIds, node, id);
       }
     });
 
@@ -254,16 +252,21 @@ public class GraphStreamUtils {
     return sortedClusters;
   }
 
+  /**
+   * Iterative depth first search, recursion overflows the stack on large networks
+   */
   private static void addAllNodeNeighbors(Map<Node, Integer> clusterIds, Node node, int clusterId) {
-    node.neighborNodes().forEach(neighbor -> {
-      Integer id = clusterIds.get(neighbor);
-      // not already visited
-      if (id == null) {
-        clusterIds.put(neighbor, clusterId);
-        // check all connected nodes
-        addAllNodeNeighbors(clusterIds, neighbor, clusterId);
-      }
-    });
+    final ArrayDeque<Node> open = new ArrayDeque<>();
+    open.push(node);
+    while (!open.isEmpty()) {
+      open.pop().neighborNodes().forEach(neighbor -> {
+        // not already visited
+        if (clusterIds.putIfAbsent(neighbor, clusterId) == null) {
+          // check all connected nodes
+          open.push(neighbor);
+        }
+      });
+    }
   }
 
   /**
@@ -401,10 +404,12 @@ public class GraphStreamUtils {
     for (Node n : nodes) {
       addCopy(gl, n);
     }
+    // lists are slow for contains on large networks
+    final Set<Node> nodeSet = nodes instanceof Set<Node> set ? set : new HashSet<>(nodes);
     for (Node n : nodes) {
       n.enteringEdges().forEach(edge -> {
         // need to contain both nodes
-        if (nodes.contains(edge.getSourceNode()) && nodes.contains(edge.getTargetNode())) {
+        if (nodeSet.contains(edge.getSourceNode()) && nodeSet.contains(edge.getTargetNode())) {
           addCopy(gl, edge);
         }
       });
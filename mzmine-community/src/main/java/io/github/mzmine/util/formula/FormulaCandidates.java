@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.formula;
+
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
+import org.jetbrains.annotations.NotNull;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+/**
+ * Molecular formulas of a mass window as element counts in primitive arrays, sorted by mass.
+ * Filters on element counts run without creating CDK formulas, which are only created for
+ * candidates that pass, see {@link #toFormula(int)}.
+ */
+public final class FormulaCandidates {
+
+  private final @NotNull FormulaElements elements;
+  /**
+   * counts of all candidates, numElements per candidate
+   */
+  private final int[] counts;
+  private final double[] masses;
+  private final int from;
+  private final int to;
+
+  FormulaCandidates(@NotNull FormulaElements elements, int[] counts, double[] masses, int from,
+      int to) {
+    this.elements = elements;
+    this.counts = counts;
+    this.masses = masses;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * @return the candidates within the mass window, sharing the arrays
+   */
+  @NotNull FormulaCandidates subRange(double minMass, double maxMass) {
+    final int start = lowerBound(minMass);
+    int end = start;
+    while (end < to && masses[end] <= maxMass) {
+      end++;
+    }
+    return new FormulaCandidates(elements, counts, masses, start, end);
+  }
+
+  private int lowerBound(double mass) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (masses[mid] < mass) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  public int size() {
+    return to - from;
+  }
+
+  public boolean isEmpty() {
+    return to == from;
+  }
+
+  public double getMass(int index) {
+    return masses[from + index];
+  }
+
+  /**
+   * @param element index of the element in {@link FormulaEnumerator#getIsotopes()}
+   */
+  public int getCount(int index, int element) {
+    return counts[(from + index) * elements.size() + element];
+  }
+
+  /**
+   * Same as {@link RDBERestrictionChecker#calculateRDBE(IMolecularFormula)} on the element counts
+   *
+   * @return the RDBE or NaN if an element without defined valence is part of the formula
+   */
+  public double getRDBE(int index) {
+    double sum = 0;
+    for (int e = 0; e < elements.size(); e++) {
+      final int count = getCount(index, e);
+      if (count == 0) {
+        continue;
+      }
+      final int valence = elements.valences()[e];
+      if (valence < 0) {
+        return Double.NaN;
+      }
+      sum += (valence - 2) * count;
+    }
+    return sum / 2 + 1;
+  }
+
+  /**
+   * Same as {@link ElementalHeuristicChecker#checkFormula(IMolecularFormula, boolean, boolean,
+   * boolean)} on the element counts
+   */
+  public boolean checkElementalHeuristics(int index, boolean checkHC, boolean checkNOPS,
+      boolean checkMultiple) {
+    // C, H, N, O, P, S
+    final int[] symbolCounts = new int[FormulaElements.HEURISTIC_SYMBOLS.size()];
+    final int[] groups = elements.heuristicGroups();
+    for (int e = 0; e < groups.length; e++) {
+      if (groups[e] >= 0) {
+        symbolCounts[groups[e]] += getCount(index, e);
+      }
+    }
+    return ElementalHeuristicChecker.checkFormula(symbolCounts[0], symbolCounts[1],
+        symbolCounts[2], symbolCounts[3], symbolCounts[4], symbolCounts[5], checkHC, checkNOPS,
+        checkMultiple);
+  }
+
+  /**
+   * @return a new CDK formula of all elements with a count > 0
+   */
+  public @NotNull IMolecularFormula toFormula(int index) {
+    final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+    final IMolecularFormula formula = builder.newInstance(IMolecularFormula.class);
+    final IIsotope[] isotopes = elements.isotopes();
+    for (int e = 0; e < isotopes.length; e++) {
+      final int count = getCount(index, e);
+      if (count > 0) {
+        formula.addIsotope(isotopes[e], count);
+      }
+    }
+    return formula;
+  }
+}
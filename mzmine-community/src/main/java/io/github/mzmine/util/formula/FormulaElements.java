@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.formula;
+
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.openscience.cdk.interfaces.IIsotope;
+
+/**
+ * Elements of a formula range with their exact masses and valences (-1 if undefined).
+ *
+ * @param heuristicGroups index of the element symbol in {@link #HEURISTIC_SYMBOLS} or -1
+ */
+record FormulaElements(@NotNull IIsotope[] isotopes, double[] masses, int[] valences,
+                       int[] heuristicGroups) {
+
+  /**
+   * Elements used by the elemental heuristics
+   */
+  static final List<String> HEURISTIC_SYMBOLS = List.of("C", "H", "N", "O", "P", "S");
+
+  static @NotNull FormulaElements of(@NotNull IIsotope[] isotopes, double[] masses) {
+    final int[] valences = new int[isotopes.length];
+    final int[] groups = new int[isotopes.length];
+    for (int e = 0; e < isotopes.length; e++) {
+      final String symbol = isotopes[e].getSymbol();
+      final Integer valence = RDBERestrictionChecker.getValence(symbol);
+      valences[e] = valence == null ? -1 : valence;
+      groups[e] = HEURISTIC_SYMBOLS.indexOf(symbol);
+    }
+    return new FormulaElements(isotopes, masses, valences, groups);
+  }
+
+  int size() {
+    return isotopes.length;
+  }
+}
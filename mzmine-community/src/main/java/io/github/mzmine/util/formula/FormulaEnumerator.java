@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.formula;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+/**
+ * Enumerates all molecular formulas of an element range within a mass window. The elements are
+ * split into two halves and the masses of all element combinations of each half are precomputed
+ * as sorted lattices. A mass window query walks the first lattice and finds the matching
+ * combinations of the second lattice by binary search, so the cost depends on the size of the
+ * lattices and the number of results instead of all element combinations.
+ * <p>
+ * Results are cached in a bounded LRU cache keyed by the mass window rounded outwards to
+ * {@link #CACHE_MASS_GRID}. The cached candidates cover the rounded window and are cut to the
+ * exact window on each query. Element ranges with lattices larger than {@link #MAX_LATTICE_SIZE}
+ * fall back to the CDK {@link MolecularFormulaGenerator}.
+ * <p>
+ * Shared enumerators of {@link #forRange(MolecularFormulaRange)} are kept in an LRU cache that is
+ * bounded by the estimated memory of the lattices and cached windows. Element ranges that are only
+ * used once should use {@link #create(MolecularFormulaRange)} to not evict shared enumerators.
+ */
+public final class FormulaEnumerator {
+
+  /**
+   * Maximum number of combinations in one lattice half
+   */
+  static final int MAX_LATTICE_SIZE = 1 << 22;
+  static final double CACHE_MASS_GRID = 1e-3;
+  private static final int MAX_CACHED_WINDOWS = 2048;
+  /**
+   * Estimated bytes of the cached windows of one enumerator
+   */
+  private static final long MAX_CACHED_WINDOW_BYTES = 16L << 20;
+  /**
+   * Estimated bytes of all shared enumerators. The most recently used enumerator is always kept.
+   */
+  static final long MAX_CACHED_ENUMERATOR_BYTES = 256L << 20;
+
+  private static final Map<String, FormulaEnumerator> enumerators = new LinkedHashMap<>(16,
+      0.75f, true);
+  /**
+   * Estimated bytes of all shared enumerators, updated when windows are cached
+   */
+  private static final AtomicLong sharedEnumeratorBytes = new AtomicLong();
+
+  private final @NotNull MolecularFormulaRange range;
+  private final @NotNull FormulaElements elements;
+  private final int[] minCounts;
+  private final int[] maxCounts;
+  /**
+   * null if the lattices would be too large
+   */
+  private final @Nullable Lattice first;
+  private final @Nullable Lattice second;
+
+  private final Map<Long, FormulaCandidates> cache = new LinkedHashMap<>(256, 0.75f, true);
+  /**
+   * Estimated bytes of all cached windows, guarded by the cache
+   */
+  private long cachedWindowBytes = 0;
+  /**
+   * true while in the shared enumerators, guarded by the cache
+   */
+  private boolean shared = false;
+
+  private FormulaEnumerator(@NotNull MolecularFormulaRange range) {
+    this.range = range;
+    final List<IIsotope> isotopeList = new ArrayList<>();
+    range.isotopes().forEach(isotopeList::add);
+    final IIsotope[] isotopes = isotopeList.toArray(IIsotope[]::new);
+    final int n = isotopes.length;
+    final double[] masses = new double[n];
+    minCounts = new int[n];
+    maxCounts = new int[n];
+    for (int e = 0; e < n; e++) {
+      masses[e] = exactMass(isotopes[e]);
+      minCounts[e] = range.getIsotopeCountMin(isotopes[e]);
+      maxCounts[e] = range.getIsotopeCountMax(isotopes[e]);
+    }
+    elements = FormulaElements.of(isotopes, masses);
+
+    // balance the products of both halves, largest ranges first
+    final Integer[] order = new Integer[n];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, (a, b) -> Integer.compare(maxCounts[b] - minCounts[b],
+        maxCounts[a] - minCounts[a]));
+    final IntArrayList firstElements = new IntArrayList();
+    final IntArrayList secondElements = new IntArrayList();
+    long firstSize = 1;
+    long secondSize = 1;
+    for (int e : order) {
+      final long options = maxCounts[e] - minCounts[e] + 1L;
+      if (firstSize <= secondSize) {
+        firstElements.add(e);
+        firstSize *= options;
+      } else {
+        secondElements.add(e);
+        secondSize *= options;
+      }
+    }
+    if (firstSize > MAX_LATTICE_SIZE || secondSize > MAX_LATTICE_SIZE) {
+      first = null;
+      second = null;
+    } else {
+      first = new Lattice(firstElements.toIntArray(), (int) firstSize);
+      second = new Lattice(secondElements.toIntArray(), (int) secondSize);
+    }
+  }
+
+  /**
+   * @return a shared enumerator for the element range. Enumerators of the most recently used
+   * ranges are kept up to {@link #MAX_CACHED_ENUMERATOR_BYTES}.
+   */
+  public static @NotNull FormulaEnumerator forRange(@NotNull MolecularFormulaRange range) {
+    final String key = createKey(range);
+    synchronized (enumerators) {
+      final FormulaEnumerator cached = enumerators.get(key);
+      if (cached != null) {
+        // cached windows grow after insertion, so the total is checked on each access
+        evictEldest();
+        return cached;
+      }
+    }
+
+    // build the lattices outside the lock, a concurrent call may build the same range
+    final FormulaEnumerator created = new FormulaEnumerator(range);
+    synchronized (enumerators) {
+      final FormulaEnumerator existing = enumerators.putIfAbsent(key, created);
+      if (existing != null) {
+        return existing;
+      }
+      synchronized (created.cache) {
+        created.shared = true;
+        sharedEnumeratorBytes.addAndGet(created.estimateBytesLocked());
+      }
+      evictEldest();
+      return created;
+    }
+  }
+
+  /**
+   * Creates an enumerator that is not shared. Used for element ranges that are only queried by one
+   * caller, e.g., the sub formulas of a single parent formula.
+   */
+  public static @NotNull FormulaEnumerator create(@NotNull MolecularFormulaRange range) {
+    return new FormulaEnumerator(range);
+  }
+
+  /**
+   * Removes the least recently used enumerators until the estimated bytes fit. The most recently
+   * used enumerator is always kept. Only call while holding the lock of the enumerators.
+   */
+  private static void evictEldest() {
+    final Iterator<FormulaEnumerator> eldest = enumerators.values().iterator();
+    while (sharedEnumeratorBytes.get() > MAX_CACHED_ENUMERATOR_BYTES && enumerators.size() > 1) {
+      final FormulaEnumerator evicted = eldest.next();
+      eldest.remove();
+      synchronized (evicted.cache) {
+        evicted.shared = false;
+        sharedEnumeratorBytes.addAndGet(-evicted.estimateBytesLocked());
+      }
+    }
+  }
+
+  private static String createKey(MolecularFormulaRange range) {
+    final StringBuilder key = new StringBuilder();
+    for (IIsotope isotope : range.isotopes()) {
+      key.append(isotope.getSymbol()).append(isotope.getMassNumber()).append('[')
+          .append(range.getIsotopeCountMin(isotope)).append('-')
+          .append(range.getIsotopeCountMax(isotope)).append(']');
+    }
+    return key.toString();
+  }
+
+  private static double exactMass(IIsotope isotope) {
+    if (isotope.getExactMass() != null) {
+      return isotope.getExactMass();
+    }
+    try {
+      final IIsotope major = Isotopes.getInstance().getMajorIsotope(isotope.getSymbol());
+      if (major != null && major.getExactMass() != null) {
+        return major.getExactMass();
+      }
+    } catch (IOException _) {
+      // handled below
+    }
+    throw new IllegalArgumentException("No exact mass for element " + isotope.getSymbol());
+  }
+
+  /**
+   * @return estimated bytes of the lattices and the cached windows
+   */
+  long estimateBytes() {
+    synchronized (cache) {
+      return estimateBytesLocked();
+    }
+  }
+
+  /**
+   * Only call while holding the lock of the cache
+   */
+  private long estimateBytesLocked() {
+    final long latticeBytes = first == null || second == null ? 0
+        : (long) (first.size + second.size) * (Double.BYTES + Integer.BYTES);
+    return latticeBytes + cachedWindowBytes;
+  }
+
+  /**
+   * @return estimated bytes of all shared enumerators
+   */
+  static long getSharedEnumeratorBytes() {
+    return sharedEnumeratorBytes.get();
+  }
+
+  private long estimateBytes(FormulaCandidates candidates) {
+    return (long) candidates.size() * (Double.BYTES + (long) elements.size() * Integer.BYTES);
+  }
+
+  /**
+   * @return true if the element lattices are used, false if this enumerator falls back to the CDK
+   * generator
+   */
+  public boolean isLatticeBased() {
+    return first != null;
+  }
+
+  /**
+   * @return the elements in the order of {@link FormulaCandidates#getCount(int, int)}
+   */
+  public @NotNull IIsotope[] getIsotopes() {
+    return elements.isotopes().clone();
+  }
+
+  public @NotNull FormulaCandidates findFormulas(double minMass, double maxMass) {
+    return findFormulas(minMass, maxMass, () -> false);
+  }
+
+  /**
+   * All formulas with minMass <= mass <= maxMass, sorted by mass
+   *
+   * @param isCanceled stops the enumeration and returns the formulas found so far
+   */
+  public @NotNull FormulaCandidates findFormulas(double minMass, double maxMass,
+      @NotNull BooleanSupplier isCanceled) {
+    final long lowKey = (long) Math.floor(minMass / CACHE_MASS_GRID);
+    final long highKey = (long) Math.ceil(maxMass / CACHE_MASS_GRID);
+    // windows are only a few grid steps wide, pack the start and width into one key
+    final long width = highKey - lowKey;
+    final Long key = width < 1 << 16 ? (lowKey << 16) | width : null;
+
+    if (key != null) {
+      final FormulaCandidates cached;
+      synchronized (cache) {
+        cached = cache.get(key);
+      }
+      if (cached != null) {
+        return cached.subRange(minMass, maxMass);
+      }
+    }
+
+    final double cacheMin = key != null ? lowKey * CACHE_MASS_GRID : minMass;
+    final double cacheMax = key != null ? highKey * CACHE_MASS_GRID : maxMass;
+    final FormulaCandidates candidates = enumerate(cacheMin, cacheMax, isCanceled);
+    if (key != null && !isCanceled.getAsBoolean()) {
+      synchronized (cache) {
+        final long before = cachedWindowBytes;
+        final FormulaCandidates replaced = cache.put(key, candidates);
+        cachedWindowBytes += estimateBytes(candidates) - (replaced == null ? 0
+            : estimateBytes(replaced));
+        final Iterator<FormulaCandidates> eldest = cache.values().iterator();
+        while ((cache.size() > MAX_CACHED_WINDOWS || cachedWindowBytes > MAX_CACHED_WINDOW_BYTES)
+            && cache.size() > 1) {
+          cachedWindowBytes -= estimateBytes(eldest.next());
+          eldest.remove();
+        }
+        if (shared) {
+          sharedEnumeratorBytes.addAndGet(cachedWindowBytes - before);
+        }
+      }
+    }
+    return candidates.subRange(minMass, maxMass);
+  }
+
+  /**
+   * @return true if at least one formula is within the mass window
+   */
+  public boolean hasFormula(double minMass, double maxMass) {
+    return !findFormulas(minMass, maxMass).isEmpty();
+  }
+
+  private @NotNull FormulaCandidates enumerate(double minMass, double maxMass,
+      BooleanSupplier isCanceled) {
+    final int n = elements.size();
+    final IntArrayList counts = new IntArrayList();
+    final DoubleArrayList masses = new DoubleArrayList();
+
+    if (first == null || second == null) {
+      enumerateWithCdk(minMass, maxMass, isCanceled, counts, masses);
+    } else {
+      final int[] combination = new int[n];
+      final double secondMin = second.masses[0];
+      final double secondMax = second.masses[second.size - 1];
+      for (int a = first.lowerBound(minMass - secondMax); a < first.size; a++) {
+        final double firstMass = first.masses[a];
+        if (firstMass + secondMin > maxMass || isCanceled.getAsBoolean()) {
+          break;
+        }
+        for (int b = second.lowerBound(minMass - firstMass); b < second.size; b++) {
+          final double mass = firstMass + second.masses[b];
+          if (mass > maxMass) {
+            break;
+          }
+          if (mass < minMass) {
+            continue;
+          }
+          first.decode(a, combination);
+          second.decode(b, combination);
+          counts.addElements(counts.size(), combination);
+          masses.add(mass);
+        }
+      }
+    }
+
+    // sort by mass
+    final int size = masses.size();
+    final int[] order = new int[size];
+    Arrays.setAll(order, i -> i);
+    IntArrays.stableSort(order, (i, j) -> Double.compare(masses.getDouble(i), masses.getDouble(j)));
+    final int[] sortedCounts = new int[size * n];
+    final double[] sortedMasses = new double[size];
+    for (int i = 0; i < size; i++) {
+      sortedMasses[i] = masses.getDouble(order[i]);
+      counts.getElements(order[i] * n, sortedCounts, i * n, n);
+    }
+    return new FormulaCandidates(elements, sortedCounts, sortedMasses, 0, size);
+  }
+
+  private void enumerateWithCdk(double minMass, double maxMass, BooleanSupplier isCanceled,
+      IntArrayList counts, DoubleArrayList masses) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(
+        SilentChemObjectBuilder.getInstance(), minMass, maxMass, range);
+    final IIsotope[] isotopes = elements.isotopes();
+    IMolecularFormula formula;
+    while (!isCanceled.getAsBoolean() && (formula = generator.getNextFormula()) != null) {
+      double mass = 0;
+      for (int e = 0; e < isotopes.length; e++) {
+        final int count = formula.getIsotopeCount(isotopes[e]);
+        counts.add(count);
+        mass += count * elements.masses()[e];
+      }
+      masses.add(mass);
+    }
+  }
+
+  /**
+   * All combinations of the element counts of a subset of elements, sorted by mass
+   */
+  private final class Lattice {
+
+    private final int[] elementIndices;
+    private final int size;
+    private final double[] masses;
+    /**
+     * mixed radix code of the element counts above the minimum counts
+     */
+    private final int[] codes;
+
+    private Lattice(int[] elementIndices, int size) {
+      this.elementIndices = elementIndices;
+      this.size = size;
+      final double[] unsorted = new double[size];
+      double minMass = 0;
+      for (int e : elementIndices) {
+        minMass += minCounts[e] * elements.masses()[e];
+      }
+      // fill in code order
+      unsorted[0] = minMass;
+      int block = 1;
+      for (int e : elementIndices) {
+        final int options = maxCounts[e] - minCounts[e] + 1;
+        final double mass = elements.masses()[e];
+        for (int c = 1; c < options; c++) {
+          for (int i = 0; i < block; i++) {
+            unsorted[c * block + i] = unsorted[i] + c * mass;
+          }
+        }
+        block *= options;
+      }
+
+      codes = new int[size];
+      Arrays.setAll(codes, i -> i);
+      IntArrays.parallelQuickSort(codes, (i, j) -> {
+        final int compare = Double.compare(unsorted[i], unsorted[j]);
+        return compare != 0 ? compare : Integer.compare(i, j);
+      });
+      masses = new double[size];
+      for (int i = 0; i < size; i++) {
+        masses[i] = unsorted[codes[i]];
+      }
+    }
+
+    private int lowerBound(double mass) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (masses[mid] < mass) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Writes the element counts of the combination at index into the counts of all elements
+     */
+    private void decode(int index, int[] combination) {
+      int code = codes[index];
+      for (int e : elementIndices) {
+        final int options = maxCounts[e] - minCounts[e] + 1;
+        combination[e] = minCounts[e] + code % options;
+        code /= options;
+      }
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.maths.kernels;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Array kernels used on the intensities of every feature in smoothing and baseline correction.
+ * {@link #getInstance()} returns a SIMD implementation based on the incubating Java Vector API if
+ * the module jdk.incubator.vector is available (started with --add-modules jdk.incubator.vector),
+ * otherwise the scalar implementation. The scalar implementation is the default, because the JVM
+ * prints a warning on every start with an incubator module. Builds with -PvectorKernels add the
+ * module. Both implementations produce the same results within floating point tolerance.
+ * <p>
+ * All methods only process the first numValues values, so reused buffers may be longer.
+ */
+public interface ArrayKernels {
+
+  /**
+   * @return the fastest available implementation
+   */
+  static @NotNull ArrayKernels getInstance() {
+    return ArrayKernelsFactory.INSTANCE;
+  }
+
+  /**
+   * @return the scalar implementation that is always available
+   */
+  static @NotNull ArrayKernels scalar() {
+    return ArrayKernelsFactory.SCALAR;
+  }
+
+  /**
+   * @return true if this implementation uses SIMD instructions
+   */
+  boolean isVectorized();
+
+  /**
+   * Convolves the values with symmetric filter weights, e.g., Savitzky-Golay weights. At the edges
+   * only the intersection of the filter and the data is used.
+   *
+   * @param values    the input values
+   * @param numValues number of values to convolve
+   * @param weights   filter weights with odd length, centered on the current value
+   * @param dst       receives the convolved values, may not be the values array
+   */
+  void convolve(double[] values, int numValues, double[] weights, double[] dst);
+
+  /**
+   * Sets smoothed values to 0 if they are negative or if the original value was 0.
+   *
+   * @param smoothed  in place operation
+   * @param original  the original values before smoothing
+   * @param numValues number of values
+   */
+  void clampSmoothed(double[] smoothed, double[] original, int numValues);
+
+  /**
+   * dst[i] = max(0, values[i] - baseline[i] + offset)
+   *
+   * @param dst may be the values array for an in place operation
+   */
+  void subtractBaseline(double[] values, double[] baseline, double offset, double[] dst,
+      int numValues);
+
+  /**
+   * Weights of asymmetric least squares: weights[i] = values[i] > fit[i] ? p : 1 - p
+   */
+  void asymmetricWeights(double[] values, double[] fit, double p, double[] weights,
+      int numValues);
+}
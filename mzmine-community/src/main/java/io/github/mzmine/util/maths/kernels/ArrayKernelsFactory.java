@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.maths.kernels;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selects the kernel implementation once. The vector implementation is only loaded if the incubator
+ * module is present, otherwise its class would fail to link.
+ */
+final class ArrayKernelsFactory {
+
+  private static final Logger logger = Logger.getLogger(ArrayKernelsFactory.class.getName());
+
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+  /**
+   * System property to force the scalar kernels, e.g., to compare results
+   */
+  private static final String SCALAR_PROPERTY = "mzmine.kernels.scalar";
+
+  static final ArrayKernels SCALAR = new ScalarArrayKernels();
+  static final ArrayKernels INSTANCE = create();
+
+  private ArrayKernelsFactory() {
+  }
+
+  private static ArrayKernels create() {
+    if (Boolean.getBoolean(SCALAR_PROPERTY) || ModuleLayer.boot().findModule(VECTOR_MODULE)
+        .isEmpty()) {
+      logger.fine("Using scalar array kernels");
+      return SCALAR;
+    }
+    try {
+      final VectorArrayKernels vector = new VectorArrayKernels();
+      if (vector.getLanes() < 2) {
+        // no SIMD support on this CPU
+        return SCALAR;
+      }
+      logger.fine("Using vectorized array kernels with %d lanes".formatted(vector.getLanes()));
+      return vector;
+    } catch (LinkageError e) {
+      logger.log(Level.WARNING, "Vector API not available, using scalar array kernels", e);
+      return SCALAR;
+    }
+  }
+}
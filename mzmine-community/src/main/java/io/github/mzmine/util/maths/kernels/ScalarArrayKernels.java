@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.maths.kernels;
+
+/**
+ * Scalar kernels, the reference for the vectorized implementation.
+ */
+final class ScalarArrayKernels implements ArrayKernels {
+
+  /**
+   * Convolution at a single index, only uses the intersection of filter and data
+   */
+  static double convolveAt(double[] values, int numValues, double[] weights, int i) {
+    final int fullWidth = weights.length;
+    final int k = i - (fullWidth - 1) / 2;
+    final int startJ = Math.max(0, -k);
+    final int endJ = Math.min(fullWidth, numValues - k);
+
+    double sum = 0.0;
+    for (int j = startJ; j < endJ; j++) {
+      sum += values[k + j] * weights[j];
+    }
+    return sum;
+  }
+
+  @Override
+  public boolean isVectorized() {
+    return false;
+  }
+
+  @Override
+  public void convolve(double[] values, int numValues, double[] weights, double[] dst) {
+    for (int i = 0; i < numValues; i++) {
+      dst[i] = convolveAt(values, numValues, weights, i);
+    }
+  }
+
+  @Override
+  public void clampSmoothed(double[] smoothed, double[] original, int numValues) {
+    for (int i = 0; i < numValues; i++) {
+      if (smoothed[i] < 0d || original[i] == 0d) {
+        smoothed[i] = 0d;
+      }
+    }
+  }
+
+  @Override
+  public void subtractBaseline(double[] values, double[] baseline, double offset, double[] dst,
+      int numValues) {
+    for (int i = 0; i < numValues; i++) {
+      dst[i] = Math.max(0, values[i] - baseline[i] + offset);
+    }
+  }
+
+  @Override
+  public void asymmetricWeights(double[] values, double[] fit, double p, double[] weights,
+      int numValues) {
+    for (int i = 0; i < numValues; i++) {
+      weights[i] = values[i] > fit[i] ? p : (1.0 - p);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.maths.kernels;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels based on the incubating Java Vector API. Only loaded by {@link ArrayKernelsFactory}
+ * if the module is available. Loops process full vectors and finish the tail with the scalar
+ * code. Sums are accumulated in the same order as the scalar code.
+ */
+final class VectorArrayKernels implements ArrayKernels {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  int getLanes() {
+    return SPECIES.length();
+  }
+
+  @Override
+  public boolean isVectorized() {
+    return true;
+  }
+
+  @Override
+  public void convolve(double[] values, int numValues, double[] weights, double[] dst) {
+    final int fullWidth = weights.length;
+    final int halfWidth = (fullWidth - 1) / 2;
+    // the filter fully overlaps the data for i in [halfWidth, interiorEnd)
+    final int interiorEnd = numValues - fullWidth + halfWidth + 1;
+
+    int i = 0;
+    // left edge
+    for (; i < Math.min(halfWidth, numValues); i++) {
+      dst[i] = ScalarArrayKernels.convolveAt(values, numValues, weights, i);
+    }
+
+    if (interiorEnd > halfWidth) {
+      final int upperBound = halfWidth + SPECIES.loopBound(interiorEnd - halfWidth);
+      for (; i < upperBound; i += SPECIES.length()) {
+        final int k = i - halfWidth;
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        for (int j = 0; j < fullWidth; j++) {
+          sum = sum.add(DoubleVector.fromArray(SPECIES, values, k + j).mul(weights[j]));
+        }
+        sum.intoArray(dst, i);
+      }
+    }
+
+    // tail of the interior and right edge
+    for (; i < numValues; i++) {
+      dst[i] = ScalarArrayKernels.convolveAt(values, numValues, weights, i);
+    }
+  }
+
+  @Override
+  public void clampSmoothed(double[] smoothed, double[] original, int numValues) {
+    int i = 0;
+    final int upperBound = SPECIES.loopBound(numValues);
+    for (; i < upperBound; i += SPECIES.length()) {
+      final DoubleVector s = DoubleVector.fromArray(SPECIES, smoothed, i);
+      final DoubleVector o = DoubleVector.fromArray(SPECIES, original, i);
+      final VectorMask<Double> zero = s.compare(VectorOperators.LT, 0d)
+          .or(o.compare(VectorOperators.EQ, 0d));
+      s.blend(0d, zero).intoArray(smoothed, i);
+    }
+    for (; i < numValues; i++) {
+      if (smoothed[i] < 0d || original[i] == 0d) {
+        smoothed[i] = 0d;
+      }
+    }
+  }
+
+  @Override
+  public void subtractBaseline(double[] values, double[] baseline, double offset, double[] dst,
+      int numValues) {
+    int i = 0;
+    final int upperBound = SPECIES.loopBound(numValues);
+    for (; i < upperBound; i += SPECIES.length()) {
+      DoubleVector.fromArray(SPECIES, values, i).sub(DoubleVector.fromArray(SPECIES, baseline, i))
+          .add(offset).max(0d).intoArray(dst, i);
+    }
+    for (; i < numValues; i++) {
+      dst[i] = Math.max(0, values[i] - baseline[i] + offset);
+    }
+  }
+
+  @Override
+  public void asymmetricWeights(double[] values, double[] fit, double p, double[] weights,
+      int numValues) {
+    final DoubleVector low = DoubleVector.broadcast(SPECIES, 1.0 - p);
+    int i = 0;
+    final int upperBound = SPECIES.loopBound(numValues);
+    for (; i < upperBound; i += SPECIES.length()) {
+      final DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+      final DoubleVector f = DoubleVector.fromArray(SPECIES, fit, i);
+      low.blend(p, v.compare(VectorOperators.GT, f)).intoArray(weights, i);
+    }
+    for (; i < numValues; i++) {
+      weights[i] = values[i] > fit[i] ? p : (1.0 - p);
+    }
+  }
+}
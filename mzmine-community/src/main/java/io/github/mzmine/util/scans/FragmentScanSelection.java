@@ -25,6 +25,7 @@
 
 package io.github.mzmine.util.scans;
 
+import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.MergedMassSpectrum.MergingType;
 import io.github.mzmine.datamodel.PrecursorIonTreeNode;
 import io.github.mzmine.datamodel.Scan;
@@ -47,6 +48,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -131,8 +133,34 @@ public final class FragmentScanSelection {
   }
 
 
+  /**
+   * Merged spectra are cached per row and merging options, see
+   * {@link SpectraMerger#getAllFragmentSpectra(FeatureListRow)}
+   *
+   * @return modifiable list of merged and single scans
+   */
   public List<Scan> getAllFragmentSpectra(final FeatureListRow row) {
-    return getAllFragmentSpectra(row.getAllFragmentScans());
+    final List<Scan> scans = row.getAllFragmentScans();
+    if (scans.size() <= 1 || merger == null) {
+      return getAllFragmentSpectra(scans);
+    }
+    return selectFragmentSpectra(scans, merger.getAllFragmentSpectra(row));
+  }
+
+  /**
+   * Merges the fragment scans of all rows in parallel, so that the following calls of
+   * {@link #getAllFragmentSpectra(FeatureListRow)} use the cached merged spectra.
+   *
+   * @param isCanceled stops merging of the remaining rows if true
+   * @param progress   is increased by 1/rows.size() for each finished row
+   */
+  public void mergeAllRows(final @NotNull Collection<? extends FeatureListRow> rows,
+      final @NotNull BooleanSupplier isCanceled, final @Nullable AtomicDouble progress) {
+    if (merger != null) {
+      merger.mergeAllRows(rows, isCanceled, progress);
+    } else if (progress != null) {
+      progress.addAndGet(1d);
+    }
   }
 
   /**
@@ -146,14 +174,16 @@ public final class FragmentScanSelection {
     if (scans.size() <= 1) {
       return new ArrayList<>(scans);
     }
+    return selectFragmentSpectra(scans,
+        merger != null ? merger.getAllFragmentSpectra(scans) : null);
+  }
 
+  private @NotNull List<Scan> selectFragmentSpectra(final List<Scan> scans,
+      final @Nullable SpectraMergingResults merged) {
     // use set for uniqueness and linked for insertion order
     Set<Scan> result = new LinkedHashSet<>();
 
-    if (merger != null) {
-      // merge scans and generate results
-      SpectraMergingResults merged = merger.getAllFragmentSpectra(scans);
-
+    if (merged != null) {
       // add scans based on selection types
       // need to combine the various selection types like SAMPLES / ENERGIES
       if (finalScanSelection.contains(MergedSpectraFinalSelectionTypes.MSN_PSEUDO_MS2)) {
@@ -266,13 +296,15 @@ public final class FragmentScanSelection {
       return false;
     }
 
-    return Objects.equals(merger, that.merger) && Objects.equals(finalScanSelection,
-        that.finalScanSelection) && postMergingScanFilter.equals(that.postMergingScanFilter);
+    return selectInputScans == that.selectInputScans && Objects.equals(merger, that.merger)
+        && Objects.equals(finalScanSelection, that.finalScanSelection)
+        && postMergingScanFilter.equals(that.postMergingScanFilter);
   }
 
   @Override
   public int hashCode() {
-    int result = Objects.hashCode(merger);
+    int result = selectInputScans.hashCode();
+    result = 31 * result + Objects.hashCode(merger);
     result = 31 * result + Objects.hashCode(finalScanSelection);
     result = 31 * result + postMergingScanFilter.hashCode();
     return result;
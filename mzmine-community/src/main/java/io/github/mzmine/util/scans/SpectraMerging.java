@@ -442,6 +442,20 @@ public class SpectraMerging {
 
     final double[][] mzIntensities = calculatedMergedMzsAndIntensities(spectra, tolerance,
         intensityMergingType, centerFunction, inputNoiseLevel, outputNoiseLevel, minNumPeaks);
+    return createMergedSpectrum(source, mzIntensities, intensityMergingType, mergeType,
+        centerFunction, storage);
+  }
+
+  /**
+   * Creates the merged spectrum from already merged data points
+   *
+   * @param source        the merged spectra
+   * @param mzIntensities [0][] being the mzs, [1] being the intensities
+   */
+  public static <T extends MassSpectrum> MergedMassSpectrum createMergedSpectrum(
+      final @NotNull List<T> source, final double[][] mzIntensities,
+      IntensityMergingType intensityMergingType, MergingType mergeType,
+      final CenterFunction centerFunction, @Nullable final MemoryMapStorage storage) {
     final int msLevel = source.stream().filter(s -> s instanceof Scan)
         .mapToInt(s -> ((Scan) s).getMSLevel()).min().orElse(1);
 
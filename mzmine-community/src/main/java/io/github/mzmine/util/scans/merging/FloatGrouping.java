@@ -44,14 +44,18 @@ public record FloatGrouping(@Nullable Float singleValue, @NotNull Type type) {
 
   @NotNull
   public static FloatGrouping of(@NotNull final List<Float> energies) {
-    final int distinctValues = (int) energies.stream().distinct().count();
-    Type type = switch (distinctValues) {
-      case 0 -> Type.UNDEFINED;
-      case 1 -> Type.SINGLE_VALUE;
-      default -> Type.MULTIPLE_VALUES;
-    };
-    Float energy = type == Type.SINGLE_VALUE ? energies.getFirst() : null;
-    return new FloatGrouping(energy, type);
+    if (energies.isEmpty()) {
+      return ofUndefined();
+    }
+    // only need to know if there is more than one distinct value, same equality as Float.equals
+    final Float first = energies.getFirst();
+    final int firstBits = Float.floatToIntBits(first);
+    for (int i = 1; i < energies.size(); i++) {
+      if (Float.floatToIntBits(energies.get(i)) != firstBits) {
+        return new FloatGrouping(null, Type.MULTIPLE_VALUES);
+      }
+    }
+    return new FloatGrouping(first, Type.SINGLE_VALUE);
   }
 
   public static FloatGrouping ofUndefined() {
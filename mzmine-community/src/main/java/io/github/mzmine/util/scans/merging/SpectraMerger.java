@@ -25,6 +25,7 @@
 
 package io.github.mzmine.util.scans.merging;
 
+import com.google.common.util.concurrent.AtomicDouble;
 import io.github.mzmine.datamodel.MergedMassSpectrum.MergingType;
 import io.github.mzmine.datamodel.PrecursorIonTree;
 import io.github.mzmine.datamodel.PrecursorIonTreeNode;
@@ -40,11 +41,14 @@ import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
 import io.github.mzmine.util.scans.merging.FloatGrouping.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.WeakHashMap;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -78,6 +82,15 @@ import org.jetbrains.annotations.Nullable;
 public class SpectraMerger {
 
   private static final Logger logger = Logger.getLogger(SpectraMerger.class.getName());
+  /**
+   * Merging results per row and merger configuration, so that consecutive modules with the same
+   * merging options do not merge the same spectra again. Only the last configurations are kept per
+   * row. The values must not reference the row, which is the weak key.
+   */
+  private static final Map<FeatureListRow, Map<SpectraMerger, CachedResults>> rowCache = Collections.synchronizedMap(
+      new WeakHashMap<>());
+  private static final int MAX_CACHED_CONFIGURATIONS = 2;
+
   private final @NotNull SampleHandling sampleHandling;
   private final @NotNull MZTolerance mzTol;
   private final @NotNull IntensityMergingType intensityMerging;
@@ -102,8 +115,65 @@ public class SpectraMerger {
   }
 
 
+  /**
+   * Merges the fragment scans of the row or returns the cached results if the fragment scans of the
+   * row did not change since they were merged with the same configuration.
+   */
   public @NotNull SpectraMergingResults getAllFragmentSpectra(final FeatureListRow row) {
-    return getAllFragmentSpectra(row.getAllFragmentScans());
+    final List<Scan> scans = row.getAllFragmentScans();
+    if (scans.size() <= 1) {
+      return getAllFragmentSpectra(scans);
+    }
+
+    final CachedResults cached;
+    synchronized (rowCache) {
+      final Map<SpectraMerger, CachedResults> byMerger = rowCache.get(row);
+      cached = byMerger == null ? null : byMerger.get(this);
+    }
+    if (cached != null && cached.input().equals(scans)) {
+      return cached.results();
+    }
+
+    final SpectraMergingResults results = getAllFragmentSpectra(scans);
+    synchronized (rowCache) {
+      final Map<SpectraMerger, CachedResults> byMerger = rowCache.computeIfAbsent(row,
+          _ -> new HashMap<>());
+      if (byMerger.size() >= MAX_CACHED_CONFIGURATIONS && !byMerger.containsKey(this)) {
+        byMerger.clear();
+      }
+      byMerger.put(this, new CachedResults(List.copyOf(scans), results));
+    }
+    return results;
+  }
+
+  /**
+   * Merges the fragment scans of all rows in parallel. The results are cached for
+   * {@link #getAllFragmentSpectra(FeatureListRow)}, so that tasks iterating the rows sequentially
+   * only select the merged spectra.
+   *
+   * @param isCanceled stops merging of the remaining rows if true
+   * @param progress   is increased by 1/rows.size() for each finished row
+   */
+  public void mergeAllRows(final @NotNull Collection<? extends FeatureListRow> rows,
+      final @NotNull BooleanSupplier isCanceled, final @Nullable AtomicDouble progress) {
+    if (rows.isEmpty()) {
+      if (progress != null) {
+        progress.addAndGet(1d);
+      }
+      return;
+    }
+    final double step = 1d / rows.size();
+    rows.parallelStream().forEach(row -> {
+      if (isCanceled.getAsBoolean()) {
+        return;
+      }
+      if (row.hasMs2Fragmentation()) {
+        getAllFragmentSpectra(row);
+      }
+      if (progress != null) {
+        progress.addAndGet(step);
+      }
+    });
   }
 
   /**
@@ -270,7 +340,11 @@ public class SpectraMerger {
     if (scans.size() == 1) {
       return scans.getFirst();
     }
-    return SpectraMerging.mergeSpectra(scans, mzTol, mergeType, intensityMerging, storage);
+    final var massLists = scans.stream().map(ScanUtils::getMassListOrThrow).toList();
+    final double[][] merged = SweepLineSpectraMerging.mergeMzsAndIntensities(massLists, mzTol,
+        intensityMerging, SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null);
+    return SpectraMerging.createMergedSpectrum(scans, merged, intensityMerging, mergeType,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, storage);
   }
 
   /**
@@ -354,4 +428,36 @@ public class SpectraMerger {
   public void setStorage(final @Nullable MemoryMapStorage storage) {
     this.storage = storage;
   }
+
+  /**
+   * Equal for the same merging options, the storage is not considered
+   */
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof final SpectraMerger that)) {
+      return false;
+    }
+    return excludeMSnScans == that.excludeMSnScans && sampleHandling == that.sampleHandling
+        && mzTol.equals(that.mzTol) && intensityMerging == that.intensityMerging;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = sampleHandling.hashCode();
+    result = 31 * result + mzTol.hashCode();
+    result = 31 * result + intensityMerging.hashCode();
+    result = 31 * result + Boolean.hashCode(excludeMSnScans);
+    return result;
+  }
+
+  /**
+   * @param input   the merged fragment scans of the row
+   * @param results the merging results
+   */
+  private record CachedResults(@NotNull List<Scan> input, @NotNull SpectraMergingResults results) {
+
+  }
 }
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.scans.merging;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeMap;
+import com.google.common.collect.TreeRangeMap;
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.maths.CenterFunction;
+import io.github.mzmine.util.scans.SpectraMerging;
+import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Merges spectra on concatenated primitive arrays instead of data point objects with the same
+ * output as {@link SpectraMerging#calculatedMergedMzsAndIntensities}. All signals are sorted by mz
+ * once and a sweep line splits them into independent groups where the tolerance windows of
+ * neighboring signals do not touch. Ranges of one group can never contain a signal or overlap a
+ * range of another group, so each group is clustered on its own with the same range map rules:
+ * <ul>
+ *   <li>Signals are processed by descending intensity, then descending mz.</li>
+ *   <li>A signal in a range joins its cluster, unless the cluster already has a signal of the same
+ *   spectrum. Then the signal is dropped.</li>
+ *   <li>Other signals open a cluster with the tolerance window trimmed to the free space between
+ *   existing ranges by {@link SpectraMerging#createNewNonOverlappingRange}.</li>
+ * </ul>
+ * Groups of a single signal, the common case in sparse spectra, skip the range map.
+ */
+public final class SweepLineSpectraMerging {
+
+  private SweepLineSpectraMerging() {
+  }
+
+  /**
+   * Same parameters and output as {@link SpectraMerging#calculatedMergedMzsAndIntensities}.
+   *
+   * @return double[2][] array, [0][] being the mzs sorted ascending, [1] being the intensities.
+   * Empty double[2][0] if the source collection is empty.
+   */
+  public static double[][] mergeMzsAndIntensities(
+      @NotNull final List<? extends MassSpectrum> source, @NotNull final MZTolerance tolerance,
+      @NotNull final IntensityMergingType intensityMergingType,
+      @NotNull final CenterFunction mzCenterFunction, @Nullable final Double inputNoiseLevel,
+      @Nullable final Double outputNoiseLevel, @Nullable final Integer minNumPeaks) {
+    int total = 0;
+    int maxDp = 0;
+    for (MassSpectrum spectrum : source) {
+      total += spectrum.getNumberOfDataPoints();
+      maxDp = Math.max(maxDp, spectrum.getNumberOfDataPoints());
+    }
+
+    // concatenate all signals in the order of the range map merging
+    final double[] mzs = new double[total];
+    final double[] intensities = new double[total];
+    final int[] spectrumIndex = new int[total];
+    final double[] rawMzs = new double[maxDp];
+    final double[] rawIntensities = new double[maxDp];
+    int n = 0;
+    for (int s = 0; s < source.size(); s++) {
+      final MassSpectrum spectrum = source.get(s);
+      final int numDp = spectrum.getNumberOfDataPoints();
+      spectrum.getMzValues(rawMzs);
+      spectrum.getIntensityValues(rawIntensities);
+      for (int i = 0; i < numDp; i++) {
+        if (inputNoiseLevel == null || rawIntensities[i] > inputNoiseLevel) {
+          mzs[n] = rawMzs[i];
+          intensities[n] = rawIntensities[i];
+          spectrumIndex[n] = s;
+          n++;
+        }
+      }
+    }
+    if (n == 0) {
+      return new double[][]{new double[0], new double[0]};
+    }
+
+    final int[] byMz = new int[n];
+    for (int i = 0; i < n; i++) {
+      byMz[i] = i;
+    }
+    IntArrays.quickSort(byMz, (a, b) -> Double.compare(mzs[a], mzs[b]));
+
+    final Clusters clusters = new Clusters(n, mzs, intensities, spectrumIndex);
+    final MergedSignals merged = new MergedSignals(n);
+    final int[] byIntensity = new int[n];
+    int groupStart = 0;
+    // upper end of all tolerance windows in the group, computed like MZTolerance ranges
+    double groupUpper = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < n; i++) {
+      final double mz = mzs[byMz[i]];
+      final double mzTolerance = tolerance.getMzToleranceForMass(mz);
+      // sweep line: the group ends if the window of the next signal cannot touch it
+      if (i > groupStart && groupUpper < mz - mzTolerance) {
+        clusterGroup(byMz, groupStart, i, byIntensity, clusters, tolerance);
+        clusters.merge(intensityMergingType, mzCenterFunction, outputNoiseLevel, minNumPeaks,
+            merged);
+        groupStart = i;
+      }
+      groupUpper = Math.max(groupUpper, mz + mzTolerance);
+    }
+    clusterGroup(byMz, groupStart, n, byIntensity, clusters, tolerance);
+    clusters.merge(intensityMergingType, mzCenterFunction, outputNoiseLevel, minNumPeaks, merged);
+
+    return merged.toArrays();
+  }
+
+  /**
+   * Clusters the signals byMz[from, to) in the order of the range map merging: descending
+   * intensity, descending mz, and the input order for ties.
+   */
+  private static void clusterGroup(int[] byMz, int from, int to, int[] byIntensity,
+      Clusters clusters, MZTolerance tolerance) {
+    if (to - from == 1) {
+      clusters.single(byMz[from]);
+      return;
+    }
+    final double[] mzs = clusters.mzs;
+    final double[] intensities = clusters.intensities;
+    System.arraycopy(byMz, from, byIntensity, from, to - from);
+    IntArrays.quickSort(byIntensity, from, to, (a, b) -> {
+      int result = Double.compare(intensities[b], intensities[a]);
+      if (result == 0) {
+        result = Double.compare(mzs[b], mzs[a]);
+      }
+      return result != 0 ? result : Integer.compare(a, b);
+    });
+
+    for (int i = from; i < to; i++) {
+      final int signal = byIntensity[i];
+      final double mz = mzs[signal];
+      final Integer cluster = clusters.ranges.get(mz);
+      if (cluster == null) {
+        final Range<Double> range = SpectraMerging.createNewNonOverlappingRange(clusters.ranges,
+            tolerance.getToleranceRange(mz));
+        // empty ranges are not added and the signal is lost, same as the range map merging
+        clusters.ranges.put(range, clusters.open(signal));
+      } else {
+        // one signal per spectrum, others are dropped
+        clusters.add(cluster, signal);
+      }
+    }
+  }
+
+  /**
+   * Clusters of one group as primitive linked lists of signals
+   */
+  private static final class Clusters {
+
+    private final double[] mzs;
+    private final double[] intensities;
+    private final int[] spectrumIndex;
+    private final int[] next;
+    private final int[] head;
+    private final int[] count;
+    private final RangeMap<Double, Integer> ranges = TreeRangeMap.create();
+    // cluster and spectrum index pairs
+    private final LongOpenHashSet clusterSpectra = new LongOpenHashSet();
+    private int size;
+    // the cluster of a group with a single signal, not in the range map
+    private boolean single;
+
+    private Clusters(int numSignals, double[] mzs, double[] intensities, int[] spectrumIndex) {
+      this.mzs = mzs;
+      this.intensities = intensities;
+      this.spectrumIndex = spectrumIndex;
+      next = new int[numSignals];
+      // at most one cluster per signal
+      head = new int[numSignals];
+      count = new int[numSignals];
+    }
+
+    void single(int signal) {
+      open(signal);
+      single = true;
+    }
+
+    int open(int signal) {
+      head[size] = signal;
+      next[signal] = -1;
+      count[size] = 1;
+      clusterSpectra.add(key(size, spectrumIndex[signal]));
+      return size++;
+    }
+
+    void add(int cluster, int signal) {
+      if (!clusterSpectra.add(key(cluster, spectrumIndex[signal]))) {
+        return;
+      }
+      next[signal] = head[cluster];
+      head[cluster] = signal;
+      count[cluster]++;
+    }
+
+    private static long key(int cluster, int spectrum) {
+      return ((long) cluster << 32) | spectrum;
+    }
+
+    /**
+     * Merges the clusters of the group in the order of their ranges and resets the group
+     */
+    void merge(IntensityMergingType intensityMergingType, CenterFunction mzCenterFunction,
+        @Nullable Double outputNoiseLevel, @Nullable Integer minNumPeaks, MergedSignals merged) {
+      if (single) {
+        merge(0, intensityMergingType, mzCenterFunction, outputNoiseLevel, minNumPeaks, merged);
+      } else {
+        // a range may be split by a new range and then occurs twice, like in the range map merging
+        for (Entry<Range<Double>, Integer> entry : ranges.asMapOfRanges().entrySet()) {
+          merge(entry.getValue(), intensityMergingType, mzCenterFunction, outputNoiseLevel,
+              minNumPeaks, merged);
+        }
+      }
+      ranges.clear();
+      clusterSpectra.clear();
+      size = 0;
+      single = false;
+    }
+
+    private void merge(int cluster, IntensityMergingType intensityMergingType,
+        CenterFunction mzCenterFunction, @Nullable Double outputNoiseLevel,
+        @Nullable Integer minNumPeaks, MergedSignals merged) {
+      if (minNumPeaks != null && count[cluster] < minNumPeaks) {
+        return;
+      }
+      // the range map merging keeps the signals sorted by spectrum
+      final int[] signals = new int[count[cluster]];
+      int i = 0;
+      for (int signal = head[cluster]; signal != -1; signal = next[signal]) {
+        signals[i++] = signal;
+      }
+      IntArrays.quickSort(signals, (a, b) -> Integer.compare(spectrumIndex[a], spectrumIndex[b]));
+      final double[] clusterMzs = new double[signals.length];
+      final double[] clusterIntensities = new double[signals.length];
+      for (i = 0; i < signals.length; i++) {
+        clusterMzs[i] = mzs[signals[i]];
+        clusterIntensities[i] = intensities[signals[i]];
+      }
+
+      final double mz = mzCenterFunction.calcCenter(clusterMzs, clusterIntensities);
+      // same summation as the range map merging
+      final double intensity = switch (intensityMergingType) {
+        case SUMMED -> Arrays.stream(clusterIntensities).sum();
+        case MAXIMUM -> Arrays.stream(clusterIntensities).max().orElse(0d);
+        case AVERAGE -> Arrays.stream(clusterIntensities).average().orElse(0d);
+      };
+      if (outputNoiseLevel == null || intensity > outputNoiseLevel) {
+        merged.add(mz, intensity);
+      }
+    }
+  }
+
+  /**
+   * The merged signals of all groups in mz order
+   */
+  private static final class MergedSignals {
+
+    private double[] mzs;
+    private double[] intensities;
+    private int size;
+
+    private MergedSignals(int capacity) {
+      mzs = new double[capacity];
+      intensities = new double[capacity];
+    }
+
+    void add(double mz, double intensity) {
+      if (size == mzs.length) {
+        // split ranges may add more signals than clusters
+        mzs = Arrays.copyOf(mzs, size * 2);
+        intensities = Arrays.copyOf(intensities, size * 2);
+      }
+      mzs[size] = mz;
+      intensities[size] = intensity;
+      size++;
+    }
+
+    double[][] toArrays() {
+      return new double[][]{Arrays.copyOf(mzs, size), Arrays.copyOf(intensities, size)};
+    }
+  }
+}
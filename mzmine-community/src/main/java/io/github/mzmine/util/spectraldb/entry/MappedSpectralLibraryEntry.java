@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.structures.MolecularStructure;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lightweight view of one entry in a {@link MappedSpectralLibraryFile}. Data points and metadata
+ * are read from the mapping on demand, only values that are changed after loading are stored in
+ * this object.
+ */
+public final class MappedSpectralLibraryEntry implements SpectralLibraryEntry {
+
+  private final @NotNull MappedSpectralLibraryFile file;
+  private final int index;
+  private @Nullable SpectralLibrary library;
+  /**
+   * Values added or replaced after loading, created on first change
+   */
+  private @Nullable Map<DBEntryField, Object> changedFields;
+  private @Nullable MolecularStructure structure;
+  private @Nullable IsotopePattern pattern;
+
+  MappedSpectralLibraryEntry(@NotNull MappedSpectralLibraryFile file, int index,
+      @Nullable SpectralLibrary library) {
+    this.file = file;
+    this.index = index;
+    this.library = library;
+  }
+
+  @Override
+  public synchronized void putAll(Map<DBEntryField, Object> fields) {
+    fields.forEach(this::putIfNotNull);
+  }
+
+  @Override
+  public synchronized boolean putIfNotNull(DBEntryField field, Object value) {
+    if (field == DBEntryField.SMILES || field == DBEntryField.INCHI) {
+      structure = null; // clear and recalculate later
+    }
+
+    if (field != null && value != null) {
+      if (changedFields == null) {
+        changedFields = new EnumMap<>(DBEntryField.class);
+      }
+      changedFields.put(field, value);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Double getPrecursorMZ() {
+    return (Double) getValue(DBEntryField.PRECURSOR_MZ);
+  }
+
+  private synchronized @Nullable Object getValue(DBEntryField field) {
+    if (changedFields != null) {
+      final Object value = changedFields.get(field);
+      if (value != null) {
+        return value;
+      }
+    }
+    return file.getValue(index, field);
+  }
+
+  @Override
+  public Optional<Object> getField(DBEntryField f) {
+    return Optional.ofNullable(getValue(f));
+  }
+
+  @Override
+  public <T> T getOrElse(DBEntryField f, T defaultValue) {
+    final Object value = getValue(f);
+    return value == null ? defaultValue : (T) value;
+  }
+
+  /**
+   * @return a copy of all values, changes need to be applied with
+   * {@link #putIfNotNull(DBEntryField, Object)}
+   */
+  @Override
+  public synchronized Map<DBEntryField, Object> getFields() {
+    final Map<DBEntryField, Object> fields = file.getValues(index);
+    if (changedFields != null) {
+      fields.putAll(changedFields);
+    }
+    return fields;
+  }
+
+  @Override
+  public void saveToXML(XMLStreamWriter writer) throws XMLStreamException {
+    toSpectralDBEntry().saveToXML(writer);
+  }
+
+  /**
+   * @return a copy that holds all values in memory
+   */
+  public @NotNull SpectralDBEntry toSpectralDBEntry() {
+    return new SpectralDBEntry(null, getMzValues(new double[0]), getIntensityValues(new double[0]),
+        getFields(), library);
+  }
+
+  @Override
+  public @Nullable SpectralLibrary getLibrary() {
+    return library;
+  }
+
+  @Override
+  public void setLibrary(@Nullable SpectralLibrary library) {
+    this.library = library;
+  }
+
+  @Override
+  public @Nullable String getLibraryName() {
+    return library != null ? library.getName() : null;
+  }
+
+  @Override
+  public MolecularStructure getStructure() {
+    if (structure != null) {
+      return structure;
+    }
+    structure = parseStructure();
+    return structure;
+  }
+
+  @Override
+  public synchronized @Nullable IsotopePattern getIsotopePattern() {
+    if (pattern == null) {
+      pattern = calculateIsotopePattern();
+    }
+    return pattern;
+  }
+
+  @Override
+  public int getNumberOfDataPoints() {
+    return file.getNumberOfDataPoints(index);
+  }
+
+  @Override
+  public MassSpectrumType getSpectrumType() {
+    return MassSpectrumType.CENTROIDED;
+  }
+
+  @Override
+  public double[] getMzValues(@NotNull double[] dst) {
+    return file.getMzValues(index, dst);
+  }
+
+  @Override
+  public double[] getIntensityValues(@NotNull double[] dst) {
+    return file.getIntensityValues(index, dst);
+  }
+
+  @Override
+  public double getMzValue(int index) {
+    return file.getMzValue(this.index, index);
+  }
+
+  @Override
+  public double getIntensityValue(int index) {
+    return file.getIntensityValue(this.index, index);
+  }
+
+  @Override
+  public @Nullable Double getBasePeakMz() {
+    final int basePeak = file.getBasePeakIndex(index);
+    return basePeak < 0 ? null : getMzValue(basePeak);
+  }
+
+  @Override
+  public @Nullable Double getBasePeakIntensity() {
+    final int basePeak = file.getBasePeakIndex(index);
+    return basePeak < 0 ? null : getIntensityValue(basePeak);
+  }
+
+  @Override
+  public @Nullable Integer getBasePeakIndex() {
+    final int basePeak = file.getBasePeakIndex(index);
+    return basePeak < 0 ? null : basePeak;
+  }
+
+  @Override
+  public @Nullable Range<Double> getDataPointMZRange() {
+    final int numDp = getNumberOfDataPoints();
+    return switch (numDp) {
+      case 0 -> null;
+      case 1 -> Range.singleton(getMzValue(0));
+      default -> Range.closed(getMzValue(0), getMzValue(numDp - 1));
+    };
+  }
+
+  @Override
+  public @NotNull Double getTIC() {
+    return file.getTIC(index);
+  }
+
+  @Override
+  public Iterator<DataPoint> iterator() {
+    return new Iterator<>() {
+      private int cursor = 0;
+
+      @Override
+      public boolean hasNext() {
+        return cursor < getNumberOfDataPoints();
+      }
+
+      @Override
+      public DataPoint next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        final DataPoint dp = new SimpleDataPoint(getMzValue(cursor), getIntensityValue(cursor));
+        cursor++;
+        return dp;
+      }
+    };
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    return o instanceof MappedSpectralLibraryEntry that && file == that.file && index == that.index;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * System.identityHashCode(file) + index;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Entry: %s (dp: %d)", getOrElse(DBEntryField.NAME, ""),
+        getNumberOfDataPoints());
+  }
+}
@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.spectraldb.entry;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import io.github.mzmine.util.RIRecord;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read-only on-disk format of a spectral library that is memory mapped. All processes that map
+ * the same file share the OS page cache, and the entries are {@link MappedSpectralLibraryEntry}
+ * views that read their metadata and data points from the mapping on demand.
+ * <p>
+ * Layout in native byte order, all sections aligned to 8 bytes:
+ * <pre>
+ * header
+ * first data point index per entry (+1 for the end)
+ * TIC per entry
+ * base peak index per entry
+ * column descriptors: field name (pool reference), kind, cells offset, presence bits offset
+ * per column: one 8 byte cell per entry and one presence bit per entry
+ * all mz values
+ * all intensity values
+ * value pool: deduplicated strings and other variable length values
+ * </pre>
+ * Numeric columns store the value in the cell, all other columns store a reference into the
+ * value pool, so that repeated values like instrument or ion type are stored once.
+ */
+public final class MappedSpectralLibraryFile {
+
+  /**
+   * Increase on any change to the layout or value encoding
+   */
+  public static final int VERSION = 2;
+  private static final Logger logger = Logger.getLogger(MappedSpectralLibraryFile.class.getName());
+  /**
+   * Written in native byte order, a mismatch also detects a file from another byte order
+   */
+  private static final int MAGIC = 0x4D5A4C43;
+  private static final int HEADER_BYTES = 96;
+  private static final int COLUMN_BYTES = 32;
+
+  // column kinds
+  private static final int DOUBLE = 0;
+  private static final int FLOAT = 1;
+  private static final int INT = 2;
+  private static final int LONG = 3;
+  private static final int POOLED = 4;
+
+  private final MemorySegment segment;
+  private final int numEntries;
+  private final long dpStartOffset;
+  private final long ticOffset;
+  private final long basePeakOffset;
+  private final long mzOffset;
+  private final long intensityOffset;
+  private final long poolOffset;
+  private final Map<DBEntryField, Column> columns = new EnumMap<>(DBEntryField.class);
+
+  private MappedSpectralLibraryFile(MemorySegment segment) throws IOException {
+    this.segment = segment;
+    numEntries = segment.get(JAVA_INT, 8);
+    final int numColumns = segment.get(JAVA_INT, 12);
+    dpStartOffset = segment.get(JAVA_LONG, 24);
+    ticOffset = segment.get(JAVA_LONG, 32);
+    basePeakOffset = segment.get(JAVA_LONG, 40);
+    final long columnsOffset = segment.get(JAVA_LONG, 48);
+    poolOffset = segment.get(JAVA_LONG, 56);
+    mzOffset = segment.get(JAVA_LONG, 72);
+    intensityOffset = segment.get(JAVA_LONG, 80);
+
+    for (int c = 0; c < numColumns; c++) {
+      final long descriptor = columnsOffset + (long) c * COLUMN_BYTES;
+      final String name = (String) readPooled(segment.get(JAVA_LONG, descriptor));
+      final DBEntryField field;
+      try {
+        field = DBEntryField.valueOf(name);
+      } catch (IllegalArgumentException e) {
+        logger.fine(() -> "Skipping removed library field " + name);
+        continue;
+      }
+      columns.put(field, new Column(segment.get(JAVA_INT, descriptor + 8),
+          segment.get(JAVA_LONG, descriptor + 16), segment.get(JAVA_LONG, descriptor + 24)));
+    }
+  }
+
+  /**
+   * @param segment the mapped file, needs to stay alive as long as any entry is used, e.g., by an
+   *                automatic arena
+   */
+  public static @NotNull MappedSpectralLibraryFile open(@NotNull MemorySegment segment)
+      throws IOException {
+    if (segment.byteSize() < HEADER_BYTES || segment.get(JAVA_INT, 0) != MAGIC
+        || segment.get(JAVA_INT, 4) != VERSION) {
+      throw new IOException("Not a mapped spectral library of this version");
+    }
+    if (segment.get(JAVA_LONG, 88) != segment.byteSize()) {
+      throw new IOException("Mapped spectral library file is truncated");
+    }
+    return new MappedSpectralLibraryFile(segment);
+  }
+
+  /**
+   * @return one view per entry in this file
+   */
+  public @NotNull List<SpectralLibraryEntry> createEntries(@Nullable SpectralLibrary library) {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>(numEntries);
+    for (int i = 0; i < numEntries; i++) {
+      entries.add(new MappedSpectralLibraryEntry(this, i, library));
+    }
+    return entries;
+  }
+
+  public int size() {
+    return numEntries;
+  }
+
+  private long dataPointStart(int entry) {
+    return segment.get(JAVA_LONG, dpStartOffset + (long) entry * Long.BYTES);
+  }
+
+  int getNumberOfDataPoints(int entry) {
+    return (int) (dataPointStart(entry + 1) - dataPointStart(entry));
+  }
+
+  double getMzValue(int entry, int index) {
+    return segment.get(JAVA_DOUBLE, mzOffset + (dataPointStart(entry) + index) * Double.BYTES);
+  }
+
+  double getIntensityValue(int entry, int index) {
+    return segment.get(JAVA_DOUBLE,
+        intensityOffset + (dataPointStart(entry) + index) * Double.BYTES);
+  }
+
+  double[] getMzValues(int entry, double[] dst) {
+    return copyValues(mzOffset, entry, dst);
+  }
+
+  double[] getIntensityValues(int entry, double[] dst) {
+    return copyValues(intensityOffset, entry, dst);
+  }
+
+  private double[] copyValues(long offset, int entry, double[] dst) {
+    final int numDp = getNumberOfDataPoints(entry);
+    if (dst.length < numDp) {
+      dst = new double[numDp];
+    }
+    MemorySegment.copy(segment, JAVA_DOUBLE, offset + dataPointStart(entry) * Double.BYTES, dst,
+        0, numDp);
+    return dst;
+  }
+
+  double getTIC(int entry) {
+    return segment.get(JAVA_DOUBLE, ticOffset + (long) entry * Double.BYTES);
+  }
+
+  /**
+   * @return the base peak index or -1 for empty spectra
+   */
+  int getBasePeakIndex(int entry) {
+    return segment.get(JAVA_INT, basePeakOffset + (long) entry * Integer.BYTES);
+  }
+
+  @Nullable Object getValue(int entry, @NotNull DBEntryField field) {
+    final Column column = columns.get(field);
+    return column == null ? null : readCell(column, entry);
+  }
+
+  /**
+   * @return all values of the entry
+   */
+  @NotNull Map<DBEntryField, Object> getValues(int entry) {
+    final Map<DBEntryField, Object> values = new EnumMap<>(DBEntryField.class);
+    for (Entry<DBEntryField, Column> column : columns.entrySet()) {
+      final Object value = readCell(column.getValue(), entry);
+      if (value != null) {
+        values.put(column.getKey(), value);
+      }
+    }
+    return values;
+  }
+
+  private @Nullable Object readCell(Column column, int entry) {
+    final long presence = segment.get(JAVA_LONG,
+        column.presentOffset() + (long) (entry >>> 6) * Long.BYTES);
+    if ((presence & (1L << (entry & 63))) == 0) {
+      return null;
+    }
+    final long cell = column.cellsOffset() + (long) entry * Long.BYTES;
+    return switch (column.kind()) {
+      case DOUBLE -> segment.get(JAVA_DOUBLE, cell);
+      case FLOAT -> segment.get(JAVA_FLOAT, cell);
+      case INT -> segment.get(JAVA_INT, cell);
+      case LONG -> segment.get(JAVA_LONG, cell);
+      default -> readPooled(segment.get(JAVA_LONG, cell));
+    };
+  }
+
+  private Object readPooled(long reference) {
+    final long offset = poolOffset + reference;
+    final int length = segment.get(JAVA_INT_UNALIGNED, offset);
+    final byte[] bytes = segment.asSlice(offset + Integer.BYTES, length).toArray(JAVA_BYTE);
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      return readValue(in);
+    } catch (IOException e) {
+      throw new IllegalStateException("Corrupt value pool in mapped spectral library", e);
+    }
+  }
+
+  /**
+   * Writes the entries to a new file. Metadata values need to be numbers, strings, float lists,
+   * retention index records or lists of these.
+   */
+  public static void write(@NotNull List<? extends SpectralLibraryEntry> entries,
+      @NotNull Path file) throws IOException {
+    final int numEntries = entries.size();
+    // one column per field with the narrowest kind of all values
+    final Map<DBEntryField, Integer> kinds = new EnumMap<>(DBEntryField.class);
+    long numDataPoints = 0;
+    for (SpectralLibraryEntry entry : entries) {
+      numDataPoints += entry.getNumberOfDataPoints();
+      for (Entry<DBEntryField, Object> field : entry.getFields().entrySet()) {
+        if (field.getValue() != null) {
+          kinds.merge(field.getKey(), kindOf(field.getValue()),
+              (a, b) -> a.equals(b) ? a : POOLED);
+        }
+      }
+    }
+    final DBEntryField[] fields = kinds.keySet().toArray(DBEntryField[]::new);
+
+    final long presenceBytes = ((numEntries + 63L) >>> 6) * Long.BYTES;
+    final long dpStartOffset = HEADER_BYTES;
+    final long ticOffset = dpStartOffset + (numEntries + 1L) * Long.BYTES;
+    final long basePeakOffset = ticOffset + (long) numEntries * Double.BYTES;
+    final long columnsOffset = alignToLong(basePeakOffset + (long) numEntries * Integer.BYTES);
+    final long cellsOffset = columnsOffset + (long) fields.length * COLUMN_BYTES;
+    final long columnBytes = (long) numEntries * Long.BYTES + presenceBytes;
+    final long mzOffset = cellsOffset + fields.length * columnBytes;
+    final long intensityOffset = mzOffset + numDataPoints * Double.BYTES;
+    final long poolOffset = intensityOffset + numDataPoints * Double.BYTES;
+
+    final ValuePool pool = new ValuePool();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      try (Arena arena = Arena.ofConfined()) {
+        final MemorySegment segment = channel.map(MapMode.READ_WRITE, 0, poolOffset, arena);
+        segment.set(JAVA_INT, 0, MAGIC);
+        segment.set(JAVA_INT, 4, VERSION);
+        segment.set(JAVA_INT, 8, numEntries);
+        segment.set(JAVA_INT, 12, fields.length);
+        segment.set(JAVA_LONG, 16, numDataPoints);
+        segment.set(JAVA_LONG, 24, dpStartOffset);
+        segment.set(JAVA_LONG, 32, ticOffset);
+        segment.set(JAVA_LONG, 40, basePeakOffset);
+        segment.set(JAVA_LONG, 48, columnsOffset);
+        segment.set(JAVA_LONG, 56, poolOffset);
+        segment.set(JAVA_LONG, 72, mzOffset);
+        segment.set(JAVA_LONG, 80, intensityOffset);
+
+        // data points, TIC and base peak
+        double[] mzs = new double[0];
+        double[] intensities = new double[0];
+        long start = 0;
+        for (int i = 0; i < numEntries; i++) {
+          final SpectralLibraryEntry entry = entries.get(i);
+          final int numDp = entry.getNumberOfDataPoints();
+          mzs = entry.getMzValues(mzs);
+          intensities = entry.getIntensityValues(intensities);
+          MemorySegment.copy(mzs, 0, segment, JAVA_DOUBLE, mzOffset + start * Double.BYTES,
+              numDp);
+          MemorySegment.copy(intensities, 0, segment, JAVA_DOUBLE,
+              intensityOffset + start * Double.BYTES, numDp);
+
+          // same as the spectrum implementations: first maximum is the base peak
+          int basePeak = -1;
+          double tic = 0;
+          for (int dp = 0; dp < numDp; dp++) {
+            tic += intensities[dp];
+            if (basePeak == -1 || intensities[dp] > intensities[basePeak]) {
+              basePeak = dp;
+            }
+          }
+          segment.set(JAVA_LONG, dpStartOffset + (long) i * Long.BYTES, start);
+          segment.set(JAVA_DOUBLE, ticOffset + (long) i * Double.BYTES, tic);
+          segment.set(JAVA_INT, basePeakOffset + (long) i * Integer.BYTES, basePeak);
+          start += numDp;
+        }
+        segment.set(JAVA_LONG, dpStartOffset + (long) numEntries * Long.BYTES, start);
+
+        // metadata columns
+        for (int c = 0; c < fields.length; c++) {
+          final DBEntryField field = fields[c];
+          final int kind = kinds.get(field);
+          final long descriptor = columnsOffset + (long) c * COLUMN_BYTES;
+          final long cells = cellsOffset + c * columnBytes;
+          final long presence = cells + (long) numEntries * Long.BYTES;
+          segment.set(JAVA_LONG, descriptor, pool.add(field.name()));
+          segment.set(JAVA_INT, descriptor + 8, kind);
+          segment.set(JAVA_LONG, descriptor + 16, cells);
+          segment.set(JAVA_LONG, descriptor + 24, presence);
+
+          for (int i = 0; i < numEntries; i++) {
+            final Object value = entries.get(i).getField(field).orElse(null);
+            if (value == null) {
+              continue;
+            }
+            final long cell = cells + (long) i * Long.BYTES;
+            switch (kind) {
+              case DOUBLE -> segment.set(JAVA_DOUBLE, cell, (Double) value);
+              case FLOAT -> segment.set(JAVA_FLOAT, cell, (Float) value);
+              case INT -> segment.set(JAVA_INT, cell, (Integer) value);
+              case LONG -> segment.set(JAVA_LONG, cell, (Long) value);
+              default -> segment.set(JAVA_LONG, cell, pool.add(value));
+            }
+            final long word = presence + (long) (i >>> 6) * Long.BYTES;
+            segment.set(JAVA_LONG, word, segment.get(JAVA_LONG, word) | (1L << (i & 63)));
+          }
+        }
+
+        final byte[] poolBytes = pool.toByteArray();
+        segment.set(JAVA_LONG, 64, poolBytes.length);
+        segment.set(JAVA_LONG, 88, poolOffset + poolBytes.length);
+        segment.force();
+        // positional writes may write fewer bytes than requested
+        final ByteBuffer poolBuffer = ByteBuffer.wrap(poolBytes);
+        while (poolBuffer.hasRemaining()) {
+          channel.write(poolBuffer, poolOffset + poolBuffer.position());
+        }
+      }
+      channel.force(true);
+    }
+  }
+
+  private static int kindOf(Object value) {
+    return switch (value) {
+      case Double _ -> DOUBLE;
+      case Float _ -> FLOAT;
+      case Integer _ -> INT;
+      case Long _ -> LONG;
+      default -> POOLED;
+    };
+  }
+
+  private static long alignToLong(long offset) {
+    return (offset + Long.BYTES - 1) & -Long.BYTES;
+  }
+
+  private static void writeValue(DataOutputStream out, Object value) throws IOException {
+    switch (value) {
+      case null -> out.writeByte('N');
+      case String s -> {
+        out.writeByte('S');
+        writeString(out, s);
+      }
+      case Double d -> {
+        out.writeByte('D');
+        out.writeDouble(d);
+      }
+      case Float f -> {
+        out.writeByte('F');
+        out.writeFloat(f);
+      }
+      case Integer i -> {
+        out.writeByte('I');
+        out.writeInt(i);
+      }
+      case Long l -> {
+        out.writeByte('J');
+        out.writeLong(l);
+      }
+      case Boolean b -> {
+        out.writeByte('Z');
+        out.writeBoolean(b);
+      }
+      case FloatArrayList floats -> {
+        out.writeByte('A');
+        out.writeInt(floats.size());
+        for (int i = 0; i < floats.size(); i++) {
+          out.writeFloat(floats.getFloat(i));
+        }
+      }
+      case RIRecord record -> {
+        out.writeByte('R');
+        writeString(out, record.toString());
+      }
+      case List<?> list -> {
+        out.writeByte('L');
+        out.writeInt(list.size());
+        for (Object element : list) {
+          writeValue(out, element);
+        }
+      }
+      default -> throw new IOException(
+          "Cannot write library value of type " + value.getClass().getName());
+    }
+  }
+
+  private static Object readValue(DataInputStream in) throws IOException {
+    final byte type = in.readByte();
+    return switch (type) {
+      case 'N' -> null;
+      case 'S' -> readString(in);
+      case 'D' -> in.readDouble();
+      case 'F' -> in.readFloat();
+      case 'I' -> in.readInt();
+      case 'J' -> in.readLong();
+      case 'Z' -> in.readBoolean();
+      case 'A' -> {
+        final float[] floats = new float[in.readInt()];
+        for (int i = 0; i < floats.length; i++) {
+          floats[i] = in.readFloat();
+        }
+        yield new FloatArrayList(floats);
+      }
+      case 'R' -> RIRecord.fromString(readString(in));
+      case 'L' -> {
+        final int size = in.readInt();
+        final List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue(in));
+        }
+        yield list;
+      }
+      default -> throw new IOException("Unknown value type " + type + " in library value pool");
+    };
+  }
+
+  /**
+   * {@link DataOutputStream#writeUTF(String)} is limited to 64 KiB, comments and json may be
+   * longer
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param kind          column kind
+   * @param cellsOffset   offset of the first 8 byte cell
+   * @param presentOffset offset of the presence bits
+   */
+  private record Column(int kind, long cellsOffset, long presentOffset) {
+
+  }
+
+  /**
+   * Encoded values with their length in native byte order, equal values are stored once
+   */
+  private static class ValuePool {
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final Map<ByteBuffer, Long> references = new HashMap<>();
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(encoded);
+
+    long add(Object value) throws IOException {
+      encoded.reset();
+      writeValue(out, value);
+      final byte[] bytes = encoded.toByteArray();
+      final Long existing = references.get(ByteBuffer.wrap(bytes));
+      if (existing != null) {
+        return existing;
+      }
+      final long reference = pool.size();
+      final byte[] length = new byte[Integer.BYTES];
+      MemorySegment.ofArray(length).set(JAVA_INT_UNALIGNED, 0, bytes.length);
+      pool.writeBytes(length);
+      pool.writeBytes(bytes);
+      references.put(ByteBuffer.wrap(bytes), reference);
+      return reference;
+    }
+
+    byte[] toByteArray() {
+      return pool.toByteArray();
+    }
+  }
+}
@@ -26,17 +26,12 @@ package io.github.mzmine.util.spectraldb.entry;
 
 import io.github.mzmine.datamodel.IsotopePattern;
 import io.github.mzmine.datamodel.MZmineProject;
-import io.github.mzmine.datamodel.features.types.annotations.iin.IonTypeType;
-import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
 import io.github.mzmine.datamodel.structures.MolecularStructure;
-import io.github.mzmine.datamodel.structures.StructureParser;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
-import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
-import io.github.mzmine.util.FormulaUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.ParsingUtils;
-import io.github.mzmine.util.StringUtils;
+import java.lang.foreign.MemorySegment;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
@@ -68,8 +63,7 @@ public class SpectralDBEntry extends SimpleMassList implements SpectralLibraryEn
    * StableValue renamed to ComputedConstant in JDK26
    */
   private final Supplier<IsotopePattern> pattern = StableValue.supplier(
-      () -> IsotopePatternCalculator.calculateFeatureAnnotationIsotopePattern(
-          FormulaUtils.createMajorIsotopeMolFormula(getFormula()), getAdductType()));
+      this::calculateIsotopePattern);
 
   /**
    * Copy constructor
@@ -81,6 +75,23 @@ public class SpectralDBEntry extends SimpleMassList implements SpectralLibraryEn
     this.fields = new HashMap<>(entry.fields);
   }
 
+  /**
+   * Uses already stored values, e.g., mapped from a library cache file. Values need to be sorted by
+   * mz.
+   *
+   * @param mzValues        ascending mz sorted mz values
+   * @param intensityValues intensities for sorted mz values
+   */
+  public SpectralDBEntry(@NotNull MemorySegment mzValues, @NotNull MemorySegment intensityValues,
+      @Nullable Map<DBEntryField, Object> fields, @Nullable SpectralLibrary library) {
+    super(mzValues, intensityValues);
+    this.fields = new HashMap<>();
+    if (fields != null) {
+      this.fields.putAll(fields);
+    }
+    this.library = library;
+  }
+
   public SpectralDBEntry(@Nullable MemoryMapStorage storage, @NotNull double[] mzValues,
       @NotNull double[] intensityValues, @Nullable Map<DBEntryField, Object> fields,
       @Nullable SpectralLibrary library) {
@@ -292,38 +303,12 @@ public class SpectralDBEntry extends SimpleMassList implements SpectralLibraryEn
     return library != null ? library.getName() : null;
   }
 
-  @Override
-  @Nullable
-  public String getFormula() {
-    final String formula = getOrElse(DBEntryField.FORMULA, null);
-    if (StringUtils.hasValue(formula)) {
-      return formula;
-    }
-    final MolecularStructure structure = getStructure();
-    if (structure != null) {
-      final String formulaString = structure.formulaString();
-      if (formulaString != null) {
-        putIfNotNull(DBEntryField.FORMULA, formulaString);
-      }
-      return formulaString;
-    }
-    return null;
-  }
-
-  @Override
-  @Nullable
-  public IonType getAdductType() {
-    return get(IonTypeType.class);
-  }
-
   @Override
   public MolecularStructure getStructure() {
     if (structure != null) {
       return structure;
     }
-    String smiles = getOrElse(DBEntryField.SMILES, "");
-    String inchi = getOrElse(DBEntryField.INCHI, "");
-    structure = StructureParser.silent().parseStructure(smiles, inchi);
+    structure = parseStructure();
     return structure;
   }
 
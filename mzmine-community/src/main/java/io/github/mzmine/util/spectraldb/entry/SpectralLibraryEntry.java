@@ -37,6 +37,10 @@ import io.github.mzmine.datamodel.features.types.annotations.iin.IonTypeType;
 import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.datamodel.identities.iontype.IonTypeParser;
 import io.github.mzmine.datamodel.structures.MolecularStructure;
+import io.github.mzmine.datamodel.structures.StructureParser;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import io.github.mzmine.util.FormulaUtils;
+import io.github.mzmine.util.StringUtils;
 import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
@@ -257,18 +261,57 @@ public interface SpectralLibraryEntry extends MassList {
   /**
    * @return Formula from the entered formula or from the structure if no formula provided
    */
-  @Nullable String getFormula();
+  default @Nullable String getFormula() {
+    final String formula = getOrElse(DBEntryField.FORMULA, null);
+    if (StringUtils.hasValue(formula)) {
+      return formula;
+    }
+    final MolecularStructure structure = getStructure();
+    if (structure != null) {
+      final String formulaString = structure.formulaString();
+      if (formulaString != null) {
+        putIfNotNull(DBEntryField.FORMULA, formulaString);
+      }
+      return formulaString;
+    }
+    return null;
+  }
 
   /**
    * @return ion type
    */
-  @Nullable IonType getAdductType();
+  default @Nullable IonType getAdductType() {
+    return get(IonTypeType.class);
+  }
 
   /**
    * @return the structure parsed from smiles or inchi
    */
   MolecularStructure getStructure();
 
+  /**
+   * Parses the structure without caching, implementations cache the result in
+   * {@link #getStructure()}
+   *
+   * @return the structure parsed from smiles or inchi
+   */
+  default @Nullable MolecularStructure parseStructure() {
+    final String smiles = getOrElse(DBEntryField.SMILES, "");
+    final String inchi = getOrElse(DBEntryField.INCHI, "");
+    return StructureParser.silent().parseStructure(smiles, inchi);
+  }
+
+  /**
+   * Calculates the pattern without caching, implementations cache the result in
+   * {@link #getIsotopePattern()}
+   *
+   * @return the isotope pattern of the ion formula
+   */
+  default @Nullable IsotopePattern calculateIsotopePattern() {
+    return IsotopePatternCalculator.calculateFeatureAnnotationIsotopePattern(
+        FormulaUtils.createMajorIsotopeMolFormula(getFormula()), getAdductType());
+  }
+
   /**
    * Isotope pattern is cached and only calculated once on demand. Modules may already calculate the
    * isotope pattern to speed up later use in tables.
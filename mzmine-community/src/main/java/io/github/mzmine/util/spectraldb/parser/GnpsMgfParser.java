@@ -34,9 +34,7 @@ import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntryFactory;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumMap;
@@ -87,6 +85,23 @@ public class GnpsMgfParser extends SpectralDBTextParser {
     logger.info("Parsing mgf spectral library " + dataBaseFile.getAbsolutePath());
 
     final LibraryParsingErrors errors = new LibraryParsingErrors(library.getName());
+    if (!parseBlocks(mainTask, dataBaseFile, library, errors)) {
+      return false;
+    }
+
+    // log errors
+    logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+    return true;
+  }
+
+  @Override
+  protected boolean isEntryStart(@Nullable String previousLine, @NotNull String line) {
+    return line.trim().equalsIgnoreCase("BEGIN IONS");
+  }
+
+  @Override
+  protected @NotNull ParsedBlock parseBlock(@NotNull List<String> lines,
+      @NotNull SpectralLibrary library, @NotNull LibraryParsingErrors errors) {
     // BEGIN IONS
     // meta data
     // SCANS=1 .... n (the scan ID; could be used to put all spectra of the
@@ -94,6 +109,7 @@ public class GnpsMgfParser extends SpectralDBTextParser {
     // data
     // END IONS
 
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
     int correct = 0;
     State state = State.WAIT_FOR_META;
     Map<DBEntryField, Object> fields = new EnumMap<>(DBEntryField.class);
@@ -103,143 +119,132 @@ public class GnpsMgfParser extends SpectralDBTextParser {
     // flag that entry should be skipped
     boolean skipEntryError = false;
 
-    // create db
-    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      for (String l; (l = br.readLine()) != null; ) {
-        l = l.trim();
-        // main task was canceled?
-        if (mainTask != null && mainTask.isCanceled()) {
-          return false;
-        }
-        try {
-          if (l.length() > 1) {
-            // meta data start?
-            if (state.equals(State.WAIT_FOR_META)) {
-              if (l.equalsIgnoreCase("BEGIN IONS")) {
-                fields = new EnumMap<>(DBEntryField.class);
-                dps.clear();
-                state = State.META;
-                skipEntryError = false; // make sure its skip is reset
+    for (String l : lines) {
+      l = l.trim();
+      try {
+        if (l.length() > 1) {
+          // meta data start?
+          if (state.equals(State.WAIT_FOR_META)) {
+            if (l.equalsIgnoreCase("BEGIN IONS")) {
+              fields = new EnumMap<>(DBEntryField.class);
+              dps.clear();
+              state = State.META;
+              skipEntryError = false; // make sure its skip is reset
+            }
+          } else {
+            if (l.equalsIgnoreCase("END IONS")) {
+              // add entry and reset
+              if (!skipEntryError && fields.size() > 0 && dps.size() > 0) {
+                SpectralLibraryEntry entry = SpectralLibraryEntryFactory.create(
+                    library.getStorage(), fields, dps.toArray(new DataPoint[dps.size()]));
+                // filter here, entries are pushed in order after the block
+                entry = filterLibraryEntry(library.getStorage(), errors, entry);
+                if (entry != null) {
+                  entries.add(entry);
+                }
+                correct++;
+              } else if (skipEntryError) {
+                errors.addUnknownException("Skipped entry");
               }
+              state = State.WAIT_FOR_META;
+              fields = new EnumMap<>(DBEntryField.class);
+              dps.clear();
+              skipEntryError = false;
             } else {
-              if (l.equalsIgnoreCase("END IONS")) {
-                // add entry and reset
-                if (!skipEntryError && fields.size() > 0 && dps.size() > 0) {
-                  SpectralLibraryEntry entry = SpectralLibraryEntryFactory.create(
-                      library.getStorage(), fields, dps.toArray(new DataPoint[dps.size()]));
-                  // add and push
-                  addLibraryEntry(library.getStorage(), errors, entry);
-                  correct++;
-                } else if (skipEntryError) {
-                  errors.addUnknownException("Skipped entry");
-                }
-                state = State.WAIT_FOR_META;
-                fields = new EnumMap<>(DBEntryField.class);
-                dps.clear();
-                skipEntryError = false;
-              } else {
-                // only 1 split into max of String[2]
-                sep = l.split("=", 2);
-                if (sep.length == 1) {
-                  // data starts
-                  state = State.DATA;
-                }
-                switch (state) {
-                  case WAIT_FOR_META:
-                    // wait for next entry
-                    break;
-                  case DATA:
-                    // split for any white space (tab or space ...)
-                    String[] data = l.split("\\s+");
-                    if (data.length < 2) {
-                      // no data anymore
-                      state = State.WAIT_FOR_META;
-                    } else {
-                      try {
-                        dps.add(new SimpleDataPoint(Double.parseDouble(data[0]),
-                            Double.parseDouble(data[1])));
-                      } catch (Exception ex) {
-                        skipEntryError = true; // skip entry
-                        // use generic message as exception will be unique for each value and will create too long error log
-                        int dataPointErrors = errors.addUnknownException(
-                            "Cannot parse data points");
-                        // log the 2 first data point errors
-                        if (dataPointErrors <= 2 && isExtensiveErrorLogging()) {
-                          logger.log(Level.WARNING, "Cannot parse data point: " + ex.getMessage(),
-                              ex);
-                        }
+              // only 1 split into max of String[2]
+              sep = l.split("=", 2);
+              if (sep.length == 1) {
+                // data starts
+                state = State.DATA;
+              }
+              switch (state) {
+                case WAIT_FOR_META:
+                  // wait for next entry
+                  break;
+                case DATA:
+                  // split for any white space (tab or space ...)
+                  String[] data = l.split("\\s+");
+                  if (data.length < 2) {
+                    // no data anymore
+                    state = State.WAIT_FOR_META;
+                  } else {
+                    try {
+                      dps.add(new SimpleDataPoint(Double.parseDouble(data[0]),
+                          Double.parseDouble(data[1])));
+                    } catch (Exception ex) {
+                      skipEntryError = true; // skip entry
+                      // use generic message as exception will be unique for each value and will create too long error log
+                      int dataPointErrors = errors.addUnknownException(
+                          "Cannot parse data points");
+                      // log the 2 first data point errors
+                      if (dataPointErrors <= 2 && isExtensiveErrorLogging()) {
+                        logger.log(Level.WARNING, "Cannot parse data point: " + ex.getMessage(),
+                            ex);
                       }
                     }
-                    break;
-                  case META:
-                    if (sep.length == 2) {
-                      final String key = sep[0].trim();
-                      String content = sep[1].trim();
-                      // check many alternative names
-                      DBEntryField field = DBEntryField.forID(key);
+                  }
+                  break;
+                case META:
+                  if (sep.length == 2) {
+                    final String key = sep[0].trim();
+                    String content = sep[1].trim();
+                    // check many alternative names
+                    DBEntryField field = DBEntryField.forID(key);
 
-                      if (field == null) {
-                        if (!key.isBlank()) {
-                          errors.addUnknownKey(key);
-                        }
-                      } else {
-                        if (!content.isBlank()) {
-                          try {
-                            // allow 1+ as 1 and 2- as -2
-                            if (field.equals(DBEntryField.CHARGE)) {
-                              content = parseCharge(content);
-                            }
+                    if (field == null) {
+                      if (!key.isBlank()) {
+                        errors.addUnknownKey(key);
+                      }
+                    } else {
+                      if (!content.isBlank()) {
+                        try {
+                          // allow 1+ as 1 and 2- as -2
+                          if (field.equals(DBEntryField.CHARGE)) {
+                            content = parseCharge(content);
+                          }
 
-                            Object value = field.convertValue(content);
+                          Object value = field.convertValue(content);
 
-                            // only attempt parsing of adduct from name if there is no adduct already.
-                            if (field.equals(DBEntryField.NAME)
-                                && fields.get(DBEntryField.ION_TYPE) == null) {
-                              tryExtractAdductFromName((String) value, fields);
-                            }
-                            // retention time is in seconds, mzmine uses minutes
-                            if (field.equals(DBEntryField.RT)) {
-                              value = ((Float) value) / 60.f;
-                            }
+                          // only attempt parsing of adduct from name if there is no adduct already.
+                          if (field.equals(DBEntryField.NAME)
+                              && fields.get(DBEntryField.ION_TYPE) == null) {
+                            tryExtractAdductFromName((String) value, fields);
+                          }
+                          // retention time is in seconds, mzmine uses minutes
+                          if (field.equals(DBEntryField.RT)) {
+                            value = ((Float) value) / 60.f;
+                          }
 
-                            if (value != null) {
-                              fields.put(field, value);
-                            }
-                          } catch (Exception e) {
-                            errors.addValueParsingError(field, key, content);
-                            // pushed logging to later in the errors object to not overflow log
+                          if (value != null) {
+                            fields.put(field, value);
+                          }
+                        } catch (Exception e) {
+                          errors.addValueParsingError(field, key, content);
+                          // pushed logging to later in the errors object to not overflow log
 //                            logger.log(Level.WARNING,
 //                                "Cannot convert value type of " + content + " to "
 //                                    + field.getObjectClass().toString(), e);
-                          }
                         }
                       }
                     }
-                    break;
-                }
+                  }
+                  break;
               }
             }
           }
-        } catch (Exception ex) {
-          errors.addUnknownException(ex.getMessage());
-          // add this to count unknown errors and log first 5 only
-          int unknowns = errors.addUnknownException("unknown error");
-          if (unknowns <= 5 && isExtensiveErrorLogging()) {
-            logger.log(Level.WARNING, "Error for entry: " + ex.getMessage(), ex);
-          }
-
-          state = State.WAIT_FOR_META;
         }
-        processedLines.incrementAndGet();
-      }
-      // finish and process all entries
-      finish();
-
-      // log errors
-      logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+      } catch (Exception ex) {
+        errors.addUnknownException(ex.getMessage());
+        // add this to count unknown errors and log first 5 only
+        int unknowns = errors.addUnknownException("unknown error");
+        if (unknowns <= 5 && isExtensiveErrorLogging()) {
+          logger.log(Level.WARNING, "Error for entry: " + ex.getMessage(), ex);
+        }
 
-      return true;
+        state = State.WAIT_FOR_META;
+      }
     }
+    return new ParsedBlock(entries, correct, 0);
   }
 
   /**
@@ -31,9 +31,7 @@ import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntryFactory;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumMap;
@@ -65,93 +63,103 @@ public class JdxParser extends SpectralDBTextParser {
     logger.info("Parsing jdx spectral library " + dataBaseFile.getAbsolutePath());
 
     final LibraryParsingErrors errors = new LibraryParsingErrors(library.getName());
+    if (!parseBlocks(mainTask, dataBaseFile, library, errors)) {
+      return false;
+    }
+
+    // log errors
+    logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+    return true;
+  }
+
+  /**
+   * Entries end with a line END
+   */
+  @Override
+  protected boolean isEntryStart(@Nullable String previousLine, @NotNull String line) {
+    return previousLine == null || previousLine.trim().equalsIgnoreCase("end");
+  }
 
+  @Override
+  protected @NotNull ParsedBlock parseBlock(@NotNull List<String> lines,
+      @NotNull SpectralLibrary library, @NotNull LibraryParsingErrors errors) {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
     boolean isData = false;
     Map<DBEntryField, Object> fields = new EnumMap<>(DBEntryField.class);
     List<DataPoint> dps = new ArrayList<>();
-    // create db
     int sep = -1;
-    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      for (String l; (l = br.readLine()) != null; ) {
-        // main task was canceled?
-        if (mainTask.isCanceled()) {
-          return false;
-        }
+    int parsed = 0;
 
-        try {
-          // meta data?
-          sep = isData ? -1 : l.indexOf("=");
-          if (sep != -1) {
-            final String key = l.substring(0, sep);
-            DBEntryField field = DBEntryField.forJdxID(key);
+    for (String l : lines) {
+      try {
+        // meta data?
+        sep = isData ? -1 : l.indexOf("=");
+        if (sep != -1) {
+          final String key = l.substring(0, sep);
+          DBEntryField field = DBEntryField.forJdxID(key);
 
-            if (field == null) {
-              if (!key.isBlank()) {
-                errors.addUnknownKey(key);
-              }
-            } else {
-              String content = l.substring(sep + 1);
-              if (content.length() > 0) {
-                try {
-                  Object value = field.convertValue(content);
-                  fields.put(field, value);
-                } catch (Exception e) {
-                  errors.addValueParsingError(field, key, content);
-                }
-              }
+          if (field == null) {
+            if (!key.isBlank()) {
+              errors.addUnknownKey(key);
             }
           } else {
-            // data?
-            String[] dataPairs = l.split(" ");
-            for (String dataPair : dataPairs) {
-              String[] data = dataPair.split(",");
-              if (data.length == 2) {
-                try {
-                  dps.add(new SimpleDataPoint(Double.parseDouble(data[0]),
-                      Double.parseDouble(data[1])));
-                  isData = true;
-                } catch (Exception e) {
-                  // use generic message as exception will be unique for each value and will create too long error log
-                  int dataPointErrors = errors.addUnknownException("Cannot parse data points");
-                  // log the 2 first data point errors
-                  if (dataPointErrors <= 2 && isExtensiveErrorLogging()) {
-                    logger.log(Level.WARNING, "Cannot parse data point: " + e.getMessage(), e);
-                  }
+            String content = l.substring(sep + 1);
+            if (content.length() > 0) {
+              try {
+                Object value = field.convertValue(content);
+                fields.put(field, value);
+              } catch (Exception e) {
+                errors.addValueParsingError(field, key, content);
+              }
+            }
+          }
+        } else {
+          // data?
+          String[] dataPairs = l.split(" ");
+          for (String dataPair : dataPairs) {
+            String[] data = dataPair.split(",");
+            if (data.length == 2) {
+              try {
+                dps.add(new SimpleDataPoint(Double.parseDouble(data[0]),
+                    Double.parseDouble(data[1])));
+                isData = true;
+              } catch (Exception e) {
+                // use generic message as exception will be unique for each value and will create too long error log
+                int dataPointErrors = errors.addUnknownException("Cannot parse data points");
+                // log the 2 first data point errors
+                if (dataPointErrors <= 2 && isExtensiveErrorLogging()) {
+                  logger.log(Level.WARNING, "Cannot parse data point: " + e.getMessage(), e);
                 }
               }
             }
           }
-          if (l.trim().equalsIgnoreCase("end")) {
-            // row with END
-            // add entry and reset
-            if (!fields.isEmpty() || !dps.isEmpty()) {
-              // skipped some read information
-              errors.addUnknownException("Skipped entry");
-            } else {
-              SpectralLibraryEntry entry = SpectralLibraryEntryFactory.create(library.getStorage(),
-                  fields, dps.toArray(new DataPoint[dps.size()]));
-              addLibraryEntry(library.getStorage(), errors, entry);
+        }
+        if (l.trim().equalsIgnoreCase("end")) {
+          // row with END
+          // add entry and reset
+          if (fields.isEmpty() || dps.isEmpty()) {
+            // skipped some read information
+            errors.addUnknownException("Skipped entry");
+          } else {
+            SpectralLibraryEntry entry = SpectralLibraryEntryFactory.create(library.getStorage(),
+                fields, dps.toArray(new DataPoint[dps.size()]));
+            entry = filterLibraryEntry(library.getStorage(), errors, entry);
+            if (entry != null) {
+              entries.add(entry);
             }
-
-            fields = new EnumMap<>(DBEntryField.class);
-            dps.clear();
-            // reset
-            isData = false;
+            parsed++;
           }
-        } catch (Exception ex) {
-          logger.log(Level.WARNING, "Error for entry", ex);
+
+          fields = new EnumMap<>(DBEntryField.class);
+          dps.clear();
+          // reset
+          isData = false;
         }
-        processedLines.incrementAndGet();
+      } catch (Exception ex) {
+        logger.log(Level.WARNING, "Error for entry", ex);
       }
     }
-
-    // finish and push last entries
-    finish();
-
-    // log errors
-    logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
-
-    return true;
+    return new ParsedBlock(entries, parsed, 0);
   }
 
 }
@@ -34,6 +34,9 @@ import java.util.Map.Entry;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Collects parsing errors of a library. Thread-safe as library blocks are parsed in parallel.
+ */
 public class LibraryParsingErrors {
 
   private final String library;
@@ -57,7 +60,7 @@ public class LibraryParsingErrors {
     this.maxErrors = maxErrors;
   }
 
-  public int addUnknownKey(String key) {
+  public synchronized int addUnknownKey(String key) {
     // if max errors reached only count already known errors
     // otherwise the log and error list may overflow
     if (unknownKeys.size() >= maxErrors && !unknownKeys.containsKey(key)) {
@@ -67,7 +70,7 @@ public class LibraryParsingErrors {
     return unknownKeys.compute(key, (_, counter) -> counter == null ? 1 : counter + 1);
   }
 
-  public int addUnknownException(String message) {
+  public synchronized int addUnknownException(String message) {
     // if max errors reached only count already known errors
     // otherwise the log and error list may overflow
     if (unknownExceptions.size() >= maxErrors && !unknownExceptions.containsKey(message)) {
@@ -84,7 +87,7 @@ public class LibraryParsingErrors {
    * @param valueError the value that created the parsing error
    * @return number of errors for this key including the current error
    */
-  public int addValueParsingError(@NotNull DBEntryField field, @NotNull String fieldKey,
+  public synchronized int addValueParsingError(@NotNull DBEntryField field, @NotNull String fieldKey,
       @NotNull String valueError) {
     final LibraryValueError errorCollector = valueErrors.computeIfAbsent(field,
         _ -> new LibraryValueError(field, fieldKey));
@@ -95,7 +98,7 @@ public class LibraryParsingErrors {
   }
 
   @Override
-  public String toString() {
+  public synchronized String toString() {
     final String valueParsingErrors = valueErrors.entrySet().stream().sorted(Entry.comparingByKey())
         .map(Entry::getValue).map(LibraryValueError::toString).collect(Collectors.joining("\n"));
 
@@ -136,7 +139,7 @@ public class LibraryParsingErrors {
     }
   }
 
-  public String toStringShort() {
+  public synchronized String toStringShort() {
     // sorted alphabetically to spot typos
     final String unknownKeysString = unknownKeys.entrySet().stream().sorted(Entry.comparingByKey())
         .map(e -> "'%s' (%d)".formatted(e.getKey(), e.getValue()))
@@ -38,12 +38,12 @@ import jakarta.json.JsonNumber;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
 import jakarta.json.JsonValue;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -67,51 +67,56 @@ public class MZmineJsonParser extends SpectralDBTextParser {
     logger.info("Parsing MZmine spectral library " + dataBaseFile.getAbsolutePath());
 
     final LibraryParsingErrors errors = new LibraryParsingErrors(library.getName());
+    if (!parseBlocks(mainTask, dataBaseFile, library, errors)) {
+      return false;
+    }
+
+    // log errors
+    logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+
+    return true;
+  }
 
+  @Override
+  protected @NotNull ParsedBlock parseBlock(@NotNull List<String> lines,
+      @NotNull SpectralLibrary library, @NotNull LibraryParsingErrors errors) {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
     int correct = 0;
     int error = 0;
-    // create db
-    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      for (String l; (l = br.readLine()) != null; ) {
-        // main task was canceled?
-        if (mainTask != null && mainTask.isCanceled()) {
-          return false;
-        }
-
-        try (JsonReader reader = Json.createReader(new StringReader(l))) {
-          JsonObject json = reader.readObject();
-          SpectralLibraryEntry entry = getDBEntry(errors, library, json);
+    for (String l : lines) {
+      try (JsonReader reader = Json.createReader(new StringReader(l))) {
+        JsonObject json = reader.readObject();
+        SpectralLibraryEntry entry = getDBEntry(errors, library, json);
+        if (entry != null) {
+          correct++;
+          entry = filterLibraryEntry(library.getStorage(), errors, entry);
           if (entry != null) {
-            correct++;
-            // add entry and process
-            addLibraryEntry(library.getStorage(), errors, entry);
-          } else {
-            error++;
+            entries.add(entry);
           }
-        } catch (Exception ex) {
-          errors.addUnknownException(ex.getMessage());
-          // add this to count unknown errors and log first 5 only
-          int unknowns = errors.addUnknownException("unknown error");
-          if (unknowns <= 5 && isExtensiveErrorLogging()) {
-            logger.log(Level.WARNING, "Error for entry: " + ex.getMessage(), ex);
-          }
-
+        } else {
           error++;
         }
-        // to many errors? wrong data format?
-        if (error > 5 && correct < 5) {
-          logger.log(Level.WARNING, "This file was no mzmine spectral json library");
-          return false;
+      } catch (Exception ex) {
+        errors.addUnknownException(ex.getMessage());
+        // add this to count unknown errors and log first 5 only
+        int unknowns = errors.addUnknownException("unknown error");
+        if (unknowns <= 5 && isExtensiveErrorLogging()) {
+          logger.log(Level.WARNING, "Error for entry: " + ex.getMessage(), ex);
         }
-        processedLines.incrementAndGet();
+
+        error++;
       }
     }
-    // finish and process last entries
-    finish();
-
-    // log errors
-    logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+    return new ParsedBlock(entries, correct, error);
+  }
 
+  @Override
+  protected boolean isValidFormat(int parsedEntries, int failedEntries) {
+    // to many errors? wrong data format?
+    if (failedEntries > 5 && parsedEntries < 5) {
+      logger.log(Level.WARNING, "This file was no mzmine spectral json library");
+      return false;
+    }
     return true;
   }
 
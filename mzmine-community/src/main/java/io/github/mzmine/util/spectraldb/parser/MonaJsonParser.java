@@ -83,20 +83,15 @@ public class MonaJsonParser extends SpectralDBTextParser {
     AtomicInteger correct = new AtomicInteger(0);
     AtomicInteger error = new AtomicInteger(0);
 
-    List<SpectralLibraryEntry> results = new ArrayList<>();
-
     final LibraryParsingErrors errors = new LibraryParsingErrors(library.getName());
 
-    // create db
     try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      // test on first ten if it is really a MoNA file
+      // test on the first entries if it is really a MoNA file, errors are counted during parsing
+      final LibraryParsingErrors testErrors = new LibraryParsingErrors(library.getName());
       String l = br.readLine();
       while (l != null) {
         if (l.length() > 2) {
-          final SpectralLibraryEntry entry = parseLineToEntry(errors, library, correct, error, l);
-          if (entry != null) {
-            results.add(entry);
-          }
+          parseLineToEntry(testErrors, library, correct, error, l);
         }
         processedLines.incrementAndGet();
 
@@ -113,28 +108,37 @@ public class MonaJsonParser extends SpectralDBTextParser {
             + "reading GNPS json libraries and just to determine the file type.");
         return false;
       }
+    }
 
-      // read the rest in parallel
-      final List<SpectralLibraryEntry> entries = br.lines().filter(line -> {
-            processedLines.incrementAndGet();
-            return line.length() > 2;
-          }).parallel().map(line -> parseLineToEntry(errors, library, correct, error, line))
-          .filter(Objects::nonNull).toList();
-
-      if (error.get() > 0) {
-        logger.warning(
-            String.format("MoNA spectral library %s was imported with %d entries failing.",
-                dataBaseFile.getName(), error.get()));
-      }
-      // combine
-      results.addAll(entries);
-      processor.processNextEntries(results, 0);
+    // parse the whole file in parallel blocks, one entry per line
+    processedLines.set(0);
+    if (!parseBlocks(mainTask, dataBaseFile, library, errors)) {
+      return false;
+    }
 
-      // log errors
-      logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+    // log errors
+    logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+    return true;
+  }
 
-      return true;
+  @Override
+  protected @NotNull ParsedBlock parseBlock(@NotNull List<String> lines,
+      @NotNull SpectralLibrary library, @NotNull LibraryParsingErrors errors) {
+    final AtomicInteger correct = new AtomicInteger(0);
+    final AtomicInteger error = new AtomicInteger(0);
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
+    for (String line : lines) {
+      if (line.length() <= 2) {
+        continue;
+      }
+      final SpectralLibraryEntry entry = parseLineToEntry(errors, library, correct, error, line);
+      final SpectralLibraryEntry filtered =
+          entry == null ? null : filterLibraryEntry(library.getStorage(), errors, entry);
+      if (filtered != null) {
+        entries.add(filtered);
+      }
     }
+    return new ParsedBlock(entries, correct.get(), error.get());
   }
 
   private SpectralLibraryEntry parseLineToEntry(LibraryParsingErrors errors,
@@ -33,9 +33,7 @@ import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntryFactory;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.EnumMap;
@@ -62,6 +60,29 @@ public class NistMspParser extends SpectralDBTextParser {
     super.parse(mainTask, dataBaseFile, library);
     logger.info("Parsing NIST msp spectral library " + dataBaseFile.getAbsolutePath());
 
+    final LibraryParsingErrors errors = new LibraryParsingErrors(library.getName());
+    if (!parseBlocks(mainTask, dataBaseFile, library, errors)) {
+      return false;
+    }
+
+    // log errors
+    logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+    return true;
+  }
+
+  /**
+   * Entries are separated by empty lines and start with the name
+   */
+  @Override
+  protected boolean isEntryStart(@Nullable String previousLine, @NotNull String line) {
+    return (previousLine == null || previousLine.isBlank()) && line.regionMatches(true, 0, "NAME:",
+        0, 5);
+  }
+
+  @Override
+  protected @NotNull ParsedBlock parseBlock(@NotNull List<String> lines,
+      @NotNull SpectralLibrary library, @NotNull LibraryParsingErrors errors) {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
     // metadata fields and data points
     Map<DBEntryField, Object> fields = new EnumMap<>(DBEntryField.class);
     List<DataPoint> dps = new ArrayList<>();
@@ -73,103 +94,96 @@ public class NistMspParser extends SpectralDBTextParser {
 
     // flag to skip entry on fatal error like in data
     boolean fatalEntryError = false;
+    int parsed = 0;
 
-    final LibraryParsingErrors errors = new LibraryParsingErrors(library.getName());
-
-    // read DB file
-    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      for (String l; (l = br.readLine()) != null; ) {
-        // main task was canceled?
-        if (mainTask != null && mainTask.isCanceled()) {
-          return false;
-        }
-        try {
-          if (!l.isBlank()) {
-            // meta data?
-            sep = isData ? EMPTY : l.split(": ", 2);
-            if (sep.length > 1) {
-              extractMetaData(errors, fields, l, sep);
-            } else {
-              // data?
-              try {
-                DataPoint dp = extractDataPoint(l);
-                if (dp != null) {
-                  dps.add(dp);
-                  isData = true;
-                } else {
-                  isData = false;
-                }
-              } catch (Exception e) {
-                fatalEntryError = true;
-                // use generic message as exception will be unique for each value and will create too long error log
-                int dataPointErrors = errors.addUnknownException("Cannot parse data points");
-                // log the 2 first data point errors
-                if (dataPointErrors <= 2 && isExtensiveErrorLogging()) {
-                  logger.log(Level.WARNING, "Cannot parse data point", e);
-                }
-              }
-            }
+    for (String l : lines) {
+      try {
+        if (!l.isBlank()) {
+          // meta data?
+          sep = isData ? EMPTY : l.split(": ", 2);
+          if (sep.length > 1) {
+            extractMetaData(errors, fields, l, sep);
           } else {
-            // empty row
-            if (isData) {
-              // empty row after data
-              // add entry and reset
-              addEntryAndReset(errors, fatalEntryError, library, fields, dps);
-              fatalEntryError = false;
-              isData = false;
+            // data?
+            try {
+              DataPoint dp = extractDataPoint(l);
+              if (dp != null) {
+                dps.add(dp);
+                isData = true;
+              } else {
+                isData = false;
+              }
+            } catch (Exception e) {
+              fatalEntryError = true;
+              // use generic message as exception will be unique for each value and will create too long error log
+              int dataPointErrors = errors.addUnknownException("Cannot parse data points");
+              // log the 2 first data point errors
+              if (dataPointErrors <= 2 && isExtensiveErrorLogging()) {
+                logger.log(Level.WARNING, "Cannot parse data point", e);
+              }
             }
           }
-        } catch (Exception ex) {
-          errors.addUnknownException(ex.getMessage());
-          // add this to count unknown errors and log first 5 only
-          int unknowns = errors.addUnknownException("unknown error");
-          if (unknowns <= 5 && isExtensiveErrorLogging()) {
-            logger.log(Level.WARNING, "Error for entry: " + ex.getMessage(), ex);
-          }
-
-          if (!fields.isEmpty() || !dps.isEmpty()) {
-            // skipped some read information
-            errors.addUnknownException("Skipped entry");
+        } else {
+          // empty row
+          if (isData) {
+            // empty row after data
+            // add entry and reset
+            parsed += addEntryAndReset(errors, fatalEntryError, library, fields, dps, entries);
+            fatalEntryError = false;
+            isData = false;
           }
-
-          // reset on error
-          isData = false;
-          fields.clear();
-          dps.clear();
-          fatalEntryError = false;
         }
-        processedLines.incrementAndGet();
-      }
-      // add last entry
-      if (!fields.isEmpty() && !dps.isEmpty()) {
-        addEntryAndReset(errors, fatalEntryError, library, fields, dps);
-      }
-
-      // finish and process all entries
-      finish();
+      } catch (Exception ex) {
+        errors.addUnknownException(ex.getMessage());
+        // add this to count unknown errors and log first 5 only
+        int unknowns = errors.addUnknownException("unknown error");
+        if (unknowns <= 5 && isExtensiveErrorLogging()) {
+          logger.log(Level.WARNING, "Error for entry: " + ex.getMessage(), ex);
+        }
 
-      // log errors
-      logger.info(isExtensiveErrorLogging() ? errors.toString() : errors.toStringShort());
+        if (!fields.isEmpty() || !dps.isEmpty()) {
+          // skipped some read information
+          errors.addUnknownException("Skipped entry");
+        }
 
-      return true;
+        // reset on error
+        isData = false;
+        fields.clear();
+        dps.clear();
+        fatalEntryError = false;
+      }
     }
+    // add last entry of block, blocks always start with a new entry
+    if (!fields.isEmpty() && !dps.isEmpty()) {
+      parsed += addEntryAndReset(errors, fatalEntryError, library, fields, dps, entries);
+    }
+    return new ParsedBlock(entries, parsed, 0);
   }
 
-  private void addEntryAndReset(LibraryParsingErrors errors, boolean fatalEntryError,
-      SpectralLibrary library, Map<DBEntryField, Object> fields, List<DataPoint> dps) {
+  /**
+   * @return 1 if an entry was parsed, otherwise 0
+   */
+  private int addEntryAndReset(LibraryParsingErrors errors, boolean fatalEntryError,
+      SpectralLibrary library, Map<DBEntryField, Object> fields, List<DataPoint> dps,
+      List<SpectralLibraryEntry> entries) {
+    int parsed = 0;
     if (!fatalEntryError && !dps.isEmpty() && !fields.isEmpty()) {
       SpectralLibraryEntry entry = SpectralLibraryEntryFactory.create(library.getStorage(), fields,
           dps.toArray(new DataPoint[0]));
-      addLibraryEntry(library.getStorage(), errors, entry);
+      entry = filterLibraryEntry(library.getStorage(), errors, entry);
+      if (entry != null) {
+        entries.add(entry);
+      }
+      parsed = 1;
     }
 
     if (fatalEntryError) {
       errors.addUnknownException("Skipped entry");
     }
-    // add and push
     // reset
     fields.clear();
     dps.clear();
+    return parsed;
   }
 
   /**
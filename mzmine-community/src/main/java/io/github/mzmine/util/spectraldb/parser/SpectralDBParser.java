@@ -78,25 +78,47 @@ public abstract class SpectralDBParser {
    */
   protected boolean addLibraryEntry(@Nullable MemoryMapStorage storage, LibraryParsingErrors errors,
       SpectralLibraryEntry entry) {
+    final SpectralLibraryEntry filtered = filterLibraryEntry(storage, errors, entry);
+    if (filtered == null) {
+      return false;
+    }
+    pushLibraryEntry(filtered);
+    return true;
+  }
+
+  /**
+   * Removes zero intensity values from the entry. Does not push the entry and may therefore be
+   * called in parallel.
+   *
+   * @return the filtered entry or null if the entry should be skipped
+   */
+  protected @Nullable SpectralLibraryEntry filterLibraryEntry(@Nullable MemoryMapStorage storage,
+      LibraryParsingErrors errors, SpectralLibraryEntry entry) {
     // zero intensity may be due to normalization and then number formatting
     // or too many (50%) zero values may be profile spectrum
     final DataPoint[] zeroFiltered = ScanUtils.getFiltered(entry.getDataPoints(), 0);
 
     if (zeroFiltered.length == 0) {
       errors.addUnknownException("Skipped entry with empty spectrum");
-      return false;
+      return null;
     } else if (zeroFiltered.length * 4 < entry.getNumberOfDataPoints()) {
       // detected as profile due to many 0 values = skip entry
       // msconvert used to add zero datapoints left and right of a centroid when using local max algorithm
       // therefore use a higher factor of zero values
       errors.addUnknownException(
           "Skipped entry with >50% zero-intensity values (maybe profile spectrum).");
-      return false;
-    } else {
-      // only a few zero values so maybe just bad formatting
-      entry = SpectralLibraryEntryFactory.create(storage, entry.getFields(), zeroFiltered);
+      return null;
+    } else if (zeroFiltered.length == entry.getNumberOfDataPoints()) {
+      return entry;
     }
+    // only a few zero values so maybe just bad formatting
+    return SpectralLibraryEntryFactory.create(storage, entry.getFields(), zeroFiltered);
+  }
 
+  /**
+   * Adds an already filtered entry to the buffer and pushes every {@link #bufferEntries} entries
+   */
+  protected void pushLibraryEntry(SpectralLibraryEntry entry) {
     synchronized (LOCK) {
       // need double lock as list changes inside
       synchronized (list) {
@@ -113,7 +135,6 @@ public abstract class SpectralDBParser {
         }
       }
     }
-    return true;
   }
 
   /**
@@ -28,8 +28,16 @@ package io.github.mzmine.util.spectraldb.parser;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -37,11 +45,18 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
+ * Text based library parsers read the file on one thread and cut it into blocks of lines at entry
+ * boundaries. Blocks are parsed in parallel and the entries are pushed in file order.
+ *
  * @author Robin Schmid (https://github.com/robinschmid)
  */
 public abstract class SpectralDBTextParser extends SpectralDBParser {
 
   private static final Logger logger = Logger.getLogger(SpectralDBTextParser.class.getName());
+  /**
+   * Minimum number of lines per block. Blocks are only cut at the next entry start.
+   */
+  private static final int BLOCK_LINES = 20_000;
   private final boolean extensiveErrorLogging;
 
   protected long totalLines = 0L;
@@ -70,6 +85,102 @@ public abstract class SpectralDBTextParser extends SpectralDBParser {
     return false;
   }
 
+  /**
+   * Reads the file, cuts it into blocks at entry starts and parses the blocks in parallel with
+   * {@link #parseBlock(List, SpectralLibrary, LibraryParsingErrors)}. Entries are pushed in the
+   * order of the file and {@link #finish()} is called at the end.
+   *
+   * @return false if the task was canceled or {@link #isValidFormat(int, int)} failed
+   */
+  protected boolean parseBlocks(@Nullable AbstractTask mainTask, @NotNull File dataBaseFile,
+      @NotNull SpectralLibrary library, @NotNull LibraryParsingErrors errors) throws IOException {
+    final int maxBlocksInFlight = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+    final Deque<CompletableFuture<ParsedBlock>> blocks = new ArrayDeque<>();
+    final int[] parsedAndFailed = new int[2];
+
+    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
+      List<String> lines = new ArrayList<>(BLOCK_LINES);
+      String previous = null;
+      for (String l; (l = br.readLine()) != null; ) {
+        // main task was canceled?
+        if (mainTask != null && mainTask.isCanceled()) {
+          blocks.forEach(block -> block.cancel(false));
+          return false;
+        }
+        if (lines.size() >= BLOCK_LINES && isEntryStart(previous, l)) {
+          blocks.add(submitBlock(lines, library, errors));
+          lines = new ArrayList<>(BLOCK_LINES);
+          // limit memory by waiting for the oldest block
+          while (blocks.size() >= maxBlocksInFlight) {
+            if (!pushBlock(blocks.removeFirst().join(), parsedAndFailed)) {
+              blocks.forEach(block -> block.cancel(false));
+              return false;
+            }
+          }
+        }
+        lines.add(l);
+        previous = l;
+        processedLines.incrementAndGet();
+      }
+      if (!lines.isEmpty()) {
+        blocks.add(submitBlock(lines, library, errors));
+      }
+    }
+
+    while (!blocks.isEmpty()) {
+      if ((mainTask != null && mainTask.isCanceled()) || !pushBlock(blocks.removeFirst().join(),
+          parsedAndFailed)) {
+        blocks.forEach(block -> block.cancel(false));
+        return false;
+      }
+    }
+
+    // finish and process all entries
+    finish();
+    return true;
+  }
+
+  private CompletableFuture<ParsedBlock> submitBlock(List<String> lines, SpectralLibrary library,
+      LibraryParsingErrors errors) {
+    return CompletableFuture.supplyAsync(() -> parseBlock(lines, library, errors));
+  }
+
+  private boolean pushBlock(ParsedBlock block, int[] parsedAndFailed) {
+    block.entries().forEach(this::pushLibraryEntry);
+    parsedAndFailed[0] += block.parsedEntries();
+    parsedAndFailed[1] += block.failedEntries();
+    return isValidFormat(parsedAndFailed[0], parsedAndFailed[1]);
+  }
+
+  /**
+   * Default is one entry per line
+   *
+   * @param previousLine the line before or null for the first line
+   * @param line         the current line
+   * @return true if line is the first line of a new entry so that a block may start here
+   */
+  protected boolean isEntryStart(@Nullable String previousLine, @NotNull String line) {
+    return true;
+  }
+
+  /**
+   * Parses a block of lines that starts at an entry start. Called in parallel, so all state needs
+   * to be local. Entries should be filtered by
+   * {@link #filterLibraryEntry(io.github.mzmine.util.MemoryMapStorage, LibraryParsingErrors,
+   * SpectralLibraryEntry)} but not pushed.
+   */
+  protected abstract @NotNull ParsedBlock parseBlock(@NotNull List<String> lines,
+      @NotNull SpectralLibrary library, @NotNull LibraryParsingErrors errors);
+
+  /**
+   * Checked after each block with the total counts so far
+   *
+   * @return false to stop parsing if too many entries failed, e.g., for a wrong file format
+   */
+  protected boolean isValidFormat(int parsedEntries, int failedEntries) {
+    return true;
+  }
+
   @Override
   public double getProgress() {
     return totalLines == 0 ? 0 : processedLines.get() / (double) totalLines;
@@ -82,4 +193,14 @@ public abstract class SpectralDBTextParser extends SpectralDBParser {
   public boolean isExtensiveErrorLogging() {
     return extensiveErrorLogging;
   }
+
+  /**
+   * @param entries       the filtered entries in order
+   * @param parsedEntries number of parsed entries, including entries removed by the filter
+   * @param failedEntries number of entries that failed to parse
+   */
+  protected record ParsedBlock(@NotNull List<SpectralLibraryEntry> entries, int parsedEntries,
+                               int failedEntries) {
+
+  }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.data_access;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.AtomicDouble;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.impl.SimpleImagingScan;
+import io.github.mzmine.modules.io.import_rawdata_imzml.Coordinates;
+import io.github.mzmine.project.impl.ImagingRawDataFileImpl;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ImagingMzIndexTest {
+
+  private ImagingRawDataFileImpl raw;
+
+  @BeforeEach
+  void setUp() {
+    raw = new ImagingRawDataFileImpl("image", null, null);
+    final Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      final int n = random.nextInt(150);
+      final double[] mzs = new double[n];
+      final double[] intensities = new double[n];
+      for (int j = 0; j < n; j++) {
+        // coarse m/z values to get equal m/z in different scans
+        mzs[j] = 100 + Math.round(random.nextDouble() * 9000) / 10d;
+        intensities[j] = random.nextDouble() * 1000;
+      }
+      Arrays.sort(mzs);
+      raw.addScan(new SimpleImagingScan(raw, i, 1, 0f, 0d, 0, mzs, intensities,
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(100d, 1000d),
+          new Coordinates(i % 20, i / 20, 0)));
+    }
+  }
+
+  /**
+   * The same extraction as the image provider without index
+   */
+  private static SimpleIonTimeSeries extractFromScans(List<Scan> scans, Range<Double> mzRange) {
+    final double[] mzs = new double[scans.size()];
+    final double[] sums = new double[scans.size()];
+    for (int s = 0; s < scans.size(); s++) {
+      final Scan scan = scans.get(s);
+      double maxIntensity = 0;
+      for (int i = 0; i < scan.getNumberOfDataPoints(); i++) {
+        final double mz = scan.getMzValue(i);
+        if (!mzRange.contains(mz)) {
+          continue;
+        }
+        final double intensity = scan.getIntensityValue(i);
+        sums[s] += intensity;
+        if (intensity > maxIntensity) {
+          maxIntensity = intensity;
+          mzs[s] = mz;
+        }
+      }
+    }
+    return new SimpleIonTimeSeries(null, mzs, sums, scans);
+  }
+
+  @Test
+  void indexMatchesScanExtraction() {
+    final AtomicDouble progress = new AtomicDouble(0d);
+    final ImagingMzIndex index = ImagingMzIndex.of(raw, progress);
+    assertNotNull(index);
+    assertEquals(1d, progress.get(), 1e-9);
+    assertEquals(raw.getScans().stream().mapToInt(Scan::getNumberOfDataPoints).sum(),
+        index.getNumberOfDataPoints());
+    for (int i = 1; i < index.getNumberOfDataPoints(); i++) {
+      assertTrue(index.getMz(i - 1) <= index.getMz(i));
+    }
+
+    final List<Scan> scans = ImagingMzIndex.getIndexedScans(raw);
+    final Random random = new Random(7);
+    for (int i = 0; i < 50; i++) {
+      final double lower = 90 + random.nextDouble() * 920;
+      final Range<Double> mzRange = Range.closed(lower, lower + random.nextDouble() * 20);
+      final SimpleIonTimeSeries expected = extractFromScans(scans, mzRange);
+      final SimpleIonTimeSeries actual = index.extractImage(raw, mzRange, scans);
+
+      assertEquals(expected.getSpectra(), actual.getSpectra());
+      final int n = expected.getNumberOfValues();
+      assertArrayEquals(expected.getIntensityValues(new double[n]),
+          actual.getIntensityValues(new double[n]), 1e-6);
+      assertArrayEquals(expected.getMzValues(new double[n]), actual.getMzValues(new double[n]));
+    }
+  }
+
+  @Test
+  void selectedScansKeepOrder() {
+    final ImagingMzIndex index = ImagingMzIndex.of(raw, null);
+    assertNotNull(index);
+    final List<Scan> scans = ImagingMzIndex.getIndexedScans(raw);
+    final List<Scan> selection = List.of(scans.get(17), scans.get(3), scans.get(120));
+    final Range<Double> mzRange = Range.closed(300d, 600d);
+
+    final SimpleIonTimeSeries expected = extractFromScans(selection, mzRange);
+    final SimpleIonTimeSeries actual = index.extractImage(raw, mzRange, selection);
+    assertEquals(selection, actual.getSpectra());
+    assertArrayEquals(expected.getIntensityValues(new double[3]),
+        actual.getIntensityValues(new double[3]), 1e-6);
+  }
+
+  @Test
+  void indexIsCached() {
+    final ImagingMzIndex index = ImagingMzIndex.of(raw, null);
+    assertSame(index, ImagingMzIndex.of(raw, null));
+    assertSame(index, ImagingMzIndex.getIfBuilt(raw));
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.util.MathUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+class MinimumSearchCoreTest {
+
+  private static final Logger logger = Logger.getLogger(MinimumSearchCoreTest.class.getName());
+
+  private static List<Range<Double>> toRanges(double[] x, IntArrayList indices) {
+    final List<Range<Double>> ranges = new ArrayList<>();
+    for (int i = 0; i < indices.size(); i += 2) {
+      ranges.add(Range.closed(x[indices.getInt(i)], x[indices.getInt(i + 1)]));
+    }
+    return ranges;
+  }
+
+  private static double[] randomX(Random rand, int n) {
+    final double[] x = new double[n];
+    double current = rand.nextDouble();
+    for (int i = 0; i < n; i++) {
+      x[i] = current;
+      // irregular spacing, sometimes with larger gaps
+      current += rand.nextInt(10) == 0 ? rand.nextDouble() * 0.2 : 0.005 + rand.nextDouble() * 0.02;
+    }
+    return x;
+  }
+
+  private static double[] randomY(Random rand, double[] x) {
+    final double[] y = new double[x.length];
+    final int peaks = rand.nextInt(12);
+    for (int p = 0; p < peaks; p++) {
+      final double center = x[rand.nextInt(x.length)];
+      final double sigma = 0.005 + rand.nextDouble() * 0.1;
+      final double height = Math.pow(10, 2 + rand.nextDouble() * 5);
+      for (int i = 0; i < x.length; i++) {
+        final double d = (x[i] - center) / sigma;
+        y[i] += height * Math.exp(-0.5 * d * d);
+      }
+    }
+    final boolean discrete = rand.nextBoolean();
+    for (int i = 0; i < y.length; i++) {
+      y[i] += rand.nextDouble() * 50;
+      if (rand.nextInt(15) == 0) {
+        y[i] = 0;
+      }
+      if (discrete) {
+        // produce ties and plateaus
+        y[i] = Math.floor(y[i] / 100) * 100;
+      }
+    }
+    return y;
+  }
+
+  @Test
+  void equalToOriginalSearchOnRandomEics() {
+    final Random rand = new Random(42);
+    for (int run = 0; run < 3000; run++) {
+      final int n = 1 + rand.nextInt(rand.nextBoolean() ? 20 : 600);
+      final double[] x = randomX(rand, n);
+      final double[] y = randomY(rand, x);
+
+      final double chromThreshold = rand.nextBoolean() ? 0 : rand.nextDouble() * 0.9;
+      final double searchWidth = rand.nextDouble() * 0.2;
+      final double minRelativeHeight = rand.nextDouble() * 0.1;
+      final double minAbsoluteHeight = rand.nextBoolean() ? 0 : rand.nextDouble() * 1000;
+      final double minRatio = 1 + rand.nextDouble() * 2;
+      final Range<Double> duration = Range.closed(0d, 0.05 + rand.nextDouble() * 2);
+      final int minDataPoints = 1 + rand.nextInt(8);
+
+      final List<Range<Double>> expected = new OriginalMinimumSearch(chromThreshold, searchWidth,
+          minRelativeHeight, minAbsoluteHeight, minRatio, duration, minDataPoints).resolve(x,
+          y.clone());
+
+      final IntArrayList indices = new IntArrayList();
+      new MinimumSearchCore(chromThreshold, searchWidth, minRelativeHeight, minAbsoluteHeight,
+          minRatio, duration, minDataPoints).resolve(x, y.clone(), indices);
+
+      assertEquals(expected, toRanges(x, indices), "Run " + run + " with " + n + " data points");
+    }
+  }
+
+  @Test
+  void reusedCoreGivesSameResults() {
+    final Random rand = new Random(7);
+    final MinimumSearchCore core = new MinimumSearchCore(0, 0.05, 0, 0, 1.7,
+        Range.closed(0d, 5d), 4);
+    final double[] longX = randomX(rand, 2000);
+    final double[] longY = randomY(rand, longX);
+    final double[] shortX = randomX(rand, 50);
+    final double[] shortY = randomY(rand, shortX);
+
+    final IntArrayList first = new IntArrayList();
+    core.resolve(shortX, shortY.clone(), first);
+    core.resolve(longX, longY.clone(), new IntArrayList());
+    final IntArrayList second = new IntArrayList();
+    core.resolve(shortX, shortY.clone(), second);
+    assertEquals(first, second);
+  }
+
+  /**
+   * Compares run times on long EICs, e.g., GCxGC or long gradients
+   */
+  @Disabled("Benchmark")
+  @Test
+  void benchmarkLongEics() {
+    final Random rand = new Random(1);
+    final int n = 40_000;
+    final double[] x = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = i * 0.002;
+    }
+    final double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      y[i] = 1000 + rand.nextDouble() * 500 + 1E5 * Math.abs(Math.sin(i / 200d));
+    }
+    final Range<Double> duration = Range.closed(0d, 100d);
+    final var original = new OriginalMinimumSearch(0, 1.0, 0, 0, 1.7, duration, 4);
+    final var core = new MinimumSearchCore(0, 1.0, 0, 0, 1.7, duration, 4);
+    final IntArrayList indices = new IntArrayList();
+
+    for (int warmup = 0; warmup < 5; warmup++) {
+      original.resolve(x, y.clone());
+      indices.clear();
+      core.resolve(x, y.clone(), indices);
+    }
+
+    final int repetitions = 20;
+    long start = System.nanoTime();
+    for (int r = 0; r < repetitions; r++) {
+      original.resolve(x, y.clone());
+    }
+    final long originalNanos = (System.nanoTime() - start) / repetitions;
+
+    start = System.nanoTime();
+    for (int r = 0; r < repetitions; r++) {
+      indices.clear();
+      core.resolve(x, y.clone(), indices);
+    }
+    final long coreNanos = (System.nanoTime() - start) / repetitions;
+
+    logger.info("Resolving %d data points: original %.2f ms, single pass %.2f ms".formatted(n,
+        originalNanos / 1E6, coreNanos / 1E6));
+  }
+
+  /**
+   * The original region search of the {@link MinimumSearchFeatureResolver} that checks the search
+   * range around every candidate region end.
+   */
+  private record OriginalMinimumSearch(double chromThreshold, double searchXWidth,
+                                       double minRelativeHeight, double minAbsoluteHeight,
+                                       double minRatio, Range<Double> xRange,
+                                       int minDataPoints) {
+
+    List<Range<Double>> resolve(double[] x, double[] y) {
+      final int valueCount = x.length;
+      List<Range<Double>> resolved = new ArrayList<>();
+      final int lastScan = valueCount - 1;
+
+      final double chromatographicThresholdLevel = MathUtils.calcQuantile(y, chromThreshold);
+      double maxY = 0;
+      for (int i = 0; i < y.length; i++) {
+        if (y[i] < chromatographicThresholdLevel) {
+          y[i] = 0.0;
+        }
+        if (y[i] > maxY) {
+          maxY = y[i];
+        }
+      }
+      final double minHeight = Math.max(minAbsoluteHeight, minRelativeHeight * maxY);
+
+      startSearch:
+      for (int currentRegionStart = 0; currentRegionStart < lastScan - 2; currentRegionStart++) {
+        if (y[currentRegionStart] == 0.0 || y[currentRegionStart + 1] == 0.0) {
+          continue;
+        }
+        double currentRegionHeight = y[currentRegionStart];
+
+        endSearch:
+        for (int currentRegionEnd = currentRegionStart + 1; currentRegionEnd < valueCount;
+            currentRegionEnd++) {
+          currentRegionHeight = Math.max(currentRegionHeight, y[currentRegionEnd]);
+
+          if (currentRegionEnd == lastScan || y[currentRegionEnd + 1] == 0.0) {
+            currentRegionStart = tryToFinalizePeak(x, y, currentRegionEnd, currentRegionStart,
+                currentRegionHeight, minHeight, resolved);
+            continue startSearch;
+          }
+
+          if (x[currentRegionEnd] - x[currentRegionStart] >= searchXWidth) {
+            final Range<Double> checkRange = Range.closed(x[currentRegionEnd] - searchXWidth,
+                x[currentRegionEnd] + searchXWidth);
+            for (int i = currentRegionEnd - 1; i > 0; i--) {
+              if (!checkRange.contains(x[i])) {
+                break;
+              }
+              if (y[i] < y[currentRegionEnd]) {
+                continue endSearch;
+              }
+            }
+            for (int i = currentRegionEnd + 1; i < valueCount; i++) {
+              if (!checkRange.contains(x[i])) {
+                break;
+              }
+              if (y[i] < y[currentRegionEnd]) {
+                continue endSearch;
+              }
+            }
+            if (currentRegionHeight >= y[currentRegionEnd] * minRatio) {
+              currentRegionStart = tryToFinalizePeak(x, y, currentRegionEnd, currentRegionStart,
+                  currentRegionHeight, minHeight, resolved);
+              continue startSearch;
+            }
+          }
+        }
+      }
+      return resolved;
+    }
+
+    private int tryToFinalizePeak(double[] x, double[] y, int currentRegionEnd,
+        int currentRegionStart, double currentRegionHeight, double minHeight,
+        List<Range<Double>> resolved) {
+      final int numberOfDataPoints = currentRegionEnd - currentRegionStart + 1;
+      if (numberOfDataPoints >= minDataPoints && currentRegionHeight >= minHeight
+          && currentRegionHeight >= y[currentRegionStart] * minRatio
+          && currentRegionHeight >= y[currentRegionEnd] * minRatio && xRange.contains(
+          x[currentRegionEnd] - x[currentRegionStart])) {
+        int start = currentRegionStart;
+        if (y[currentRegionStart] != 0 && y[Math.max(currentRegionStart - 1, 0)] == 0.0) {
+          start = currentRegionStart - 1;
+        }
+        int end = currentRegionEnd;
+        if (y[currentRegionEnd] != 0 && y[Math.min(currentRegionEnd + 1, y.length - 1)] == 0.0) {
+          end = currentRegionEnd + 1;
+        }
+        resolved.add(Range.closed(x[start], x[end]));
+      }
+      return currentRegionEnd - 1;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.filter_isotopegrouper;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.modules.dataprocessing.filter_isotopegrouper.IsotopeGrouperEngine.IsotopeGroup;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class IsotopeGrouperEngineTest {
+
+  private static final double C13 = IsotopePatternCalculator.THIRTHEEN_C_DISTANCE;
+
+  private final RawDataFile file = new RawDataFileImpl("a", null, null);
+  private final ModularFeatureList flist = new ModularFeatureList("flist", null, file);
+  private final List<FeatureListRow> rows = new ArrayList<>();
+
+  private void addRow(double mz, float rt, float height) {
+    final ModularFeatureListRow row = new ModularFeatureListRow(flist, rows.size() + 1);
+    final ModularFeature feature = new ModularFeature(flist, file, FeatureStatus.DETECTED);
+    feature.setMZ(mz);
+    feature.setRT(rt);
+    feature.setHeight(height);
+    row.addFeature(file, feature, false);
+    rows.add(row);
+  }
+
+  private List<IsotopeGroup> group(boolean chooseMostIntense) {
+    final List<FeatureListRow> byHeight = new ArrayList<>(rows);
+    byHeight.sort(Comparator.comparing(FeatureListRow::getMaxHeight).reversed());
+    final int[] mzOrder = IntStream.range(0, byHeight.size()).boxed()
+        .sorted(Comparator.comparing(i -> byHeight.get(i).getAverageMZ()))
+        .mapToInt(Integer::intValue).toArray();
+    final IsotopeGrouperEngine engine = new IsotopeGrouperEngine(new MZTolerance(0.002, 5),
+        new RTTolerance(0.05f, RTTolerance.Unit.MINUTES), null, false, chooseMostIntense, 2);
+    final List<IsotopeGroup> groups = engine.groupRows(byHeight, mzOrder, () -> false);
+    assertEquals(rows.size(), engine.getProcessedRows());
+    // translate indices to row IDs
+    rows.clear();
+    rows.addAll(byHeight);
+    return groups;
+  }
+
+  private int id(int index) {
+    return rows.get(index).getID();
+  }
+
+  @Test
+  void groupsChargeStatesInIndependentBlocks() {
+    // charge 1 pattern at 2 min
+    addRow(300, 2f, 1000);
+    addRow(300 + C13, 2.01f, 300);
+    addRow(300 + 2 * C13, 2f, 50);
+    // charge 2 pattern at 8 min
+    addRow(500, 8f, 2000);
+    addRow(500 + C13 / 2, 8f, 900);
+    // same m/z as the isotope of the first pattern, but out of RT tolerance
+    addRow(300 + C13, 2.5f, 400);
+
+    final List<IsotopeGroup> groups = group(true);
+    assertEquals(3, groups.size());
+
+    final IsotopeGroup chargeTwo = groups.stream().filter(g -> g.charge() == 2).findFirst()
+        .orElseThrow();
+    assertEquals(4, id(chargeTwo.representative()));
+    assertArrayEquals(new int[]{4, 5},
+        Arrays.stream(chargeTwo.members()).map(this::id).toArray());
+
+    final IsotopeGroup chargeOne = groups.stream().filter(g -> g.charge() == 1).findFirst()
+        .orElseThrow();
+    assertEquals(1, id(chargeOne.representative()));
+    assertArrayEquals(new int[]{1, 2, 3},
+        Arrays.stream(chargeOne.members()).map(this::id).toArray());
+
+    final IsotopeGroup single = groups.stream().filter(IsotopeGroup::isSingle).findFirst()
+        .orElseThrow();
+    assertEquals(6, id(single.representative()));
+  }
+
+  @Test
+  void lowestMzRepresentative() {
+    addRow(400, 5f, 100);
+    addRow(400 + C13, 5f, 1000);
+    addRow(400 + 2 * C13, 5f, 200);
+
+    final List<IsotopeGroup> groups = group(false);
+    assertEquals(1, groups.size());
+    assertEquals(1, id(groups.getFirst().representative()));
+    assertEquals(3, groups.getFirst().members().length);
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.gapfill_peakfinder;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.scans.ScanUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class GapSchedulerTest {
+
+  private static final int NUM_SCANS = 100;
+  private static final int NUM_COMPOUNDS = 30;
+
+  @Test
+  void scheduledGapsFillSameFeaturesAsScanLoop() {
+    final Random random = new Random(7);
+    final double[] compoundMzs = new double[NUM_COMPOUNDS];
+    final double[] compoundRts = new double[NUM_COMPOUNDS];
+    for (int c = 0; c < NUM_COMPOUNDS; c++) {
+      compoundMzs[c] = 100 + random.nextDouble() * 100;
+      compoundRts[c] = random.nextDouble() * 10;
+    }
+    final List<Scan> scans = createScans(random, compoundMzs, compoundRts);
+
+    final List<Range<Double>> mzRanges = new ArrayList<>();
+    final List<Range<Float>> rtRanges = new ArrayList<>();
+    for (int c = 0; c < NUM_COMPOUNDS; c++) {
+      final float rt = (float) compoundRts[c];
+      // narrow and wide m/z ranges that overlap each other
+      mzRanges.add(Range.closed(compoundMzs[c] - 0.005, compoundMzs[c] + 0.005));
+      rtRanges.add(Range.closed(rt - 0.3f, rt + 0.3f));
+      mzRanges.add(Range.closed(compoundMzs[c] - 0.5, compoundMzs[c] + 0.5));
+      rtRanges.add(Range.closed(rt - 0.5f, rt + 0.2f));
+    }
+    for (int i = 0; i < 40; i++) {
+      final double mz = 100 + random.nextDouble() * 100;
+      mzRanges.add(Range.closed(mz - 0.02, mz + 0.02));
+      final float rt = random.nextFloat() * 10;
+      rtRanges.add(Range.closed(rt - 0.4f, rt + 0.4f));
+    }
+    // RT ranges before, after and partially outside of the scans
+    mzRanges.add(Range.closed(compoundMzs[0] - 0.01, compoundMzs[0] + 0.01));
+    rtRanges.add(Range.closed(-2f, -1f));
+    mzRanges.add(Range.closed(compoundMzs[1] - 0.01, compoundMzs[1] + 0.01));
+    rtRanges.add(Range.closed(15f, 16f));
+    mzRanges.add(Range.closed(compoundMzs[2] - 0.01, compoundMzs[2] + 0.01));
+    rtRanges.add(Range.closed(9.5f, 11f));
+    mzRanges.add(Range.closed(compoundMzs[3] - 0.01, compoundMzs[3] + 0.01));
+    rtRanges.add(Range.closed(-1f, 0.3f));
+
+    // old loop: every scan is offered to every gap and searched from the first data point
+    final List<RecordingGap> loopGaps = createGaps(mzRanges, rtRanges, true);
+    for (RecordingGap gap : loopGaps) {
+      for (Scan scan : scans) {
+        gap.offerNextScan(scan);
+      }
+    }
+
+    final List<RecordingGap> scheduledGaps = createGaps(mzRanges, rtRanges, false);
+    final GapScheduler<RecordingGap> scheduler = new GapScheduler<>(scheduledGaps);
+    for (Scan scan : scans) {
+      scheduler.offerNextScan(scan);
+    }
+    int filled = 0;
+    for (int i = 0; i < loopGaps.size(); i++) {
+      final RecordingGap loopGap = loopGaps.get(i);
+      final RecordingGap scheduledGap = scheduledGaps.get(i);
+      final boolean loopFilled = loopGap.noMoreOffers();
+      Assertions.assertEquals(loopFilled, scheduledGap.noMoreOffers(), "gap " + i);
+      if (loopFilled) {
+        filled++;
+        Assertions.assertEquals(loopGap.feature.size(), scheduledGap.feature.size(), "gap " + i);
+        for (int dp = 0; dp < loopGap.feature.size(); dp++) {
+          Assertions.assertArrayEquals(loopGap.feature.get(dp), scheduledGap.feature.get(dp));
+        }
+      }
+    }
+    Assertions.assertTrue(filled >= NUM_COMPOUNDS / 2, "compound gaps should be filled");
+    // gaps outside of the scan RT range are never filled
+    Assertions.assertNull(scheduledGaps.get(scheduledGaps.size() - 4).feature);
+    Assertions.assertNull(scheduledGaps.get(scheduledGaps.size() - 3).feature);
+  }
+
+  private static List<Scan> createScans(Random random, double[] compoundMzs,
+      double[] compoundRts) {
+    final RawDataFile file = new RawDataFileImpl("gaps", null, null);
+    final List<Scan> scans = new ArrayList<>();
+    for (int s = 0; s < NUM_SCANS; s++) {
+      final float rt = s * 0.1f;
+      // some scans without data points
+      final int numDp = s % 25 == 24 ? 0 : NUM_COMPOUNDS + 100;
+      final double[] mzs = new double[numDp];
+      final double[] intensities = new double[mzs.length];
+      for (int c = 0; c < Math.min(NUM_COMPOUNDS, numDp); c++) {
+        final double delta = (rt - compoundRts[c]) / 0.15;
+        mzs[c] = compoundMzs[c] + (random.nextDouble() - 0.5) * 0.002;
+        intensities[c] = 1E5 * Math.exp(-0.5 * delta * delta) + random.nextDouble() * 100;
+      }
+      for (int i = NUM_COMPOUNDS; i < mzs.length; i++) {
+        mzs[i] = 100 + random.nextDouble() * 100;
+        intensities[i] = random.nextDouble() * 1000;
+      }
+      sortByMz(mzs, intensities);
+      scans.add(new SimpleScan(file, s, 1, rt, null, mzs, intensities,
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", Range.closed(100d, 200d)));
+    }
+    return scans;
+  }
+
+  private static void sortByMz(double[] mzs, double[] intensities) {
+    final double[][] pairs = new double[mzs.length][];
+    for (int i = 0; i < mzs.length; i++) {
+      pairs[i] = new double[]{mzs[i], intensities[i]};
+    }
+    Arrays.sort(pairs, (a, b) -> Double.compare(a[0], b[0]));
+    for (int i = 0; i < mzs.length; i++) {
+      mzs[i] = pairs[i][0];
+      intensities[i] = pairs[i][1];
+    }
+  }
+
+  private static List<RecordingGap> createGaps(List<Range<Double>> mzRanges,
+      List<Range<Float>> rtRanges, boolean findBasePeakPerScan) {
+    final List<RecordingGap> gaps = new ArrayList<>();
+    for (int i = 0; i < mzRanges.size(); i++) {
+      gaps.add(new RecordingGap(mzRanges.get(i), rtRanges.get(i), findBasePeakPerScan));
+    }
+    return gaps;
+  }
+
+  /**
+   * Keeps the filled feature as m/z, intensity and RT of its data points instead of adding it to a
+   * row. Optionally searches the base peak like the gap filling before the scheduler.
+   */
+  private static class RecordingGap extends Gap {
+
+    private final boolean findBasePeakPerScan;
+    private List<double[]> feature;
+
+    RecordingGap(Range<Double> mzRange, Range<Float> rtRange, boolean findBasePeakPerScan) {
+      super(null, null, mzRange, rtRange, 0.2);
+      this.findBasePeakPerScan = findBasePeakPerScan;
+    }
+
+    @Override
+    public int offerNextScan(@NotNull Scan scan, int fromIndex) {
+      if (!findBasePeakPerScan) {
+        return super.offerNextScan(scan, fromIndex);
+      }
+      if (rtRange.contains(scan.getRetentionTime())) {
+        offerBasePeak(scan, ScanUtils.findBasePeak(scan, mzRange));
+      }
+      return fromIndex;
+    }
+
+    @Override
+    protected boolean addFeatureToRow() {
+      feature = bestPeakDataPoints.stream()
+          .map(dp -> new double[]{dp.getMZ(), dp.getIntensity(), dp.getRT()}).toList();
+      return true;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.CachedFeatureDataAccess;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.correlation.CorrelationData;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FeatureCorrelationUtilTest {
+
+  private final List<Scan> scans = new ArrayList<>();
+  private ModularFeatureList flist;
+  private RawDataFileImpl raw;
+
+  @BeforeEach
+  void setUp() {
+    raw = new RawDataFileImpl("a", null, null);
+    for (int i = 0; i < 30; i++) {
+      final SimpleScan scan = new SimpleScan(raw, i, 1, i * 0.1f, null, new double[]{200d},
+          new double[]{1d}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(0d, 2000d));
+      raw.addScan(scan);
+      scans.add(scan);
+    }
+    flist = new ModularFeatureList("flist", null, raw);
+  }
+
+  /**
+   * Gaussian shape over the scans from first (inclusive) to last (exclusive)
+   */
+  private ModularFeature addFeature(int rowId, int first, int last, double apex, double height) {
+    final List<Scan> featureScans = scans.subList(first, last);
+    final double[] mzs = new double[featureScans.size()];
+    final double[] intensities = new double[featureScans.size()];
+    for (int i = 0; i < intensities.length; i++) {
+      final double x = (first + i - apex) / 3d;
+      mzs[i] = 200d + rowId;
+      intensities[i] = height * Math.exp(-x * x) + (i % 3) * height * 0.01;
+    }
+    final ModularFeature feature = new ModularFeature(flist, raw,
+        new SimpleIonTimeSeries(null, mzs, intensities, featureScans), FeatureStatus.DETECTED);
+    final ModularFeatureListRow row = new ModularFeatureListRow(flist, rowId);
+    row.addFeature(raw, feature, false);
+    flist.addRow(row);
+    return feature;
+  }
+
+  @Test
+  void preloadedShapesCorrelateLikeFeatureData() {
+    final List<ModularFeature> features = List.of(addFeature(1, 0, 30, 15, 1E5),
+        addFeature(2, 5, 25, 14.5, 3E4), addFeature(3, 8, 28, 16, 5E3),
+        addFeature(4, 2, 20, 11, 8E4));
+    final CachedFeatureDataAccess data = new CachedFeatureDataAccess(
+        flist.getRows().toArray(new FeatureListRow[0]), false, true, null);
+
+    for (Feature a : features) {
+      for (Feature b : features) {
+        if (a == b) {
+          continue;
+        }
+        final CorrelationData direct = FeatureCorrelationUtil.corrFeatureShape(null, a, b, true, 5,
+            2, 0);
+        final CorrelationData preloaded = FeatureCorrelationUtil.corrFeatureShape(data, a, b, true,
+            5, 2, 0);
+        assertNotNull(direct);
+        assertNotNull(preloaded);
+        assertEquals(direct.getDPCount(), preloaded.getDPCount());
+        assertEquals(direct.getPearsonR(), preloaded.getPearsonR(), 1E-12);
+        assertArrayEquals(direct.getData(), preloaded.getData());
+      }
+    }
+  }
+
+  @Test
+  void noiseLevelLimitsCorrelatedDataPoints() {
+    final ModularFeature a = addFeature(1, 0, 30, 15, 1E5);
+    final ModularFeature b = addFeature(2, 0, 30, 15, 5E4);
+    final CachedFeatureDataAccess data = new CachedFeatureDataAccess(
+        flist.getRows().toArray(new FeatureListRow[0]), false, true, null);
+
+    final CorrelationData all = FeatureCorrelationUtil.corrFeatureShape(data, a, b, true, 5, 2, 0);
+    final CorrelationData aboveNoise = FeatureCorrelationUtil.corrFeatureShape(data, a, b, true, 5,
+        2, 1E4);
+    assertNotNull(all);
+    assertNotNull(aboveNoise);
+    assertEquals(30, all.getDPCount());
+    assertTrue(aboveNoise.getDPCount() < all.getDPCount());
+    for (double[] values : aboveNoise.getData()) {
+      assertTrue(values[0] >= 1E4 && values[1] >= 1E4);
+    }
+  }
+
+  @Test
+  void intensityValuesAreCopiedOnce() {
+    final ModularFeature feature = addFeature(1, 3, 21, 10, 1E4);
+    final CachedFeatureDataAccess data = new CachedFeatureDataAccess(
+        flist.getRows().toArray(new FeatureListRow[0]), false, true, null);
+
+    final double[] values = data.getIntensityValues(feature);
+    assertSame(values, data.getIntensityValues(feature));
+    assertArrayEquals(feature.getFeatureData()
+        .getIntensityValues(new double[feature.getNumberOfDataPoints()]), values);
+  }
+
+  @Test
+  void indexOfMaxOfSegmentEqualsArray() {
+    final double[] values = {0, 3, 7, 7.5, 2, 7.5, 1};
+    assertEquals(FeatureCorrelationUtil.indexOfMax(values),
+        FeatureCorrelationUtil.indexOfMax(MemorySegment.ofArray(values)));
+    assertEquals(3, FeatureCorrelationUtil.indexOfMax(MemorySegment.ofArray(values)));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.group_spectral_networking.modified_cosine;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.DataPointSorter;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SignalPairIndexTest {
+
+  /**
+   * All pairs that the exhaustive modified cosine search matches must be candidates
+   */
+  @Test
+  void testCandidatesContainAllMatches() {
+    final Random random = new Random(1);
+    final MZTolerance tolerance = new MZTolerance(0.005, 10);
+    final int minMatch = 4;
+    final int numRows = 200;
+
+    final double[] fragments = random.doubles(60, 50, 550).toArray();
+    final double[] precursorMzs = new double[numRows];
+    for (int r = 0; r < numRows; r++) {
+      precursorMzs[r] = 100 + r * 2 + random.nextDouble();
+    }
+    final List<List<FilteredRowData>> rowSpectra = new ArrayList<>();
+    for (int r = 0; r < numRows; r++) {
+      final DataPoint[] dps = new DataPoint[3 + random.nextInt(15)];
+      for (int i = 0; i < dps.length; i++) {
+        final double noise = (random.nextDouble() - 0.5) * 0.008;
+        final double mz = switch (random.nextInt(3)) {
+          // shared fragments
+          case 0 -> fragments[random.nextInt(fragments.length)] + noise;
+          // shared neutral losses
+          case 1 -> precursorMzs[r] - fragments[random.nextInt(20)] / 10 + noise;
+          default -> 50 + random.nextDouble() * precursorMzs[r];
+        };
+        dps[i] = new SimpleDataPoint(mz, random.nextDouble());
+      }
+      Arrays.sort(dps, DataPointSorter.DEFAULT_INTENSITY);
+      rowSpectra.add(List.of(new FilteredRowData(null, dps)));
+    }
+
+    final SignalPairIndex index = new SignalPairIndex(rowSpectra, precursorMzs, tolerance,
+        minMatch);
+    final int[] counts = new int[index.getNumberOfSpectra()];
+    final IntArrayList candidates = new IntArrayList();
+    int matches = 0;
+    for (int a = 0; a < numRows; a++) {
+      index.findCandidates(a, a + 1, numRows, counts, candidates);
+      for (int b = a + 1; b < numRows; b++) {
+        final var similarity = ModifiedCosineSpectralNetworkingTask.createMS2SimModificationAware(
+            tolerance, rowSpectra.get(a).getFirst().data(), rowSpectra.get(b).getFirst().data(),
+            minMatch, ModifiedCosineSpectralNetworkingTask.SIZE_OVERLAP, precursorMzs[a],
+            precursorMzs[b]);
+        if (similarity != null) {
+          matches++;
+          Assertions.assertTrue(candidates.contains(b), "Missed pair %d, %d".formatted(a, b));
+        }
+      }
+    }
+    Assertions.assertTrue(matches > 0);
+    Assertions.assertTrue(Arrays.stream(counts).allMatch(c -> c == 0));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.identities.iontype.IonModification;
+import io.github.mzmine.datamodel.identities.iontype.IonType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IonTypePairIndexTest {
+
+  private final MZTolerance tolerance = new MZTolerance(0.002, 5);
+  private final List<IonType> types = List.of(new IonType(IonModification.H),
+      new IonType(IonModification.NA), new IonType(IonModification.NH4),
+      new IonType(2, IonModification.H), new IonType(2, IonModification.NA),
+      new IonType(IonModification.H, IonModification.H2O),
+      new IonType(IonModification.H2plus), new IonType(IonModification.M_PLUS));
+
+  private List<Integer> bruteForce(double mz1, int z1, double mz2, int z2) {
+    final List<Integer> pairs = new ArrayList<>();
+    for (int a = 0; a < types.size(); a++) {
+      for (int b = 0; b < types.size(); b++) {
+        final IonType typeA = types.get(a);
+        final IonType typeB = types.get(b);
+        if (a != b && !typeA.equals(typeB) && (z1 == 0 || typeA.getAbsCharge() == z1) && (z2 == 0
+            || typeB.getAbsCharge() == z2) && tolerance.checkWithinTolerance(typeA.getMass(mz1),
+            typeB.getMass(mz2))) {
+          pairs.add(a * types.size() + b);
+        }
+      }
+    }
+    return pairs;
+  }
+
+  private List<Integer> indexed(IonTypePairIndex index, double mz1, int z1, double mz2, int z2) {
+    final IntArrayList candidates = new IntArrayList();
+    index.findCandidates(tolerance, mz1, mz1, z1, mz2, mz2, z2, candidates);
+    final List<Integer> pairs = new ArrayList<>();
+    for (int pair : candidates) {
+      final IonType typeA = types.get(index.getFirst(pair));
+      final IonType typeB = types.get(index.getSecond(pair));
+      if (tolerance.checkWithinTolerance(typeA.getMass(mz1), typeB.getMass(mz2))) {
+        pairs.add(pair);
+      }
+    }
+    return pairs;
+  }
+
+  @Test
+  void findsSameCombinationsAsBruteForce() {
+    final IonTypePairIndex index = new IonTypePairIndex(types, (_, _) -> true);
+    final Random random = new Random(42);
+    int matches = 0;
+    for (int i = 0; i < 5000; i++) {
+      final double mass = 100 + random.nextDouble() * 1200;
+      final IonType typeA = types.get(random.nextInt(types.size()));
+      final IonType typeB = types.get(random.nextInt(types.size()));
+      final double mz1 = typeA.getMZ(mass) + random.nextGaussian() * 0.001;
+      final double mz2 = random.nextInt(4) == 0 ? 100 + random.nextDouble() * 1200
+          : typeB.getMZ(mass);
+      final int z1 = random.nextInt(3);
+      final int z2 = random.nextInt(3);
+
+      final List<Integer> expected = bruteForce(mz1, z1, mz2, z2);
+      matches += expected.size();
+      assertEquals(expected, indexed(index, mz1, z1, mz2, z2));
+    }
+    // make sure that the test data contains matches
+    assertTrue(matches > 1000);
+  }
+
+  @Test
+  void multimerAndAdduct() {
+    final IonTypePairIndex index = new IonTypePairIndex(types, (_, _) -> true);
+    final double mass = 500.2;
+    // [M+Na]+ and [2M+H]+
+    final List<Integer> pairs = indexed(index, types.get(1).getMZ(mass), 1,
+        types.get(3).getMZ(mass), 1);
+    assertTrue(pairs.contains(types.size() + 3));
+  }
+}
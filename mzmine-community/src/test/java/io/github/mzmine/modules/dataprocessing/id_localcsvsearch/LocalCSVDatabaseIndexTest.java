@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.features.compoundannotations.CompoundDBAnnotation;
+import io.github.mzmine.datamodel.features.compoundannotations.SimpleCompoundDBAnnotation;
+import io.github.mzmine.datamodel.features.types.numbers.PrecursorMZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.util.collections.IndexRange;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LocalCSVDatabaseIndexTest {
+
+  private static final int LINES = 10_000;
+
+  private static List<String[]> createLines() {
+    final List<String[]> lines = new ArrayList<>();
+    lines.add(new String[]{"mz", "rt"});
+    for (int i = 1; i <= LINES; i++) {
+      lines.add(new String[]{String.valueOf(i), String.valueOf(i)});
+    }
+    return lines;
+  }
+
+  private static SimpleCompoundDBAnnotation annotation(Double mz, Float rt) {
+    final SimpleCompoundDBAnnotation annotation = new SimpleCompoundDBAnnotation();
+    annotation.put(PrecursorMZType.class, mz);
+    annotation.put(RTType.class, rt);
+    return annotation;
+  }
+
+  /**
+   * Two ions per line in descending m/z order, one annotation without m/z and a broken line
+   */
+  private static List<CompoundDBAnnotation> annotationsOfLine(int line) {
+    if (line == 77) {
+      throw new IllegalArgumentException("broken line");
+    }
+    final double mz = 100_000d - line * 10;
+    return List.of(annotation(mz, line % 2 == 0 ? (float) line : null), annotation(null, 1f),
+        annotation(mz + 1.007, null));
+  }
+
+  @Test
+  void ionsAreSortedByMz() {
+    final LocalCSVDatabaseIndex index = LocalCSVDatabaseIndex.compile(createLines(),
+        LocalCSVDatabaseIndexTest::annotationsOfLine, () -> false);
+
+    // the broken line and annotations without m/z are skipped
+    assertEquals(2 * (LINES - 1), index.size());
+    for (int ion = 0; ion < index.size(); ion++) {
+      if (ion > 0) {
+        assertTrue(index.getMz(ion - 1) <= index.getMz(ion));
+      }
+      final int line = index.getLineIndex(ion);
+      final CompoundDBAnnotation annotation = annotationsOfLine(line).get(
+          index.getAnnotationIndex(ion));
+      assertEquals(annotation.getPrecursorMZ().doubleValue(), index.getMz(ion));
+      final Float rt = annotation.getRT();
+      assertEquals(rt == null ? Float.NaN : rt, index.getRT(ion));
+      assertTrue(Float.isNaN(index.getMobility(ion)));
+    }
+  }
+
+  @Test
+  void indexRange() {
+    final LocalCSVDatabaseIndex index = LocalCSVDatabaseIndex.compile(createLines(),
+        LocalCSVDatabaseIndexTest::annotationsOfLine, () -> false);
+
+    assertEquals(index.size(), index.indexRange(0, Double.MAX_VALUE).size());
+    assertTrue(index.indexRange(Double.MAX_VALUE - 1, Double.MAX_VALUE).isEmpty());
+    final double mz = index.getMz(index.size() / 3);
+    for (double[] bounds : new double[][]{{mz, mz}, {mz - 0.5, mz + 0.5}, {mz + 0.1, mz + 3}}) {
+      final IndexRange range = index.indexRange(bounds[0], bounds[1]);
+      for (int ion = 0; ion < index.size(); ion++) {
+        final boolean inRange = index.getMz(ion) >= bounds[0] && index.getMz(ion) <= bounds[1];
+        assertEquals(inRange, ion >= range.min() && ion < range.maxExclusive());
+      }
+    }
+  }
+
+  @Test
+  void cachedIndexIsReusedForSameKey() {
+    final File file = new File("database.csv");
+    final LocalCSVDatabaseIndex.Key key = LocalCSVDatabaseIndex.Key.of(file, ",", "mz,rt", "",
+        "[M+H]+", "0.005");
+    final LocalCSVDatabaseIndex index = LocalCSVDatabaseIndex.compile(createLines(),
+        LocalCSVDatabaseIndexTest::annotationsOfLine, () -> false);
+    LocalCSVDatabaseIndex.cache(key, index);
+
+    assertSame(index, LocalCSVDatabaseIndex.getCached(
+        LocalCSVDatabaseIndex.Key.of(file, ",", "mz,rt", "", "[M+H]+", "0.005")));
+    // other parameters or a changed file compile the index again
+    assertNull(LocalCSVDatabaseIndex.getCached(
+        LocalCSVDatabaseIndex.Key.of(file, ",", "mz,rt", "", "[M-H]-", "0.005")));
+    assertNull(LocalCSVDatabaseIndex.getCached(
+        new LocalCSVDatabaseIndex.Key(key.path(), key.lastModified() + 1, key.length(), ",",
+            "mz,rt", "", "[M+H]+", "0.005")));
+  }
+
+  @Test
+  void canceledCompilationSkipsChunks() {
+    final LocalCSVDatabaseIndex index = LocalCSVDatabaseIndex.compile(createLines(),
+        LocalCSVDatabaseIndexTest::annotationsOfLine, () -> true);
+    assertEquals(0, index.size());
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.impl.builders.SimpleBuildingScan;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
+import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarity;
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.SpectralDBEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StreamingSpectralLibrarySearchTest {
+
+  @TempDir
+  Path dir;
+
+  private static final double[] MZS = {50.1, 80.2, 120.3, 150.4, 200.5};
+  private static final double[] INTENSITIES = {100, 50, 400, 200, 80};
+
+  private static SpectralLibraryEntry entry(String name, double precursorMz, double[] mzs) {
+    return new SpectralDBEntry(null, mzs, INTENSITIES,
+        Map.of(DBEntryField.NAME, name, DBEntryField.PRECURSOR_MZ, precursorMz));
+  }
+
+  private static SimpleBuildingScan scan(int scanNumber, int msLevel, double precursorMz) {
+    return new SimpleBuildingScan(scanNumber, msLevel, PolarityType.POSITIVE,
+        MassSpectrumType.CENTROIDED, 1f, precursorMz, 1);
+  }
+
+  private static StreamingSpectralLibrarySearch createSearch(int queueCapacity, int threads) {
+    return createSearch(queueCapacity, threads, new WeightedCosineSpectralSimilarity());
+  }
+
+  private static StreamingSpectralLibrarySearch createSearch(int queueCapacity, int threads,
+      SpectralSimilarityFunction simFunction) {
+    return new StreamingSpectralLibrarySearch(new MZTolerance(0.01, 0),
+        new MZTolerance(0.01, 0), true, 3, simFunction, queueCapacity, threads);
+  }
+
+  /**
+   * Throws the error for queries with less data points than the library
+   */
+  private static SpectralSimilarityFunction failOnShortQueries(RuntimeException exception,
+      Error error) {
+    return new WeightedCosineSpectralSimilarity() {
+      @Override
+      public SpectralSimilarity getSimilarity(MZTolerance mzTol, int minMatch,
+          DataPoint[] library, DataPoint[] query) {
+        if (query.length < library.length) {
+          if (exception != null) {
+            throw exception;
+          }
+          throw error;
+        }
+        return super.getSimilarity(mzTol, minMatch, library, query);
+      }
+    };
+  }
+
+  @Test
+  void matchesFragmentScansByPrecursor() {
+    final List<StreamingSpectralMatch> results = new ArrayList<>();
+    final List<SpectralLibraryEntry> entries = List.of(entry("a", 300d, MZS),
+        entry("other precursor", 300.5, MZS), entry("c", 500d, MZS));
+
+    final StreamingSpectralLibrarySearch search = createSearch(16, 2);
+    assertFalse(search.offer(scan(1, 2, 300d), new SimpleSpectralArrays(MZS, INTENSITIES)),
+        "scans before start are not searched");
+    search.start(entries, results::addAll);
+
+    assertFalse(search.offer(scan(2, 1, 0d), new SimpleSpectralArrays(MZS, INTENSITIES)));
+    assertTrue(search.offer(scan(3, 2, 300.001), new SimpleSpectralArrays(MZS, INTENSITIES)));
+    search.close();
+
+    assertEquals(1, search.getSearchedScans());
+    assertEquals(1, results.size());
+    assertEquals("a", results.getFirst().entry().getOrElse(DBEntryField.NAME, null));
+    assertEquals(3, results.getFirst().scanNumber());
+    assertEquals(1d, results.getFirst().similarity().getScore(), 1e-6);
+  }
+
+  @Test
+  void dropsScansInsteadOfBlockingWhenQueueIsFull() throws InterruptedException {
+    final CountDownLatch inSink = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final StreamingSpectralLibrarySearch search = createSearch(1, 1);
+    search.start(List.of(entry("a", 300d, MZS)), _ -> {
+      inSink.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    final SimpleSpectralArrays spectrum = new SimpleSpectralArrays(MZS, INTENSITIES);
+    assertTrue(search.offer(scan(1, 2, 300d), spectrum));
+    // the only worker is blocked by the sink
+    assertTrue(inSink.await(10, TimeUnit.SECONDS));
+    assertTrue(search.offer(scan(2, 2, 300d), spectrum));
+    assertFalse(search.offer(scan(3, 2, 300d), spectrum));
+
+    release.countDown();
+    search.close();
+    assertEquals(2, search.getSearchedScans());
+    assertEquals(1, search.getDroppedScans());
+    assertEquals(2, search.getMatches());
+  }
+
+  @Test
+  void skipsScansWithErrorsAndContinues() {
+    final List<StreamingSpectralMatch> results = new ArrayList<>();
+    final StreamingSpectralLibrarySearch search = createSearch(16, 1,
+        failOnShortQueries(new IllegalStateException("scan error"), null));
+    search.start(List.of(entry("a", 300d, MZS)), results::addAll);
+
+    assertTrue(search.offer(scan(1, 2, 300d),
+        new SimpleSpectralArrays(Arrays.copyOf(MZS, 4), Arrays.copyOf(INTENSITIES, 4))));
+    assertTrue(search.offer(scan(2, 2, 300d), new SimpleSpectralArrays(MZS, INTENSITIES)));
+    search.close();
+
+    assertEquals(1, search.getFailedScans());
+    assertEquals(1, search.getSearchedScans());
+    assertEquals(1, results.size());
+    assertEquals(2, results.getFirst().scanNumber());
+    assertNull(search.getWorkerError());
+  }
+
+  @Test
+  void reportsStoppedWorkers() {
+    final StreamingSpectralLibrarySearch search = createSearch(16, 1,
+        failOnShortQueries(null, new AssertionError("worker error")));
+    search.start(List.of(entry("a", 300d, MZS)), _ -> {
+    });
+
+    assertTrue(search.offer(scan(1, 2, 300d),
+        new SimpleSpectralArrays(Arrays.copyOf(MZS, 4), Arrays.copyOf(INTENSITIES, 4))));
+    search.close();
+
+    assertNotNull(search.getWorkerError());
+    assertEquals(0, search.getSearchedScans());
+  }
+
+  @Test
+  void csvSinkAppendsToExistingFile() throws IOException {
+    final File file = dir.resolve("matches.csv").toFile();
+    final StreamingSpectralMatch match = new StreamingSpectralMatch("raw", 3, 1f, 300d,
+        PolarityType.POSITIVE, entry("a", 300d, MZS),
+        new SpectralSimilarity("cosine", 0.9, 4, 0.8));
+
+    for (int run = 0; run < 2; run++) {
+      try (CsvStreamingMatchSink sink = new CsvStreamingMatchSink(file)) {
+        sink.accept(List.of(match));
+      }
+    }
+
+    final List<String> lines = Files.readAllLines(file.toPath());
+    assertEquals(3, lines.size());
+    assertTrue(lines.getFirst().startsWith("raw_file,scan_number"));
+    assertEquals(lines.get(1), lines.get(2));
+    assertTrue(lines.get(1).startsWith("raw,3,"));
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_sql;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SQLFeatureListWriterTest {
+
+  @TempDir
+  Path dir;
+
+  private List<FeatureListRow> rows;
+  private RawDataFile fileA;
+
+  @BeforeEach
+  void setUp() {
+    fileA = new RawDataFileImpl("a", null, null);
+    final RawDataFile fileB = new RawDataFileImpl("b", null, null);
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, fileA, fileB);
+    for (int id = 1; id <= 5; id++) {
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+      for (RawDataFile raw : List.of(fileA, fileB)) {
+        final ModularFeature feature = new ModularFeature(flist, raw, FeatureStatus.DETECTED);
+        feature.setMZ(100d + id);
+        feature.setRT(1f);
+        feature.setHeight(id * 10f);
+        feature.setArea(id * 10f);
+        row.addFeature(raw, feature, false);
+      }
+      flist.addRow(row);
+    }
+    rows = List.copyOf(flist.getRows());
+  }
+
+  private static SQLColumnSettings columns(SQLRowObject... columns) {
+    final SQLColumnSettings settings = new SQLColumnSettings();
+    settings.getTableData().addAll(columns);
+    return settings;
+  }
+
+  private Connection connect(String createTable) throws SQLException {
+    final Connection connection = DriverManager.getConnection(
+        "jdbc:sqlite:" + dir.resolve("export.db"));
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(createTable);
+    }
+    return connection;
+  }
+
+  @Test
+  void batchedInsertWritesOneLinePerFeature() throws SQLException {
+    final SQLFeatureListWriter writer = new SQLFeatureListWriter("features",
+        columns(new SQLRowObject("id", SQLExportDataType.ID, "INT"),
+            new SQLRowObject("file", SQLExportDataType.RAWFILE, "STRING"),
+            new SQLRowObject("height", SQLExportDataType.FEATUREHEIGHT, "DOUBLE"),
+            new SQLRowObject("source", SQLExportDataType.CONSTANT, "test")), 3);
+
+    final AtomicInteger finishedRows = new AtomicInteger();
+    try (Connection connection = connect(
+        "CREATE TABLE features (id INTEGER, file TEXT, height REAL, source TEXT)")) {
+      assertFalse(writer.supportsCopy(connection));
+
+      final long lines = writer.insertRows(connection, rows, null, () -> false,
+          finishedRows::incrementAndGet);
+      assertEquals(10, lines);
+      assertEquals(5, finishedRows.get());
+
+      try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(
+          "SELECT count(*), sum(height), count(DISTINCT file) FROM features WHERE source = 'test'")) {
+        assertTrue(result.next());
+        assertEquals(10, result.getInt(1));
+        assertEquals(300d, result.getDouble(2), 1e-6);
+        assertEquals(2, result.getInt(3));
+      }
+    }
+  }
+
+  @Test
+  void rowColumnsWriteOneLinePerRow() throws SQLException {
+    final SQLFeatureListWriter writer = new SQLFeatureListWriter("flist_rows",
+        columns(new SQLRowObject("id", SQLExportDataType.ID, "INT"),
+            new SQLRowObject("mz", SQLExportDataType.MZ, "DOUBLE")), 1000);
+
+    try (Connection connection = connect("CREATE TABLE flist_rows (id INTEGER, mz REAL)")) {
+      assertEquals(5, writer.insertRows(connection, rows, null, () -> false, () -> {
+      }));
+    }
+  }
+
+  @Test
+  void emptyExportWritesRawFileLine() throws SQLException {
+    final SQLFeatureListWriter writer = new SQLFeatureListWriter("flist_rows",
+        columns(new SQLRowObject("id", SQLExportDataType.ID, "INT"),
+            new SQLRowObject("file", SQLExportDataType.RAWFILE, "STRING")), 1000);
+
+    try (Connection connection = connect("CREATE TABLE flist_rows (id INTEGER, file TEXT)")) {
+      assertEquals(1, writer.insertRows(connection, List.of(), fileA, () -> false, () -> {
+      }));
+      try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(
+          "SELECT file, id FROM flist_rows")) {
+        assertTrue(result.next());
+        assertEquals("a", result.getString(1));
+        result.getInt(2);
+        assertTrue(result.wasNull());
+      }
+    }
+  }
+
+  @Test
+  void stagingTableIsMovedIntoTarget() throws SQLException {
+    final SQLFeatureListWriter writer = new SQLFeatureListWriter("features",
+        columns(new SQLRowObject("id", SQLExportDataType.ID, "INT"),
+            new SQLRowObject("file", SQLExportDataType.RAWFILE, "STRING")), 2);
+
+    try (Connection connection = connect("CREATE TABLE features (id INTEGER, file TEXT)");
+        Statement statement = connection.createStatement()) {
+      statement.execute(writer.getCreateStagingStatement("features_staging"));
+      final SQLFeatureListWriter staged = writer.forTable("features_staging");
+      for (List<FeatureListRow> partition : SQLFeatureListWriter.partition(rows, 2)) {
+        staged.insertRows(connection, partition, null, () -> false, () -> {
+        });
+      }
+      connection.setAutoCommit(true);
+      try (ResultSet result = statement.executeQuery("SELECT count(*) FROM features")) {
+        assertTrue(result.next());
+        assertEquals(0, result.getInt(1));
+      }
+
+      assertEquals(10, statement.executeUpdate(writer.getMoveStagingStatement("features_staging")));
+      try (ResultSet result = statement.executeQuery(
+          "SELECT count(*), count(DISTINCT id) FROM features")) {
+        assertTrue(result.next());
+        assertEquals(10, result.getInt(1));
+        assertEquals(5, result.getInt(2));
+      }
+    }
+  }
+
+  @Test
+  void canceledInsertIsRolledBack() throws SQLException {
+    final SQLFeatureListWriter writer = new SQLFeatureListWriter("features",
+        columns(new SQLRowObject("id", SQLExportDataType.ID, "INT")), 1);
+
+    final AtomicInteger finishedRows = new AtomicInteger();
+    try (Connection connection = connect("CREATE TABLE features (id INTEGER)")) {
+      writer.insertRows(connection, rows, null, () -> finishedRows.get() >= 2,
+          finishedRows::incrementAndGet);
+      connection.setAutoCommit(true);
+      try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(
+          "SELECT count(*) FROM features")) {
+        assertTrue(result.next());
+        assertEquals(0, result.getInt(1));
+      }
+    }
+  }
+
+  @Test
+  void partitionCoversAllRows() {
+    final List<List<FeatureListRow>> partitions = SQLFeatureListWriter.partition(rows, 3);
+    assertEquals(3, partitions.size());
+    assertEquals(rows, partitions.stream().flatMap(List::stream).toList());
+    assertEquals(1, SQLFeatureListWriter.partition(List.of(), 4).size());
+  }
+}
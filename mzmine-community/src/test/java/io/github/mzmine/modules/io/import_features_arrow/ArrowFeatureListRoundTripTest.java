@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_features_arrow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.modules.io.export_features_arrow.ArrowExportModule;
+import io.github.mzmine.modules.io.export_features_arrow.ArrowExportParameters;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArrowFeatureListRoundTripTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void exportedRowsAndFeaturesAreImported() throws IOException {
+    final RawDataFile fileA = new RawDataFileImpl("a", null, null);
+    final RawDataFile fileB = new RawDataFileImpl("b", null, null);
+    final MZmineProject project = new MZmineProjectImpl();
+    project.addFile(fileA);
+    project.addFile(fileB);
+
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, fileA, fileB);
+    for (int id = 1; id <= 20; id++) {
+      final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+      for (RawDataFile raw : List.of(fileA, fileB)) {
+        // leave gaps to check that missing features stay missing
+        if (raw == fileB && id % 3 == 0) {
+          continue;
+        }
+        final ModularFeature feature = new ModularFeature(flist, raw, FeatureStatus.DETECTED);
+        feature.setMZ(100.0123 + id);
+        feature.setRT(id * 0.25f);
+        feature.setHeight(id * 10f);
+        feature.setArea(id * 100f + (raw == fileA ? 1 : 2));
+        row.addFeature(raw, feature, false);
+      }
+      flist.addRow(row);
+    }
+
+    final ParameterSet exportParams = new ArrowExportParameters().cloneParameterSet();
+    exportParams.setParameter(ArrowExportParameters.file, dir.resolve("export.arrow").toFile());
+    exportParams.setParameter(ArrowExportParameters.exportFeatureData, false);
+    final Task export = new ArrowExportModule().createTask(project, exportParams, Instant.now(),
+        null, flist);
+    export.run();
+    assertEquals(TaskStatus.FINISHED, export.getStatus(), export.getErrorMessage());
+
+    final File rowsFile;
+    try (Stream<Path> files = Files.list(dir)) {
+      rowsFile = files.filter(f -> f.getFileName().toString().endsWith("_rows.arrow")).findFirst()
+          .orElseThrow().toFile();
+    }
+
+    final ParameterSet importParams = new ArrowImportParameters().cloneParameterSet();
+    importParams.setParameter(ArrowImportParameters.files, new File[]{rowsFile});
+    final ArrowImportTask importTask = new ArrowImportTask(project, importParams, null,
+        Instant.now());
+    importTask.run();
+    assertEquals(TaskStatus.FINISHED, importTask.getStatus(), importTask.getErrorMessage());
+
+    final FeatureList imported = project.getCurrentFeatureLists().stream()
+        .filter(f -> f != flist).findFirst().orElseThrow();
+    assertEquals(flist.getNumberOfRows(), imported.getNumberOfRows());
+    assertEquals(flist.getRawDataFiles(), imported.getRawDataFiles());
+
+    for (FeatureListRow expected : flist.getRows()) {
+      final FeatureListRow actual = imported.findRowByID(expected.getID());
+      assertNotNull(actual, "Missing row " + expected.getID());
+      assertEquals(expected.getAverageMZ(), actual.getAverageMZ(), 1e-8);
+      assertEquals(expected.getAverageRT(), actual.getAverageRT(), 1e-5f);
+      assertEquals(expected.getNumberOfFeatures(), actual.getNumberOfFeatures());
+
+      for (RawDataFile raw : flist.getRawDataFiles()) {
+        final Feature expectedFeature = expected.getFeature(raw);
+        final Feature actualFeature = actual.getFeature(raw);
+        if (expectedFeature == null) {
+          assertEquals(null, actualFeature);
+          continue;
+        }
+        assertNotNull(actualFeature);
+        assertEquals(expectedFeature.getMZ(), actualFeature.getMZ(), 1e-8);
+        assertEquals(expectedFeature.getRT(), actualFeature.getRT(), 1e-5f);
+        assertEquals(expectedFeature.getHeight(), actualFeature.getHeight(), 1e-5f);
+        assertEquals(expectedFeature.getArea(), actualFeature.getArea(), 1e-5f);
+        assertEquals(expectedFeature.getFeatureStatus(), actualFeature.getFeatureStatus());
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.mzmine.modules.io.import_rawdata_imzml.ImzMLBinaryReader.ArrayPosition;
+import io.github.mzmine.modules.io.import_rawdata_imzml.ImzMLBinaryReader.NumberType;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImzMLBinaryReaderTest {
+
+  /**
+   * The 16 byte UUID at the start of each .ibd file
+   */
+  private static final int UUID_BYTES = 16;
+
+  @TempDir
+  Path dir;
+
+  private File writeIbd(ByteBuffer data) throws IOException {
+    final File file = dir.resolve("test.ibd").toFile();
+    final byte[] bytes = new byte[data.flip().remaining()];
+    data.get(bytes);
+    Files.write(file.toPath(), bytes);
+    return file;
+  }
+
+  private static ByteBuffer allocate(int bytes) {
+    final ByteBuffer buffer = ByteBuffer.allocate(UUID_BYTES + bytes)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.position(UUID_BYTES);
+    return buffer;
+  }
+
+  @Test
+  void binaryFileReplacesOnlyExtension() {
+    final File imzml = new File(dir.toFile(), "sample.imzML.imzML");
+    assertEquals(new File(dir.toFile(), "sample.imzML.ibd"),
+        ImzMLBinaryReader.getBinaryFile(imzml));
+  }
+
+  @Test
+  void readContinuous() throws IOException {
+    // continuous mode: one float64 m/z array shared by all pixels, float32 intensities
+    final double[] mzs = {100.1, 200.2, 300.3};
+    final float[][] intensities = {{1f, 2f, 3f}, {4f, 5f, 6f}};
+    final ByteBuffer data = allocate(mzs.length * 8 + 2 * mzs.length * 4);
+    for (double mz : mzs) {
+      data.putDouble(mz);
+    }
+    for (float[] pixel : intensities) {
+      for (float intensity : pixel) {
+        data.putFloat(intensity);
+      }
+    }
+
+    try (ImzMLBinaryReader reader = new ImzMLBinaryReader(writeIbd(data))) {
+      final ArrayPosition mzPosition = new ArrayPosition(UUID_BYTES, mzs.length,
+          NumberType.FLOAT_64);
+      assertArrayEquals(mzs, reader.read(mzPosition));
+
+      long offset = UUID_BYTES + mzs.length * 8L;
+      for (float[] pixel : intensities) {
+        final double[] read = reader.read(
+            new ArrayPosition(offset, pixel.length, NumberType.FLOAT_32));
+        for (int i = 0; i < pixel.length; i++) {
+          assertEquals(pixel[i], read[i]);
+        }
+        offset += pixel.length * 4L;
+      }
+    }
+  }
+
+  @Test
+  void readProcessed() throws IOException {
+    // processed mode: every pixel has its own m/z array of a different length
+    final int[] mzs1 = {100, 150};
+    final long[] mzs2 = {110L, 160L, 210L};
+    final ByteBuffer data = allocate(mzs1.length * 4 + mzs2.length * 8);
+    for (int mz : mzs1) {
+      data.putInt(mz);
+    }
+    for (long mz : mzs2) {
+      data.putLong(mz);
+    }
+
+    try (ImzMLBinaryReader reader = new ImzMLBinaryReader(writeIbd(data))) {
+      final ArrayPosition first = new ArrayPosition(UUID_BYTES, mzs1.length, NumberType.INT_32);
+      final ArrayPosition second = new ArrayPosition(UUID_BYTES + mzs1.length * 4L, mzs2.length,
+          NumberType.INT_64);
+      // reading out of order uses the offsets, not the channel position
+      assertArrayEquals(new double[]{110, 160, 210}, reader.read(second));
+      assertArrayEquals(new double[]{100, 150}, reader.read(first));
+    }
+  }
+
+  @Test
+  void readBeyondFileFails() throws IOException {
+    final ByteBuffer data = allocate(8);
+    data.putDouble(1d);
+    try (ImzMLBinaryReader reader = new ImzMLBinaryReader(writeIbd(data))) {
+      assertThrows(EOFException.class,
+          () -> reader.read(new ArrayPosition(UUID_BYTES, 2, NumberType.FLOAT_64)));
+    }
+  }
+
+  @Test
+  void missingArrayHasNoPosition() {
+    assertNull(ArrayPosition.of(null));
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_spectral_library;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.MappedSpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.parser.AutoLibraryParser;
+import io.github.mzmine.util.spectraldb.parser.UnsupportedFormatException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpectralLibraryCacheTest {
+
+  @TempDir
+  Path dir;
+
+  private static SpectralLibrary parse(File file) throws UnsupportedFormatException, IOException {
+    final SpectralLibrary library = new SpectralLibrary(null, file);
+    final AutoLibraryParser parser = new AutoLibraryParser(100,
+        (list, _) -> library.addEntries(list));
+    assertTrue(parser.parse(null, file, library));
+    return library;
+  }
+
+  private File copyResource(String name) throws IOException {
+    final File file = dir.resolve(name).toFile();
+    try (InputStream in = SpectralLibraryCacheTest.class.getClassLoader()
+        .getResourceAsStream("io/github/mzmine/util/spectraldb/parser/" + name)) {
+      assertNotNull(in);
+      Files.copy(in, file.toPath());
+    }
+    return file;
+  }
+
+  @Test
+  void cachedLibraryEqualsParsedLibrary() throws Exception {
+    final File file = copyResource("riken.msp");
+    final SpectralLibrary parsed = parse(file);
+    final SpectralLibraryCache cache = new SpectralLibraryCache(dir.resolve("cache").toFile());
+
+    assertNull(cache.load(file));
+    assertTrue(cache.write(parsed));
+
+    final SpectralLibrary cached = cache.load(file);
+    assertNotNull(cached);
+    assertEquals(parsed.getName(), cached.getName());
+    final List<SpectralLibraryEntry> expected = parsed.getEntries();
+    final List<SpectralLibraryEntry> actual = cached.getEntries();
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      final SpectralLibraryEntry a = expected.get(i);
+      final SpectralLibraryEntry b = actual.get(i);
+      assertEquals(a.getFields(), b.getFields());
+      assertArrayEquals(a.getMzValues(new double[0]), b.getMzValues(new double[0]));
+      assertArrayEquals(a.getIntensityValues(new double[0]), b.getIntensityValues(new double[0]));
+      assertEquals(a.getBasePeakIntensity(), b.getBasePeakIntensity());
+      assertEquals(a.getTIC(), b.getTIC());
+      assertEquals(cached, b.getLibrary());
+    }
+  }
+
+  @Test
+  void mappedEntryKeepsChangedValues() throws Exception {
+    final File file = copyResource("riken.msp");
+    final SpectralLibraryCache cache = new SpectralLibraryCache(dir.resolve("cache").toFile());
+    assertTrue(cache.write(parse(file)));
+
+    final SpectralLibrary cached = cache.load(file);
+    assertNotNull(cached);
+    final SpectralLibraryEntry entry = cached.getEntries().getFirst();
+    assertInstanceOf(MappedSpectralLibraryEntry.class, entry);
+    assertTrue(entry.putIfNotNull(DBEntryField.COMMENT, "changed"));
+    assertEquals("changed", entry.getField(DBEntryField.COMMENT).orElseThrow());
+    assertEquals("changed", entry.getFields().get(DBEntryField.COMMENT));
+    // other entries share the mapping but not the change
+    assertNotEquals("changed", cached.getEntries().get(1).getOrElse(DBEntryField.COMMENT, null));
+  }
+
+  @Test
+  void changedLibraryIsNotLoadedFromCache() throws Exception {
+    final File file = copyResource("riken.msp");
+    final SpectralLibraryCache cache = new SpectralLibraryCache(dir.resolve("cache").toFile());
+    assertTrue(cache.write(parse(file)));
+
+    Files.writeString(file.toPath(), "\n", StandardOpenOption.APPEND);
+    assertNull(cache.load(file));
+  }
+
+  @Test
+  void outdatedCacheFilesAreDeleted() throws Exception {
+    final File file = copyResource("riken.msp");
+    final File cacheDir = dir.resolve("cache").toFile();
+    final SpectralLibraryCache cache = new SpectralLibraryCache(cacheDir);
+    assertTrue(cache.write(parse(file)));
+    final File outdated = cache.getCacheFile(file);
+    // cache of another library with a similar name is kept
+    final File other = new File(cacheDir, "riken.msp.bak-" + "0".repeat(32) + ".mzlibcache");
+    assertTrue(other.createNewFile());
+
+    Files.writeString(file.toPath(), "\n", StandardOpenOption.APPEND);
+    assertTrue(cache.write(parse(file)));
+
+    assertFalse(outdated.exists());
+    assertTrue(cache.getCacheFile(file).exists());
+    assertTrue(other.exists());
+  }
+}
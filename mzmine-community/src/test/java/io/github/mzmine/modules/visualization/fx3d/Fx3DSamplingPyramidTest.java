@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.fx3d;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.modules.visualization.fx3d.Fx3DSamplingPyramid.Level;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class Fx3DSamplingPyramidTest {
+
+  private static Fx3DSamplingPyramid createPyramid(RawDataFile raw, Scan[] scans) {
+    return Fx3DSamplingPyramid.of(raw, scans, Range.closed(0f, 10f), Range.closed(100d, 200d), 64,
+        64, () -> false, new AtomicInteger());
+  }
+
+  private static Scan[] createScans(RawDataFile raw) {
+    final Scan[] scans = new Scan[40];
+    for (int i = 0; i < scans.length; i++) {
+      scans[i] = new SimpleScan(raw, i, 1, i * 0.25f, null, new double[]{120d + i, 180d},
+          new double[]{100d * (i + 1), 50d}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE,
+          "", Range.closed(100d, 200d));
+    }
+    return scans;
+  }
+
+  @Test
+  void maxPool() {
+    final Level level = new Level(3, 3, new float[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+    final Level pooled = level.maxPool();
+    assertEquals(2, pooled.rtResolution());
+    assertEquals(2, pooled.mzResolution());
+    // odd resolutions pool the last row and column alone
+    assertArrayEquals(new float[]{5, 6, 8, 9}, pooled.values());
+
+    final Level single = new Level(1, 1, new float[]{3}).maxPool();
+    assertEquals(1, single.rtResolution());
+    assertArrayEquals(new float[]{3}, single.values());
+  }
+
+  @Test
+  void interpolateMissingRows() {
+    // 5 rows with 2 m/z bins, scans only in rows 1 and 4
+    final int[] rowStarts = {0, 0, 1, 1, 1, 2};
+    final float[] values = {0, 0, 0, 3, 0, 0, 0, 0, 3, 0};
+    Fx3DSamplingPyramid.interpolateMissingRows(values, rowStarts, 5, 2);
+    // rows before the first scan stay empty
+    assertArrayEquals(new float[]{0, 0, 0, 3, 1, 2, 2, 1, 3, 0}, values, 1e-6f);
+  }
+
+  @Test
+  void getLevel() {
+    final RawDataFile raw = new RawDataFileImpl("a", null, null);
+    final Fx3DSamplingPyramid pyramid = createPyramid(raw, createScans(raw));
+    assertNotNull(pyramid);
+
+    final List<Level> levels = pyramid.getLevels();
+    assertEquals(List.of(64, 32, 16), levels.stream().map(Level::rtResolution).toList());
+    // normalized to the maximum
+    assertEquals(1f, max(levels.getFirst().values()));
+
+    assertSame(levels.get(0), pyramid.getLevel(64, 64, Long.MAX_VALUE));
+    assertSame(levels.get(1), pyramid.getLevel(63, 100, Long.MAX_VALUE));
+    assertSame(levels.get(1), pyramid.getLevel(100, 100, 32 * 32));
+    assertSame(levels.get(2), pyramid.getLevel(20, 20, Long.MAX_VALUE));
+    // coarsest level if no level is small enough
+    assertSame(levels.get(2), pyramid.getLevel(1, 1, 1));
+  }
+
+  @Test
+  void pyramidIsCached() {
+    final RawDataFile raw = new RawDataFileImpl("a", null, null);
+    final Scan[] scans = createScans(raw);
+    assertSame(createPyramid(raw, scans), createPyramid(raw, scans));
+  }
+
+  private static float max(float[] values) {
+    float max = 0;
+    for (float value : values) {
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.networking.visual;
+
+import io.github.mzmine.modules.visualization.networking.visual.MultilevelForceLayout.Coordinates;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MultilevelForceLayoutTest {
+
+  private static double distance(Coordinates xy, int a, int b) {
+    return Math.hypot(xy.x()[a] - xy.x()[b], xy.y()[a] - xy.y()[b]);
+  }
+
+  @Test
+  void testGridUnfolds() {
+    final int side = 30;
+    final IntArrayList sources = new IntArrayList();
+    final IntArrayList targets = new IntArrayList();
+    for (int r = 0; r < side; r++) {
+      for (int c = 0; c < side; c++) {
+        final int node = r * side + c;
+        if (c + 1 < side) {
+          sources.add(node);
+          targets.add(node + 1);
+        }
+        if (r + 1 < side) {
+          sources.add(node);
+          targets.add(node + side);
+        }
+      }
+    }
+    final int n = side * side;
+    final Coordinates xy = MultilevelForceLayout.layout(n, sources.toIntArray(),
+        targets.toIntArray(), 42, null);
+    Assertions.assertNotNull(xy);
+
+    double edgeLength = 0;
+    for (int e = 0; e < sources.size(); e++) {
+      edgeLength += distance(xy, sources.getInt(e), targets.getInt(e));
+    }
+    Assertions.assertEquals(1d, edgeLength / sources.size(), 1e-6);
+    for (int i = 0; i < n; i++) {
+      Assertions.assertTrue(Double.isFinite(xy.x()[i]) && Double.isFinite(xy.y()[i]));
+    }
+    // an unfolded grid has diagonals of about sqrt(2) * (side - 1)
+    final double diagonal = Math.sqrt(2) * (side - 1);
+    Assertions.assertTrue(distance(xy, 0, n - 1) > 0.8 * diagonal);
+    Assertions.assertTrue(distance(xy, side - 1, n - side) > 0.8 * diagonal);
+
+    // deterministic
+    final Coordinates second = MultilevelForceLayout.layout(n, sources.toIntArray(),
+        targets.toIntArray(), 42, null);
+    Assertions.assertArrayEquals(xy.x(), second.x());
+  }
+
+  @Test
+  void testSmallGraphs() {
+    Assertions.assertEquals(0,
+        MultilevelForceLayout.layout(0, new int[0], new int[0], 42, null).x().length);
+    Assertions.assertEquals(1,
+        MultilevelForceLayout.layout(1, new int[0], new int[0], 42, null).x().length);
+    // duplicate edges and self loops
+    final Coordinates xy = MultilevelForceLayout.layout(2, new int[]{0, 0, 1},
+        new int[]{1, 1, 1}, 42, null);
+    Assertions.assertEquals(1d, distance(xy, 0, 1), 1e-6);
+    // canceled
+    Assertions.assertNull(
+        MultilevelForceLayout.layout(100, new int[]{0}, new int[]{1}, 42, () -> true));
+  }
+}
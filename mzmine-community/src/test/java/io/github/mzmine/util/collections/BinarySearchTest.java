@@ -58,6 +58,22 @@ class BinarySearchTest {
     checkIndexRange(100, 115);
   }
 
+  @Test
+  void indexRangeIncludesAllEqualValues() {
+    final double[] duplicates = {1, 2, 2, 2, 2, 2, 2, 3};
+    IndexRange range = BinarySearch.indexRange(duplicates, 2, 2);
+    assertEquals(1, range.min());
+    assertEquals(6, range.maxInclusive());
+
+    range = BinarySearch.indexRange(duplicates, 2, 3);
+    assertEquals(1, range.min());
+    assertEquals(7, range.maxInclusive());
+
+    range = BinarySearch.indexRange(duplicates, 0, 2);
+    assertEquals(0, range.min());
+    assertEquals(6, range.maxInclusive());
+  }
+
   void checkIndexRange(double min, double max) {
     IndexRange range = BinarySearch.indexRange(data, min, max);
     int upper = Math.min(MAX, (int) Math.floor(max));
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionChecker;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+class FormulaEnumeratorTest {
+
+  private static MolecularFormulaRange range;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    final Isotopes isotopes = Isotopes.getInstance();
+    range = new MolecularFormulaRange();
+    range.addIsotope(isotopes.getMajorIsotope("C"), 0, 60);
+    range.addIsotope(isotopes.getMajorIsotope("H"), 0, 100);
+    range.addIsotope(isotopes.getMajorIsotope("N"), 0, 10);
+    range.addIsotope(isotopes.getMajorIsotope("O"), 0, 20);
+    range.addIsotope(isotopes.getMajorIsotope("P"), 0, 2);
+    range.addIsotope(isotopes.getMajorIsotope("S"), 0, 3);
+  }
+
+  private static Set<String> generateWithCdk(double minMass, double maxMass) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(
+        SilentChemObjectBuilder.getInstance(), minMass, maxMass, range);
+    final Set<String> formulas = new HashSet<>();
+    IMolecularFormula formula;
+    while ((formula = generator.getNextFormula()) != null) {
+      formulas.add(MolecularFormulaManipulator.getString(formula));
+    }
+    return formulas;
+  }
+
+  @Test
+  void sameFormulasAsCdk() {
+    final FormulaEnumerator enumerator = FormulaEnumerator.forRange(range);
+    assertTrue(enumerator.isLatticeBased());
+
+    for (double mass : new double[]{180.0634, 301.1412, 455.2897, 611.1441}) {
+      final double tolerance = mass * 5e-6;
+      final FormulaCandidates candidates = enumerator.findFormulas(mass - tolerance,
+          mass + tolerance);
+      final Set<String> formulas = new HashSet<>();
+      for (int i = 0; i < candidates.size(); i++) {
+        formulas.add(MolecularFormulaManipulator.getString(candidates.toFormula(i)));
+        if (i > 0) {
+          assertTrue(candidates.getMass(i - 1) <= candidates.getMass(i));
+        }
+      }
+      assertEquals(generateWithCdk(mass - tolerance, mass + tolerance), formulas);
+    }
+  }
+
+  @Test
+  void cachedWindowIsCutToExactWindow() {
+    final FormulaEnumerator enumerator = FormulaEnumerator.forRange(range);
+    final FormulaCandidates wide = enumerator.findFormulas(300.0, 300.01);
+    final FormulaCandidates narrow = enumerator.findFormulas(300.002, 300.004);
+    for (int i = 0; i < narrow.size(); i++) {
+      assertTrue(narrow.getMass(i) >= 300.002 && narrow.getMass(i) <= 300.004);
+    }
+    int inWide = 0;
+    for (int i = 0; i < wide.size(); i++) {
+      if (wide.getMass(i) >= 300.002 && wide.getMass(i) <= 300.004) {
+        inWide++;
+      }
+    }
+    assertEquals(inWide, narrow.size());
+  }
+
+  @Test
+  void countChecksMatchFormulaChecks() {
+    final FormulaCandidates candidates = FormulaEnumerator.forRange(range)
+        .findFormulas(400, 400.05);
+    assertTrue(candidates.size() > 100);
+    for (int i = 0; i < candidates.size(); i++) {
+      final IMolecularFormula formula = candidates.toFormula(i);
+      assertEquals(RDBERestrictionChecker.calculateRDBE(formula).doubleValue(),
+          candidates.getRDBE(i));
+      assertEquals(ElementalHeuristicChecker.checkFormula(formula, true, true, true),
+          candidates.checkElementalHeuristics(i, true, true, true));
+      assertEquals(ElementalHeuristicChecker.checkFormula(formula, true, false, false),
+          candidates.checkElementalHeuristics(i, true, false, false));
+    }
+  }
+
+  @Test
+  void sharedEnumeratorsAreBoundedBySize() throws Exception {
+    final FormulaEnumerator enumerator = FormulaEnumerator.forRange(range);
+    assertSame(enumerator, FormulaEnumerator.forRange(range));
+    final long bytes = enumerator.estimateBytes();
+    assertTrue(bytes > 0);
+    final long sharedBytes = FormulaEnumerator.getSharedEnumeratorBytes();
+    enumerator.findFormulas(500, 500.5);
+    final long windowBytes = enumerator.estimateBytes() - bytes;
+    assertTrue(windowBytes > 0);
+    // the running total follows the cached windows of shared enumerators
+    assertEquals(sharedBytes + windowBytes, FormulaEnumerator.getSharedEnumeratorBytes());
+
+    // sub formula ranges of many parents are not shared and do not change the total
+    final Isotopes isotopes = Isotopes.getInstance();
+    for (int c = 1; c <= 50; c++) {
+      final MolecularFormulaRange subRange = new MolecularFormulaRange();
+      subRange.addIsotope(isotopes.getMajorIsotope("C"), 0, c);
+      subRange.addIsotope(isotopes.getMajorIsotope("H"), 0, 2 * c + 2);
+      subRange.addIsotope(isotopes.getMajorIsotope("O"), 0, 6);
+      final FormulaEnumerator sub = FormulaEnumerator.create(subRange);
+      assertNotSame(sub, FormulaEnumerator.create(subRange));
+      sub.findFormulas(100, 100.5);
+    }
+    assertEquals(sharedBytes + windowBytes, FormulaEnumerator.getSharedEnumeratorBytes());
+    assertTrue(FormulaEnumerator.getSharedEnumeratorBytes()
+        <= FormulaEnumerator.MAX_CACHED_ENUMERATOR_BYTES);
+    // enumerators are only evicted above the size limit
+    assertSame(enumerator, FormulaEnumerator.forRange(range));
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.maths.kernels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay.SavitzkyGolayFilter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+class ArrayKernelsTest {
+
+  private static final Logger logger = Logger.getLogger(ArrayKernelsTest.class.getName());
+  private static final double TOLERANCE = 1E-9;
+
+  private final ArrayKernels scalar = ArrayKernels.scalar();
+  private ArrayKernels vector;
+
+  private static double[] randomIntensities(Random rand, int n) {
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      values[i] = rand.nextInt(5) == 0 ? 0d : rand.nextDouble() * 1E6 - 1E4;
+    }
+    return values;
+  }
+
+  @BeforeEach
+  void createVectorKernels() {
+    // the incubator module is opt-in, run with gradlew test -PvectorKernels
+    assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+        "jdk.incubator.vector is not added");
+    vector = new VectorArrayKernels();
+  }
+
+  @Test
+  void instanceIsAvailable() {
+    assertEquals(vector.isVectorized() && new VectorArrayKernels().getLanes() > 1,
+        ArrayKernels.getInstance().isVectorized());
+  }
+
+  @Test
+  void convolveMatchesScalar() {
+    final Random rand = new Random(42);
+    for (int width : new int[]{0, 3, 5, 7, 11, 21, 51}) {
+      final double[] weights = SavitzkyGolayFilter.getNormalizedWeights(width);
+      // lengths around the filter width and vector lanes
+      for (int n = 0; n < 150; n++) {
+        final double[] values = randomIntensities(rand, n);
+        final double[] expected = new double[n];
+        final double[] actual = new double[n];
+        scalar.convolve(values, n, weights, expected);
+        vector.convolve(values, n, weights, actual);
+        assertArrayEquals(expected, actual, TOLERANCE, "width " + width + ", length " + n);
+      }
+    }
+  }
+
+  @Test
+  void convolveOnlyUsesNumValues() {
+    final double[] weights = SavitzkyGolayFilter.getNormalizedWeights(5);
+    final double[] values = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 1000, 1000};
+    final double[] expected = new double[10];
+    scalar.convolve(Arrays.copyOf(values, 10), 10, weights, expected);
+    final double[] actual = new double[values.length];
+    vector.convolve(values, 10, weights, actual);
+    assertArrayEquals(expected, Arrays.copyOf(actual, 10), TOLERANCE);
+  }
+
+  @Test
+  void clampSmoothedMatchesScalar() {
+    final Random rand = new Random(1);
+    for (int n = 0; n < 100; n++) {
+      final double[] original = randomIntensities(rand, n);
+      final double[] expected = randomIntensities(rand, n);
+      final double[] actual = expected.clone();
+      scalar.clampSmoothed(expected, original, n);
+      vector.clampSmoothed(actual, original, n);
+      assertArrayEquals(expected, actual, TOLERANCE);
+      for (int i = 0; i < n; i++) {
+        assertTrue(actual[i] >= 0);
+        if (original[i] == 0) {
+          assertEquals(0d, actual[i]);
+        }
+      }
+    }
+  }
+
+  @Test
+  void subtractBaselineMatchesScalar() {
+    final Random rand = new Random(2);
+    for (int n = 0; n < 100; n++) {
+      final double[] values = randomIntensities(rand, n);
+      final double[] baseline = randomIntensities(rand, n);
+      final double offset = rand.nextDouble() * 100;
+      final double[] expected = new double[n];
+      scalar.subtractBaseline(values, baseline, offset, expected, n);
+      // in place
+      final double[] actual = values.clone();
+      vector.subtractBaseline(actual, baseline, offset, actual, n);
+      assertArrayEquals(expected, actual, TOLERANCE);
+    }
+  }
+
+  @Test
+  void asymmetricWeightsMatchScalar() {
+    final Random rand = new Random(3);
+    for (int n = 0; n < 100; n++) {
+      final double[] values = randomIntensities(rand, n);
+      final double[] fit = randomIntensities(rand, n);
+      final double[] expected = new double[n];
+      final double[] actual = new double[n];
+      scalar.asymmetricWeights(values, fit, 0.001, expected, n);
+      vector.asymmetricWeights(values, fit, 0.001, actual, n);
+      assertArrayEquals(expected, actual, 0d);
+    }
+  }
+
+  /**
+   * Per kernel run times on many EICs of IMS or imaging size
+   */
+  @Disabled("Benchmark")
+  @Test
+  void benchmarkKernels() {
+    final Random rand = new Random(7);
+    final int n = 2000;
+    final int features = 20_000;
+    final double[] values = randomIntensities(rand, n);
+    final double[] other = randomIntensities(rand, n);
+    final double[] dst = new double[n];
+    final double[] weights = SavitzkyGolayFilter.getNormalizedWeights(11);
+
+    benchmark("convolve", features, k -> k.convolve(values, n, weights, dst));
+    benchmark("clampSmoothed", features, k -> k.clampSmoothed(dst, values, n));
+    benchmark("subtractBaseline", features, k -> k.subtractBaseline(values, other, 5, dst, n));
+    benchmark("asymmetricWeights", features,
+        k -> k.asymmetricWeights(values, other, 0.001, dst, n));
+  }
+
+  private void benchmark(String name, int features, Consumer<ArrayKernels> kernel) {
+    final long[] nanos = new long[2];
+    final ArrayKernels[] implementations = {scalar, vector};
+    for (int round = 0; round < 2; round++) {
+      // first round is warm up
+      for (int k = 0; k < implementations.length; k++) {
+        final long start = System.nanoTime();
+        for (int f = 0; f < features; f++) {
+          kernel.accept(implementations[k]);
+        }
+        nanos[k] = System.nanoTime() - start;
+      }
+    }
+    logger.info("%s on %d features: scalar %.1f ms, vector %.1f ms".formatted(name, features,
+        nanos[0] / 1E6, nanos[1] / 1E6));
+  }
+}
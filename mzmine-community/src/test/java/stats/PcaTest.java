@@ -26,11 +26,15 @@
 package stats;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import io.github.mzmine.modules.dataanalysis.pca_new.PCAResult;
 import io.github.mzmine.modules.dataanalysis.pca_new.PCAUtils;
+import io.github.mzmine.modules.dataanalysis.pca_new.RandomizedSVD;
 import io.github.mzmine.modules.dataanalysis.utils.StatisticUtils;
 import io.github.mzmine.modules.dataanalysis.utils.scaling.RangeScalingFunction;
 import java.util.Arrays;
+import java.util.Random;
 import java.util.logging.Logger;
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.apache.commons.math3.linear.RealMatrix;
@@ -79,4 +83,58 @@ public class PcaTest {
   }
 
 
+  @Test
+  void truncatedPcaMatchesFullSvd() {
+    // low rank data with noise, 40 samples x 500 features
+    final int samples = 40;
+    final int features = 500;
+    final Random random = new Random(1);
+    final double[][] sampleFactors = new double[samples][6];
+    final double[][] featureFactors = new double[6][features];
+    for (double[] factors : sampleFactors) {
+      for (int i = 0; i < factors.length; i++) {
+        factors[i] = random.nextGaussian() * (6 - i);
+      }
+    }
+    for (double[] factors : featureFactors) {
+      Arrays.setAll(factors, _ -> random.nextGaussian());
+    }
+    final double[][] data = new double[samples][features];
+    for (int s = 0; s < samples; s++) {
+      for (int f = 0; f < features; f++) {
+        double value = random.nextGaussian() * 0.1;
+        for (int i = 0; i < 6; i++) {
+          value += sampleFactors[s][i] * featureFactors[i][f];
+        }
+        data[s][f] = value;
+      }
+    }
+    final RealMatrix centered = StatisticUtils.center(new Array2DRowRealMatrix(data), false);
+    final PCAResult full = PCAUtils.quickPCA(centered);
+
+    final double[] rowMajor = new double[samples * features];
+    for (int s = 0; s < samples; s++) {
+      System.arraycopy(centered.getRow(s), 0, rowMajor, s * features, features);
+    }
+    final PCAResult truncated = new RandomizedSVD(rowMajor, samples, features).decompose(3);
+
+    assertEquals(3, truncated.componentCount());
+    assertEquals(full.totalVariance(), truncated.totalVariance(), full.totalVariance() * 1e-9);
+    final float[] fullContributions = full.getComponentContributions(3);
+    final float[] truncatedContributions = truncated.getComponentContributions(3);
+    for (int pc = 0; pc < 3; pc++) {
+      assertEquals(full.singularValues()[pc], truncated.singularValues()[pc],
+          full.singularValues()[pc] * 1e-6);
+      assertEquals(fullContributions[pc], truncatedContributions[pc], 1e-5);
+      // scores are equal up to the sign of the component
+      final double sign = Math.signum(
+          full.principalComponentsMatrix().getColumnVector(pc)
+              .dotProduct(truncated.principalComponentsMatrix().getColumnVector(pc)));
+      for (int s = 0; s < samples; s++) {
+        assertEquals(full.projectDataToScores(3).getEntry(s, pc),
+            sign * truncated.projectDataToScores(3).getEntry(s, pc),
+            full.singularValues()[0] * 1e-6);
+      }
+    }
+  }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package stats;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.statistics.FeatureListRowAbundances;
+import io.github.mzmine.datamodel.statistics.FeaturesDataTable;
+import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceBatchTest;
+import io.github.mzmine.modules.dataanalysis.significance.RowSignificanceBatchTest.Result;
+import io.github.mzmine.modules.dataanalysis.significance.SignificanceTests;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SignificanceBatchTest {
+
+  // sleep data set from R
+  private static final double[] groupA = {0.7, -1.6, -0.2, -1.2, -0.1, 3.4, 3.7, 0.8, 0.0, 2.0};
+  private static final double[] groupB = {1.9, 0.8, 1.1, 0.1, -0.1, 4.4, 5.5, 1.6, 4.6, 3.4};
+
+  @Test
+  void batchMatchesRowTests() {
+    final Random random = new Random(42);
+    final int features = 600;
+    final int samples = 15;
+    final double[] values = new double[features * samples];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextGaussian() + (i % samples < 5 ? 0.5 : 0);
+    }
+    final int[][] twoGroups = {{0, 1, 2, 3, 4}, {5, 6, 7, 8, 9}};
+    final int[][] threeGroups = {{0, 1, 2, 3, 4}, {5, 6, 7, 8, 9}, {10, 11, 12, 13, 14}};
+
+    for (SignificanceTests test : SignificanceTests.values()) {
+      final int[][] groups = test == SignificanceTests.ONE_WAY_ANOVA ? threeGroups : twoGroups;
+      final Result result = RowSignificanceBatchTest.test(values, features, samples, test, groups);
+
+      for (int f = 0; f < features; f++) {
+        final int offset = f * samples;
+        final List<double[]> data = Arrays.stream(groups)
+            .map(g -> Arrays.stream(g).mapToDouble(i -> values[offset + i]).toArray()).toList();
+        Assertions.assertEquals(test.test(data), result.pValue(f), 1e-10, test.toString());
+      }
+    }
+  }
+
+  @Test
+  void changedTableIsPreparedAgain() {
+    final List<RawDataFile> files = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      files.add(new RawDataFileImpl("sample" + i, null, null));
+    }
+    final ModularFeatureList flist = new ModularFeatureList("flist", null, files);
+    final FeatureListRowAbundances[] rows = new FeatureListRowAbundances[2];
+    for (int r = 0; r < rows.length; r++) {
+      final double[] abundances = new double[files.size()];
+      System.arraycopy(groupA, 0, abundances, 0, 5);
+      System.arraycopy(groupB, 0, abundances, 5, 5);
+      rows[r] = FeatureListRowAbundances.of(new ModularFeatureListRow(flist, r + 1), abundances,
+          false);
+    }
+    final FeaturesDataTable table = new FeaturesDataTable(files, rows);
+    final List<List<RawDataFile>> groups = List.of(files.subList(0, 5), files.subList(5, 10));
+
+    final Result before = RowSignificanceBatchTest.test(table, SignificanceTests.WELCHS_T_TEST,
+        groups);
+    Assertions.assertSame(before,
+        RowSignificanceBatchTest.test(table, SignificanceTests.WELCHS_T_TEST, groups));
+
+    // scaling functions change the table in place
+    table.setValue(0, 0, 100);
+    final Result after = RowSignificanceBatchTest.test(table, SignificanceTests.WELCHS_T_TEST,
+        groups);
+    Assertions.assertNotEquals(before.pValue(0), after.pValue(0));
+    Assertions.assertEquals(SignificanceTests.WELCHS_T_TEST.test(
+            List.of(Arrays.copyOfRange(table.getFeatureData(0, false), 0, 5), groupB)),
+        after.pValue(0), 1e-10);
+    Assertions.assertEquals(before.pValue(1), after.pValue(1), 1e-10);
+  }
+
+  @Test
+  void testsMatchReference() {
+    final List<double[]> data = List.of(groupA, groupB);
+    Assertions.assertEquals(0.07939, SignificanceTests.WELCHS_T_TEST.test(data), 1e-5);
+    Assertions.assertEquals(0.07919, SignificanceTests.STUDENTS_T_TEST.test(data), 1e-5);
+    Assertions.assertEquals(0.002833, SignificanceTests.PAIRED_T_TEST.test(data), 1e-6);
+  }
+
+  @Test
+  void sameGroupRuleForSingleAndBatchTests() {
+    final List<double[]> data = List.of(groupA, groupB);
+    final double[] values = new double[groupA.length + groupB.length];
+    System.arraycopy(groupA, 0, values, 0, groupA.length);
+    System.arraycopy(groupB, 0, values, groupA.length, groupB.length);
+    final int[][] twoGroups = {{0, 1, 2, 3, 4, 5, 6, 7, 8, 9},
+        {10, 11, 12, 13, 14, 15, 16, 17, 18, 19}};
+
+    // two groups are valid for the ANOVA in both and give the Student's t-test p value
+    final double pValue = SignificanceTests.ONE_WAY_ANOVA.checkAndTest(data);
+    Assertions.assertEquals(SignificanceTests.STUDENTS_T_TEST.test(data), pValue, 1e-10);
+    Assertions.assertEquals(pValue, RowSignificanceBatchTest.test(values, 1, values.length,
+        SignificanceTests.ONE_WAY_ANOVA, twoGroups).pValue(0), 1e-10);
+
+    final List<double[]> oneGroup = List.of(groupA);
+    final int[][] oneGroupIndexes = {twoGroups[0]};
+    for (SignificanceTests test : SignificanceTests.values()) {
+      Assertions.assertThrows(IllegalArgumentException.class, () -> test.checkAndTest(oneGroup));
+      Assertions.assertThrows(IllegalArgumentException.class,
+          () -> RowSignificanceBatchTest.test(values, 1, values.length, test, oneGroupIndexes));
+    }
+  }
+
+  @Test
+  void benjaminiHochberg() {
+    final double[] q = RowSignificanceBatchTest.benjaminiHochberg(
+        new double[]{0.01, 0.04, Double.NaN, 0.03, 0.5});
+    Assertions.assertArrayEquals(new double[]{0.04, 0.16 / 3, Double.NaN, 0.16 / 3, 0.5}, q,
+        1e-12);
+  }
+}
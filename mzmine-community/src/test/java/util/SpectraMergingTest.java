@@ -29,7 +29,11 @@ import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.scans.SpectraMerging;
 import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
+import io.github.mzmine.util.scans.merging.SweepLineSpectraMerging;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -107,4 +111,130 @@ public class SpectraMergingTest {
     Assertions.assertEquals(25d, mzsIntensities[1][2]);
   }
 
+  @Test
+  void testSweepLineMerge_Summed() {
+    final SimpleMassList ml1 = new SimpleMassList(null, new double[]{1, 5, 10},
+        new double[]{10, 10, 10});
+    final SimpleMassList ml2 = new SimpleMassList(null, new double[]{1, 5, 10},
+        new double[]{20, 30, 40});
+    final double[][] mzsIntensities = SweepLineSpectraMerging.mergeMzsAndIntensities(
+        List.of(ml1, ml2), new MZTolerance(0.01, 10), IntensityMergingType.SUMMED,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null);
+
+    Assertions.assertArrayEquals(new double[]{1, 5, 10}, mzsIntensities[0]);
+    Assertions.assertArrayEquals(new double[]{30, 40, 50}, mzsIntensities[1]);
+  }
+
+  @Test
+  void testSweepLineMerge_SameSpectrumNotMerged() {
+    // 100.004 is within tolerance of 100 but in the same spectrum
+    final SimpleMassList ml1 = new SimpleMassList(null, new double[]{100, 100.004},
+        new double[]{50, 10});
+    final SimpleMassList ml2 = new SimpleMassList(null, new double[]{100.002, 200},
+        new double[]{20, 5});
+    final double[][] mzsIntensities = SweepLineSpectraMerging.mergeMzsAndIntensities(
+        List.of(ml1, ml2), new MZTolerance(0.005, 0), IntensityMergingType.MAXIMUM,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, 2);
+
+    // only the cluster of the most intense signal has a signal of both spectra
+    Assertions.assertEquals(1, mzsIntensities[0].length);
+    Assertions.assertEquals(50d, mzsIntensities[1][0]);
+    Assertions.assertTrue(mzsIntensities[0][0] > 100 && mzsIntensities[0][0] < 100.002);
+  }
+
+  @Test
+  void testSweepLineMerge_SameSpectrumDropped() {
+    final SimpleMassList ml1 = new SimpleMassList(null, new double[]{100, 100.004},
+        new double[]{50, 10});
+    final SimpleMassList ml2 = new SimpleMassList(null, new double[]{100.002, 200},
+        new double[]{20, 5});
+    final MZTolerance tolerance = new MZTolerance(0.005, 0);
+
+    // the second signal of spectrum 1 is dropped
+    final double[][] rangeMap = SpectraMerging.calculatedMergedMzsAndIntensities(
+        List.of(ml1, ml2), tolerance, IntensityMergingType.MAXIMUM,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null);
+    final double[][] sweepLine = SweepLineSpectraMerging.mergeMzsAndIntensities(
+        List.of(ml1, ml2), tolerance, IntensityMergingType.MAXIMUM,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null);
+    Assertions.assertEquals(2, sweepLine[0].length);
+    Assertions.assertArrayEquals(rangeMap[0], sweepLine[0]);
+    Assertions.assertArrayEquals(rangeMap[1], sweepLine[1]);
+  }
+
+  @Test
+  void testSweepLineMerge_SameAsRangeMapForSeparatedSignals() {
+    final Random random = new Random(42);
+    final MZTolerance tolerance = new MZTolerance(0.005, 0);
+    for (int run = 0; run < 20; run++) {
+      // signals of the same spectrum are far apart and all signals of a center are within tolerance
+      final List<SimpleMassList> spectra = new ArrayList<>();
+      for (int s = 0; s < 10; s++) {
+        final double[] mzs = new double[50];
+        final double[] intensities = new double[50];
+        int n = 0;
+        for (int center = 0; center < 50; center++) {
+          if (random.nextDouble() < 0.6) {
+            mzs[n] = 100 + center + (random.nextDouble() - 0.5) * 0.004;
+            intensities[n] = 1 + random.nextDouble() * 1000;
+            n++;
+          }
+        }
+        spectra.add(new SimpleMassList(null, Arrays.copyOf(mzs, n),
+            Arrays.copyOf(intensities, n)));
+      }
+
+      for (IntensityMergingType type : IntensityMergingType.values()) {
+        final double[][] rangeMap = SpectraMerging.calculatedMergedMzsAndIntensities(spectra,
+            tolerance, type, SpectraMerging.DEFAULT_CENTER_FUNCTION, 50d, 100d, 2);
+        final double[][] sweepLine = SweepLineSpectraMerging.mergeMzsAndIntensities(spectra,
+            tolerance, type, SpectraMerging.DEFAULT_CENTER_FUNCTION, 50d, 100d, 2);
+        Assertions.assertArrayEquals(rangeMap[0], sweepLine[0], 1E-9);
+        Assertions.assertArrayEquals(rangeMap[1], sweepLine[1], 1E-6);
+      }
+    }
+  }
+
+  @Test
+  void testSweepLineMerge_SameAsRangeMapForCrowdedSignals() {
+    final Random random = new Random(7);
+    final MZTolerance[] tolerances = {new MZTolerance(0.005, 0), new MZTolerance(0.002, 15),
+        new MZTolerance(0, 40)};
+    for (int run = 0; run < 40; run++) {
+      // many signals per tolerance window, signals of the same spectrum within tolerance, and equal
+      // mzs and intensities
+      final List<SimpleMassList> spectra = new ArrayList<>();
+      final int numSpectra = 1 + random.nextInt(12);
+      for (int s = 0; s < numSpectra; s++) {
+        final int numDp = random.nextInt(150);
+        final double[] mzs = new double[numDp];
+        final double[] intensities = new double[numDp];
+        for (int i = 0; i < numDp; i++) {
+          mzs[i] = random.nextInt(4) == 0 ? 150 + random.nextInt(40) * 0.001
+              : 150 + random.nextDouble() * (run % 2 == 0 ? 0.1 : 2);
+          intensities[i] = 1 + random.nextInt(run % 3 == 0 ? 5 : 1000);
+        }
+        Arrays.sort(mzs);
+        spectra.add(new SimpleMassList(null, mzs, intensities));
+      }
+
+      for (MZTolerance tolerance : tolerances) {
+        for (IntensityMergingType type : IntensityMergingType.values()) {
+          for (boolean filters : new boolean[]{false, true}) {
+            final Double inputNoise = filters ? 50d : null;
+            final Double outputNoise = filters ? 200d : null;
+            final Integer minNumPeaks = filters ? 2 : null;
+            final double[][] rangeMap = SpectraMerging.calculatedMergedMzsAndIntensities(spectra,
+                tolerance, type, SpectraMerging.DEFAULT_CENTER_FUNCTION, inputNoise, outputNoise,
+                minNumPeaks);
+            final double[][] sweepLine = SweepLineSpectraMerging.mergeMzsAndIntensities(spectra,
+                tolerance, type, SpectraMerging.DEFAULT_CENTER_FUNCTION, inputNoise, outputNoise,
+                minNumPeaks);
+            Assertions.assertArrayEquals(rangeMap[0], sweepLine[0]);
+            Assertions.assertArrayEquals(rangeMap[1], sweepLine[1]);
+          }
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2026 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package util.lipidannotationtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationUtils;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClasses;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.CompiledLipidDatabase;
+import io.github.mzmine.util.collections.IndexRange;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompiledLipidDatabaseTest {
+
+  private static final ILipidClass[] CLASSES = {LipidClasses.FREEFATTYACIDS,
+      LipidClasses.FATTYACYLCARNITINES};
+  private static final Set<PolarityType> POLARITIES = Set.of(PolarityType.POSITIVE,
+      PolarityType.NEGATIVE);
+
+  @TempDir
+  File cacheDir;
+
+  private static String describe(LipidIon ion) {
+    return "%.6f %s %s".formatted(ion.mz(), ion.lipidAnnotation().getAnnotation(),
+        ion.ionizationType());
+  }
+
+  private static List<String> describeAll(CompiledLipidDatabase database) {
+    final List<String> ions = new ArrayList<>();
+    for (int i = 0; i < database.size(); i++) {
+      ions.add(describe(database.getLipidIon(i)));
+      if (i > 0) {
+        assertTrue(database.getMz(i - 1) <= database.getMz(i));
+      }
+    }
+    return ions;
+  }
+
+  @Test
+  void sameIonsAsLipidDatabase() {
+    final List<String> expected = LipidAnnotationUtils.buildLipidDatabase(CLASSES, 12, 24, 0, 6,
+        true, null, POLARITIES).stream().map(CompiledLipidDatabaseTest::describe).sorted().toList();
+    final CompiledLipidDatabase database = CompiledLipidDatabase.compile(CLASSES, 12, 24, 0, 6,
+        true, null, POLARITIES);
+
+    assertEquals(expected, describeAll(database).stream().sorted().toList());
+    assertSame(database.getLipidIon(0), database.getLipidIon(0));
+  }
+
+  @Test
+  void loadsFromCache() {
+    final CompiledLipidDatabase compiled = CompiledLipidDatabase.loadOrCompile(cacheDir, CLASSES,
+        12, 24, 0, 6, false, null, POLARITIES);
+    assertEquals(1, cacheDir.listFiles().length);
+
+    final CompiledLipidDatabase cached = CompiledLipidDatabase.loadOrCompile(cacheDir, CLASSES, 12,
+        24, 0, 6, false, null, POLARITIES);
+    assertEquals(describeAll(compiled), describeAll(cached));
+
+    // other parameters use another cache file
+    CompiledLipidDatabase.loadOrCompile(cacheDir, CLASSES, 12, 22, 0, 6, false, null, POLARITIES);
+    assertEquals(2, cacheDir.listFiles().length);
+  }
+
+  @Test
+  void leastRecentlyUsedCacheFilesAreDeleted() throws IOException {
+    final long now = System.currentTimeMillis();
+    final List<File> oldFiles = new ArrayList<>();
+    for (int i = 0; i < CompiledLipidDatabase.MAX_CACHED_DATABASES + 5; i++) {
+      final File file = new File(cacheDir, "old" + i + ".mzlipiddb");
+      assertTrue(file.createNewFile());
+      assertTrue(file.setLastModified(now - 3_600_000L * (i + 1)));
+      oldFiles.add(file);
+    }
+    final File other = new File(cacheDir, "other.txt");
+    assertTrue(other.createNewFile());
+
+    CompiledLipidDatabase.loadOrCompile(cacheDir, CLASSES, 12, 24, 0, 6, false, null, POLARITIES);
+
+    // the new file and the most recent old files are kept
+    final int keptOld = CompiledLipidDatabase.MAX_CACHED_DATABASES - 1;
+    for (int i = 0; i < oldFiles.size(); i++) {
+      assertEquals(i < keptOld, oldFiles.get(i).exists(), oldFiles.get(i).getName());
+    }
+    assertTrue(other.exists());
+    assertEquals(CompiledLipidDatabase.MAX_CACHED_DATABASES + 1, cacheDir.listFiles().length);
+  }
+
+  @Test
+  void indexRange() {
+    final CompiledLipidDatabase database = CompiledLipidDatabase.compile(CLASSES, 12, 24, 0, 6,
+        true, null, POLARITIES);
+    final double mz = database.getMz(database.size() / 2);
+    final Range<Double> mzRange = Range.closed(mz - 0.01, mz + 0.01);
+    final IndexRange range = database.indexRange(mzRange);
+    assertTrue(range.notEmpty());
+    for (int i = 0; i < database.size(); i++) {
+      assertEquals(mzRange.contains(database.getMz(i)),
+          i >= range.min() && i < range.maxExclusive());
+    }
+    assertTrue(database.indexRange(Range.closed(Double.MAX_VALUE - 1, Double.MAX_VALUE)).isEmpty());
+  }
+}
@@ -248,10 +248,18 @@ public class BinarySearch {
       // no signal found
       return IndexRange.EMPTY;
     }
+    // a direct match may be any of multiple equal values
+    while (lower > fromIndex && valueAtIndexProvider.applyAsDouble(lower - 1) >= lowerValue) {
+      lower--;
+    }
 
     // start to search from lower index
     int upper = BinarySearch.binarySearch(upperValue, DefaultTo.LESS_EQUALS, lower,
         toIndexExclusive, valueAtIndexProvider);
+    while (upper != -1 && upper + 1 < toIndexExclusive
+        && valueAtIndexProvider.applyAsDouble(upper + 1) <= upperValue) {
+      upper++;
+    }
     return IndexRange.ofInclusive(lower, upper);
   }
 